@@ -0,0 +1,54 @@
+package com.ejemplo.chatgptwebhook.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * Cliente HTTP compartido para la API de OpenAI: pool de conexiones dimensionado,
+ * cola de adquisición acotada, expulsión de conexiones ociosas, timeouts y compresión.
+ * Las métricas del pool (activas, ociosas, pendientes) se publican en Micrometer
+ * como reactor.netty.connection.provider.*
+ */
+@Configuration
+public class OpenAiHttpClientConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider openAiConnectionProvider(
+            @Value("${openai.http.max-conexiones:50}") int maxConexiones,
+            @Value("${openai.http.max-pendientes:500}") int maxPendientes,
+            @Value("${openai.http.timeout-adquisicion-ms:10000}") long timeoutAdquisicionMs,
+            @Value("${openai.http.max-ocioso-segundos:30}") long maxOciosoSegundos,
+            @Value("${openai.http.max-vida-segundos:300}") long maxVidaSegundos) {
+        return ConnectionProvider.builder("openai")
+                .maxConnections(maxConexiones)
+                .pendingAcquireMaxCount(maxPendientes)
+                .pendingAcquireTimeout(Duration.ofMillis(timeoutAdquisicionMs))
+                .maxIdleTime(Duration.ofSeconds(maxOciosoSegundos))
+                .maxLifeTime(Duration.ofSeconds(maxVidaSegundos))
+                .evictInBackground(Duration.ofSeconds(maxOciosoSegundos))
+                .metrics(true)
+                .build();
+    }
+
+    @Bean
+    public HttpClient openAiHttpClient(
+            ConnectionProvider openAiConnectionProvider,
+            @Value("${openai.http.timeout-conexion-ms:5000}") int timeoutConexionMs,
+            @Value("${openai.http.http2:false}") boolean http2) {
+        HttpClient client = HttpClient.create(openAiConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, timeoutConexionMs)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .keepAlive(true)
+                .compress(true)
+                .metrics(true, uri -> "/v1/chat/completions");
+        // HTTP/2 multiplexa las peticiones sobre menos conexiones TLS (negociado por ALPN)
+        return http2 ? client.protocol(HttpProtocol.H2, HttpProtocol.HTTP11) : client;
+    }
+}
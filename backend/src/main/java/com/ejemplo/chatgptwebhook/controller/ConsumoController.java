@@ -0,0 +1,32 @@
+package com.ejemplo.chatgptwebhook.controller;
+
+import com.ejemplo.chatgptwebhook.model.ConsumoTokensDto;
+import com.ejemplo.chatgptwebhook.model.PresupuestoTokensDto;
+import com.ejemplo.chatgptwebhook.service.ConsumoTokensService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Consumo de tokens de OpenAI del día y presupuestos diarios por usuario (solo lectura: los
+ * presupuestos se fijan en openai.consumo.presupuestos). Los usuarios son las claves de la cuota:
+ * "admin:{id}", "anonimo" (menú sin administrador), "webhook:{usuario}".
+ */
+@RestController
+@RequestMapping("/api/usage")
+public class ConsumoController {
+    @Autowired
+    private ConsumoTokensService consumoTokensService;
+
+    @GetMapping
+    public ResponseEntity<List<ConsumoTokensDto>> getConsumoHoy(@RequestParam(value = "usuario", required = false) String usuario) {
+        return ResponseEntity.ok(consumoTokensService.obtenerConsumoHoy(usuario));
+    }
+
+    @GetMapping("/{usuario}/presupuesto")
+    public ResponseEntity<PresupuestoTokensDto> getPresupuesto(@PathVariable String usuario) {
+        return ResponseEntity.ok(consumoTokensService.obtenerPresupuesto(usuario));
+    }
+}
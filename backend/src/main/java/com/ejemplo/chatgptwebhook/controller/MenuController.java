@@ -1,12 +1,25 @@
 package com.ejemplo.chatgptwebhook.controller;
 
+import com.ejemplo.chatgptwebhook.model.EventoGeneracion;
+import com.ejemplo.chatgptwebhook.model.GeneracionJob;
 import com.ejemplo.chatgptwebhook.model.MenuResponse;
+import com.ejemplo.chatgptwebhook.service.GeneracionJobService;
 import com.ejemplo.chatgptwebhook.service.MenuService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Controlador REST para gestionar las opciones del menú
@@ -19,6 +32,9 @@ public class MenuController {
     
     @Autowired
     private MenuService menuService;
+
+    @Autowired
+    private GeneracionJobService generacionJobService;
     
     /**
      * Endpoint para obtener todas las opciones del menú principal
@@ -93,36 +109,150 @@ public class MenuController {
      * @param optionId El ID de la opción seleccionada
      * @param datos Los datos adicionales para la opción
      * @param sessionId ID de sesión para mantener contexto (opcional)
-     * @return Respuesta de la acción ejecutada
+     * @return Respuesta de la acción ejecutada (sin bloquear el hilo del servidor)
      */
     @PostMapping("/procesar/{optionId}/datos")
-    public ResponseEntity<String> procesarOpcionConDatos(@PathVariable int optionId, 
-                                                        @RequestBody String datos,
-                                                        @RequestParam(required = false) String sessionId,
-                                                        @RequestParam(required = false) Long userId) {
+    public Mono<ResponseEntity<String>> procesarOpcionConDatos(@PathVariable int optionId, 
+                                                              @RequestBody String datos,
+                                                              @RequestParam(required = false) String sessionId,
+                                                              @RequestParam(required = false) Long userId) {
+
+        String sid = (sessionId != null && !sessionId.isEmpty()) ? sessionId : "default_session";
+        logger.info("📨 procesar/{}/datos, sessionId={}, userId={}", optionId, sid, userId);
+        if (userId != null) {
+            menuService.setAdminUserForSession(sid, userId);
+        } else {
+            logger.warn("⚠️ userId ausente/invalid: se requiere login para persistir en BD");
+        }
+
+        Mono<String> resultado = (sessionId != null && !sessionId.isEmpty())
+                ? menuService.procesarOpcionWebConDatosYSesion(optionId, datos, sessionId)
+                : menuService.procesarOpcionWebConDatos(optionId, datos);
+
+        return resultado
+                .map(ResponseEntity::ok)
+                .onErrorResume(ex -> Mono.just(ResponseEntity.internalServerError()
+                        .body("Error al procesar la opción con datos: " + ex.getMessage())));
+    }
+
+    /**
+     * Variante en streaming (Accept: text/event-stream) de procesar con datos.
+     * La opción 1 emite los fragmentos de ChatGPT ("fragmento"), cada tarea numerada en
+     * cuanto se completa ("tarea") y la respuesta final ("fin"). El resto de opciones
+     * emiten un único evento "fin" con la misma respuesta que la versión normal.
+     * 
+     * @param optionId El ID de la opción seleccionada
+     * @param datos Los datos adicionales para la opción
+     * @param sessionId ID de sesión para mantener contexto (opcional)
+     * @return Flujo SSE con los eventos de la generación
+     */
+    @PostMapping(value = "/procesar/{optionId}/datos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> transmitirOpcionConDatos(@PathVariable int optionId,
+                                                                  @RequestBody String datos,
+                                                                  @RequestParam(required = false) String sessionId,
+                                                                  @RequestParam(required = false) Long userId) {
+
+        String sid = (sessionId != null && !sessionId.isEmpty()) ? sessionId : "default_session";
+        logger.info("📨 procesar/{}/datos (streaming), sessionId={}, userId={}", optionId, sid, userId);
+        if (userId != null) {
+            menuService.setAdminUserForSession(sid, userId);
+        }
+
+        Flux<EventoGeneracion> eventos = (optionId == 1)
+                ? menuService.transmitirIdeaProyectoConChatGPT(datos, sid)
+                : menuService.procesarOpcionWebConDatosYSesion(optionId, datos, sid).map(EventoGeneracion::fin).flux();
+
+        return eventos.map(e -> ServerSentEvent.builder(e.getDatos()).event(e.getTipo()).build());
+    }
+
+    /**
+     * Envía una idea de proyecto (opción 1) como trabajo asíncrono.
+     * Devuelve el id del trabajo de inmediato; un reintento con la misma sesión e idea
+     * devuelve el trabajo que ya está en curso.
+     *
+     * @param idea La idea del proyecto
+     * @param sessionId ID de sesión (opcional)
+     * @param userId ID del admin para persistir en BD (opcional)
+     * @param callbackUrl URL a la que se hace POST con el trabajo al terminar (opcional)
+     * @return 202 con el estado inicial del trabajo
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<?> enviarJobGeneracion(@RequestBody String idea,
+                                                 @RequestParam(required = false) String sessionId,
+                                                 @RequestParam(required = false) Long userId,
+                                                 @RequestParam(required = false) String callbackUrl) {
+        String sid = (sessionId != null && !sessionId.isEmpty()) ? sessionId : "default_session";
+        logger.info("📨 jobs, sessionId={}, userId={}", sid, userId);
+        if (userId != null) {
+            menuService.setAdminUserForSession(sid, userId);
+        }
 
         try {
-            String sid = (sessionId != null && !sessionId.isEmpty()) ? sessionId : "default_session";
-            logger.info("📨 procesar/{}/datos, sessionId={}, userId={}", optionId, sid, userId);
-            if (userId != null) {
-                menuService.setAdminUserForSession(sid, userId);
-            } else {
-                logger.warn("⚠️ userId ausente/invalid: se requiere login para persistir en BD");
-            }
+            GeneracionJob job = generacionJobService.enviar(sid, idea, callbackUrl);
+            return ResponseEntity.accepted().body(job);
+        } catch (IllegalArgumentException iae) {
+            return ResponseEntity.badRequest().body(iae.getMessage());
+        } catch (IllegalStateException ise) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(ise.getMessage());
+        }
+    }
 
-            String resultado;
-            if (sessionId != null && !sessionId.isEmpty()) {
-                resultado = menuService.procesarOpcionWebConDatosYSesion(optionId, datos, sessionId);
-            } else {
-                resultado = menuService.procesarOpcionWebConDatos(optionId, datos);
-            }
+    /**
+     * Consulta el estado de un trabajo de generación.
+     * Con esperarSegundos > 0 funciona como long-poll: responde en cuanto el trabajo
+     * termina o al agotarse la espera, lo que ocurra primero.
+     *
+     * @param jobId ID del trabajo
+     * @param esperarSegundos Segundos máximos de espera (opcional, máximo 60)
+     * @return Estado actual del trabajo, o 404 si no existe
+     */
+    @GetMapping("/jobs/{jobId}")
+    public CompletableFuture<ResponseEntity<GeneracionJob>> consultarJobGeneracion(
+            @PathVariable String jobId,
+            @RequestParam(defaultValue = "0") int esperarSegundos) {
+        GeneracionJob job = generacionJobService.obtener(jobId);
+        if (job == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.notFound().build());
+        }
+        if (job.isTerminado() || esperarSegundos <= 0) {
+            return CompletableFuture.completedFuture(ResponseEntity.ok(job));
+        }
+        // copy() para que el timeout de este cliente no complete el trabajo para los demás
+        return job.getFinalizacion().copy()
+                .completeOnTimeout(job, Math.min(esperarSegundos, 60), TimeUnit.SECONDS)
+                .thenApply(ResponseEntity::ok);
+    }
 
-            return ResponseEntity.ok(resultado);
-        } catch (Exception ex) {
-            return ResponseEntity.internalServerError().body("Error al procesar la opción con datos: " + ex.getMessage());
+    /**
+     * Flujo SSE con el estado de un trabajo: emite "estado" al conectar y
+     * "resultado" cuando el trabajo termina, y después cierra la conexión.
+     *
+     * @param jobId ID del trabajo
+     * @return Emisor SSE
+     */
+    @GetMapping("/jobs/{jobId}/eventos")
+    public ResponseEntity<SseEmitter> eventosJobGeneracion(@PathVariable String jobId) {
+        GeneracionJob job = generacionJobService.obtener(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
         }
+
+        SseEmitter emitter = new SseEmitter(TimeUnit.MINUTES.toMillis(5));
+        try {
+            emitter.send(SseEmitter.event().name("estado").data(job));
+        } catch (IOException ex) {
+            emitter.completeWithError(ex);
+            return ResponseEntity.ok(emitter);
+        }
+
+        job.getFinalizacion().whenComplete((terminado, err) -> {
+            try {
+                emitter.send(SseEmitter.event().name("resultado").data(terminado));
+                emitter.complete();
+            } catch (Exception ex) {
+                emitter.completeWithError(ex);
+            }
+        });
+        return ResponseEntity.ok(emitter);
     }
-    
-    
-    
 }
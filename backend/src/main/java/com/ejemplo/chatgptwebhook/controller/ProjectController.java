@@ -1,9 +1,12 @@
 package com.ejemplo.chatgptwebhook.controller;
 
+import com.ejemplo.chatgptwebhook.model.DependenciaTareaRequest;
 import com.ejemplo.chatgptwebhook.model.ProjectCreateRequest;
 import com.ejemplo.chatgptwebhook.model.ProjectDto;
 import com.ejemplo.chatgptwebhook.model.TaskCreateRequest;
 import com.ejemplo.chatgptwebhook.model.TaskDto;
+import com.ejemplo.chatgptwebhook.service.AnaliticaProyectos;
+import com.ejemplo.chatgptwebhook.service.DependenciasTareasService;
 import com.ejemplo.chatgptwebhook.service.ProjectService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,6 +24,12 @@ public class ProjectController {
     @Autowired
     private ProjectService projectService;
 
+    @Autowired
+    private DependenciasTareasService dependenciasTareasService;
+
+    @Autowired
+    private AnaliticaProyectos analiticaProyectos;
+
     @PostMapping
     public ResponseEntity<ProjectDto> createProject(@RequestBody ProjectCreateRequest request) {
         logger.info("📦 Solicitud de creación de proyecto: {}", request != null ? request.getName() : "(null)");
@@ -34,12 +43,86 @@ public class ProjectController {
         List<TaskDto> tasks = projectService.createTasksForProject(request);
         return ResponseEntity.ok(tasks);
     }
+
+    @GetMapping("/tasks/search")
+    public ResponseEntity<?> searchTasks(@RequestParam("userId") Long userId,
+                                         @RequestParam("q") String q,
+                                         @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(projectService.buscarTareas(userId, q, limit));
+        } catch (IllegalArgumentException iae) {
+            return ResponseEntity.badRequest().body(iae.getMessage());
+        }
+    }
+
     @GetMapping("/{projectId}/tasks")
     public ResponseEntity<java.util.List<TaskDto>> getTasksByProject(@PathVariable Long projectId) {
         java.util.List<TaskDto> tasks = projectService.getTasksDtoByProjectId(projectId);
         return ResponseEntity.ok(tasks);
     }
 
+    @PostMapping("/{projectId}/dependencies")
+    public ResponseEntity<?> addDependency(@PathVariable Long projectId,
+                                           @RequestBody DependenciaTareaRequest request) {
+        try {
+            boolean creada = dependenciasTareasService.agregarDependencia(projectId,
+                    request != null ? request.getTaskId() : null,
+                    request != null ? request.getDependsOnTaskId() : null);
+            return ResponseEntity.ok(java.util.Map.of("creada", creada));
+        } catch (IllegalArgumentException iae) {
+            return ResponseEntity.badRequest().body(iae.getMessage());
+        }
+    }
+
+    @DeleteMapping("/{projectId}/dependencies")
+    public ResponseEntity<?> removeDependency(@PathVariable Long projectId,
+                                              @RequestParam("taskId") Long taskId,
+                                              @RequestParam("dependsOnTaskId") Long dependsOnTaskId) {
+        try {
+            boolean eliminada = dependenciasTareasService.eliminarDependencia(projectId, taskId, dependsOnTaskId);
+            return eliminada ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException iae) {
+            return ResponseEntity.badRequest().body(iae.getMessage());
+        }
+    }
+
+    @GetMapping("/{projectId}/tasks/order")
+    public ResponseEntity<?> getTasksInOrder(@PathVariable Long projectId) {
+        try {
+            return ResponseEntity.ok(dependenciasTareasService.ordenTopologico(projectId));
+        } catch (IllegalArgumentException iae) {
+            return ResponseEntity.badRequest().body(iae.getMessage());
+        }
+    }
+
+    @GetMapping("/{projectId}/tasks/critical-path")
+    public ResponseEntity<?> getCriticalPath(@PathVariable Long projectId) {
+        try {
+            return ResponseEntity.ok(dependenciasTareasService.caminoCritico(projectId));
+        } catch (IllegalArgumentException iae) {
+            return ResponseEntity.badRequest().body(iae.getMessage());
+        }
+    }
+
+    @GetMapping("/{projectId}/tasks/ready")
+    public ResponseEntity<?> getReadyTasks(@PathVariable Long projectId) {
+        try {
+            return ResponseEntity.ok(dependenciasTareasService.tareasListas(projectId));
+        } catch (IllegalArgumentException iae) {
+            return ResponseEntity.badRequest().body(iae.getMessage());
+        }
+    }
+
+    @GetMapping("/{projectId}/related")
+    public ResponseEntity<?> getRelatedProjects(@PathVariable Long projectId,
+                                                @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        try {
+            return ResponseEntity.ok(analiticaProyectos.relacionados(projectId, limit));
+        } catch (IllegalArgumentException iae) {
+            return ResponseEntity.badRequest().body(iae.getMessage());
+        }
+    }
+
     @PutMapping("/{projectId}")
     public ResponseEntity<ProjectDto> updateProject(
             @PathVariable Long projectId,
@@ -3,13 +3,18 @@ package com.ejemplo.chatgptwebhook.controller;
 import com.ejemplo.chatgptwebhook.model.WebhookRequest;
 import com.ejemplo.chatgptwebhook.model.WebhookResponse;
 import com.ejemplo.chatgptwebhook.service.ChatGptService;
+import com.ejemplo.chatgptwebhook.service.LimitadorCuotaOpenAi;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
 
 /**
  * Controlador REST para el webhook de ChatGPT
@@ -34,6 +39,7 @@ public class WebhookController {
         logger.info("Recibida petición del webhook: {}", request);
 
         return chatGptService.enviarMensaje(request.getMensaje())
+                .contextWrite(contextoCuota(request))
                 .map(respuestaChatGpt -> {
                     WebhookResponse response = new WebhookResponse(
                             respuestaChatGpt,
@@ -54,6 +60,41 @@ public class WebhookController {
                 });
     }
 
+    /**
+     * Variante en streaming del webhook (Accept: text/event-stream).
+     * Emite un evento "fragmento" por cada trozo de texto que devuelve ChatGPT
+     * y un evento "fin" al terminar ("exitoso"). Si la llamada falla, emite un evento
+     * "error" con el mensaje y un "fin" con estado "error", como la versión no streaming.
+     * 
+     * @param request La petición con el mensaje del usuario
+     * @return Flujo SSE con la respuesta de ChatGPT
+     */
+    @PostMapping(value = "/chat", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> transmitirMensaje(@Valid @RequestBody WebhookRequest request) {
+        logger.info("Recibida petición en streaming del webhook: {}", request);
+
+        return chatGptService.transmitirMensaje(request.getMensaje())
+                .contextWrite(contextoCuota(request))
+                .map(fragmento -> ServerSentEvent.builder(fragmento).event("fragmento").build())
+                .concatWith(Mono.just(ServerSentEvent.builder("exitoso").event("fin").build()))
+                .onErrorResume(ex -> {
+                    logger.error("Error al procesar el mensaje en streaming", ex);
+                    String mensaje = ex instanceof ChatGptService.ErrorChatGptException
+                            ? ex.getMessage()
+                            : "Error al procesar tu mensaje";
+                    return Flux.just(ServerSentEvent.builder(mensaje).event("error").build(),
+                            ServerSentEvent.builder("error").event("fin").build());
+                });
+    }
+
+    // Las peticiones de cada usuario del webhook comparten turno en la cuota de OpenAI
+    private Context contextoCuota(WebhookRequest request) {
+        String usuario = request.getUsuario() != null && !request.getUsuario().isBlank()
+                ? "webhook:" + request.getUsuario()
+                : "webhook";
+        return Context.of(LimitadorCuotaOpenAi.CLAVE_USUARIO, usuario);
+    }
+
     /**
      * Endpoint de salud para verificar que el webhook está funcionando
      * 
@@ -0,0 +1,286 @@
+package com.ejemplo.chatgptwebhook.datastructures;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Algoritmos paralelos (fork-join) sobre un {@link GrafoCsr}: popularidad tipo PageRank,
+ * componentes conexas y nodos relacionados. Cada pasada reparte los nodos en tramos
+ * contiguos de como mucho "umbral" nodos; los tramos solo escriben en sus propias posiciones
+ * (o con CAS, en las componentes), así que no hay bloqueos.
+ */
+public class AnaliticaGrafo {
+
+    private static final int UMBRAL_POR_DEFECTO = 1_024;
+    // Los vecinos de un nodo con más grado que esto no se expanden al buscar relacionados
+    private static final int MAX_GRADO_EXPANDIR = 1_000;
+
+    /**
+     * Hasta k relacionados por nodo, en bloques fijos de k posiciones: los de v están en
+     * nodos[v * k] .. nodos[v * k + cuenta[v] - 1], de mayor a menor puntuación
+     */
+    public record Relacionados(int k, int[] cuenta, int[] nodos, double[] puntuaciones) {}
+
+    // Cuerpo de un tramo [desde, hasta); devuelve un valor que se suma entre tramos
+    @FunctionalInterface
+    private interface CuerpoTramo {
+        double aplicar(int desde, int hasta);
+    }
+
+    private final ForkJoinPool pool;
+    private final int umbral;
+
+    public AnaliticaGrafo(ForkJoinPool pool) {
+        this(pool, UMBRAL_POR_DEFECTO);
+    }
+
+    public AnaliticaGrafo(ForkJoinPool pool, int umbral) {
+        if (umbral < 1) throw new IllegalArgumentException("El umbral debe ser positivo");
+        this.pool = pool;
+        this.umbral = umbral;
+    }
+
+    /**
+     * PageRank en el grafo no dirigido (cada arista en los dos sentidos), por iteración "pull":
+     * cada nodo suma lo que le aportan sus vecinos, sin escrituras compartidas. Los nodos
+     * aislados reparten su rango entre todos. Para al cambiar menos de tolerancia (norma L1).
+     *
+     * @return rango por nodo; suma 1
+     */
+    public double[] pageRank(GrafoCsr g, double amortiguacion, int maxIteraciones, double tolerancia) {
+        int n = g.numeroNodos();
+        if (n == 0) return new double[0];
+        double[] rango = new double[n];
+        Arrays.fill(rango, 1.0 / n);
+        double[] nuevo = new double[n];
+        double[] aporte = new double[n];
+        int[] inicio = g.inicio;
+        int[] vecinos = g.vecinos;
+
+        for (int iteracion = 0; iteracion < maxIteraciones; iteracion++) {
+            double[] actual = rango;
+            // Aporte de cada nodo por arista; devuelve la masa de los aislados
+            double aislados = sumar(n, (desde, hasta) -> {
+                double masa = 0;
+                for (int v = desde; v < hasta; v++) {
+                    int grado = inicio[v + 1] - inicio[v];
+                    if (grado == 0) {
+                        masa += actual[v];
+                        aporte[v] = 0;
+                    } else {
+                        aporte[v] = actual[v] / grado;
+                    }
+                }
+                return masa;
+            });
+            double base = (1 - amortiguacion) / n + amortiguacion * aislados / n;
+            double[] destino = nuevo;
+            double cambio = sumar(n, (desde, hasta) -> {
+                double delta = 0;
+                for (int v = desde; v < hasta; v++) {
+                    double suma = 0;
+                    for (int k = inicio[v]; k < inicio[v + 1]; k++) suma += aporte[vecinos[k]];
+                    destino[v] = base + amortiguacion * suma;
+                    delta += Math.abs(destino[v] - actual[v]);
+                }
+                return delta;
+            });
+            nuevo = rango;
+            rango = destino;
+            if (cambio < tolerancia) break;
+        }
+        return rango;
+    }
+
+    /**
+     * Componentes conexas con unión-búsqueda sin bloqueos: cada unión enlaza por CAS la raíz mayor
+     * a la menor, así que la etiqueta final de cada nodo es el índice más pequeño de su componente
+     */
+    public int[] componentes(GrafoCsr g) {
+        int n = g.numeroNodos();
+        AtomicIntegerArray padre = new AtomicIntegerArray(n);
+        for (int v = 0; v < n; v++) padre.set(v, v);
+        int[] inicio = g.inicio;
+        int[] vecinos = g.vecinos;
+
+        sumar(n, (desde, hasta) -> {
+            for (int v = desde; v < hasta; v++) {
+                for (int k = inicio[v]; k < inicio[v + 1]; k++) {
+                    // Cada arista aparece dos veces: basta con unirla desde el extremo menor
+                    if (vecinos[k] > v) unir(padre, v, vecinos[k]);
+                }
+            }
+            return 0;
+        });
+        int[] etiqueta = new int[n];
+        sumar(n, (desde, hasta) -> {
+            for (int v = desde; v < hasta; v++) etiqueta[v] = raiz(padre, v);
+            return 0;
+        });
+        return etiqueta;
+    }
+
+    /**
+     * Hasta k relacionados por nodo entre sus vecinos y los vecinos de sus vecinos. Cada vecino común z
+     * aporta 1 / ln(grado(z)) (Adamic-Adar: pesan más los vecinos comunes poco conectados) y esa suma
+     * a se lleva a [0, 1) con a / (1 + a); los vecinos directos suman 1 más, así que siempre van antes.
+     * Empates por mayor popularidad y luego por índice.
+     */
+    public Relacionados relacionados(GrafoCsr g, double[] popularidad, int k) {
+        if (k < 1) throw new IllegalArgumentException("k debe ser positivo");
+        int n = g.numeroNodos();
+        int[] cuenta = new int[n];
+        int[] nodos = new int[n * k];
+        double[] puntuaciones = new double[n * k];
+        int[] inicio = g.inicio;
+        int[] vecinos = g.vecinos;
+
+        // Tramos más grandes: cada uno reserva acumuladores de n posiciones
+        int tramo = Math.max(umbral, n / (pool.getParallelism() * 4) + 1);
+        sumar(n, tramo, (desde, hasta) -> {
+            // Acumuladores del tramo, limpiados tras cada nodo solo en las posiciones tocadas
+            double[] acumulado = new double[n];
+            boolean[] visto = new boolean[n];
+            int[] tocados = new int[16];
+            for (int v = desde; v < hasta; v++) {
+                int numTocados = 0;
+                for (int a = inicio[v]; a < inicio[v + 1]; a++) {
+                    int z = vecinos[a];
+                    int gradoZ = inicio[z + 1] - inicio[z];
+                    if (gradoZ < 2 || gradoZ > MAX_GRADO_EXPANDIR) continue;
+                    double peso = 1 / Math.log(gradoZ);
+                    for (int b = inicio[z]; b < inicio[z + 1]; b++) {
+                        int w = vecinos[b];
+                        if (w == v) continue;
+                        if (!visto[w]) {
+                            visto[w] = true;
+                            tocados = anexar(tocados, numTocados++, w);
+                        }
+                        acumulado[w] += peso;
+                    }
+                }
+                for (int t = 0; t < numTocados; t++) {
+                    int w = tocados[t];
+                    acumulado[w] = acumulado[w] / (1 + acumulado[w]);
+                }
+                for (int a = inicio[v]; a < inicio[v + 1]; a++) {
+                    int z = vecinos[a];
+                    if (!visto[z]) {
+                        visto[z] = true;
+                        tocados = anexar(tocados, numTocados++, z);
+                    }
+                    acumulado[z] += 1;
+                }
+                cuenta[v] = mejores(v, k, tocados, numTocados, acumulado, popularidad, nodos, puntuaciones);
+                for (int t = 0; t < numTocados; t++) {
+                    acumulado[tocados[t]] = 0;
+                    visto[tocados[t]] = false;
+                }
+            }
+            return 0;
+        });
+        return new Relacionados(k, cuenta, nodos, puntuaciones);
+    }
+
+    // Selección de los k mejores candidatos por inserción ordenada en el bloque de v
+    private static int mejores(int v, int k, int[] candidatos, int numCandidatos, double[] acumulado,
+                               double[] popularidad, int[] nodos, double[] puntuaciones) {
+        int base = v * k;
+        int lleno = 0;
+        for (int c = 0; c < numCandidatos; c++) {
+            int w = candidatos[c];
+            double p = acumulado[w];
+            int pos = lleno;
+            while (pos > 0 && antes(w, p, nodos[base + pos - 1], puntuaciones[base + pos - 1], popularidad)) pos--;
+            if (pos >= k) continue;
+            int ultimo = Math.min(lleno, k - 1);
+            for (int i = ultimo; i > pos; i--) {
+                nodos[base + i] = nodos[base + i - 1];
+                puntuaciones[base + i] = puntuaciones[base + i - 1];
+            }
+            nodos[base + pos] = w;
+            puntuaciones[base + pos] = p;
+            if (lleno < k) lleno++;
+        }
+        return lleno;
+    }
+
+    private static boolean antes(int w, double p, int otro, double pOtro, double[] popularidad) {
+        if (p != pOtro) return p > pOtro;
+        if (popularidad[w] != popularidad[otro]) return popularidad[w] > popularidad[otro];
+        return w < otro;
+    }
+
+    private static int raiz(AtomicIntegerArray padre, int x) {
+        while (true) {
+            int p = padre.get(x);
+            if (p == x) return x;
+            int abuelo = padre.get(p);
+            // División de caminos: si otro hilo ya lo cambió, da igual
+            if (p != abuelo) padre.compareAndSet(x, p, abuelo);
+            x = abuelo;
+        }
+    }
+
+    private static void unir(AtomicIntegerArray padre, int a, int b) {
+        while (true) {
+            a = raiz(padre, a);
+            b = raiz(padre, b);
+            if (a == b) return;
+            if (a < b) {
+                int t = a;
+                a = b;
+                b = t;
+            }
+            // Solo una raíz puede reenlazarse; si otro hilo se adelantó, se reintenta con las nuevas raíces
+            if (padre.compareAndSet(a, a, b)) return;
+        }
+    }
+
+    private double sumar(int n, CuerpoTramo cuerpo) {
+        return sumar(n, umbral, cuerpo);
+    }
+
+    private double sumar(int n, int tramo, CuerpoTramo cuerpo) {
+        if (n <= tramo) return cuerpo.aplicar(0, n);
+        return pool.invoke(new Tramo(cuerpo, 0, n, tramo));
+    }
+
+    private static final class Tramo extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+
+        private final CuerpoTramo cuerpo;
+        private final int desde;
+        private final int hasta;
+        private final int umbral;
+
+        Tramo(CuerpoTramo cuerpo, int desde, int hasta, int umbral) {
+            this.cuerpo = cuerpo;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.umbral = umbral;
+        }
+
+        @Override
+        protected Double compute() {
+            if (hasta - desde <= umbral) {
+                return cuerpo.aplicar(desde, hasta);
+            }
+            int medio = (desde + hasta) >>> 1;
+            Tramo izquierda = new Tramo(cuerpo, desde, medio, umbral);
+            izquierda.fork();
+            double derecha = new Tramo(cuerpo, medio, hasta, umbral).compute();
+            return izquierda.join() + derecha;
+        }
+    }
+
+    private static int[] anexar(int[] arreglo, int n, int valor) {
+        if (n == arreglo.length) {
+            arreglo = Arrays.copyOf(arreglo, n * 2);
+        }
+        arreglo[n] = valor;
+        return arreglo;
+    }
+}
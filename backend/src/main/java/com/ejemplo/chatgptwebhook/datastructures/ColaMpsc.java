@@ -0,0 +1,459 @@
+package com.ejemplo.chatgptwebhook.datastructures;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Cola acotada de varios productores y un solo consumidor sobre un anillo (arreglo circular),
+ * sin bloqueos ni un nodo por elemento, a diferencia de {@link Cola}.
+ * Cada posición lleva un número de secuencia que indica si está libre para la vuelta actual
+ * o ya tiene un elemento publicado: los productores reservan posición con un CAS sobre la cola
+ * y el consumidor avanza la cabeza sin CAS. Cola y cabeza van rellenas para no compartir
+ * línea de caché entre productores y consumidor.
+ *
+ * Con la cola llena, {@link #encolar} aplica la {@link PoliticaLlena} configurada; {@link #ofrecer}
+ * nunca espera. Solo un hilo puede consumir ({@link #sondear}, {@link #drenar}).
+ */
+public class ColaMpsc<T> {
+
+    public enum PoliticaLlena {
+        // Espera (girando y luego durmiendo) a que el consumidor libere sitio
+        BLOQUEAR,
+        // Descarta el elemento y lo cuenta
+        DESCARTAR,
+        // Anexa el elemento a un fichero; el consumidor lo recupera cuando vacía el anillo
+        // (lo desbordado puede entregarse después de elementos más nuevos que sí cupieron)
+        DESBORDAR_A_DISCO
+    }
+
+    private final Object[] elementos;
+    private final AtomicLongArray secuencias;
+    private final int mascara;
+    private final PoliticaLlena politica;
+    private final Desborde<T> desborde;
+
+    private final SecuenciaRellena cola = new SecuenciaRellena(0);
+    private final SecuenciaRellena cabeza = new SecuenciaRellena(0);
+    private final AtomicLong descartados = new AtomicLong();
+
+    public ColaMpsc(int capacidad, PoliticaLlena politica) {
+        this(capacidad, politica, null);
+        if (politica == PoliticaLlena.DESBORDAR_A_DISCO) {
+            throw new IllegalArgumentException("DESBORDAR_A_DISCO necesita fichero y serialización");
+        }
+    }
+
+    /**
+     * Cola con política DESBORDAR_A_DISCO: lo que no cabe se guarda (una línea Base64 por elemento) en el fichero
+     */
+    public ColaMpsc(int capacidad, Path ficheroDesborde, Function<T, String> serializar, Function<String, T> deserializar) {
+        this(capacidad, PoliticaLlena.DESBORDAR_A_DISCO, new Desborde<>(ficheroDesborde, serializar, deserializar));
+    }
+
+    private ColaMpsc(int capacidad, PoliticaLlena politica, Desborde<T> desborde) {
+        if (capacidad < 2 || capacidad > (1 << 30)) {
+            throw new IllegalArgumentException("Capacidad fuera de rango: " + capacidad);
+        }
+        int potencia = Integer.highestOneBit(capacidad - 1) << 1; // Potencia de dos para indexar con máscara
+        this.elementos = new Object[potencia];
+        this.secuencias = new AtomicLongArray(potencia);
+        for (int i = 0; i < potencia; i++) {
+            secuencias.set(i, i);
+        }
+        this.mascara = potencia - 1;
+        this.politica = politica;
+        this.desborde = desborde;
+    }
+
+    /**
+     * Intenta encolar sin esperar; false si el anillo está lleno
+     */
+    public boolean ofrecer(T elemento) {
+        if (elemento == null) throw new IllegalArgumentException("El elemento no puede ser nulo");
+        while (true) {
+            long posicion = cola.get();
+            int i = (int) posicion & mascara;
+            long diferencia = secuencias.getAcquire(i) - posicion;
+            if (diferencia == 0) {
+                if (cola.compareAndSet(posicion, posicion + 1)) {
+                    elementos[i] = elemento;
+                    secuencias.setRelease(i, posicion + 1); // Publica el elemento al consumidor
+                    return true;
+                }
+            } else if (diferencia < 0) {
+                return false; // La posición aún guarda un elemento de la vuelta anterior: lleno
+            }
+            // diferencia > 0: otro productor ya tomó esta posición; reintentar con la cola nueva
+        }
+    }
+
+    /**
+     * Encola aplicando la política de cola llena. Devuelve false si el elemento se descartó
+     * (DESCARTAR) o si el hilo se interrumpió esperando (BLOQUEAR).
+     */
+    public boolean encolar(T elemento) {
+        if (ofrecer(elemento)) return true;
+        switch (politica) {
+            case DESCARTAR -> {
+                descartados.incrementAndGet();
+                return false;
+            }
+            case DESBORDAR_A_DISCO -> {
+                desborde.escribir(elemento);
+                return true;
+            }
+            default -> {
+                int intentos = 0;
+                while (!ofrecer(elemento)) {
+                    if (Thread.currentThread().isInterrupted()) return false;
+                    if (++intentos < 100) {
+                        Thread.onSpinWait();
+                    } else {
+                        LockSupport.parkNanos(Math.min(1_000_000L, 1_000L << Math.min(10, intentos / 100)));
+                    }
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Saca el siguiente elemento o null si no hay (solo desde el hilo consumidor).
+     * Con el anillo vacío recupera los elementos desbordados a disco.
+     */
+    public T sondear() {
+        T elemento = sondearAnillo();
+        if (elemento == null && desborde != null) {
+            elemento = desborde.siguiente();
+        }
+        return elemento;
+    }
+
+    /**
+     * Entrega al consumidor hasta max elementos de una vez; devuelve cuántos entregó
+     */
+    public int drenar(Consumer<? super T> consumidor, int max) {
+        int entregados = 0;
+        while (entregados < max) {
+            T elemento = sondear();
+            if (elemento == null) break;
+            consumidor.accept(elemento);
+            entregados++;
+        }
+        return entregados;
+    }
+
+    /**
+     * Escribe el elemento directamente en el fichero de desborde (p. ej. un reintento pendiente al apagar)
+     */
+    public void desbordar(T elemento) {
+        if (desborde == null) throw new IllegalStateException("La cola no tiene fichero de desborde");
+        desborde.escribir(elemento);
+    }
+
+    /**
+     * Pasa al fichero de desborde todo lo que queda en el anillo, para no perderlo al apagar
+     * (solo desde el hilo consumidor); devuelve cuántos elementos volcó
+     */
+    public int volcarADisco() {
+        if (desborde == null) throw new IllegalStateException("La cola no tiene fichero de desborde");
+        int volcados = 0;
+        T elemento;
+        while ((elemento = sondearAnillo()) != null) {
+            desborde.escribir(elemento);
+            volcados++;
+        }
+        // Lo ya leído del fichero pero aún no entregado sigue en él, desde la posición guardada
+        return volcados + desborde.devolverLeidos();
+    }
+
+    @SuppressWarnings("unchecked")
+    private T sondearAnillo() {
+        long posicion = cabeza.getPlain();
+        int i = (int) posicion & mascara;
+        if (secuencias.getAcquire(i) != posicion + 1) {
+            return null; // Vacío, o el productor aún no ha publicado esta posición
+        }
+        T elemento = (T) elementos[i];
+        elementos[i] = null;
+        // Libera la posición para la siguiente vuelta de los productores
+        secuencias.setRelease(i, posicion + elementos.length);
+        cabeza.setRelease(posicion + 1);
+        return elemento;
+    }
+
+    // Elementos en el anillo (aproximado con productores activos) más los desbordados pendientes
+    public int tamaño() {
+        long enAnillo = Math.max(0, Math.min(elementos.length, cola.get() - cabeza.get()));
+        long enDisco = desborde != null ? desborde.pendientes() : 0;
+        return (int) Math.min(Integer.MAX_VALUE, enAnillo + enDisco);
+    }
+
+    public boolean estaVacia() {
+        return tamaño() == 0;
+    }
+
+    public int capacidad() {
+        return elementos.length;
+    }
+
+    public long descartados() {
+        return descartados.get();
+    }
+
+    public PoliticaLlena politica() {
+        return politica;
+    }
+
+    // Relleno para que el valor ocupe su propia línea de caché (la JVM no reordena campos entre clases de la jerarquía)
+    abstract static class RellenoIzquierdo {
+        long r01, r02, r03, r04, r05, r06, r07;
+    }
+
+    abstract static class ValorSecuencia extends RellenoIzquierdo {
+        volatile long valor;
+    }
+
+    static final class SecuenciaRellena extends ValorSecuencia {
+        long r11, r12, r13, r14, r15, r16, r17;
+
+        private static final VarHandle VALOR;
+
+        static {
+            try {
+                VALOR = MethodHandles.lookup().findVarHandle(ValorSecuencia.class, "valor", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        SecuenciaRellena(long inicial) {
+            this.valor = inicial;
+        }
+
+        long get() {
+            return valor;
+        }
+
+        long getPlain() {
+            return (long) VALOR.get(this);
+        }
+
+        void setRelease(long nuevo) {
+            VALOR.setRelease(this, nuevo);
+        }
+
+        boolean compareAndSet(long esperado, long nuevo) {
+            return VALOR.compareAndSet(this, esperado, nuevo);
+        }
+    }
+
+    // Fichero de desborde: los productores anexan bajo el monitor. El consumidor lo renombra a
+    // ".leyendo" y lo lee por lotes desde un desplazamiento guardado en ".leyendo.pos"; el desplazamiento
+    // avanza cuando pide el siguiente elemento (el anterior ya está procesado), así que tras una caída
+    // se repite como mucho el último entregado y nunca se pierde ninguno. El ".leyendo" se borra al agotarlo.
+    private static final class Desborde<T> {
+        // Líneas leídas del fichero por lote: el heap no depende de cuánto se haya desbordado
+        private static final int LOTE = 256;
+        private static final int BLOQUE = 64 * 1024;
+
+        private record Leido<T>(T elemento, long fin) {}
+
+        private final Path fichero;
+        private final Path leyendo;
+        private final Path posicion;
+        private final Function<T, String> serializar;
+        private final Function<String, T> deserializar;
+        private final AtomicLong pendientes = new AtomicLong();
+        private final ArrayDeque<Leido<T>> leidos = new ArrayDeque<>();
+
+        // Estado del consumidor sobre ".leyendo": canal abierto, siguiente byte por leer y
+        // final del último elemento entregado (-1 si ya se guardó)
+        private FileChannel lector;
+        private long siguienteByte;
+        private long finEntregado = -1;
+
+        Desborde(Path fichero, Function<T, String> serializar, Function<String, T> deserializar) {
+            this.fichero = fichero;
+            this.leyendo = fichero.resolveSibling(fichero.getFileName() + ".leyendo");
+            this.posicion = fichero.resolveSibling(fichero.getFileName() + ".leyendo.pos");
+            this.serializar = serializar;
+            this.deserializar = deserializar;
+            try {
+                // Restos de una ejecución anterior: se recuperan en la primera lectura
+                if (Files.exists(leyendo)) {
+                    pendientes.addAndGet(contarLineas(leyendo, leerPosicion()));
+                }
+                if (Files.exists(fichero)) {
+                    pendientes.addAndGet(contarLineas(fichero, 0));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo abrir el fichero de desborde " + fichero, e);
+            }
+        }
+
+        synchronized void escribir(T elemento) {
+            String linea = Base64.getEncoder().encodeToString(
+                    serializar.apply(elemento).getBytes(StandardCharsets.UTF_8)) + "\n";
+            try {
+                if (fichero.getParent() != null) Files.createDirectories(fichero.getParent());
+                Files.writeString(fichero, linea, StandardCharsets.US_ASCII,
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo desbordar a " + fichero, e);
+            }
+            pendientes.incrementAndGet();
+        }
+
+        // Solo desde el hilo consumidor
+        T siguiente() {
+            try {
+                confirmarEntregado();
+                if (leidos.isEmpty() && (lector != null || pendientes.get() > 0)) {
+                    cargar();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo leer el desborde " + leyendo, e);
+            }
+            Leido<T> leido = leidos.poll();
+            if (leido == null) return null;
+            finEntregado = leido.fin();
+            pendientes.decrementAndGet();
+            return leido.elemento();
+        }
+
+        long pendientes() {
+            return pendientes.get();
+        }
+
+        // Al apagar: guarda el desplazamiento y suelta lo leído sin entregar, que sigue en ".leyendo"
+        int devolverLeidos() {
+            int devueltos = leidos.size();
+            leidos.clear();
+            try {
+                confirmarEntregado();
+                if (lector != null) {
+                    lector.close();
+                    lector = null;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo guardar la posición del desborde " + leyendo, e);
+            }
+            return devueltos;
+        }
+
+        private void confirmarEntregado() throws IOException {
+            if (finEntregado < 0) return;
+            ByteBuffer valor = ByteBuffer.allocate(Long.BYTES).putLong(0, finEntregado);
+            try (FileChannel canal = FileChannel.open(posicion, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                canal.write(valor, 0);
+            }
+            finEntregado = -1;
+        }
+
+        // Lee el siguiente lote; al agotar ".leyendo" lo borra y pasa al fichero de desborde actual
+        private void cargar() throws IOException {
+            while (leidos.isEmpty()) {
+                if (lector == null && !abrirLeyendo()) return;
+                if (siguienteByte >= lector.size()) {
+                    lector.close();
+                    lector = null;
+                    Files.delete(leyendo);
+                    Files.deleteIfExists(posicion);
+                    continue;
+                }
+                leerLote();
+            }
+        }
+
+        private boolean abrirLeyendo() throws IOException {
+            if (Files.exists(leyendo)) {
+                siguienteByte = leerPosicion();
+            } else {
+                synchronized (this) {
+                    if (!Files.exists(fichero)) return false;
+                    // Primero la posición: si no, tras una caída valdría para el fichero nuevo
+                    Files.deleteIfExists(posicion);
+                    Files.move(fichero, leyendo, StandardCopyOption.ATOMIC_MOVE);
+                }
+                siguienteByte = 0;
+            }
+            lector = FileChannel.open(leyendo, StandardOpenOption.READ);
+            return true;
+        }
+
+        private void leerLote() throws IOException {
+            ByteBuffer bloque = ByteBuffer.allocate(BLOQUE);
+            StringBuilder linea = new StringBuilder();
+            long inicioLinea = siguienteByte;
+            long leyendoEn = siguienteByte;
+            while (leidos.size() < LOTE) {
+                bloque.clear();
+                int n = lector.read(bloque, leyendoEn);
+                if (n <= 0) break;
+                for (int i = 0; i < n && leidos.size() < LOTE; i++) {
+                    byte b = bloque.get(i);
+                    if (b != '\n') {
+                        linea.append((char) b);
+                        continue;
+                    }
+                    long fin = leyendoEn + i + 1;
+                    if (linea.length() > 0) {
+                        T elemento = deserializar.apply(
+                                new String(Base64.getDecoder().decode(linea.toString()), StandardCharsets.UTF_8));
+                        leidos.add(new Leido<>(elemento, fin));
+                    }
+                    linea.setLength(0);
+                    inicioLinea = fin;
+                }
+                leyendoEn += n;
+            }
+            // Una última línea sin '\n' es una escritura cortada por una caída: se salta
+            siguienteByte = linea.length() > 0 && leidos.size() < LOTE ? leyendoEn : inicioLinea;
+        }
+
+        private long leerPosicion() throws IOException {
+            if (!Files.exists(posicion)) return 0;
+            byte[] bytes = Files.readAllBytes(posicion);
+            return bytes.length >= Long.BYTES ? ByteBuffer.wrap(bytes).getLong() : 0;
+        }
+
+        private static long contarLineas(Path p, long desde) throws IOException {
+            try (FileChannel canal = FileChannel.open(p, StandardOpenOption.READ)) {
+                ByteBuffer bloque = ByteBuffer.allocate(BLOQUE);
+                long lineas = 0;
+                boolean vacia = true;
+                long en = desde;
+                int n;
+                while ((n = canal.read(bloque.clear(), en)) > 0) {
+                    for (int i = 0; i < n; i++) {
+                        if (bloque.get(i) == '\n') {
+                            if (!vacia) lineas++;
+                            vacia = true;
+                        } else {
+                            vacia = false;
+                        }
+                    }
+                    en += n;
+                }
+                return lineas;
+            }
+        }
+    }
+}
@@ -1,68 +1,515 @@
 package com.ejemplo.chatgptwebhook.datastructures;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Grafo dirigido indexado: cada vértice recibe un id entero (reutilizado al eliminarlo) y las
+ * aristas se guardan como arreglos int[] de salientes y de entrantes por vértice, sin nodos
+ * enlazados. Un conjunto hash de aristas (origen, destino) detecta duplicados en O(1) y
+ * tener las entrantes permite eliminar un vértice en O(grado).
+ *
+ * Con un máximo de vértices, al llegar al límite se expulsa el vértice usado hace más tiempo
+ * (LRU por inserción o arista) junto con sus aristas, para que el grafo no crezca sin fin.
+ * No es seguro entre hilos.
+ */
 public class Grafo<T> {
-    private TablaHash<T, ListaEnlazada<T>> listaAdyacencia;
-    
+    private static final int SIN_LIMITE = 0;
+    private static final int CAPACIDAD_INICIAL = 16;
+    private static final int[] VACIO = new int[0];
+
+    private final Map<T, Integer> idPorVertice = new HashMap<>();
+    private Object[] vertices = new Object[CAPACIDAD_INICIAL];
+    private int[][] salientes = new int[CAPACIDAD_INICIAL][];
+    private int[] gradoSalida = new int[CAPACIDAD_INICIAL];
+    private int[][] entrantes = new int[CAPACIDAD_INICIAL][];
+    private int[] gradoEntrada = new int[CAPACIDAD_INICIAL];
+    private final ConjuntoAristas aristas = new ConjuntoAristas();
+
+    // Ids libres tras eliminar vértices, y el siguiente id nunca usado
+    private int[] libres = new int[8];
+    private int numLibres;
+    private int siguienteId;
+
+    // Lista doblemente enlazada de ids por último uso (solo con límite de vértices)
+    private final int maxVertices;
+    private int[] anterior = new int[CAPACIDAD_INICIAL];
+    private int[] posterior = new int[CAPACIDAD_INICIAL];
+    private int masReciente = -1;
+    private int menosReciente = -1;
+
     public Grafo() {
-        listaAdyacencia = new TablaHash<>();
+        this(SIN_LIMITE);
+    }
+
+    /**
+     * Grafo con como mucho maxVertices vértices (0 = sin límite); expulsa el menos usado recientemente
+     */
+    public Grafo(int maxVertices) {
+        if (maxVertices != SIN_LIMITE && maxVertices < 2) {
+            throw new IllegalArgumentException("El máximo de vértices debe ser 0 (sin límite) o al menos 2");
+        }
+        this.maxVertices = maxVertices;
     }
-    
+
     // Agregar un vértice al grafo
     public void agregarVertice(T vertice) {
-        if (!listaAdyacencia.containsKey(vertice)) {
-            listaAdyacencia.put(vertice, new ListaEnlazada<>());
-        }
+        idDe(vertice);
     }
-    
-    // Agregar una arista entre dos vértices
+
+    // Agregar una arista entre dos vértices (las repetidas se ignoran)
     public void agregarArista(T origen, T destino) {
         // Asegurar que ambos vértices existan
-        agregarVertice(origen);
-        agregarVertice(destino);
-        
-        // Agregar destino a la lista de adyacencia del origen
-        ListaEnlazada<T> adyacentes = listaAdyacencia.get(origen);
-        if (!adyacentes.contiene(destino)) {
-            adyacentes.agregar(destino);
+        int o = idDe(origen);
+        int d = idDe(destino);
+        if (aristas.agregar(clave(o, d))) {
+            salientes[o] = anexar(salientes[o], gradoSalida[o]++, d);
+            entrantes[d] = anexar(entrantes[d], gradoEntrada[d]++, o);
         }
     }
-    
+
     // Verificar si existe una arista entre dos vértices
     public boolean existeArista(T origen, T destino) {
-        if (!listaAdyacencia.containsKey(origen)) {
+        Integer o = idPorVertice.get(origen);
+        Integer d = idPorVertice.get(destino);
+        return o != null && d != null && aristas.contiene(clave(o, d));
+    }
+
+    public boolean existeVertice(T vertice) {
+        return idPorVertice.containsKey(vertice);
+    }
+
+    // Eliminar una arista; devuelve si existía
+    public boolean eliminarArista(T origen, T destino) {
+        Integer o = idPorVertice.get(origen);
+        Integer d = idPorVertice.get(destino);
+        if (o == null || d == null || !aristas.eliminar(clave(o, d))) {
             return false;
         }
-        
-        return listaAdyacencia.get(origen).contiene(destino);
+        gradoSalida[o] = quitar(salientes[o], gradoSalida[o], d);
+        gradoEntrada[d] = quitar(entrantes[d], gradoEntrada[d], o);
+        return true;
     }
-    
-    // Obtener todos los vértices adyacentes a un vértice
+
+    // Obtener todos los vértices adyacentes a un vértice (copia, en orden de inserción)
     public ListaEnlazada<T> obtenerAdyacentes(T vertice) {
-        if (!listaAdyacencia.containsKey(vertice)) {
-            return new ListaEnlazada<>();
+        ListaEnlazada<T> adyacentes = new ListaEnlazada<>();
+        Integer id = idPorVertice.get(vertice);
+        if (id == null) {
+            return adyacentes;
         }
-        
-        return listaAdyacencia.get(vertice);
+        int[] destinos = salientes[id];
+        for (int k = 0; k < gradoSalida[id]; k++) {
+            adyacentes.agregar(vertice(destinos[k]));
+        }
+        return adyacentes;
     }
-    
-    // Eliminar un vértice y todas sus aristas
+
+    // Eliminar un vértice y todas sus aristas (salientes y entrantes)
     public void eliminarVertice(T vertice) {
-        // Eliminar el vértice de la lista de adyacencia
-        listaAdyacencia.remove(vertice);
-        
-        // Eliminar todas las aristas que apuntan a este vértice
-        for (T v : obtenerVertices()) {
-            ListaEnlazada<T> adyacentes = listaAdyacencia.get(v);
-            adyacentes.eliminar(vertice);
+        Integer id = idPorVertice.get(vertice);
+        if (id != null) {
+            eliminar(id);
         }
     }
-    
+
     // Obtener todos los vértices del grafo
     public ListaEnlazada<T> obtenerVertices() {
-        // Implementación simplificada - en una implementación real
-        // se recorrerían todas las claves de la tabla hash
-        ListaEnlazada<T> vertices = new ListaEnlazada<>();
-        // Código para obtener todas las claves de la tabla hash
-        return vertices;
+        ListaEnlazada<T> lista = new ListaEnlazada<>();
+        for (int id = 0; id < siguienteId; id++) {
+            if (vertices[id] != null) {
+                lista.agregar(vertice(id));
+            }
+        }
+        return lista;
+    }
+
+    public int numeroVertices() {
+        return idPorVertice.size();
+    }
+
+    public int numeroAristas() {
+        return aristas.tamaño();
+    }
+
+    /**
+     * Vértices alcanzables desde inicio en orden de anchura (BFS), empezando por él
+     */
+    public ListaArreglo<T> recorrerAnchura(T inicio) {
+        ListaArreglo<T> orden = new ListaArreglo<>();
+        Integer origen = idPorVertice.get(inicio);
+        if (origen == null) return orden;
+        boolean[] visitados = new boolean[siguienteId];
+        int[] cola = new int[siguienteId];
+        int frente = 0, fin = 0;
+        cola[fin++] = origen;
+        visitados[origen] = true;
+        while (frente < fin) {
+            int v = cola[frente++];
+            orden.agregar(vertice(v));
+            int[] destinos = salientes[v];
+            for (int k = 0; k < gradoSalida[v]; k++) {
+                int w = destinos[k];
+                if (!visitados[w]) {
+                    visitados[w] = true;
+                    cola[fin++] = w;
+                }
+            }
+        }
+        return orden;
+    }
+
+    /**
+     * Vértices alcanzables desde inicio en orden de profundidad (DFS en preorden, sin recursión)
+     */
+    public ListaArreglo<T> recorrerProfundidad(T inicio) {
+        ListaArreglo<T> orden = new ListaArreglo<>();
+        Integer origen = idPorVertice.get(inicio);
+        if (origen == null) return orden;
+        boolean[] visitados = new boolean[siguienteId];
+        // Cada vértice puede apilarse una vez por arista entrante
+        int[] pila = new int[Math.max(1, aristas.tamaño() + 1)];
+        int cima = 0;
+        pila[cima++] = origen;
+        while (cima > 0) {
+            int v = pila[--cima];
+            if (visitados[v]) continue;
+            visitados[v] = true;
+            orden.agregar(vertice(v));
+            int[] destinos = salientes[v];
+            // Al revés, para visitar los adyacentes en su orden de inserción
+            for (int k = gradoSalida[v] - 1; k >= 0; k--) {
+                if (!visitados[destinos[k]]) {
+                    pila[cima++] = destinos[k];
+                }
+            }
+        }
+        return orden;
+    }
+
+    /**
+     * Camino con menos aristas de origen a destino (ambos incluidos); vacío si no hay camino
+     */
+    public ListaArreglo<T> caminoMasCorto(T origen, T destino) {
+        ListaArreglo<T> camino = new ListaArreglo<>();
+        Integer o = idPorVertice.get(origen);
+        Integer d = idPorVertice.get(destino);
+        if (o == null || d == null) return camino;
+
+        int[] padre = new int[siguienteId];
+        Arrays.fill(padre, -1);
+        padre[o] = o;
+        int[] cola = new int[siguienteId];
+        int frente = 0, fin = 0;
+        cola[fin++] = o;
+        while (frente < fin && padre[d] < 0) {
+            int v = cola[frente++];
+            int[] destinos = salientes[v];
+            for (int k = 0; k < gradoSalida[v]; k++) {
+                int w = destinos[k];
+                if (padre[w] < 0) {
+                    padre[w] = v;
+                    cola[fin++] = w;
+                }
+            }
+        }
+        if (padre[d] < 0) return camino;
+
+        // Reconstruir de destino a origen y darle la vuelta
+        int longitud = 1;
+        for (int v = d; v != o; v = padre[v]) longitud++;
+        Object[] tramo = new Object[longitud];
+        int i = longitud;
+        for (int v = d; ; v = padre[v]) {
+            tramo[--i] = vertices[v];
+            if (v == o) break;
+        }
+        for (Object v : tramo) camino.agregar(cast(v));
+        return camino;
+    }
+
+    /**
+     * Componentes conexas ignorando la dirección de las aristas (débilmente conexas)
+     */
+    public ListaArreglo<ListaArreglo<T>> componentesConexas() {
+        ListaArreglo<ListaArreglo<T>> componentes = new ListaArreglo<>();
+        boolean[] visitados = new boolean[siguienteId];
+        int[] cola = new int[siguienteId];
+        for (int inicio = 0; inicio < siguienteId; inicio++) {
+            if (vertices[inicio] == null || visitados[inicio]) continue;
+            ListaArreglo<T> componente = new ListaArreglo<>();
+            int frente = 0, fin = 0;
+            cola[fin++] = inicio;
+            visitados[inicio] = true;
+            while (frente < fin) {
+                int v = cola[frente++];
+                componente.agregar(vertice(v));
+                fin = encolarNoVisitados(salientes[v], gradoSalida[v], visitados, cola, fin);
+                fin = encolarNoVisitados(entrantes[v], gradoEntrada[v], visitados, cola, fin);
+            }
+            componentes.agregar(componente);
+        }
+        return componentes;
+    }
+
+    // Acceso por id para los algoritmos del paquete (p. ej. GrafoAciclico), sin copiar adyacencias
+
+    // Id del vértice o -1 si no existe
+    int idDeVertice(T vertice) {
+        Integer id = idPorVertice.get(vertice);
+        return id != null ? id : -1;
+    }
+
+    // Cota superior (exclusiva) de los ids en uso, para dimensionar arreglos por id
+    int limiteIds() {
+        return siguienteId;
+    }
+
+    boolean idEnUso(int id) {
+        return vertices[id] != null;
+    }
+
+    T verticeDe(int id) {
+        return vertice(id);
+    }
+
+    // Arreglo interno de destinos: solo son válidas las primeras gradoSalidaDe(id) posiciones
+    int[] salientesDe(int id) {
+        return salientes[id];
+    }
+
+    int gradoSalidaDe(int id) {
+        return gradoSalida[id];
+    }
+
+    // Arreglo interno de orígenes: solo son válidas las primeras gradoEntradaDe(id) posiciones
+    int[] entrantesDe(int id) {
+        return entrantes[id];
+    }
+
+    int gradoEntradaDe(int id) {
+        return gradoEntrada[id];
+    }
+
+    private static int encolarNoVisitados(int[] vecinos, int grado, boolean[] visitados, int[] cola, int fin) {
+        for (int k = 0; k < grado; k++) {
+            int w = vecinos[k];
+            if (!visitados[w]) {
+                visitados[w] = true;
+                cola[fin++] = w;
+            }
+        }
+        return fin;
+    }
+
+    // Id del vértice, dándolo de alta (y expulsando el menos reciente si hay límite) si no existe
+    private int idDe(T vertice) {
+        if (vertice == null) throw new IllegalArgumentException("El vértice no puede ser nulo");
+        Integer existente = idPorVertice.get(vertice);
+        if (existente != null) {
+            tocar(existente);
+            return existente;
+        }
+        if (maxVertices != SIN_LIMITE && idPorVertice.size() >= maxVertices) {
+            eliminar(menosReciente);
+        }
+        int id = numLibres > 0 ? libres[--numLibres] : siguienteId++;
+        if (id == vertices.length) {
+            crecer();
+        }
+        vertices[id] = vertice;
+        salientes[id] = VACIO;
+        entrantes[id] = VACIO;
+        idPorVertice.put(vertice, id);
+        if (maxVertices != SIN_LIMITE) {
+            enlazarAlFrente(id);
+        }
+        return id;
+    }
+
+    private void eliminar(int id) {
+        int[] sal = salientes[id];
+        int gs = gradoSalida[id];
+        int[] ent = entrantes[id];
+        int ge = gradoEntrada[id];
+        salientes[id] = VACIO;
+        entrantes[id] = VACIO;
+        gradoSalida[id] = 0;
+        gradoEntrada[id] = 0;
+
+        for (int k = 0; k < gs; k++) {
+            int d = sal[k];
+            aristas.eliminar(clave(id, d));
+            if (d != id) gradoEntrada[d] = quitar(entrantes[d], gradoEntrada[d], id);
+        }
+        for (int k = 0; k < ge; k++) {
+            int o = ent[k];
+            if (o == id) continue; // El bucle ya se quitó arriba
+            aristas.eliminar(clave(o, id));
+            gradoSalida[o] = quitar(salientes[o], gradoSalida[o], id);
+        }
+
+        idPorVertice.remove(vertices[id]);
+        vertices[id] = null;
+        if (maxVertices != SIN_LIMITE) {
+            desenlazar(id);
+        }
+        if (numLibres == libres.length) {
+            libres = Arrays.copyOf(libres, libres.length * 2);
+        }
+        libres[numLibres++] = id;
+    }
+
+    private void crecer() {
+        int capacidad = vertices.length * 2;
+        vertices = Arrays.copyOf(vertices, capacidad);
+        salientes = Arrays.copyOf(salientes, capacidad);
+        gradoSalida = Arrays.copyOf(gradoSalida, capacidad);
+        entrantes = Arrays.copyOf(entrantes, capacidad);
+        gradoEntrada = Arrays.copyOf(gradoEntrada, capacidad);
+        anterior = Arrays.copyOf(anterior, capacidad);
+        posterior = Arrays.copyOf(posterior, capacidad);
+    }
+
+    private void tocar(int id) {
+        if (maxVertices != SIN_LIMITE && id != masReciente) {
+            desenlazar(id);
+            enlazarAlFrente(id);
+        }
+    }
+
+    private void enlazarAlFrente(int id) {
+        anterior[id] = -1;
+        posterior[id] = masReciente;
+        if (masReciente >= 0) anterior[masReciente] = id;
+        masReciente = id;
+        if (menosReciente < 0) menosReciente = id;
+    }
+
+    private void desenlazar(int id) {
+        int a = anterior[id];
+        int p = posterior[id];
+        if (a >= 0) posterior[a] = p; else masReciente = p;
+        if (p >= 0) anterior[p] = a; else menosReciente = a;
+    }
+
+    // Añade valor en la posición grado, duplicando el arreglo si está lleno
+    private static int[] anexar(int[] arreglo, int grado, int valor) {
+        if (grado == arreglo.length) {
+            arreglo = Arrays.copyOf(arreglo, Math.max(4, grado * 2));
+        }
+        arreglo[grado] = valor;
+        return arreglo;
+    }
+
+    // Quita la primera aparición de valor conservando el orden; devuelve el grado nuevo
+    private static int quitar(int[] arreglo, int grado, int valor) {
+        for (int k = 0; k < grado; k++) {
+            if (arreglo[k] == valor) {
+                System.arraycopy(arreglo, k + 1, arreglo, k, grado - k - 1);
+                return grado - 1;
+            }
+        }
+        return grado;
+    }
+
+    // Nunca 0 (origen + 1 >= 1), que el conjunto usa para las posiciones libres
+    private static long clave(int origen, int destino) {
+        return ((long) (origen + 1) << 32) | destino;
+    }
+
+    private T vertice(int id) {
+        return cast(vertices[id]);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T cast(Object vertice) {
+        return (T) vertice;
+    }
+
+    // Conjunto de claves long distintas de 0: direccionamiento abierto con sondeo lineal, como MapaLong
+    private static final class ConjuntoAristas {
+        private long[] claves = new long[CAPACIDAD_INICIAL];
+        private int mascara = CAPACIDAD_INICIAL - 1;
+        private int tamaño;
+
+        boolean agregar(long clave) {
+            int i = posicionInicial(clave);
+            long actual;
+            while ((actual = claves[i]) != 0) {
+                if (actual == clave) return false;
+                i = (i + 1) & mascara;
+            }
+            claves[i] = clave;
+            if (++tamaño > claves.length / 2) {
+                redimensionar();
+            }
+            return true;
+        }
+
+        boolean contiene(long clave) {
+            int i = posicionInicial(clave);
+            long actual;
+            while ((actual = claves[i]) != 0) {
+                if (actual == clave) return true;
+                i = (i + 1) & mascara;
+            }
+            return false;
+        }
+
+        boolean eliminar(long clave) {
+            int i = posicionInicial(clave);
+            long actual;
+            while ((actual = claves[i]) != 0) {
+                if (actual == clave) {
+                    desplazarHaciaAtras(i);
+                    tamaño--;
+                    return true;
+                }
+                i = (i + 1) & mascara;
+            }
+            return false;
+        }
+
+        int tamaño() {
+            return tamaño;
+        }
+
+        private void desplazarHaciaAtras(int hueco) {
+            int j = hueco;
+            while (true) {
+                j = (j + 1) & mascara;
+                long clave = claves[j];
+                if (clave == 0) break;
+                int ideal = posicionInicial(clave);
+                boolean puedeMoverse = hueco <= j
+                        ? (ideal <= hueco || ideal > j)
+                        : (ideal <= hueco && ideal > j);
+                if (puedeMoverse) {
+                    claves[hueco] = clave;
+                    hueco = j;
+                }
+            }
+            claves[hueco] = 0;
+        }
+
+        private int posicionInicial(long clave) {
+            return MotorDireccionAbierta.mezclar((int) (clave ^ (clave >>> 32))) & mascara;
+        }
+
+        private void redimensionar() {
+            long[] antiguas = claves;
+            claves = new long[antiguas.length * 2];
+            mascara = claves.length - 1;
+            for (long clave : antiguas) {
+                if (clave == 0) continue;
+                int i = posicionInicial(clave);
+                while (claves[i] != 0) {
+                    i = (i + 1) & mascara;
+                }
+                claves[i] = clave;
+            }
+        }
     }
-}
\ No newline at end of file
+}
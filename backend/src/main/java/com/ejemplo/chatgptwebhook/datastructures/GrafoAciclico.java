@@ -0,0 +1,325 @@
+package com.ejemplo.chatgptwebhook.datastructures;
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Grafo dirigido acíclico sobre {@link Grafo}: una arista antes -> despues significa que
+ * "despues" depende de "antes". Mantiene en todo momento un orden topológico (un número de
+ * orden por vértice) con el algoritmo de Pearce y Kelly: al insertar una arista que contradice
+ * el orden solo se explora y reordena la región entre sus dos extremos, y si desde el destino
+ * se alcanza el origen la arista se rechaza con {@link CicloException} sin modificar el grafo.
+ *
+ * Orden topológico, camino crítico y vértices listos se calculan en O(V + E).
+ * No es seguro entre hilos.
+ */
+public class GrafoAciclico<T> {
+
+    /**
+     * La arista cerraría un ciclo; {@link #getCiclo()} lo devuelve empezando y acabando en el mismo vértice.
+     */
+    public static class CicloException extends IllegalArgumentException {
+        private static final long serialVersionUID = 1L;
+
+        private final transient ListaArreglo<?> ciclo;
+
+        CicloException(String mensaje, ListaArreglo<?> ciclo) {
+            super(mensaje);
+            this.ciclo = ciclo;
+        }
+
+        public ListaArreglo<?> getCiclo() {
+            return ciclo;
+        }
+    }
+
+    /**
+     * Camino de mayor duración total y esa duración
+     */
+    public record CaminoCritico<T>(ListaArreglo<T> vertices, long duracion) {}
+
+    private final Grafo<T> grafo = new Grafo<>();
+
+    // Número de orden topológico por id de vértice (crece al dar de alta; las bajas dejan huecos)
+    private int[] orden = new int[16];
+    private int siguienteOrden;
+
+    // Marcas de visita por época, para no limpiar arreglos en cada inserción
+    private int[] marca = new int[16];
+    private int epoca;
+
+    public void agregarVertice(T vertice) {
+        idDe(vertice);
+    }
+
+    /**
+     * Agrega la dependencia antes -> despues; devuelve false si ya existía.
+     *
+     * @throws CicloException si despues ya precede (directa o indirectamente) a antes
+     */
+    public boolean agregarArista(T antes, T despues) {
+        int x = idDe(antes);
+        int y = idDe(despues);
+        if (x == y) {
+            ListaArreglo<T> ciclo = new ListaArreglo<>();
+            ciclo.agregar(antes);
+            ciclo.agregar(antes);
+            throw new CicloException("Una tarea no puede depender de sí misma: " + antes, ciclo);
+        }
+        if (grafo.existeArista(antes, despues)) {
+            return false;
+        }
+        if (orden[x] > orden[y]) {
+            reordenar(x, y);
+        }
+        grafo.agregarArista(antes, despues);
+        return true;
+    }
+
+    public boolean eliminarArista(T antes, T despues) {
+        // Quitar aristas nunca invalida el orden
+        return grafo.eliminarArista(antes, despues);
+    }
+
+    public void eliminarVertice(T vertice) {
+        grafo.eliminarVertice(vertice);
+    }
+
+    public boolean existeVertice(T vertice) {
+        return grafo.existeVertice(vertice);
+    }
+
+    public boolean existeArista(T antes, T despues) {
+        return grafo.existeArista(antes, despues);
+    }
+
+    public int numeroVertices() {
+        return grafo.numeroVertices();
+    }
+
+    public int numeroAristas() {
+        return grafo.numeroAristas();
+    }
+
+    /**
+     * Orden topológico (algoritmo de Kahn): cada vértice aparece después de todos aquellos de los que depende
+     */
+    public ListaArreglo<T> ordenTopologico() {
+        int[] ids = ordenIds();
+        ListaArreglo<T> lista = new ListaArreglo<>(ids.length);
+        for (int id : ids) {
+            lista.agregar(grafo.verticeDe(id));
+        }
+        return lista;
+    }
+
+    /**
+     * Camino de dependencias con mayor duración total (suma de la duración de sus vértices)
+     */
+    public CaminoCritico<T> caminoCritico(ToLongFunction<? super T> duracion) {
+        int[] ids = ordenIds();
+        int limite = grafo.limiteIds();
+        long[] acumulado = new long[limite];
+        int[] previo = new int[limite];
+        int fin = -1;
+        for (int v : ids) {
+            // Los predecesores ya están calculados: van antes en el orden
+            long mejor = 0;
+            int desde = -1;
+            int[] origenes = grafo.entrantesDe(v);
+            for (int k = 0; k < grafo.gradoEntradaDe(v); k++) {
+                int p = origenes[k];
+                if (desde < 0 || acumulado[p] > mejor) {
+                    mejor = acumulado[p];
+                    desde = p;
+                }
+            }
+            acumulado[v] = mejor + duracion.applyAsLong(grafo.verticeDe(v));
+            previo[v] = desde;
+            if (fin < 0 || acumulado[v] > acumulado[fin]) {
+                fin = v;
+            }
+        }
+
+        ListaArreglo<T> camino = new ListaArreglo<>();
+        if (fin < 0) {
+            return new CaminoCritico<>(camino, 0);
+        }
+        int longitud = 0;
+        for (int v = fin; v >= 0; v = previo[v]) longitud++;
+        int[] tramo = new int[longitud];
+        int i = longitud;
+        for (int v = fin; v >= 0; v = previo[v]) tramo[--i] = v;
+        for (int v : tramo) camino.agregar(grafo.verticeDe(v));
+        return new CaminoCritico<>(camino, acumulado[fin]);
+    }
+
+    /**
+     * Vértices sin completar cuyas dependencias están todas completadas, en orden topológico
+     */
+    public ListaArreglo<T> listos(Predicate<? super T> completado) {
+        int[] ids = ordenIds();
+        boolean[] hecho = new boolean[grafo.limiteIds()];
+        for (int v : ids) {
+            hecho[v] = completado.test(grafo.verticeDe(v));
+        }
+        ListaArreglo<T> listos = new ListaArreglo<>();
+        for (int v : ids) {
+            if (hecho[v]) continue;
+            boolean libre = true;
+            int[] origenes = grafo.entrantesDe(v);
+            for (int k = 0; k < grafo.gradoEntradaDe(v) && libre; k++) {
+                libre = hecho[origenes[k]];
+            }
+            if (libre) listos.agregar(grafo.verticeDe(v));
+        }
+        return listos;
+    }
+
+    // Ids en orden topológico (Kahn con cola FIFO)
+    private int[] ordenIds() {
+        int limite = grafo.limiteIds();
+        int[] pendientes = new int[limite];
+        int[] cola = new int[grafo.numeroVertices()];
+        int frente = 0, fin = 0;
+        for (int v = 0; v < limite; v++) {
+            if (!grafo.idEnUso(v)) continue;
+            pendientes[v] = grafo.gradoEntradaDe(v);
+            if (pendientes[v] == 0) cola[fin++] = v;
+        }
+        while (frente < fin) {
+            int v = cola[frente++];
+            int[] destinos = grafo.salientesDe(v);
+            for (int k = 0; k < grafo.gradoSalidaDe(v); k++) {
+                int w = destinos[k];
+                if (--pendientes[w] == 0) cola[fin++] = w;
+            }
+        }
+        return cola;
+    }
+
+    private int idDe(T vertice) {
+        int id = grafo.idDeVertice(vertice);
+        if (id >= 0) return id;
+        grafo.agregarVertice(vertice);
+        id = grafo.idDeVertice(vertice);
+        if (id >= orden.length) {
+            int capacidad = Math.max(orden.length * 2, id + 1);
+            orden = Arrays.copyOf(orden, capacidad);
+            marca = Arrays.copyOf(marca, capacidad);
+        }
+        // Los vértices nuevos van al final del orden: no tienen aristas que lo contradigan
+        orden[id] = siguienteOrden++;
+        marca[id] = 0;
+        return id;
+    }
+
+    // Pearce-Kelly para la arista x -> y con orden[x] > orden[y]: mueve lo alcanzable desde y
+    // (con orden < orden[x]) detrás de lo que alcanza a x (con orden > orden[y]), reutilizando sus posiciones
+    private void reordenar(int x, int y) {
+        int cotaInferior = orden[y];
+        int cotaSuperior = orden[x];
+        if (++epoca == Integer.MAX_VALUE) {
+            Arrays.fill(marca, 0);
+            epoca = 1;
+        }
+        int limite = grafo.limiteIds();
+
+        // Hacia delante desde y; llegar a x es un ciclo
+        int[] haciaDelante = new int[8];
+        int nDelante = 0;
+        int[] padre = null;
+        int[] pila = new int[8];
+        int cima = 0;
+        pila[cima++] = y;
+        marca[y] = epoca;
+        while (cima > 0) {
+            int v = pila[--cima];
+            haciaDelante = anexar(haciaDelante, nDelante++, v);
+            int[] destinos = grafo.salientesDe(v);
+            for (int k = 0; k < grafo.gradoSalidaDe(v); k++) {
+                int w = destinos[k];
+                if (w == x) {
+                    if (padre == null) padre = new int[limite];
+                    padre[x] = v;
+                    throw ciclo(x, y, padre);
+                }
+                if (marca[w] != epoca && orden[w] < cotaSuperior) {
+                    marca[w] = epoca;
+                    if (padre == null) padre = new int[limite];
+                    padre[w] = v;
+                    pila = anexar(pila, cima++, w);
+                }
+            }
+        }
+
+        // Hacia atrás desde x
+        int[] haciaAtras = new int[8];
+        int nAtras = 0;
+        cima = 0;
+        pila[cima++] = x;
+        marca[x] = epoca;
+        while (cima > 0) {
+            int v = pila[--cima];
+            haciaAtras = anexar(haciaAtras, nAtras++, v);
+            int[] origenes = grafo.entrantesDe(v);
+            for (int k = 0; k < grafo.gradoEntradaDe(v); k++) {
+                int w = origenes[k];
+                if (marca[w] != epoca && orden[w] > cotaInferior) {
+                    marca[w] = epoca;
+                    pila = anexar(pila, cima++, w);
+                }
+            }
+        }
+
+        // Cada grupo conserva su orden relativo; los que alcanzan a x ocupan las primeras posiciones
+        long[] atras = porOrden(haciaAtras, nAtras);
+        long[] delante = porOrden(haciaDelante, nDelante);
+        int[] posiciones = new int[nAtras + nDelante];
+        for (int i = 0; i < nAtras; i++) posiciones[i] = (int) (atras[i] >>> 32);
+        for (int i = 0; i < nDelante; i++) posiciones[nAtras + i] = (int) (delante[i] >>> 32);
+        Arrays.sort(posiciones);
+        int p = 0;
+        for (long e : atras) orden[(int) e] = posiciones[p++];
+        for (long e : delante) orden[(int) e] = posiciones[p++];
+    }
+
+    // Ids ordenados por su número de orden, empaquetados como (orden << 32 | id)
+    private long[] porOrden(int[] ids, int n) {
+        long[] empaquetados = new long[n];
+        for (int i = 0; i < n; i++) {
+            empaquetados[i] = ((long) orden[ids[i]] << 32) | ids[i];
+        }
+        Arrays.sort(empaquetados);
+        return empaquetados;
+    }
+
+    // Ciclo x -> y -> ... -> x a partir de los padres de la búsqueda hacia delante
+    private CicloException ciclo(int x, int y, int[] padre) {
+        int longitud = 1;
+        for (int v = x; v != y; v = padre[v]) longitud++;
+        int[] tramo = new int[longitud];
+        int i = longitud;
+        for (int v = x; ; v = padre[v]) {
+            tramo[--i] = v;
+            if (v == y) break;
+        }
+        ListaArreglo<T> ciclo = new ListaArreglo<>(longitud + 1);
+        StringBuilder texto = new StringBuilder().append(grafo.verticeDe(x));
+        ciclo.agregar(grafo.verticeDe(x));
+        for (int v : tramo) {
+            ciclo.agregar(grafo.verticeDe(v));
+            texto.append(" -> ").append(grafo.verticeDe(v));
+        }
+        return new CicloException("La dependencia crea un ciclo: " + texto, ciclo);
+    }
+
+    private static int[] anexar(int[] arreglo, int n, int valor) {
+        if (n == arreglo.length) {
+            arreglo = Arrays.copyOf(arreglo, n * 2);
+        }
+        arreglo[n] = valor;
+        return arreglo;
+    }
+}
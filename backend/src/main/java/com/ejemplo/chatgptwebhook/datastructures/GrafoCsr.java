@@ -0,0 +1,120 @@
+package com.ejemplo.chatgptwebhook.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * Grafo no dirigido e inmutable en formato CSR (compressed sparse row): los nodos son
+ * índices 0..n-1 asociados a ids long ordenados, y los vecinos de todos los nodos van
+ * seguidos en un único int[] con un arreglo de inicios. Sin objetos por nodo ni por arista,
+ * cabe en caché y se puede leer desde muchos hilos a la vez (ver {@link AnaliticaGrafo}).
+ *
+ * Se monta con {@link Constructor}, que descarta lazos y aristas repetidas.
+ */
+public final class GrafoCsr {
+
+    // ids[i] es el id del nodo i, en orden creciente (búsqueda binaria)
+    private final long[] ids;
+    // Los vecinos del nodo i son vecinos[inicio[i]] .. vecinos[inicio[i + 1] - 1], ordenados
+    final int[] inicio;
+    final int[] vecinos;
+
+    private GrafoCsr(long[] ids, int[] inicio, int[] vecinos) {
+        this.ids = ids;
+        this.inicio = inicio;
+        this.vecinos = vecinos;
+    }
+
+    public int numeroNodos() {
+        return ids.length;
+    }
+
+    // Cada arista no dirigida cuenta una vez
+    public int numeroAristas() {
+        return vecinos.length / 2;
+    }
+
+    /**
+     * Índice del nodo con ese id, o -1 si no está
+     */
+    public int indiceDe(long id) {
+        int i = Arrays.binarySearch(ids, id);
+        return i >= 0 ? i : -1;
+    }
+
+    public long idDe(int indice) {
+        return ids[indice];
+    }
+
+    public int grado(int indice) {
+        return inicio[indice + 1] - inicio[indice];
+    }
+
+    /**
+     * Acumula aristas entre ids conocidos de antemano y genera el {@link GrafoCsr}
+     */
+    public static final class Constructor {
+        private final long[] ids;
+        private int[] origenes = new int[16];
+        private int[] destinos = new int[16];
+        private int numAristas;
+
+        public Constructor(long[] idsNodos) {
+            long[] ordenados = idsNodos.clone();
+            Arrays.sort(ordenados);
+            for (int i = 1; i < ordenados.length; i++) {
+                if (ordenados[i] == ordenados[i - 1]) {
+                    throw new IllegalArgumentException("Id de nodo repetido: " + ordenados[i]);
+                }
+            }
+            this.ids = ordenados;
+        }
+
+        public void agregarArista(long a, long b) {
+            int x = Arrays.binarySearch(ids, a);
+            int y = Arrays.binarySearch(ids, b);
+            if (x < 0 || y < 0) {
+                throw new IllegalArgumentException("Arista con un nodo desconocido: " + a + " - " + b);
+            }
+            if (x == y) return;
+            if (numAristas == origenes.length) {
+                origenes = Arrays.copyOf(origenes, numAristas * 2);
+                destinos = Arrays.copyOf(destinos, numAristas * 2);
+            }
+            origenes[numAristas] = x;
+            destinos[numAristas] = y;
+            numAristas++;
+        }
+
+        public GrafoCsr construir() {
+            int n = ids.length;
+            // Conteo de grados y suma prefija; cada arista se guarda en los dos sentidos
+            int[] inicio = new int[n + 1];
+            for (int e = 0; e < numAristas; e++) {
+                inicio[origenes[e] + 1]++;
+                inicio[destinos[e] + 1]++;
+            }
+            for (int i = 0; i < n; i++) inicio[i + 1] += inicio[i];
+            int[] vecinos = new int[inicio[n]];
+            int[] siguiente = Arrays.copyOf(inicio, n);
+            for (int e = 0; e < numAristas; e++) {
+                vecinos[siguiente[origenes[e]]++] = destinos[e];
+                vecinos[siguiente[destinos[e]]++] = origenes[e];
+            }
+
+            // Ordenar cada fila y quitar repetidos, compactando en el mismo arreglo
+            int escritura = 0;
+            int desde = 0;
+            for (int i = 0; i < n; i++) {
+                int hasta = inicio[i + 1];
+                Arrays.sort(vecinos, desde, hasta);
+                inicio[i] = escritura;
+                for (int k = desde; k < hasta; k++) {
+                    if (k == desde || vecinos[k] != vecinos[k - 1]) vecinos[escritura++] = vecinos[k];
+                }
+                desde = hasta;
+            }
+            inicio[n] = escritura;
+            return new GrafoCsr(ids, inicio, Arrays.copyOf(vecinos, escritura));
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.ejemplo.chatgptwebhook.datastructures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Índice invertido en memoria con puntuación BM25: término -> lista de documentos (postings).
+ * Cada documento recibe un número interno creciente, así las postings se guardan comprimidas
+ * como deltas de número de documento y frecuencia en varint (1 byte para valores < 128).
+ * Reindexar un documento marca su número anterior como borrado y añade uno nuevo; cuando los
+ * borrados superan a los vivos se reescriben las postings sin ellos.
+ * Los términos se pliegan con {@link NormalizadorTexto#plegar} (sin tildes, ñ aparte).
+ */
+public class IndiceInvertido {
+    // Parámetros habituales de BM25
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    public record Resultado(long id, double puntuacion) {}
+
+    private static final class Postings {
+        byte[] datos = new byte[8];
+        int largo;
+        int ultimoDoc = -1;
+        int documentos;
+
+        void agregar(int doc, int frecuencia) {
+            asegurar(10);
+            largo = escribirVarint(datos, largo, doc - ultimoDoc);
+            largo = escribirVarint(datos, largo, frecuencia);
+            ultimoDoc = doc;
+            documentos++;
+        }
+
+        private void asegurar(int extra) {
+            if (largo + extra > datos.length) {
+                datos = Arrays.copyOf(datos, Math.max(datos.length * 2, largo + extra));
+            }
+        }
+    }
+
+    private Map<String, Postings> terminos = new HashMap<>();
+
+    // Por número interno de documento: id externo, longitud en términos y si sigue vivo
+    private long[] ids = new long[16];
+    private int[] longitudes = new int[16];
+    private boolean[] borrados = new boolean[16];
+    private int documentos;
+    private int numBorrados;
+    private long sumaLongitudes;
+
+    // id externo -> número interno vigente
+    private final MapaLong<Integer> docPorId = new MapaLong<>();
+
+    /**
+     * Indexa (o reindexa) el texto de un documento
+     */
+    public synchronized void indexar(long id, String texto) {
+        eliminarSiExiste(id);
+
+        Map<String, Integer> frecuencias = new HashMap<>();
+        int longitud = 0;
+        for (String termino : tokenizar(texto)) {
+            frecuencias.merge(termino, 1, Integer::sum);
+            longitud++;
+        }
+
+        int doc = documentos++;
+        if (doc == ids.length) {
+            int capacidad = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacidad);
+            longitudes = Arrays.copyOf(longitudes, capacidad);
+            borrados = Arrays.copyOf(borrados, capacidad);
+        }
+        ids[doc] = id;
+        longitudes[doc] = longitud;
+        sumaLongitudes += longitud;
+        docPorId.put(id, doc);
+        for (Map.Entry<String, Integer> e : frecuencias.entrySet()) {
+            terminos.computeIfAbsent(e.getKey(), t -> new Postings()).agregar(doc, e.getValue());
+        }
+    }
+
+    public synchronized void eliminar(long id) {
+        eliminarSiExiste(id);
+    }
+
+    public synchronized int tamaño() {
+        return documentos - numBorrados;
+    }
+
+    /**
+     * Los k documentos con mayor puntuación BM25 para la consulta (OR de sus términos)
+     */
+    public synchronized List<Resultado> buscar(String consulta, int k) {
+        List<Resultado> resultados = new ArrayList<>();
+        int vivos = documentos - numBorrados;
+        if (k <= 0 || vivos == 0) {
+            return resultados;
+        }
+        double longitudMedia = (double) sumaLongitudes / vivos;
+
+        Map<Integer, Double> puntuaciones = new HashMap<>();
+        for (String termino : new java.util.LinkedHashSet<>(tokenizar(consulta))) {
+            Postings p = terminos.get(termino);
+            if (p == null) continue;
+            // df incluye documentos borrados hasta la próxima compactación (como hace Lucene)
+            double idf = Math.log(1 + (documentos - p.documentos + 0.5) / (p.documentos + 0.5));
+            Lector lector = new Lector(p);
+            int doc = -1;
+            while (lector.quedan()) {
+                doc += lector.varint();
+                int frecuencia = lector.varint();
+                if (borrados[doc]) continue;
+                double norma = K1 * (1 - B + B * longitudes[doc] / longitudMedia);
+                puntuaciones.merge(doc, idf * frecuencia * (K1 + 1) / (frecuencia + norma), Double::sum);
+            }
+        }
+
+        // Montículo de mínimos con los k mejores
+        PriorityQueue<Map.Entry<Integer, Double>> mejores = new PriorityQueue<>(Map.Entry.comparingByValue());
+        for (Map.Entry<Integer, Double> e : puntuaciones.entrySet()) {
+            mejores.offer(e);
+            if (mejores.size() > k) mejores.poll();
+        }
+        while (!mejores.isEmpty()) {
+            Map.Entry<Integer, Double> e = mejores.poll();
+            resultados.add(new Resultado(ids[e.getKey()], e.getValue()));
+        }
+        java.util.Collections.reverse(resultados);
+        return resultados;
+    }
+
+    // Términos plegados del texto, separando por cualquier carácter que no sea letra o dígito
+    static List<String> tokenizar(String texto) {
+        List<String> terminos = new ArrayList<>();
+        if (texto == null) return terminos;
+        for (String token : texto.split("[^\\p{L}\\p{N}]+")) {
+            String termino = NormalizadorTexto.plegar(token);
+            if (!termino.isEmpty()) terminos.add(termino);
+        }
+        return terminos;
+    }
+
+    private void eliminarSiExiste(long id) {
+        Integer anterior = docPorId.remove(id);
+        if (anterior == null) return;
+        borrados[anterior] = true;
+        numBorrados++;
+        sumaLongitudes -= longitudes[anterior];
+        if (numBorrados > 64 && numBorrados > documentos - numBorrados) {
+            compactar();
+        }
+    }
+
+    // Renumera los documentos vivos y reescribe las postings sin los borrados
+    private void compactar() {
+        int[] nuevoNumero = new int[documentos];
+        int vivos = 0;
+        for (int doc = 0; doc < documentos; doc++) {
+            nuevoNumero[doc] = borrados[doc] ? -1 : vivos++;
+        }
+
+        Map<String, Postings> nuevos = new HashMap<>();
+        for (Map.Entry<String, Postings> e : terminos.entrySet()) {
+            Postings p = e.getValue();
+            Postings q = new Postings();
+            Lector lector = new Lector(p);
+            int doc = -1;
+            while (lector.quedan()) {
+                doc += lector.varint();
+                int frecuencia = lector.varint();
+                if (nuevoNumero[doc] >= 0) q.agregar(nuevoNumero[doc], frecuencia);
+            }
+            if (q.documentos > 0) {
+                q.datos = Arrays.copyOf(q.datos, q.largo);
+                nuevos.put(e.getKey(), q);
+            }
+        }
+
+        int capacidad = Math.max(16, vivos * 2);
+        long[] nuevosIds = new long[capacidad];
+        int[] nuevasLongitudes = new int[capacidad];
+        for (int doc = 0; doc < documentos; doc++) {
+            int n = nuevoNumero[doc];
+            if (n < 0) continue;
+            nuevosIds[n] = ids[doc];
+            nuevasLongitudes[n] = longitudes[doc];
+            docPorId.put(ids[doc], n);
+        }
+        terminos = nuevos;
+        ids = nuevosIds;
+        longitudes = nuevasLongitudes;
+        borrados = new boolean[capacidad];
+        documentos = vivos;
+        numBorrados = 0;
+    }
+
+    private static int escribirVarint(byte[] destino, int pos, int valor) {
+        while ((valor & ~0x7F) != 0) {
+            destino[pos++] = (byte) ((valor & 0x7F) | 0x80);
+            valor >>>= 7;
+        }
+        destino[pos++] = (byte) valor;
+        return pos;
+    }
+
+    // Lectura secuencial de unas postings
+    private static final class Lector {
+        private final byte[] datos;
+        private final int fin;
+        private int pos;
+
+        Lector(Postings p) {
+            this.datos = p.datos;
+            this.fin = p.largo;
+        }
+
+        boolean quedan() {
+            return pos < fin;
+        }
+
+        int varint() {
+            int valor = 0;
+            int desplazamiento = 0;
+            byte b;
+            do {
+                b = datos[pos++];
+                valor |= (b & 0x7F) << desplazamiento;
+                desplazamiento += 7;
+            } while (b < 0);
+            return valor;
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package com.ejemplo.chatgptwebhook.datastructures;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Índice de palabras persistente: un segmento {@link TrieMapeado} en disco más un diario
+ * (fichero de solo anexado, una palabra por línea) con lo insertado desde la última compactación.
+ * Lo del diario se mantiene también en un {@link Trie} pequeño en heap; al llegar a
+ * umbralCompactacion entradas el diario se congela y se abre otro, y el congelado se fusiona
+ * con el segmento en un segmento nuevo en el ejecutor de compactación, sin bloquear inserciones
+ * ni búsquedas. La fusión recorre el segmento y el diario en orden de clave y escribe en streaming
+ * ({@link TrieMapeado.Escritor}): el heap no crece con el índice y al arrancar solo se releen los diarios.
+ *
+ * Ficheros en el directorio: "nombre.trie" (segmento, con su generación S en la cabecera) y
+ * "nombre-G.log" (diario de la generación G). El diario S es el vigente; si además está el S+1,
+ * una compactación se interrumpió: el S es el congelado y se vuelve a fusionar. Los diarios de
+ * otras generaciones ya están en el segmento y se descartan.
+ */
+public class IndiceTrieDisco implements Closeable {
+    private final Path directorio;
+    private final String nombre;
+    private final int umbralCompactacion;
+    private final Executor compactador;
+
+    private TrieMapeado segmento;
+    // Generación del diario en el que se anexa
+    private long generacion;
+    private Trie diario = new Trie();
+    private int entradasDiario;
+    // Diario de la generación anterior, pendiente de fusionar con el segmento (null si no hay)
+    private Trie congelado;
+    private boolean compactando;
+    private boolean cerrado;
+
+    /**
+     * Índice que compacta en el hilo que llega al umbral
+     */
+    public IndiceTrieDisco(Path directorio, String nombre, int umbralCompactacion) {
+        this(directorio, nombre, umbralCompactacion, Runnable::run);
+    }
+
+    public IndiceTrieDisco(Path directorio, String nombre, int umbralCompactacion, Executor compactador) {
+        if (umbralCompactacion <= 0) {
+            throw new IllegalArgumentException("El umbral de compactación debe ser positivo: " + umbralCompactacion);
+        }
+        this.directorio = directorio;
+        this.nombre = nombre;
+        this.umbralCompactacion = umbralCompactacion;
+        this.compactador = compactador;
+        try {
+            Files.createDirectories(directorio);
+            Path fichero = ficheroSegmento();
+            long generacionSegmento = 0;
+            if (Files.exists(fichero)) {
+                segmento = TrieMapeado.abrir(fichero);
+                generacionSegmento = segmento.generacion();
+            }
+            generacion = generacionSegmento;
+            if (Files.exists(ficheroDiario(generacionSegmento + 1))) {
+                // Compactación interrumpida: el diario del segmento quedó congelado
+                generacion = generacionSegmento + 1;
+                Trie pendiente = new Trie();
+                if (leerDiario(ficheroDiario(generacionSegmento), pendiente) > 0) {
+                    congelado = pendiente;
+                }
+            }
+            descartarDiariosAntiguos(generacionSegmento);
+            entradasDiario = leerDiario(ficheroDiario(generacion), diario);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir el índice " + nombre + " en " + directorio, e);
+        }
+        synchronized (this) {
+            programarCompactacion();
+        }
+    }
+
+    /**
+     * Anexa las palabras al diario (una escritura) y las indexa; al llegar al umbral programa la compactación
+     */
+    public synchronized void insertar(List<String> palabras) {
+        comprobarAbierto();
+        StringBuilder lineas = new StringBuilder();
+        for (String palabra : palabras) {
+            String limpia = NormalizadorTexto.limpiar(palabra);
+            if (!limpia.isEmpty()) {
+                lineas.append(limpia).append('\n');
+            }
+        }
+        if (lineas.length() == 0) {
+            return;
+        }
+        try {
+            Files.writeString(ficheroDiario(generacion), lineas, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo escribir el diario del índice " + nombre, e);
+        }
+        for (String limpia : lineas.toString().split("\n")) {
+            diario.insertar(limpia);
+            entradasDiario++;
+        }
+        programarCompactacion();
+    }
+
+    /**
+     * Compacta en el hilo actual (espera a la compactación en curso, si la hay): al volver,
+     * todo lo insertado hasta ahora está en el segmento
+     *
+     * @throws UncheckedIOException si no se pudo escribir el segmento nuevo
+     */
+    public void compactar() {
+        Runnable tarea;
+        synchronized (this) {
+            esperarCompactacion();
+            if (congelado == null && entradasDiario > 0) {
+                congelar();
+            }
+            tarea = iniciarFusion();
+        }
+        if (tarea != null) {
+            tarea.run();
+        }
+    }
+
+    /**
+     * Espera a la compactación en curso y suelta el segmento y los diarios en heap; el índice
+     * no se puede usar después. Lo ya insertado está en disco y se recupera al volver a abrirlo.
+     */
+    @Override
+    public synchronized void close() {
+        esperarCompactacion();
+        cerrado = true;
+        segmento = null;
+        diario = new Trie();
+        congelado = null;
+    }
+
+    public synchronized boolean estaCerrado() {
+        return cerrado;
+    }
+
+    /**
+     * Las k palabras más frecuentes con el prefijo, sumando las frecuencias del segmento y de los diarios.
+     * Entre compactaciones es aproximado: una palabra que no esté entre las k primeras de ninguna
+     * de las partes no se considera aunque la suma la colocase arriba.
+     */
+    public synchronized ListaEnlazada<String> buscarPorPrefijo(String prefijo, int k) {
+        comprobarAbierto();
+        Map<String, String> candidatas = new LinkedHashMap<>();
+        if (segmento != null) {
+            for (String palabra : segmento.buscarPorPrefijo(prefijo, k)) {
+                candidatas.putIfAbsent(NormalizadorTexto.plegar(palabra), palabra);
+            }
+        }
+        if (congelado != null) {
+            for (String palabra : congelado.buscarPorPrefijo(prefijo, k)) {
+                candidatas.putIfAbsent(NormalizadorTexto.plegar(palabra), palabra);
+            }
+        }
+        for (String palabra : diario.buscarPorPrefijo(prefijo, k)) {
+            candidatas.putIfAbsent(NormalizadorTexto.plegar(palabra), palabra);
+        }
+
+        List<String> ordenadas = new ArrayList<>(candidatas.values());
+        ordenadas.sort((a, b) -> Integer.compare(frecuencia(b), frecuencia(a)));
+        ListaEnlazada<String> resultados = new ListaEnlazada<>();
+        for (int i = 0; i < ordenadas.size() && i < k; i++) {
+            resultados.agregar(ordenadas.get(i));
+        }
+        return resultados;
+    }
+
+    public synchronized int frecuencia(String palabra) {
+        comprobarAbierto();
+        return (segmento != null ? segmento.frecuencia(palabra) : 0)
+                + (congelado != null ? congelado.frecuencia(palabra) : 0)
+                + diario.frecuencia(palabra);
+    }
+
+    public synchronized boolean existePrefijo(String prefijo) {
+        comprobarAbierto();
+        return (segmento != null && segmento.existePrefijo(prefijo))
+                || (congelado != null && congelado.existePrefijo(prefijo))
+                || diario.existePrefijo(prefijo);
+    }
+
+    // Palabras pendientes de compactar (las únicas que ocupan heap)
+    public synchronized int enDiario() {
+        return diario.tamaño() + (congelado != null ? congelado.tamaño() : 0);
+    }
+
+    // Con el monitor tomado: congela el diario si llegó al umbral y lanza la fusión si no hay otra en curso
+    private void programarCompactacion() {
+        if (compactando || cerrado) {
+            return;
+        }
+        if (congelado == null && entradasDiario >= umbralCompactacion) {
+            congelar();
+        }
+        Runnable tarea = iniciarFusion();
+        if (tarea == null) {
+            return;
+        }
+        try {
+            compactador.execute(tarea);
+        } catch (RejectedExecutionException e) {
+            // Ejecutor parado (cierre de la aplicación): se reintentará en la siguiente inserción o al reabrir
+            compactando = false;
+        }
+    }
+
+    // Las inserciones siguientes van a un diario nuevo de la generación siguiente
+    private void congelar() {
+        congelado = diario;
+        diario = new Trie();
+        entradasDiario = 0;
+        generacion++;
+    }
+
+    // Con el monitor tomado: marca la fusión del diario congelado como en curso y la devuelve (null si no hay nada)
+    private Runnable iniciarFusion() {
+        if (congelado == null) {
+            return null;
+        }
+        compactando = true;
+        TrieMapeado base = segmento;
+        Trie pendiente = congelado;
+        long nueva = generacion;
+        return () -> fusionar(base, pendiente, nueva);
+    }
+
+    // Sin el monitor: el segmento mapeado y el diario congelado ya no cambian
+    private void fusionar(TrieMapeado base, Trie pendiente, long nueva) {
+        Path temporal = directorio.resolve(nombre + ".trie.tmp");
+        TrieMapeado nuevo;
+        try {
+            try (TrieMapeado.Escritor escritor = new TrieMapeado.Escritor(temporal, nueva)) {
+                Fusion fusion = new Fusion(escritor, pendiente);
+                if (base != null) {
+                    base.recorrer(fusion::agregarDelSegmento);
+                }
+                fusion.agregarRestoDelDiario();
+                escritor.terminar();
+            }
+            Files.move(temporal, ficheroSegmento(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            nuevo = TrieMapeado.abrir(ficheroSegmento());
+            Files.deleteIfExists(ficheroDiario(nueva - 1));
+        } catch (IOException | UncheckedIOException e) {
+            synchronized (this) {
+                // El diario congelado sigue en disco y en heap: se reintenta en la siguiente inserción
+                compactando = false;
+                notifyAll();
+            }
+            IOException causa = e instanceof UncheckedIOException u ? u.getCause() : (IOException) e;
+            throw new UncheckedIOException("No se pudo compactar el índice " + nombre, causa);
+        }
+        synchronized (this) {
+            if (!cerrado) {
+                segmento = nuevo;
+                congelado = null;
+            }
+            compactando = false;
+            notifyAll();
+            programarCompactacion();
+        }
+    }
+
+    private void esperarCompactacion() {
+        boolean interrumpido = false;
+        while (compactando) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrumpido = true;
+            }
+        }
+        if (interrumpido) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void comprobarAbierto() {
+        if (cerrado) {
+            throw new IllegalStateException("El índice " + nombre + " está cerrado");
+        }
+    }
+
+    /**
+     * Mezcla en orden de clave las palabras del segmento (que llegan de {@link TrieMapeado#recorrer})
+     * con las del diario congelado, sumando las frecuencias de las que están en los dos
+     */
+    private static final class Fusion {
+        private final TrieMapeado.Escritor escritor;
+        private final List<String> palabras = new ArrayList<>();
+        private final List<Integer> frecuencias = new ArrayList<>();
+        private final List<String> claves = new ArrayList<>();
+        private int siguiente;
+
+        Fusion(TrieMapeado.Escritor escritor, Trie diario) {
+            this.escritor = escritor;
+            diario.recorrer((palabra, frecuencia) -> {
+                palabras.add(palabra);
+                frecuencias.add(frecuencia);
+                claves.add(NormalizadorTexto.plegar(palabra));
+            });
+        }
+
+        void agregarDelSegmento(String palabra, int frecuencia) {
+            String clave = NormalizadorTexto.plegar(palabra);
+            while (siguiente < claves.size() && claves.get(siguiente).compareTo(clave) < 0) {
+                agregarDelDiario();
+            }
+            if (siguiente < claves.size() && claves.get(siguiente).equals(clave)) {
+                frecuencia += frecuencias.get(siguiente++);
+            }
+            agregar(palabra, frecuencia);
+        }
+
+        void agregarRestoDelDiario() {
+            while (siguiente < claves.size()) {
+                agregarDelDiario();
+            }
+        }
+
+        private void agregarDelDiario() {
+            agregar(palabras.get(siguiente), frecuencias.get(siguiente));
+            siguiente++;
+        }
+
+        private void agregar(String palabra, int frecuencia) {
+            try {
+                escritor.agregar(palabra, frecuencia);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // Lee un diario en el Trie y devuelve sus entradas; recorta una última línea cortada por una caída
+    private static int leerDiario(Path fichero, Trie destino) throws IOException {
+        if (!Files.exists(fichero)) {
+            return 0;
+        }
+        String contenido = Files.readString(fichero, StandardCharsets.UTF_8);
+        int fin = contenido.lastIndexOf('\n');
+        if (fin < contenido.length() - 1) {
+            try (FileChannel canal = FileChannel.open(fichero, StandardOpenOption.WRITE)) {
+                canal.truncate(contenido.substring(0, fin + 1).getBytes(StandardCharsets.UTF_8).length);
+            }
+        }
+        if (fin < 0) {
+            return 0;
+        }
+        int entradas = 0;
+        for (String palabra : contenido.substring(0, fin).split("\n")) {
+            destino.insertar(palabra);
+            entradas++;
+        }
+        return entradas;
+    }
+
+    // Se conservan el diario del segmento y el siguiente; el resto ya está en el segmento
+    private void descartarDiariosAntiguos(long generacionSegmento) throws IOException {
+        Path vigente = ficheroDiario(generacionSegmento);
+        Path siguiente = ficheroDiario(generacionSegmento + 1);
+        try (DirectoryStream<Path> diarios = Files.newDirectoryStream(directorio, nombre + "-*.log")) {
+            for (Path fichero : diarios) {
+                if (!fichero.equals(vigente) && !fichero.equals(siguiente)) {
+                    Files.deleteIfExists(fichero);
+                }
+            }
+        }
+    }
+
+    private Path ficheroSegmento() {
+        return directorio.resolve(nombre + ".trie");
+    }
+
+    private Path ficheroDiario(long generacionDiario) {
+        return directorio.resolve(nombre + "-" + generacionDiario + ".log");
+    }
+}
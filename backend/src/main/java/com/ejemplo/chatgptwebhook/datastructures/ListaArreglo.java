@@ -0,0 +1,111 @@
+package com.ejemplo.chatgptwebhook.datastructures;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Lista sobre un arreglo que crece al doble: obtener(i) en O(1), a diferencia de
+ * {@link ListaEnlazada}, que recorre desde la cabeza. Pensada para recorrer por índice
+ * lotes grandes (p. ej. las tareas de una importación) en tiempo lineal.
+ */
+public class ListaArreglo<T> implements Iterable<T> {
+    private static final int CAPACIDAD_INICIAL = 10;
+
+    private Object[] elementos;
+    private int tamaño;
+    // Cambios estructurales, para que el iterador detecte modificaciones durante el recorrido
+    private int modificaciones;
+
+    public ListaArreglo() {
+        this(CAPACIDAD_INICIAL);
+    }
+
+    public ListaArreglo(int capacidadInicial) {
+        if (capacidadInicial < 0) {
+            throw new IllegalArgumentException("Capacidad negativa: " + capacidadInicial);
+        }
+        elementos = new Object[capacidadInicial];
+    }
+
+    // Agregar elemento al final de la lista (O(1) amortizado)
+    public void agregar(T elemento) {
+        asegurarCapacidad(tamaño + 1);
+        elementos[tamaño++] = elemento;
+        modificaciones++;
+    }
+
+    // Agregar todos los elementos al final, reservando espacio una sola vez si se conoce el tamaño
+    public void agregarTodos(Iterable<? extends T> otros) {
+        if (otros instanceof Collection<?> coleccion) {
+            asegurarCapacidad(tamaño + coleccion.size());
+        } else if (otros instanceof ListaArreglo<?> lista) {
+            asegurarCapacidad(tamaño + lista.tamaño);
+        } else if (otros instanceof ListaEnlazada<?> lista) {
+            asegurarCapacidad(tamaño + lista.tamaño());
+        }
+        for (T elemento : otros) {
+            agregar(elemento);
+        }
+    }
+
+    // Obtener elemento en una posición específica (O(1))
+    @SuppressWarnings("unchecked")
+    public T obtener(int indice) {
+        if (indice < 0 || indice >= tamaño) {
+            throw new IndexOutOfBoundsException("Índice fuera de rango: " + indice);
+        }
+        return (T) elementos[indice];
+    }
+
+    // Verificar si la lista contiene un elemento
+    public boolean contiene(T elemento) {
+        for (int i = 0; i < tamaño; i++) {
+            if (elementos[i].equals(elemento)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean estaVacia() {
+        return tamaño == 0;
+    }
+
+    public int tamaño() {
+        return tamaño;
+    }
+
+    private void asegurarCapacidad(int minima) {
+        if (minima > elementos.length) {
+            elementos = Arrays.copyOf(elementos, Math.max(minima, Math.max(CAPACIDAD_INICIAL, elementos.length * 2)));
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int siguiente;
+            private final int esperadas = modificaciones;
+
+            @Override
+            public boolean hasNext() {
+                return siguiente < tamaño;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (modificaciones != esperadas) {
+                    throw new ConcurrentModificationException();
+                }
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return (T) elementos[siguiente++];
+            }
+        };
+    }
+}
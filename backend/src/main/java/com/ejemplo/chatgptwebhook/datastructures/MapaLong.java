@@ -0,0 +1,170 @@
+package com.ejemplo.chatgptwebhook.datastructures;
+
+import java.util.function.LongFunction;
+
+/**
+ * Mapa de claves long primitivas (ids de usuario, de proyecto...) a objetos, sin cajas Long:
+ * direccionamiento abierto con sondeo lineal sobre un long[] de claves y un Object[] de valores,
+ * con borrado por desplazamiento hacia atrás. La clave 0 (que marca las posiciones libres) se
+ * guarda aparte. No admite valores nulos y no es segura entre hilos.
+ */
+public class MapaLong<V> {
+    private static final int CAPACIDAD_INICIAL = 16;
+    private static final int FACTOR_CARGA_PORCENTAJE = 50;
+
+    private long[] claves;
+    private Object[] valores;
+    private int mascara;
+    private int tamaño;
+    private int umbral;
+
+    // Entrada de la clave 0
+    private boolean tieneCero;
+    private V valorCero;
+
+    public MapaLong() {
+        asignar(CAPACIDAD_INICIAL);
+    }
+
+    public void put(long clave, V valor) {
+        if (valor == null) throw new IllegalArgumentException("El valor no puede ser nulo");
+        if (clave == 0) {
+            if (!tieneCero) tamaño++;
+            tieneCero = true;
+            valorCero = valor;
+            return;
+        }
+        int i = posicionInicial(clave);
+        long actual;
+        while ((actual = claves[i]) != 0) {
+            if (actual == clave) {
+                valores[i] = valor; // Actualizar valor si la clave existe
+                return;
+            }
+            i = (i + 1) & mascara;
+        }
+        claves[i] = clave;
+        valores[i] = valor;
+        if (++tamaño > umbral) {
+            redimensionar();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long clave) {
+        if (clave == 0) return valorCero;
+        int i = posicionInicial(clave);
+        long actual;
+        while ((actual = claves[i]) != 0) {
+            if (actual == clave) {
+                return (V) valores[i];
+            }
+            i = (i + 1) & mascara;
+        }
+        return null; // Clave no encontrada
+    }
+
+    public V getOrDefault(long clave, V valorPredeterminado) {
+        V valor = get(clave);
+        return (valor != null) ? valor : valorPredeterminado;
+    }
+
+    public boolean containsKey(long clave) {
+        return get(clave) != null;
+    }
+
+    public V computeIfAbsent(long clave, LongFunction<? extends V> mappingFunction) {
+        V valor = get(clave);
+        if (valor == null) {
+            valor = mappingFunction.apply(clave);
+            if (valor != null) {
+                put(clave, valor);
+            }
+        }
+        return valor;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long clave) {
+        if (clave == 0) {
+            V anterior = valorCero;
+            if (tieneCero) tamaño--;
+            tieneCero = false;
+            valorCero = null;
+            return anterior;
+        }
+        int i = posicionInicial(clave);
+        long actual;
+        while ((actual = claves[i]) != 0) {
+            if (actual == clave) {
+                V anterior = (V) valores[i];
+                desplazarHaciaAtras(i);
+                tamaño--;
+                return anterior;
+            }
+            i = (i + 1) & mascara;
+        }
+        return null; // Clave no encontrada
+    }
+
+    public int size() {
+        return tamaño;
+    }
+
+    public long[] claves() {
+        long[] resultado = new long[tamaño];
+        int n = 0;
+        if (tieneCero) resultado[n++] = 0;
+        for (long clave : claves) {
+            if (clave != 0) resultado[n++] = clave;
+        }
+        return resultado;
+    }
+
+    private void desplazarHaciaAtras(int hueco) {
+        int j = hueco;
+        while (true) {
+            j = (j + 1) & mascara;
+            long clave = claves[j];
+            if (clave == 0) break;
+            int ideal = posicionInicial(clave);
+            boolean puedeMoverse = hueco <= j
+                    ? (ideal <= hueco || ideal > j)
+                    : (ideal <= hueco && ideal > j);
+            if (puedeMoverse) {
+                claves[hueco] = clave;
+                valores[hueco] = valores[j];
+                hueco = j;
+            }
+        }
+        claves[hueco] = 0;
+        valores[hueco] = null;
+    }
+
+    private int posicionInicial(long clave) {
+        return MotorDireccionAbierta.mezclar((int) (clave ^ (clave >>> 32))) & mascara;
+    }
+
+    private void asignar(int capacidad) {
+        claves = new long[capacidad];
+        valores = new Object[capacidad];
+        mascara = capacidad - 1;
+        umbral = (int) ((long) capacidad * FACTOR_CARGA_PORCENTAJE / 100);
+    }
+
+    private void redimensionar() {
+        long[] clavesAntiguas = claves;
+        Object[] valoresAntiguos = valores;
+        asignar(clavesAntiguas.length * 2);
+        for (int k = 0; k < clavesAntiguas.length; k++) {
+            long clave = clavesAntiguas[k];
+            if (clave == 0) continue;
+            int i = posicionInicial(clave);
+            while (claves[i] != 0) {
+                i = (i + 1) & mascara;
+            }
+            claves[i] = clave;
+            valores[i] = valoresAntiguos[k];
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.ejemplo.chatgptwebhook.datastructures;
+
+/**
+ * Mapa de String a long primitivo (presupuestos, contadores...) sin cajas Long ni objetos por
+ * entrada: direccionamiento abierto con sondeo lineal sobre arreglos paralelos de hash, clave y
+ * valor, con borrado por desplazamiento hacia atrás. No es seguro entre hilos; para mapas de
+ * lectura frecuente y escritura rara se puede publicar una copia ({@link #MapaStringLong(MapaStringLong)}).
+ */
+public class MapaStringLong {
+    private static final int CAPACIDAD_INICIAL = 16;
+    private static final int FACTOR_CARGA_PORCENTAJE = 50;
+
+    private int[] hashes;
+    private String[] claves;
+    private long[] valores;
+    private int mascara;
+    private int tamaño;
+    private int umbral;
+
+    public MapaStringLong() {
+        asignar(CAPACIDAD_INICIAL);
+    }
+
+    public MapaStringLong(MapaStringLong otro) {
+        this.hashes = otro.hashes.clone();
+        this.claves = otro.claves.clone();
+        this.valores = otro.valores.clone();
+        this.mascara = otro.mascara;
+        this.tamaño = otro.tamaño;
+        this.umbral = otro.umbral;
+    }
+
+    public void put(String clave, long valor) {
+        int i = buscarPosicion(clave);
+        if (claves[i] != null) {
+            valores[i] = valor; // Actualizar valor si la clave existe
+            return;
+        }
+        insertar(i, clave, valor);
+    }
+
+    /**
+     * Suma delta al valor de la clave (0 si no existía) y devuelve el resultado
+     */
+    public long incrementar(String clave, long delta) {
+        int i = buscarPosicion(clave);
+        if (claves[i] != null) {
+            return valores[i] += delta;
+        }
+        insertar(i, clave, delta);
+        return delta;
+    }
+
+    public long getOrDefault(String clave, long valorPredeterminado) {
+        if (clave == null) return valorPredeterminado;
+        int i = buscarPosicion(clave);
+        return claves[i] != null ? valores[i] : valorPredeterminado;
+    }
+
+    public boolean containsKey(String clave) {
+        return clave != null && claves[buscarPosicion(clave)] != null;
+    }
+
+    public boolean remove(String clave) {
+        if (clave == null) return false;
+        int i = buscarPosicion(clave);
+        if (claves[i] == null) return false;
+        desplazarHaciaAtras(i);
+        tamaño--;
+        return true;
+    }
+
+    public int size() {
+        return tamaño;
+    }
+
+    public ListaEnlazada<String> keySet() {
+        ListaEnlazada<String> resultado = new ListaEnlazada<>();
+        for (String clave : claves) {
+            if (clave != null) resultado.agregar(clave);
+        }
+        return resultado;
+    }
+
+    // Posición de la clave, o la posición libre donde iría si no está
+    private int buscarPosicion(String clave) {
+        if (clave == null) throw new IllegalArgumentException("La clave no puede ser nula");
+        int h = MotorDireccionAbierta.mezclar(clave.hashCode());
+        int i = h & mascara;
+        String actual;
+        while ((actual = claves[i]) != null) {
+            if (hashes[i] == h && actual.equals(clave)) {
+                return i;
+            }
+            i = (i + 1) & mascara;
+        }
+        return i;
+    }
+
+    private void insertar(int i, String clave, long valor) {
+        hashes[i] = MotorDireccionAbierta.mezclar(clave.hashCode());
+        claves[i] = clave;
+        valores[i] = valor;
+        if (++tamaño > umbral) {
+            redimensionar();
+        }
+    }
+
+    private void desplazarHaciaAtras(int hueco) {
+        int j = hueco;
+        while (true) {
+            j = (j + 1) & mascara;
+            String clave = claves[j];
+            if (clave == null) break;
+            int ideal = hashes[j] & mascara;
+            boolean puedeMoverse = hueco <= j
+                    ? (ideal <= hueco || ideal > j)
+                    : (ideal <= hueco && ideal > j);
+            if (puedeMoverse) {
+                hashes[hueco] = hashes[j];
+                claves[hueco] = clave;
+                valores[hueco] = valores[j];
+                hueco = j;
+            }
+        }
+        claves[hueco] = null;
+        valores[hueco] = 0;
+    }
+
+    private void asignar(int capacidad) {
+        hashes = new int[capacidad];
+        claves = new String[capacidad];
+        valores = new long[capacidad];
+        mascara = capacidad - 1;
+        umbral = (int) ((long) capacidad * FACTOR_CARGA_PORCENTAJE / 100);
+    }
+
+    private void redimensionar() {
+        int[] hashesAntiguos = hashes;
+        String[] clavesAntiguas = claves;
+        long[] valoresAntiguos = valores;
+        asignar(clavesAntiguas.length * 2);
+        for (int k = 0; k < clavesAntiguas.length; k++) {
+            if (clavesAntiguas[k] == null) continue;
+            int i = hashesAntiguos[k] & mascara;
+            while (claves[i] != null) {
+                i = (i + 1) & mascara;
+            }
+            hashes[i] = hashesAntiguos[k];
+            claves[i] = clavesAntiguas[k];
+            valores[i] = valoresAntiguos[k];
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.ejemplo.chatgptwebhook.datastructures;
+
+/**
+ * Direccionamiento abierto con sondeo lineal: hashes, claves y valores en arreglos paralelos,
+ * capacidad potencia de dos indexada con máscara tras mezclar el hash, y borrado por
+ * desplazamiento hacia atrás (sin lápidas), así las búsquedas no se degradan con los borrados.
+ * Sin objetos por entrada: cada búsqueda recorre posiciones contiguas de memoria y solo llama
+ * a equals() cuando coincide el hash guardado.
+ */
+class MotorDireccionAbierta<K, V> implements MotorHash<K, V> {
+    private static final int CAPACIDAD_INICIAL = 16;
+    // Con sondeo lineal, por encima de ~0,5 las búsquedas fallidas se alargan rápido
+    private static final int FACTOR_CARGA_PORCENTAJE = 50;
+
+    private int[] hashes;
+    private Object[] claves;
+    private Object[] valores;
+    private int mascara;
+    private int tamaño;
+    private int umbral;
+
+    MotorDireccionAbierta() {
+        asignar(CAPACIDAD_INICIAL);
+    }
+
+    @Override
+    public void put(K clave, V valor) {
+        int h = mezclar(clave.hashCode());
+        int i = h & mascara;
+        Object actual;
+        while ((actual = claves[i]) != null) {
+            if (hashes[i] == h && actual.equals(clave)) {
+                valores[i] = valor; // Actualizar valor si la clave existe
+                return;
+            }
+            i = (i + 1) & mascara;
+        }
+        hashes[i] = h;
+        claves[i] = clave;
+        valores[i] = valor;
+        if (++tamaño > umbral) {
+            redimensionar();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(K clave) {
+        int h = mezclar(clave.hashCode());
+        int i = h & mascara;
+        Object actual;
+        while ((actual = claves[i]) != null) {
+            if (hashes[i] == h && actual.equals(clave)) {
+                return (V) valores[i];
+            }
+            i = (i + 1) & mascara;
+        }
+        return null; // Clave no encontrada
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(K clave) {
+        int h = mezclar(clave.hashCode());
+        int i = h & mascara;
+        Object actual;
+        while ((actual = claves[i]) != null) {
+            if (hashes[i] == h && actual.equals(clave)) {
+                V anterior = (V) valores[i];
+                desplazarHaciaAtras(i);
+                tamaño--;
+                return anterior;
+            }
+            i = (i + 1) & mascara;
+        }
+        return null; // Clave no encontrada
+    }
+
+    @Override
+    public int size() {
+        return tamaño;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void agregarClaves(ListaEnlazada<K> destino) {
+        for (Object clave : claves) {
+            if (clave != null) destino.agregar((K) clave);
+        }
+    }
+
+    // Rellena el hueco en i con las claves siguientes del grupo que no quedarían antes de su posición ideal
+    private void desplazarHaciaAtras(int hueco) {
+        int j = hueco;
+        while (true) {
+            j = (j + 1) & mascara;
+            Object clave = claves[j];
+            if (clave == null) break;
+            int ideal = hashes[j] & mascara;
+            // La clave en j puede ocupar el hueco si su posición ideal no está en (hueco, j] (circular)
+            boolean puedeMoverse = hueco <= j
+                    ? (ideal <= hueco || ideal > j)
+                    : (ideal <= hueco && ideal > j);
+            if (puedeMoverse) {
+                hashes[hueco] = hashes[j];
+                claves[hueco] = clave;
+                valores[hueco] = valores[j];
+                hueco = j;
+            }
+        }
+        claves[hueco] = null;
+        valores[hueco] = null;
+    }
+
+    // Finalizador de MurmurHash3: reparte hashCode() pobres (Long, Integer, secuencias) por toda la tabla
+    static int mezclar(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private void asignar(int capacidad) {
+        hashes = new int[capacidad];
+        claves = new Object[capacidad];
+        valores = new Object[capacidad];
+        mascara = capacidad - 1;
+        umbral = (int) ((long) capacidad * FACTOR_CARGA_PORCENTAJE / 100);
+    }
+
+    private void redimensionar() {
+        int[] hashesAntiguos = hashes;
+        Object[] clavesAntiguas = claves;
+        Object[] valoresAntiguos = valores;
+        asignar(clavesAntiguas.length * 2);
+        for (int k = 0; k < clavesAntiguas.length; k++) {
+            Object clave = clavesAntiguas[k];
+            if (clave == null) continue;
+            // Sin comparaciones ni hashCode(): las claves ya son únicas y el hash está guardado
+            int i = hashesAntiguos[k] & mascara;
+            while (claves[i] != null) {
+                i = (i + 1) & mascara;
+            }
+            hashes[i] = hashesAntiguos[k];
+            claves[i] = clave;
+            valores[i] = valoresAntiguos[k];
+        }
+    }
+}
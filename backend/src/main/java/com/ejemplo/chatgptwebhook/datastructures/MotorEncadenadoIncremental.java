@@ -0,0 +1,168 @@
+package com.ejemplo.chatgptwebhook.datastructures;
+
+/**
+ * Encadenamiento separado con redimensionado incremental: al superar el factor de carga se
+ * reserva la tabla nueva y la antigua sigue viva; cada put/remove migra como mucho
+ * CUBETAS_POR_OPERACION cubetas (más la de su propia clave), en vez de rehacer toda la tabla
+ * dentro de un único put. Las búsquedas miran la cubeta antigua de la clave (si aún no se ha
+ * migrado) y después la nueva; una clave está siempre en una sola de las dos.
+ */
+class MotorEncadenadoIncremental<K, V> implements MotorHash<K, V> {
+    private static final int CAPACIDAD_INICIAL = 16;
+    private static final double FACTOR_CARGA = 0.75;
+    // Con 4 cubetas por operación la migración termina mucho antes de que la tabla nueva se llene
+    private static final int CUBETAS_POR_OPERACION = 4;
+    // Cubetas vacías que se pueden saltar por operación, para acotar también ese recorrido
+    private static final int MAX_VACIAS_POR_OPERACION = 10 * CUBETAS_POR_OPERACION;
+
+    private Entry<K, V>[] tabla;
+    // Tabla en migración (null si no hay redimensionado en curso)
+    private Entry<K, V>[] tablaAntigua;
+    private int siguienteCubetaAntigua;
+    private int tamaño;
+
+    @SuppressWarnings("unchecked")
+    MotorEncadenadoIncremental() {
+        tabla = new Entry[CAPACIDAD_INICIAL];
+    }
+
+    @Override
+    public void put(K clave, V valor) {
+        if (tablaAntigua != null) {
+            // La clave deja de poder estar en la tabla antigua: así solo se busca/inserta en la nueva
+            migrarCubeta(indice(clave, tablaAntigua.length));
+            migrarPaso();
+        } else if ((double) tamaño / tabla.length >= FACTOR_CARGA) {
+            iniciarRedimension();
+            migrarCubeta(indice(clave, tablaAntigua.length));
+        }
+
+        int i = indice(clave, tabla.length);
+        for (Entry<K, V> actual = tabla[i]; actual != null; actual = actual.siguiente) {
+            if (actual.clave.equals(clave)) {
+                actual.valor = valor; // Actualizar valor si la clave existe
+                return;
+            }
+        }
+        tabla[i] = new Entry<>(clave, valor, tabla[i]);
+        tamaño++;
+    }
+
+    @Override
+    public V get(K clave) {
+        if (tablaAntigua != null) {
+            Entry<K, V> entrada = buscar(tablaAntigua, clave);
+            if (entrada != null) return entrada.valor;
+        }
+        Entry<K, V> entrada = buscar(tabla, clave);
+        return entrada != null ? entrada.valor : null;
+    }
+
+    @Override
+    public V remove(K clave) {
+        if (tablaAntigua != null) {
+            migrarCubeta(indice(clave, tablaAntigua.length));
+            migrarPaso();
+        }
+        int i = indice(clave, tabla.length);
+        Entry<K, V> anterior = null;
+        for (Entry<K, V> actual = tabla[i]; actual != null; actual = actual.siguiente) {
+            if (actual.clave.equals(clave)) {
+                if (anterior == null) {
+                    tabla[i] = actual.siguiente;
+                } else {
+                    anterior.siguiente = actual.siguiente;
+                }
+                tamaño--;
+                return actual.valor;
+            }
+            anterior = actual;
+        }
+        return null; // Clave no encontrada
+    }
+
+    @Override
+    public int size() {
+        return tamaño;
+    }
+
+    @Override
+    public void agregarClaves(ListaEnlazada<K> claves) {
+        if (tablaAntigua != null) agregarClaves(tablaAntigua, claves);
+        agregarClaves(tabla, claves);
+    }
+
+    boolean isRedimensionando() {
+        return tablaAntigua != null;
+    }
+
+    private void agregarClaves(Entry<K, V>[] t, ListaEnlazada<K> claves) {
+        for (Entry<K, V> entrada : t) {
+            for (Entry<K, V> actual = entrada; actual != null; actual = actual.siguiente) {
+                claves.agregar(actual.clave);
+            }
+        }
+    }
+
+    private Entry<K, V> buscar(Entry<K, V>[] t, K clave) {
+        for (Entry<K, V> actual = t[indice(clave, t.length)]; actual != null; actual = actual.siguiente) {
+            if (actual.clave.equals(clave)) return actual;
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void iniciarRedimension() {
+        tablaAntigua = tabla;
+        tabla = new Entry[tablaAntigua.length * 2];
+        siguienteCubetaAntigua = 0;
+    }
+
+    // Avanza la migración un paso acotado; al terminar se suelta la tabla antigua
+    private void migrarPaso() {
+        int migradas = 0;
+        int vacias = 0;
+        while (siguienteCubetaAntigua < tablaAntigua.length
+                && migradas < CUBETAS_POR_OPERACION && vacias < MAX_VACIAS_POR_OPERACION) {
+            if (tablaAntigua[siguienteCubetaAntigua] == null) {
+                vacias++;
+            } else {
+                migrarCubeta(siguienteCubetaAntigua);
+                migradas++;
+            }
+            siguienteCubetaAntigua++;
+        }
+        if (siguienteCubetaAntigua >= tablaAntigua.length) {
+            tablaAntigua = null;
+        }
+    }
+
+    // Mueve las entradas de una cubeta antigua a la tabla nueva (sin crear objetos nuevos)
+    private void migrarCubeta(int i) {
+        Entry<K, V> actual = tablaAntigua[i];
+        tablaAntigua[i] = null;
+        while (actual != null) {
+            Entry<K, V> siguiente = actual.siguiente;
+            int j = indice(actual.clave, tabla.length);
+            actual.siguiente = tabla[j];
+            tabla[j] = actual;
+            actual = siguiente;
+        }
+    }
+
+    private static int indice(Object clave, int longitud) {
+        return (clave.hashCode() & 0x7fffffff) % longitud;
+    }
+
+    private static class Entry<K, V> {
+        final K clave;
+        V valor;
+        Entry<K, V> siguiente;
+
+        Entry(K clave, V valor, Entry<K, V> siguiente) {
+            this.clave = clave;
+            this.valor = valor;
+            this.siguiente = siguiente;
+        }
+    }
+}
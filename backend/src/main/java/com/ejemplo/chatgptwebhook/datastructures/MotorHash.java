@@ -0,0 +1,17 @@
+package com.ejemplo.chatgptwebhook.datastructures;
+
+/**
+ * Motor de almacenamiento de {@link TablaHash}. Las claves nunca son nulas (lo valida TablaHash).
+ */
+interface MotorHash<K, V> {
+
+    void put(K clave, V valor);
+
+    V get(K clave);
+
+    V remove(K clave);
+
+    int size();
+
+    void agregarClaves(ListaEnlazada<K> destino);
+}
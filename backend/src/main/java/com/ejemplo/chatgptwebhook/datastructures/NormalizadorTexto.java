@@ -0,0 +1,48 @@
+package com.ejemplo.chatgptwebhook.datastructures;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Normalización de tokens para los índices de texto (Trie, búsquedas):
+ * - limpiar: minúsculas y solo letras y dígitos Unicode ("Diseño," -> "diseño", "API-v2" -> "apiv2").
+ * - plegar: además quita tildes y diéresis para comparar ("configuración" -> "configuracion",
+ *   "pingüino" -> "pinguino"), pero conserva la ñ, que en español es otra letra.
+ */
+public final class NormalizadorTexto {
+
+    private NormalizadorTexto() {
+    }
+
+    public static String limpiar(String token) {
+        if (token == null) return "";
+        String minusculas = token.toLowerCase(Locale.ROOT);
+        StringBuilder sb = new StringBuilder(minusculas.length());
+        minusculas.codePoints()
+                .filter(Character::isLetterOrDigit)
+                .forEach(sb::appendCodePoint);
+        return sb.toString();
+    }
+
+    public static String plegar(String token) {
+        String limpio = limpiar(token);
+        // Camino rápido: ASCII puro no tiene nada que plegar
+        boolean ascii = true;
+        for (int i = 0; i < limpio.length() && ascii; i++) {
+            ascii = limpio.charAt(i) < 128;
+        }
+        if (ascii) return limpio;
+
+        StringBuilder sb = new StringBuilder(limpio.length());
+        limpio.codePoints().forEach(cp -> {
+            if (cp < 128 || cp == 'ñ') {
+                sb.appendCodePoint(cp);
+                return;
+            }
+            Normalizer.normalize(new String(Character.toChars(cp)), Normalizer.Form.NFD).codePoints()
+                    .filter(c -> Character.getType(c) != Character.NON_SPACING_MARK)
+                    .forEach(sb::appendCodePoint);
+        });
+        return sb.toString();
+    }
+}
@@ -1,66 +1,40 @@
 package com.ejemplo.chatgptwebhook.datastructures;
 
+/**
+ * Tabla hash con motor seleccionable:
+ * - ENCADENAMIENTO (por defecto): una lista de entradas por cubeta.
+ * - ENCADENAMIENTO_INCREMENTAL: igual, pero el redimensionado se reparte entre las operaciones
+ *   siguientes en vez de rehacer toda la tabla en un único put (latencia de put estable).
+ * - DIRECCIONAMIENTO_ABIERTO: sondeo lineal sobre arreglos paralelos, sin objetos por entrada;
+ *   más rápida y compacta para tablas de claves String/Long con muchas lecturas.
+ * No es segura entre hilos; para tablas compartidas usar {@link TablaHashConcurrente}.
+ */
 public class TablaHash<K, V> {
-    private static final int CAPACIDAD_INICIAL = 16;
-    private static final double FACTOR_CARGA = 0.75;
-    
-    private Entry<K, V>[] tabla;
-    private int tamaño;
+
+    public enum Motor { ENCADENAMIENTO, ENCADENAMIENTO_INCREMENTAL, DIRECCIONAMIENTO_ABIERTO }
+
+    private final MotorHash<K, V> motor;
     
     public TablaHash() {
-        tabla = new Entry[CAPACIDAD_INICIAL];
-        tamaño = 0;
+        this(Motor.ENCADENAMIENTO);
+    }
+
+    public TablaHash(Motor motor) {
+        this.motor = switch (motor) {
+            case ENCADENAMIENTO_INCREMENTAL -> new MotorEncadenadoIncremental<>();
+            case DIRECCIONAMIENTO_ABIERTO -> new MotorDireccionAbierta<>();
+            default -> new MotorEncadenado<>();
+        };
     }
     
     public void put(K clave, V valor) {
         if (clave == null) throw new IllegalArgumentException("La clave no puede ser nula");
-        
-        // Verificar si es necesario redimensionar
-        if ((double) tamaño / tabla.length >= FACTOR_CARGA) {
-            redimensionar();
-        }
-        
-        int indice = obtenerIndice(clave);
-        
-        // Si la posición está vacía, crear nueva entrada
-        if (tabla[indice] == null) {
-            tabla[indice] = new Entry<>(clave, valor, null);
-            tamaño++;
-            return;
-        }
-        
-        // Buscar si la clave ya existe
-        Entry<K, V> actual = tabla[indice];
-        Entry<K, V> anterior = null;
-        
-        while (actual != null) {
-            if (actual.clave.equals(clave)) {
-                actual.valor = valor; // Actualizar valor si la clave existe
-                return;
-            }
-            anterior = actual;
-            actual = actual.siguiente;
-        }
-        
-        // Agregar nueva entrada al final de la lista
-        anterior.siguiente = new Entry<>(clave, valor, null);
-        tamaño++;
+        motor.put(clave, valor);
     }
     
     public V get(K clave) {
         if (clave == null) return null;
-        
-        int indice = obtenerIndice(clave);
-        Entry<K, V> actual = tabla[indice];
-        
-        while (actual != null) {
-            if (actual.clave.equals(clave)) {
-                return actual.valor;
-            }
-            actual = actual.siguiente;
-        }
-        
-        return null; // Clave no encontrada
+        return motor.get(clave);
     }
     
     public boolean containsKey(K clave) {
@@ -69,30 +43,11 @@ public class TablaHash<K, V> {
     
     public V remove(K clave) {
         if (clave == null) return null;
-        
-        int indice = obtenerIndice(clave);
-        Entry<K, V> actual = tabla[indice];
-        Entry<K, V> anterior = null;
-        
-        while (actual != null) {
-            if (actual.clave.equals(clave)) {
-                if (anterior == null) {
-                    tabla[indice] = actual.siguiente;
-                } else {
-                    anterior.siguiente = actual.siguiente;
-                }
-                tamaño--;
-                return actual.valor;
-            }
-            anterior = actual;
-            actual = actual.siguiente;
-        }
-        
-        return null; // Clave no encontrada
+        return motor.remove(clave);
     }
     
     public int size() {
-        return tamaño;
+        return motor.size();
     }
     
     public V computeIfAbsent(K clave, java.util.function.Function<? super K, ? extends V> mappingFunction) {
@@ -108,15 +63,7 @@ public class TablaHash<K, V> {
     
     public ListaEnlazada<K> keySet() {
         ListaEnlazada<K> claves = new ListaEnlazada<>();
-        
-        for (Entry<K, V> entrada : tabla) {
-            Entry<K, V> actual = entrada;
-            while (actual != null) {
-                claves.agregar(actual.clave);
-                actual = actual.siguiente;
-            }
-        }
-        
+        motor.agregarClaves(claves);
         return claves;
     }
     
@@ -124,35 +71,4 @@ public class TablaHash<K, V> {
         V valor = get(clave);
         return (valor != null) ? valor : valorPredeterminado;
     }
-    
-    private int obtenerIndice(K clave) {
-        return Math.abs(clave.hashCode()) % tabla.length;
-    }
-    
-    private void redimensionar() {
-        Entry<K, V>[] tablaAntigua = tabla;
-        tabla = new Entry[tablaAntigua.length * 2];
-        tamaño = 0;
-        
-        // Reinserta todas las entradas en la nueva tabla
-        for (Entry<K, V> entrada : tablaAntigua) {
-            Entry<K, V> actual = entrada;
-            while (actual != null) {
-                put(actual.clave, actual.valor);
-                actual = actual.siguiente;
-            }
-        }
-    }
-    
-    private static class Entry<K, V> {
-        K clave;
-        V valor;
-        Entry<K, V> siguiente;
-        
-        Entry(K clave, V valor, Entry<K, V> siguiente) {
-            this.clave = clave;
-            this.valor = valor;
-            this.siguiente = siguiente;
-        }
-    }
-}
\ No newline at end of file
+}
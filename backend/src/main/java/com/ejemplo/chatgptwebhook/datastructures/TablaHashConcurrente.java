@@ -0,0 +1,354 @@
+package com.ejemplo.chatgptwebhook.datastructures;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Variante concurrente de {@link TablaHash} con la misma API, para los singletons que
+ * comparten la tabla entre todos los hilos de Tomcat.
+ * - Lecturas sin bloqueo: los nodos publican valor y siguiente como volatile.
+ * - Escrituras con un bloqueo por cubeta (el nodo cabeza); una cubeta vacía se ocupa con CAS.
+ * - computeIfAbsent atómico: la función se ejecuta una sola vez por clave, con la cubeta bloqueada.
+ * - Redimensionado incremental y cooperativo: la tabla nueva convive con la antigua, cada
+ *   inserción mientras dura migra como mucho TRAMOS_POR_OPERACION tramos (ningún put paga el
+ *   rehash completo), y las lecturas siguen el nodo de reenvío hasta la tabla nueva.
+ * No admite claves ni valores nulos. La función de computeIfAbsent no debe modificar la tabla.
+ */
+public class TablaHashConcurrente<K, V> {
+    private static final int CAPACIDAD_INICIAL = 16;
+    private static final int MAXIMA_CAPACIDAD = 1 << 30;
+    // Cubetas que migra cada hilo de una vez durante el redimensionado
+    private static final int TRAMO_MIGRACION = 16;
+    // Tramos que migra como mucho cada operación de escritura (1 tramo = 16 cubetas)
+    private static final int TRAMOS_POR_OPERACION = 1;
+
+    // Hash de los nodos especiales (los de las claves siempre son >= 0)
+    private static final int REENVIO = -1;
+    private static final int RESERVA = -2;
+
+    private volatile AtomicReferenceArray<Nodo<K, V>> tabla;
+    private final AtomicReference<Redimension<K, V>> redimensionEnCurso = new AtomicReference<>();
+    private final LongAdder tamaño = new LongAdder();
+
+    public TablaHashConcurrente() {
+        this(CAPACIDAD_INICIAL);
+    }
+
+    public TablaHashConcurrente(int capacidadInicial) {
+        int capacidad = CAPACIDAD_INICIAL;
+        while (capacidad < capacidadInicial && capacidad < MAXIMA_CAPACIDAD) capacidad <<= 1;
+        tabla = new AtomicReferenceArray<>(capacidad);
+    }
+
+    public void put(K clave, V valor) {
+        if (clave == null) throw new IllegalArgumentException("La clave no puede ser nula");
+        if (valor == null) throw new IllegalArgumentException("El valor no puede ser nulo");
+        int hash = dispersar(clave.hashCode());
+        AtomicReferenceArray<Nodo<K, V>> t = tabla;
+        while (true) {
+            int i = hash & (t.length() - 1);
+            Nodo<K, V> cabeza = t.get(i);
+            if (cabeza == null) {
+                if (t.compareAndSet(i, null, new Nodo<>(hash, clave, valor, null))) {
+                    break;
+                }
+            } else if (cabeza.hash == REENVIO) {
+                t = ayudarARedimensionar(((NodoReenvio<K, V>) cabeza).redimension);
+            } else {
+                boolean insertado = false;
+                synchronized (cabeza) {
+                    if (t.get(i) != cabeza) continue; // La cabeza cambió: reintentar
+                    if (cabeza.hash == RESERVA) continue;
+                    Nodo<K, V> actual = cabeza;
+                    while (true) {
+                        if (actual.hash == hash && actual.clave.equals(clave)) {
+                            actual.valor = valor; // Actualizar valor si la clave existe
+                            return;
+                        }
+                        if (actual.siguiente == null) {
+                            actual.siguiente = new Nodo<>(hash, clave, valor, null);
+                            insertado = true;
+                            break;
+                        }
+                        actual = actual.siguiente;
+                    }
+                }
+                if (insertado) break;
+            }
+        }
+        tamaño.increment();
+        comprobarRedimension();
+    }
+
+    public V get(K clave) {
+        if (clave == null) return null;
+        int hash = dispersar(clave.hashCode());
+        AtomicReferenceArray<Nodo<K, V>> t = tabla;
+        while (true) {
+            Nodo<K, V> actual = t.get(hash & (t.length() - 1));
+            if (actual == null || actual.hash == RESERVA) return null;
+            if (actual.hash == REENVIO) {
+                // Cubeta ya migrada: la clave está en la tabla nueva
+                t = ((NodoReenvio<K, V>) actual).redimension.nueva;
+                continue;
+            }
+            while (actual != null) {
+                if (actual.hash == hash && actual.clave.equals(clave)) {
+                    return actual.valor;
+                }
+                actual = actual.siguiente;
+            }
+            return null;
+        }
+    }
+
+    public boolean containsKey(K clave) {
+        return get(clave) != null;
+    }
+
+    public V remove(K clave) {
+        if (clave == null) return null;
+        int hash = dispersar(clave.hashCode());
+        AtomicReferenceArray<Nodo<K, V>> t = tabla;
+        while (true) {
+            int i = hash & (t.length() - 1);
+            Nodo<K, V> cabeza = t.get(i);
+            if (cabeza == null) return null;
+            if (cabeza.hash == REENVIO) {
+                t = ayudarARedimensionar(((NodoReenvio<K, V>) cabeza).redimension);
+                continue;
+            }
+            synchronized (cabeza) {
+                if (t.get(i) != cabeza) continue;
+                if (cabeza.hash == RESERVA) continue;
+                Nodo<K, V> actual = cabeza;
+                Nodo<K, V> anterior = null;
+                while (actual != null) {
+                    if (actual.hash == hash && actual.clave.equals(clave)) {
+                        if (anterior == null) {
+                            t.set(i, actual.siguiente);
+                        } else {
+                            anterior.siguiente = actual.siguiente;
+                        }
+                        tamaño.decrement();
+                        return actual.valor;
+                    }
+                    anterior = actual;
+                    actual = actual.siguiente;
+                }
+                return null; // Clave no encontrada
+            }
+        }
+    }
+
+    public int size() {
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, tamaño.sum()));
+    }
+
+    /**
+     * Devuelve el valor de la clave o, si no existe, calcula uno, lo inserta y lo devuelve.
+     * La función se ejecuta como mucho una vez por clave aunque varios hilos la pidan a la vez.
+     */
+    public V computeIfAbsent(K clave, Function<? super K, ? extends V> mappingFunction) {
+        if (clave == null) throw new IllegalArgumentException("La clave no puede ser nula");
+        V existente = get(clave);
+        if (existente != null) return existente;
+
+        int hash = dispersar(clave.hashCode());
+        AtomicReferenceArray<Nodo<K, V>> t = tabla;
+        V valor;
+        while (true) {
+            int i = hash & (t.length() - 1);
+            Nodo<K, V> cabeza = t.get(i);
+            if (cabeza == null) {
+                // Cubeta vacía: se reserva con un nodo bloqueado mientras se calcula el valor
+                Nodo<K, V> reserva = new Nodo<>(RESERVA, null, null, null);
+                synchronized (reserva) {
+                    if (!t.compareAndSet(i, null, reserva)) continue;
+                    try {
+                        valor = mappingFunction.apply(clave);
+                    } catch (RuntimeException | Error e) {
+                        t.set(i, null);
+                        throw e;
+                    }
+                    // La reserva se sustituye sin soltar el bloqueo: nadie puede escribir en medio
+                    t.set(i, valor != null ? new Nodo<>(hash, clave, valor, null) : null);
+                    if (valor == null) return null;
+                }
+                break;
+            } else if (cabeza.hash == REENVIO) {
+                t = ayudarARedimensionar(((NodoReenvio<K, V>) cabeza).redimension);
+            } else {
+                boolean insertado = false;
+                synchronized (cabeza) {
+                    if (t.get(i) != cabeza) continue;
+                    if (cabeza.hash == RESERVA) continue;
+                    Nodo<K, V> actual = cabeza;
+                    while (true) {
+                        if (actual.hash == hash && actual.clave.equals(clave)) {
+                            return actual.valor;
+                        }
+                        if (actual.siguiente == null) break;
+                        actual = actual.siguiente;
+                    }
+                    valor = mappingFunction.apply(clave);
+                    if (valor == null) return null;
+                    actual.siguiente = new Nodo<>(hash, clave, valor, null);
+                    insertado = true;
+                }
+                if (insertado) break;
+            }
+        }
+        tamaño.increment();
+        comprobarRedimension();
+        return valor;
+    }
+
+    public ListaEnlazada<K> keySet() {
+        ListaEnlazada<K> claves = new ListaEnlazada<>();
+        AtomicReferenceArray<Nodo<K, V>> t = tabla;
+        for (int i = 0; i < t.length(); i++) {
+            recorrerCubeta(t, i, claves);
+        }
+        return claves;
+    }
+
+    public V getOrDefault(K clave, V valorPredeterminado) {
+        V valor = get(clave);
+        return (valor != null) ? valor : valorPredeterminado;
+    }
+
+    // Vista consistente por cubeta: si está migrada se recorren sus dos cubetas destino
+    private void recorrerCubeta(AtomicReferenceArray<Nodo<K, V>> t, int i, ListaEnlazada<K> claves) {
+        Nodo<K, V> actual = t.get(i);
+        if (actual != null && actual.hash == REENVIO) {
+            AtomicReferenceArray<Nodo<K, V>> nueva = ((NodoReenvio<K, V>) actual).redimension.nueva;
+            recorrerCubeta(nueva, i, claves);
+            recorrerCubeta(nueva, i + t.length(), claves);
+            return;
+        }
+        while (actual != null) {
+            if (actual.hash >= 0) claves.agregar(actual.clave);
+            actual = actual.siguiente;
+        }
+    }
+
+    // Mezcla los bits altos en los bajos (se indexa con máscara) y deja el hash no negativo
+    private static int dispersar(int h) {
+        return (h ^ (h >>> 16)) & 0x7fffffff;
+    }
+
+    private void comprobarRedimension() {
+        AtomicReferenceArray<Nodo<K, V>> t = tabla;
+        int n = t.length();
+        if (n >= MAXIMA_CAPACIDAD || tamaño.sum() < n - (n >>> 2)) return; // Factor de carga 0,75
+        Redimension<K, V> enCurso = redimensionEnCurso.get();
+        if (enCurso == null) {
+            // Solo se arranca una redimensión a la vez y sobre la tabla vigente. Se lee primero la
+            // redimensión en curso y después la tabla: al terminar se publica la tabla nueva antes
+            // de soltar la redimensión, así una tabla ya migrada nunca se vuelve a migrar
+            synchronized (redimensionEnCurso) {
+                enCurso = redimensionEnCurso.get();
+                if (enCurso == null) {
+                    if (t != tabla) return; // Otra redimensión acaba de terminar
+                    enCurso = new Redimension<>(t);
+                    redimensionEnCurso.set(enCurso);
+                }
+            }
+        }
+        ayudarARedimensionar(enCurso);
+    }
+
+    /**
+     * Migra como mucho TRAMOS_POR_OPERACION tramos de cubetas de la tabla antigua a la nueva.
+     * Devuelve la tabla nueva, donde el llamador debe reintentar su operación.
+     */
+    private AtomicReferenceArray<Nodo<K, V>> ayudarARedimensionar(Redimension<K, V> r) {
+        int limite;
+        for (int tramos = 0; tramos < TRAMOS_POR_OPERACION
+                && (limite = r.siguienteTramo.getAndAdd(-TRAMO_MIGRACION)) > 0; tramos++) {
+            int desde = Math.max(0, limite - TRAMO_MIGRACION);
+            for (int i = limite - 1; i >= desde; i--) {
+                migrarCubeta(r, i);
+            }
+            if (r.cubetasPendientes.addAndGet(-(limite - desde)) == 0) {
+                tabla = r.nueva;
+                redimensionEnCurso.compareAndSet(r, null);
+            }
+        }
+        return r.nueva;
+    }
+
+    private void migrarCubeta(Redimension<K, V> r, int i) {
+        AtomicReferenceArray<Nodo<K, V>> vieja = r.vieja;
+        AtomicReferenceArray<Nodo<K, V>> nueva = r.nueva;
+        int n = vieja.length();
+        NodoReenvio<K, V> reenvio = new NodoReenvio<>(r);
+        while (true) {
+            Nodo<K, V> cabeza = vieja.get(i);
+            if (cabeza == null) {
+                if (vieja.compareAndSet(i, null, reenvio)) return;
+                continue;
+            }
+            synchronized (cabeza) {
+                if (vieja.get(i) != cabeza || cabeza.hash == RESERVA) continue;
+                // Se copian los nodos para que las lecturas en curso sobre la cadena antigua sigan siendo válidas
+                Nodo<K, V> bajos = null;
+                Nodo<K, V> altos = null;
+                for (Nodo<K, V> actual = cabeza; actual != null; actual = actual.siguiente) {
+                    if ((actual.hash & n) == 0) {
+                        bajos = new Nodo<>(actual.hash, actual.clave, actual.valor, bajos);
+                    } else {
+                        altos = new Nodo<>(actual.hash, actual.clave, actual.valor, altos);
+                    }
+                }
+                nueva.set(i, bajos);
+                nueva.set(i + n, altos);
+                vieja.set(i, reenvio);
+                return;
+            }
+        }
+    }
+
+    private static class Nodo<K, V> {
+        final int hash;
+        final K clave;
+        volatile V valor;
+        volatile Nodo<K, V> siguiente;
+
+        Nodo(int hash, K clave, V valor, Nodo<K, V> siguiente) {
+            this.hash = hash;
+            this.clave = clave;
+            this.valor = valor;
+            this.siguiente = siguiente;
+        }
+    }
+
+    // Marca una cubeta ya migrada; apunta a la redimensión (y a través de ella a la tabla nueva)
+    private static final class NodoReenvio<K, V> extends Nodo<K, V> {
+        final Redimension<K, V> redimension;
+
+        NodoReenvio(Redimension<K, V> redimension) {
+            super(REENVIO, null, null, null);
+            this.redimension = redimension;
+        }
+    }
+
+    private static final class Redimension<K, V> {
+        final AtomicReferenceArray<Nodo<K, V>> vieja;
+        final AtomicReferenceArray<Nodo<K, V>> nueva;
+        // Límite superior (exclusivo) del próximo tramo sin reclamar; se recorre de arriba abajo
+        final AtomicInteger siguienteTramo;
+        final AtomicInteger cubetasPendientes;
+
+        Redimension(AtomicReferenceArray<Nodo<K, V>> vieja) {
+            this.vieja = vieja;
+            this.nueva = new AtomicReferenceArray<>(vieja.length() * 2);
+            this.siguienteTramo = new AtomicInteger(vieja.length());
+            this.cubetasPendientes = new AtomicInteger(vieja.length());
+        }
+    }
+}
@@ -1,119 +1,354 @@
 package com.ejemplo.chatgptwebhook.datastructures;
 
+/**
+ * Trie radix (Patricia): cada arista guarda un tramo de caracteres en vez de uno solo y los
+ * hijos van en un arreglo ordenado por su primer carácter (búsqueda binaria), sin arreglos
+ * de 26 posiciones. Admite cualquier carácter Unicode.
+ * Las palabras se indexan limpias (minúsculas, solo letras y dígitos) y se comparan plegadas
+ * ({@link NormalizadorTexto#plegar}): "diseño", "configuración" y "configuracion" se buscan igual,
+ * y los resultados devuelven la forma con tildes con la que se insertó la palabra.
+ * Cada palabra cuenta sus inserciones (frecuencia) y cada nodo con hijos guarda las
+ * {@link #K_MEJORES} palabras más frecuentes de su subárbol, así que
+ * {@link #buscarPorPrefijo(String, int)} responde sin recorrer el subárbol del prefijo.
+ */
 public class Trie {
-    private NodoTrie raiz;
+    // Tamaño de la lista de mejores completados guardada en cada nodo
+    public static final int K_MEJORES = 10;
+    private static final NodoTrie[] SIN_MEJORES = new NodoTrie[0];
+
+    private final NodoTrie raiz;
+    private int palabras;
     
     public Trie() {
-        raiz = new NodoTrie();
+        raiz = new NodoTrie(new char[0], null);
     }
     
     // Insertar una palabra en el Trie
     public void insertar(String palabra) {
-        if (palabra == null || palabra.isEmpty()) {
+        insertar(palabra, 1);
+    }
+    
+    // Insertar una palabra sumando "veces" a su frecuencia (al recargar un índice guardado)
+    public void insertar(String palabra, int veces) {
+        if (veces <= 0) {
+            throw new IllegalArgumentException("La frecuencia a sumar debe ser positiva: " + veces);
+        }
+        String forma = NormalizadorTexto.limpiar(palabra);
+        if (forma.isEmpty()) {
             return;
         }
+        String clave = NormalizadorTexto.plegar(forma);
         
         NodoTrie actual = raiz;
-        
-        for (char c : palabra.toLowerCase().toCharArray()) {
-            int indice = c - 'a';
-            
-            // Manejar caracteres fuera del rango a-z
-            if (indice < 0 || indice >= 26) {
-                continue;
+        int i = 0;
+        while (i < clave.length()) {
+            int indice = actual.buscarHijo(clave.charAt(i));
+            if (indice < 0) {
+                // Sin arista que empiece por este carácter: el resto de la clave va en una hoja
+                NodoTrie hoja = new NodoTrie(clave.substring(i).toCharArray(), actual);
+                actual.insertarHijo(-indice - 1, hoja);
+                actual = hoja;
+                break;
             }
             
-            if (actual.hijos[indice] == null) {
-                actual.hijos[indice] = new NodoTrie();
+            NodoTrie hijo = actual.hijos[indice];
+            int comunes = prefijoComun(hijo.etiqueta, clave, i);
+            if (comunes < hijo.etiqueta.length) {
+                // La clave se separa a mitad de la arista: se parte en un nodo intermedio
+                hijo = dividir(actual, indice, comunes);
             }
-            
-            actual = actual.hijos[indice];
+            actual = hijo;
+            i += comunes;
+        }
+        
+        if (!actual.esFinPalabra()) {
+            palabras++;
+            // Solo se guarda la forma si difiere de la clave (tildes); si no, se reconstruye del camino
+            if (!forma.equals(clave)) {
+                actual.forma = forma;
+            }
+        }
+        actual.frecuencia += veces;
+        
+        // La frecuencia solo crece: basta con subir esta palabra en las listas de sus ancestros
+        for (NodoTrie nodo = actual; nodo != null; nodo = nodo.padre) {
+            nodo.actualizarMejores(actual);
+        }
+    }
+    
+    // Frecuencia (número de inserciones) de una palabra; 0 si no está
+    public int frecuencia(String palabra) {
+        String clave = NormalizadorTexto.plegar(palabra);
+        if (clave.isEmpty()) {
+            return 0;
         }
         
-        actual.esFinPalabra = true;
+        Posicion pos = localizar(clave);
+        return pos != null && pos.desplazamiento == pos.nodo.etiqueta.length ? pos.nodo.frecuencia : 0;
     }
     
     // Buscar si una palabra existe en el Trie
     public boolean buscar(String palabra) {
-        if (palabra == null || palabra.isEmpty()) {
+        String clave = NormalizadorTexto.plegar(palabra);
+        if (clave.isEmpty()) {
             return false;
         }
         
-        NodoTrie nodo = obtenerNodo(palabra);
-        return nodo != null && nodo.esFinPalabra;
+        Posicion pos = localizar(clave);
+        return pos != null && pos.desplazamiento == pos.nodo.etiqueta.length && pos.nodo.esFinPalabra();
     }
     
     // Verificar si existe alguna palabra con el prefijo dado
     public boolean existePrefijo(String prefijo) {
-        if (prefijo == null || prefijo.isEmpty()) {
+        String clave = NormalizadorTexto.plegar(prefijo);
+        if (clave.isEmpty()) {
             return false;
         }
         
-        return obtenerNodo(prefijo) != null;
+        return localizar(clave) != null;
     }
     
     // Obtener todas las palabras que comienzan con un prefijo
     public ListaEnlazada<String> buscarPorPrefijo(String prefijo) {
         ListaEnlazada<String> resultados = new ListaEnlazada<>();
         
-        if (prefijo == null || prefijo.isEmpty()) {
+        String clave = NormalizadorTexto.plegar(prefijo);
+        if (clave.isEmpty()) {
             return resultados;
         }
         
-        NodoTrie nodo = obtenerNodo(prefijo);
+        Posicion pos = localizar(clave);
+        if (pos != null) {
+            // Camino hasta el final de la arista en la que terminó el prefijo
+            StringBuilder camino = new StringBuilder(clave);
+            camino.append(pos.nodo.etiqueta, pos.desplazamiento, pos.nodo.etiqueta.length - pos.desplazamiento);
+            recolectarPalabras(pos.nodo, camino, resultados);
+        }
         
-        if (nodo != null) {
-            recolectarPalabras(nodo, new StringBuilder(prefijo), resultados);
+        return resultados;
+    }
+    
+    /**
+     * Las k palabras más frecuentes que comienzan con el prefijo, de mayor a menor frecuencia
+     * (a igual frecuencia, la que la alcanzó antes). Para k <= K_MEJORES solo se recorre el
+     * prefijo y se leen las listas guardadas; para k mayores se recorre el subárbol.
+     */
+    public ListaEnlazada<String> buscarPorPrefijo(String prefijo, int k) {
+        ListaEnlazada<String> resultados = new ListaEnlazada<>();
+        
+        String clave = NormalizadorTexto.plegar(prefijo);
+        if (clave.isEmpty() || k <= 0) {
+            return resultados;
+        }
+        
+        Posicion pos = localizar(clave);
+        if (pos == null) {
+            return resultados;
+        }
+        
+        NodoTrie[] mejores;
+        if (k <= K_MEJORES) {
+            mejores = pos.nodo.mejores();
+        } else {
+            java.util.List<NodoTrie> terminales = new java.util.ArrayList<>();
+            recolectarTerminales(pos.nodo, terminales);
+            terminales.sort((a, b) -> Integer.compare(b.frecuencia, a.frecuencia));
+            mejores = terminales.toArray(SIN_MEJORES);
+        }
+        for (int i = 0; i < mejores.length && i < k; i++) {
+            resultados.agregar(palabraDe(mejores[i]));
         }
         
         return resultados;
     }
     
-    // Método auxiliar para obtener el nodo correspondiente a un prefijo
-    private NodoTrie obtenerNodo(String prefijo) {
+    public int tamaño() {
+        return palabras;
+    }
+    
+    // Recorre todas las palabras con su frecuencia, en orden de clave plegada
+    void recorrer(java.util.function.ObjIntConsumer<String> visitante) {
+        java.util.List<NodoTrie> terminales = new java.util.ArrayList<>();
+        recolectarTerminales(raiz, terminales);
+        for (NodoTrie terminal : terminales) {
+            visitante.accept(palabraDe(terminal), terminal.frecuencia);
+        }
+    }
+    
+    NodoTrie raiz() {
+        return raiz;
+    }
+    
+    // Nodo y posición dentro de su etiqueta donde termina la clave (null si no está en el Trie)
+    private Posicion localizar(String clave) {
         NodoTrie actual = raiz;
-        
-        for (char c : prefijo.toLowerCase().toCharArray()) {
-            int indice = c - 'a';
-            
-            // Manejar caracteres fuera del rango a-z
-            if (indice < 0 || indice >= 26) {
+        int i = 0;
+        while (true) {
+            int indice = actual.buscarHijo(clave.charAt(i));
+            if (indice < 0) {
                 return null;
             }
-            
-            if (actual.hijos[indice] == null) {
-                return null;
-            }
-            
             actual = actual.hijos[indice];
+            int comunes = prefijoComun(actual.etiqueta, clave, i);
+            i += comunes;
+            if (i == clave.length()) {
+                return new Posicion(actual, comunes);
+            }
+            if (comunes < actual.etiqueta.length) {
+                return null; // Divergen a mitad de la arista
+            }
         }
-        
-        return actual;
     }
     
-    // Método auxiliar para recolectar todas las palabras a partir de un nodo
-    private void recolectarPalabras(NodoTrie nodo, StringBuilder prefijo, ListaEnlazada<String> resultados) {
-        if (nodo.esFinPalabra) {
-            resultados.agregar(prefijo.toString());
+    // Método auxiliar para recolectar todas las palabras a partir de un nodo (en orden de clave)
+    private void recolectarPalabras(NodoTrie nodo, StringBuilder camino, ListaEnlazada<String> resultados) {
+        if (nodo.esFinPalabra()) {
+            resultados.agregar(nodo.forma != null ? nodo.forma : camino.toString());
         }
-        
-        for (int i = 0; i < 26; i++) {
-            if (nodo.hijos[i] != null) {
-                char c = (char) ('a' + i);
-                prefijo.append(c);
-                recolectarPalabras(nodo.hijos[i], prefijo, resultados);
-                prefijo.deleteCharAt(prefijo.length() - 1); // Backtracking
+        if (nodo.hijos == null) {
+            return;
+        }
+        for (NodoTrie hijo : nodo.hijos) {
+            int longitud = camino.length();
+            camino.append(hijo.etiqueta);
+            recolectarPalabras(hijo, camino, resultados);
+            camino.setLength(longitud); // Backtracking
+        }
+    }
+    
+    private void recolectarTerminales(NodoTrie nodo, java.util.List<NodoTrie> terminales) {
+        if (nodo.esFinPalabra()) {
+            terminales.add(nodo);
+        }
+        if (nodo.hijos != null) {
+            for (NodoTrie hijo : nodo.hijos) {
+                recolectarTerminales(hijo, terminales);
             }
         }
     }
     
-    private static class NodoTrie {
+    // Reconstruye la palabra de un nodo terminal subiendo por los padres
+    static String palabraDe(NodoTrie terminal) {
+        if (terminal.forma != null) {
+            return terminal.forma;
+        }
+        int longitud = 0;
+        for (NodoTrie n = terminal; n != null; n = n.padre) {
+            longitud += n.etiqueta.length;
+        }
+        char[] letras = new char[longitud];
+        for (NodoTrie n = terminal; n != null; n = n.padre) {
+            longitud -= n.etiqueta.length;
+            System.arraycopy(n.etiqueta, 0, letras, longitud, n.etiqueta.length);
+        }
+        return new String(letras);
+    }
+    
+    // Parte la arista del hijo en "comunes" caracteres y devuelve el nodo intermedio
+    private static NodoTrie dividir(NodoTrie padre, int indice, int comunes) {
+        NodoTrie hijo = padre.hijos[indice];
+        NodoTrie intermedio = new NodoTrie(java.util.Arrays.copyOfRange(hijo.etiqueta, 0, comunes), padre);
+        hijo.etiqueta = java.util.Arrays.copyOfRange(hijo.etiqueta, comunes, hijo.etiqueta.length);
+        hijo.padre = intermedio;
+        intermedio.hijos = new NodoTrie[] { hijo };
+        // Mismo subárbol que el hijo: mismos mejores completados
+        intermedio.mejores = hijo.mejores().clone();
+        padre.hijos[indice] = intermedio;
+        return intermedio;
+    }
+    
+    private static int prefijoComun(char[] etiqueta, String clave, int desde) {
+        int max = Math.min(etiqueta.length, clave.length() - desde);
+        int n = 0;
+        while (n < max && etiqueta[n] == clave.charAt(desde + n)) {
+            n++;
+        }
+        return n;
+    }
+    
+    private record Posicion(NodoTrie nodo, int desplazamiento) {}
+    
+    static class NodoTrie {
+        char[] etiqueta;
+        NodoTrie padre;
+        // Ordenados por el primer carácter de su etiqueta; null mientras sea hoja
         NodoTrie[] hijos;
-        boolean esFinPalabra;
+        // Terminales más frecuentes del subárbol, de mayor a menor (solo en nodos con hijos;
+        // en una hoja es implícitamente ella misma)
+        NodoTrie[] mejores;
+        // Forma original (con tildes) si difiere de la clave plegada
+        String forma;
+        // Veces que se insertó la palabra; 0 si el nodo no es fin de palabra
+        int frecuencia;
         
-        NodoTrie() {
-            hijos = new NodoTrie[26]; // Solo letras minúsculas a-z
-            esFinPalabra = false;
+        NodoTrie(char[] etiqueta, NodoTrie padre) {
+            this.etiqueta = etiqueta;
+            this.padre = padre;
+        }
+        
+        boolean esFinPalabra() {
+            return frecuencia > 0;
+        }
+        
+        NodoTrie[] mejores() {
+            if (hijos != null) return mejores;
+            return esFinPalabra() ? new NodoTrie[] { this } : SIN_MEJORES;
+        }
+        
+        // Recoloca un terminal del subárbol cuya frecuencia acaba de crecer
+        void actualizarMejores(NodoTrie terminal) {
+            if (hijos == null) return;
+            NodoTrie[] m = mejores;
+            int pos = 0;
+            while (pos < m.length && m[pos] != terminal) pos++;
+            if (pos == m.length) {
+                if (m.length < K_MEJORES) {
+                    m = java.util.Arrays.copyOf(m, m.length + 1);
+                } else if (m[pos - 1].frecuencia < terminal.frecuencia) {
+                    pos--;
+                } else {
+                    return;
+                }
+                m[pos] = terminal;
+            }
+            while (pos > 0 && m[pos - 1].frecuencia < terminal.frecuencia) {
+                m[pos] = m[pos - 1];
+                m[pos - 1] = terminal;
+                pos--;
+            }
+            mejores = m;
+        }
+        
+        // Índice del hijo cuya etiqueta empieza por c, o (-(punto de inserción) - 1)
+        int buscarHijo(char c) {
+            if (hijos == null) return -1;
+            int bajo = 0;
+            int alto = hijos.length - 1;
+            while (bajo <= alto) {
+                int medio = (bajo + alto) >>> 1;
+                char primero = hijos[medio].etiqueta[0];
+                if (primero < c) {
+                    bajo = medio + 1;
+                } else if (primero > c) {
+                    alto = medio - 1;
+                } else {
+                    return medio;
+                }
+            }
+            return -(bajo + 1);
+        }
+        
+        void insertarHijo(int posicion, NodoTrie hijo) {
+            if (hijos == null) {
+                mejores = mejores();
+                hijos = new NodoTrie[] { hijo };
+                return;
+            }
+            NodoTrie[] nuevos = new NodoTrie[hijos.length + 1];
+            System.arraycopy(hijos, 0, nuevos, 0, posicion);
+            nuevos[posicion] = hijo;
+            System.arraycopy(hijos, posicion, nuevos, posicion + 1, hijos.length - posicion);
+            hijos = nuevos;
         }
     }
-}
\ No newline at end of file
+}
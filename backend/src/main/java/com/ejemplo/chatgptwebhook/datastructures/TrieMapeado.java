@@ -0,0 +1,418 @@
+package com.ejemplo.chatgptwebhook.datastructures;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Trie de solo lectura sobre un fichero mapeado en memoria (FileChannel.map): las búsquedas
+ * leen los nodos directamente del fichero, sin deserializarlo al heap, y abrirlo es inmediato.
+ * El fichero se genera con {@link Escritor} a partir de palabras en orden de clave (de un
+ * {@link Trie} con {@link #escribir}, o de la fusión de otro índice con un diario) y conserva
+ * las frecuencias y los mejores completados de cada nodo (a igual frecuencia, en orden de clave).
+ *
+ * Formato (big endian):
+ * - cabecera: int MAGIA, int VERSION, int palabras, int offset de la raíz, long generación
+ * - palabra (antes de cada nodo terminal): u16 bytes, UTF-8
+ * - nodo: int frecuencia, int offset de su palabra (-1 si no es terminal),
+ *   u16 largo de etiqueta + chars, u16 hijos + (char primero, int offset) ordenados por carácter,
+ *   u8 mejores + int offset de cada terminal
+ * Los nodos se escriben en postorden, así que los offsets de hijos y mejores ya se conocen.
+ */
+public class TrieMapeado {
+    private static final int MAGIA = 0x54524945; // "TRIE"
+    private static final int VERSION = 1;
+    private static final int CABECERA = 24;
+
+    private final ByteBuffer datos;
+    private final int palabras;
+    private final int raiz;
+    private final long generacion;
+
+    private TrieMapeado(ByteBuffer datos) {
+        this.datos = datos;
+        if (datos.capacity() < CABECERA || datos.getInt(0) != MAGIA) {
+            throw new IllegalStateException("El fichero no es un índice Trie");
+        }
+        if (datos.getInt(4) != VERSION) {
+            throw new IllegalStateException("Versión de índice Trie no soportada: " + datos.getInt(4));
+        }
+        this.palabras = datos.getInt(8);
+        this.raiz = datos.getInt(12);
+        this.generacion = datos.getLong(16);
+    }
+
+    /**
+     * Mapea el fichero en memoria (solo lectura). El canal se cierra enseguida: el mapeo sigue
+     * siendo válido aunque el fichero se reemplace después.
+     */
+    public static TrieMapeado abrir(Path fichero) throws IOException {
+        try (FileChannel canal = FileChannel.open(fichero, StandardOpenOption.READ)) {
+            MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            return new TrieMapeado(mapa);
+        }
+    }
+
+    /**
+     * Escribe el Trie en el fichero (lo reemplaza si existe) y lo fuerza a disco
+     */
+    public static void escribir(Trie trie, Path fichero, long generacion) throws IOException {
+        try (Escritor escritor = new Escritor(fichero, generacion)) {
+            trie.recorrer((palabra, frecuencia) -> {
+                try {
+                    escritor.agregar(palabra, frecuencia);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            escritor.terminar();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public int tamaño() {
+        return palabras;
+    }
+
+    public long generacion() {
+        return generacion;
+    }
+
+    // Buscar si una palabra existe en el índice
+    public boolean buscar(String palabra) {
+        return frecuencia(palabra) > 0;
+    }
+
+    // Frecuencia de una palabra; 0 si no está
+    public int frecuencia(String palabra) {
+        String clave = NormalizadorTexto.plegar(palabra);
+        if (clave.isEmpty()) {
+            return 0;
+        }
+        long pos = localizar(clave);
+        if (pos < 0) {
+            return 0;
+        }
+        int nodo = (int) (pos >>> 32);
+        int desplazamiento = (int) pos;
+        return desplazamiento == largoEtiqueta(nodo) ? datos.getInt(nodo) : 0;
+    }
+
+    // Verificar si existe alguna palabra con el prefijo dado
+    public boolean existePrefijo(String prefijo) {
+        String clave = NormalizadorTexto.plegar(prefijo);
+        return !clave.isEmpty() && localizar(clave) >= 0;
+    }
+
+    /**
+     * Las k palabras más frecuentes con el prefijo, igual que {@link Trie#buscarPorPrefijo(String, int)}
+     */
+    public ListaEnlazada<String> buscarPorPrefijo(String prefijo, int k) {
+        ListaEnlazada<String> resultados = new ListaEnlazada<>();
+        String clave = NormalizadorTexto.plegar(prefijo);
+        if (clave.isEmpty() || k <= 0) {
+            return resultados;
+        }
+        long pos = localizar(clave);
+        if (pos < 0) {
+            return resultados;
+        }
+        int nodo = (int) (pos >>> 32);
+
+        if (k <= Trie.K_MEJORES) {
+            int mejores = inicioMejores(nodo);
+            int n = datos.get(mejores) & 0xFF;
+            for (int i = 0; i < n && i < k; i++) {
+                resultados.agregar(palabra(datos.getInt(mejores + 1 + 4 * i)));
+            }
+            return resultados;
+        }
+
+        // k mayor que la lista guardada: se recorre el subárbol
+        List<Integer> terminales = new ArrayList<>();
+        recolectarTerminales(nodo, terminales);
+        terminales.sort((a, b) -> Integer.compare(datos.getInt(b), datos.getInt(a)));
+        for (int i = 0; i < terminales.size() && i < k; i++) {
+            resultados.agregar(palabra(terminales.get(i)));
+        }
+        return resultados;
+    }
+
+    // Recorre todas las palabras con su frecuencia (para volver a construir el índice)
+    public void recorrer(ObjIntConsumer<String> visitante) {
+        recorrer(raiz, visitante);
+    }
+
+    private void recorrer(int nodo, ObjIntConsumer<String> visitante) {
+        if (datos.getInt(nodo) > 0) {
+            visitante.accept(palabra(nodo), datos.getInt(nodo));
+        }
+        int hijos = inicioHijos(nodo);
+        int n = datos.getChar(hijos);
+        for (int i = 0; i < n; i++) {
+            recorrer(datos.getInt(hijos + 2 + 6 * i + 2), visitante);
+        }
+    }
+
+    private void recolectarTerminales(int nodo, List<Integer> terminales) {
+        if (datos.getInt(nodo) > 0) {
+            terminales.add(nodo);
+        }
+        int hijos = inicioHijos(nodo);
+        int n = datos.getChar(hijos);
+        for (int i = 0; i < n; i++) {
+            recolectarTerminales(datos.getInt(hijos + 2 + 6 * i + 2), terminales);
+        }
+    }
+
+    // (offset del nodo << 32 | posición en su etiqueta) donde termina la clave, o -1 si no está
+    private long localizar(String clave) {
+        int nodo = raiz;
+        int i = 0;
+        while (true) {
+            nodo = buscarHijo(nodo, clave.charAt(i));
+            if (nodo < 0) {
+                return -1;
+            }
+            int largo = largoEtiqueta(nodo);
+            int max = Math.min(largo, clave.length() - i);
+            int comunes = 0;
+            while (comunes < max && datos.getChar(nodo + 10 + 2 * comunes) == clave.charAt(i + comunes)) {
+                comunes++;
+            }
+            i += comunes;
+            if (i == clave.length()) {
+                return ((long) nodo << 32) | comunes;
+            }
+            if (comunes < largo) {
+                return -1; // Divergen a mitad de la arista
+            }
+        }
+    }
+
+    // Búsqueda binaria entre los hijos por su primer carácter
+    private int buscarHijo(int nodo, char c) {
+        int hijos = inicioHijos(nodo);
+        int bajo = 0;
+        int alto = datos.getChar(hijos) - 1;
+        while (bajo <= alto) {
+            int medio = (bajo + alto) >>> 1;
+            int entrada = hijos + 2 + 6 * medio;
+            char primero = datos.getChar(entrada);
+            if (primero < c) {
+                bajo = medio + 1;
+            } else if (primero > c) {
+                alto = medio - 1;
+            } else {
+                return datos.getInt(entrada + 2);
+            }
+        }
+        return -1;
+    }
+
+    private int largoEtiqueta(int nodo) {
+        return datos.getChar(nodo + 8);
+    }
+
+    private int inicioHijos(int nodo) {
+        return nodo + 10 + 2 * largoEtiqueta(nodo);
+    }
+
+    private int inicioMejores(int nodo) {
+        int hijos = inicioHijos(nodo);
+        return hijos + 2 + 6 * datos.getChar(hijos);
+    }
+
+    private String palabra(int nodo) {
+        int offset = datos.getInt(nodo + 4);
+        byte[] utf8 = new byte[datos.getChar(offset)];
+        datos.get(offset + 2, utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Escritura en streaming: recibe las palabras en orden creciente de clave plegada (el de
+     * {@link #recorrer}) y escribe cada nodo en cuanto se cierra su subárbol. En heap solo queda el
+     * camino abierto desde la raíz hasta la última palabra, así que se puede fusionar un segmento
+     * con un diario sin montar un {@link Trie} con todo el índice.
+     */
+    public static final class Escritor implements Closeable {
+        private final Path fichero;
+        private final long generacion;
+        private final DataOutputStream out;
+        // Nodos aún abiertos, de la raíz a la última palabra
+        private final List<NodoAbierto> camino = new ArrayList<>();
+        private String anterior = "";
+        private int palabras;
+
+        public Escritor(Path fichero, long generacion) throws IOException {
+            this.fichero = fichero;
+            this.generacion = generacion;
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(fichero)));
+            out.write(new byte[CABECERA]);
+            camino.add(new NodoAbierto("", 0));
+        }
+
+        /**
+         * Añade una palabra con su frecuencia; su clave plegada debe ser mayor que la anterior
+         */
+        public void agregar(String palabra, int frecuencia) throws IOException {
+            String forma = NormalizadorTexto.limpiar(palabra);
+            String clave = NormalizadorTexto.plegar(forma);
+            if (clave.isEmpty() || frecuencia <= 0) {
+                return;
+            }
+            if (clave.compareTo(anterior) <= 0) {
+                throw new IllegalArgumentException("Palabra fuera de orden para el índice: " + palabra);
+            }
+            int max = Math.min(anterior.length(), clave.length());
+            int comunes = 0;
+            while (comunes < max && anterior.charAt(comunes) == clave.charAt(comunes)) {
+                comunes++;
+            }
+            cerrarHasta(comunes);
+            NodoAbierto hoja = new NodoAbierto(clave, clave.length());
+            hoja.forma = forma;
+            hoja.frecuencia = frecuencia;
+            camino.add(hoja);
+            anterior = clave;
+            palabras++;
+        }
+
+        /**
+         * Escribe los nodos que quedan abiertos y la cabecera, y fuerza el fichero a disco
+         */
+        public void terminar() throws IOException {
+            cerrarHasta(0);
+            int raiz = escribirNodo(camino.get(0), 0);
+            out.close();
+            ByteBuffer cabecera = ByteBuffer.allocate(CABECERA)
+                    .putInt(MAGIA).putInt(VERSION).putInt(palabras).putInt(raiz).putLong(generacion)
+                    .flip();
+            try (FileChannel canal = FileChannel.open(fichero, StandardOpenOption.WRITE)) {
+                canal.write(cabecera, 0);
+                canal.force(true);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+
+        // Cierra los nodos del camino más profundos que "profundidad"; si la siguiente palabra se
+        // separa a mitad de una arista, la parte con un nodo intermedio
+        private void cerrarHasta(int profundidad) throws IOException {
+            while (camino.get(camino.size() - 1).profundidad > profundidad) {
+                NodoAbierto nodo = camino.remove(camino.size() - 1);
+                NodoAbierto padre = camino.get(camino.size() - 1);
+                if (padre.profundidad < profundidad) {
+                    padre = new NodoAbierto(nodo.clave, profundidad);
+                    camino.add(padre);
+                }
+                int offset = escribirNodo(nodo, padre.profundidad);
+                padre.agregarHijo(nodo.clave.charAt(padre.profundidad), offset, nodo.mejores);
+            }
+        }
+
+        // Escribe el nodo (con la etiqueta clave[desde, profundidad)) y deja en él sus mejores definitivos
+        private int escribirNodo(NodoAbierto nodo, int desde) throws IOException {
+            int largo = nodo.profundidad - desde;
+            if (largo > 0xFFFF) {
+                throw new IllegalStateException("Etiqueta demasiado larga para el índice: " + largo);
+            }
+            int offsetPalabra = -1;
+            if (nodo.frecuencia > 0) {
+                byte[] utf8 = nodo.forma.getBytes(StandardCharsets.UTF_8);
+                if (utf8.length > 0xFFFF) {
+                    throw new IllegalStateException("Palabra demasiado larga para el índice: " + utf8.length + " bytes");
+                }
+                offsetPalabra = out.size();
+                out.writeShort(utf8.length);
+                out.write(utf8);
+            }
+
+            int offset = out.size();
+            if (nodo.frecuencia > 0) {
+                // Su clave es prefijo de las del subárbol: a igual frecuencia va delante
+                nodo.mejores.add(0, new Mejor(nodo.frecuencia, offset));
+                nodo.recortarMejores();
+            }
+            out.writeInt(nodo.frecuencia);
+            out.writeInt(offsetPalabra);
+            out.writeShort(largo);
+            for (int i = desde; i < nodo.profundidad; i++) {
+                out.writeChar(nodo.clave.charAt(i));
+            }
+            out.writeShort(nodo.hijos);
+            for (int i = 0; i < nodo.hijos; i++) {
+                out.writeChar(nodo.primeros[i]);
+                out.writeInt(nodo.offsetsHijos[i]);
+            }
+            out.writeByte(nodo.mejores.size());
+            for (Mejor mejor : nodo.mejores) {
+                out.writeInt(mejor.offset());
+            }
+            if (out.size() < 0) {
+                throw new IllegalStateException("El índice supera los 2 GB");
+            }
+            return offset;
+        }
+    }
+
+    private record Mejor(int frecuencia, int offset) {}
+
+    private static final class NodoAbierto {
+        // Una clave del subárbol: la etiqueta del nodo es un tramo de ella
+        final String clave;
+        // Largo de la clave hasta el final de la etiqueta de este nodo
+        final int profundidad;
+        String forma;
+        int frecuencia;
+        char[] primeros = new char[2];
+        int[] offsetsHijos = new int[2];
+        int hijos;
+        // Terminales más frecuentes del subárbol ya escrito, como mucho Trie.K_MEJORES
+        final List<Mejor> mejores = new ArrayList<>();
+
+        NodoAbierto(String clave, int profundidad) {
+            this.clave = clave;
+            this.profundidad = profundidad;
+        }
+
+        // Los hijos llegan en orden de clave, así que quedan ordenados por su primer carácter
+        void agregarHijo(char primero, int offset, List<Mejor> mejoresHijo) {
+            if (hijos == primeros.length) {
+                primeros = Arrays.copyOf(primeros, hijos * 2);
+                offsetsHijos = Arrays.copyOf(offsetsHijos, hijos * 2);
+            }
+            primeros[hijos] = primero;
+            offsetsHijos[hijos] = offset;
+            hijos++;
+            mejores.addAll(mejoresHijo);
+            recortarMejores();
+        }
+
+        // Orden estable: a igual frecuencia se conserva el orden de clave
+        void recortarMejores() {
+            mejores.sort((a, b) -> Integer.compare(b.frecuencia(), a.frecuencia()));
+            while (mejores.size() > Trie.K_MEJORES) {
+                mejores.remove(mejores.size() - 1);
+            }
+        }
+    }
+}
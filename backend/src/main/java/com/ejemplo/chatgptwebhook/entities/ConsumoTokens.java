@@ -0,0 +1,85 @@
+package com.ejemplo.chatgptwebhook.entities;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Línea del libro de consumo de OpenAI: tokens acumulados por usuario, sesión y modelo
+ * durante un intervalo de volcado. El total de un día es la suma de sus líneas.
+ */
+@Entity
+@Table(name = "token_usage", indexes = {
+        @Index(name = "idx_token_usage_usuario_dia", columnList = "usuario, dia")
+})
+public class ConsumoTokens {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name="usuario", nullable = false)
+    private String usuario;
+
+    @Column(name="sesion")
+    private String sesion;
+
+    @Column(name="modelo", nullable = false)
+    private String modelo;
+
+    @Column(name="dia", nullable = false)
+    private LocalDate dia;
+
+    @Column(name="llamadas", nullable = false)
+    private long llamadas;
+
+    @Column(name="prompt_tokens", nullable = false)
+    private long promptTokens;
+
+    @Column(name="completion_tokens", nullable = false)
+    private long completionTokens;
+
+    @Column(name="total_tokens", nullable = false)
+    private long totalTokens;
+
+    @Column(name="created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @PrePersist
+    public void onCreate() {
+        this.createdAt = Instant.now();
+    }
+
+    public ConsumoTokens() {}
+
+    // Getters y Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getUsuario() { return usuario; }
+    public void setUsuario(String usuario) { this.usuario = usuario; }
+
+    public String getSesion() { return sesion; }
+    public void setSesion(String sesion) { this.sesion = sesion; }
+
+    public String getModelo() { return modelo; }
+    public void setModelo(String modelo) { this.modelo = modelo; }
+
+    public LocalDate getDia() { return dia; }
+    public void setDia(LocalDate dia) { this.dia = dia; }
+
+    public long getLlamadas() { return llamadas; }
+    public void setLlamadas(long llamadas) { this.llamadas = llamadas; }
+
+    public long getPromptTokens() { return promptTokens; }
+    public void setPromptTokens(long promptTokens) { this.promptTokens = promptTokens; }
+
+    public long getCompletionTokens() { return completionTokens; }
+    public void setCompletionTokens(long completionTokens) { this.completionTokens = completionTokens; }
+
+    public long getTotalTokens() { return totalTokens; }
+    public void setTotalTokens(long totalTokens) { this.totalTokens = totalTokens; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+}
@@ -33,6 +33,10 @@ public class Task {
     @Column(name="due_date")
     private LocalDate dueDate;
 
+    // Estimación en horas (opcional): duración de la tarea para el camino crítico
+    @Column(name="estimated_hours")
+    private Integer estimatedHours;
+
     @Column(name="created_at", nullable = false, updatable = false)
     private Instant createdAt;
 
@@ -75,6 +79,9 @@ public class Task {
     public LocalDate getDueDate() { return dueDate; }
     public void setDueDate(LocalDate dueDate) { this.dueDate = dueDate; }
 
+    public Integer getEstimatedHours() { return estimatedHours; }
+    public void setEstimatedHours(Integer estimatedHours) { this.estimatedHours = estimatedHours; }
+
     public Instant getCreatedAt() { return createdAt; }
     public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
 
@@ -0,0 +1,60 @@
+package com.ejemplo.chatgptwebhook.entities;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * Dependencia entre tareas de un mismo proyecto: task no puede empezar hasta terminar dependsOn.
+ * Las dependencias de un proyecto forman un grafo acíclico (se comprueba al insertar).
+ */
+@Entity
+@Table(
+    name = "task_dependencies",
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uk_task_dependency", columnNames = {"task_id", "depends_on_task_id"})
+    },
+    indexes = {
+        @Index(name = "idx_task_dependencies_depends_on", columnList = "depends_on_task_id")
+    }
+)
+public class TaskDependency {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Tarea que depende (task_id)
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "task_id", nullable = false,
+        foreignKey = @ForeignKey(name = "fk_task_dependencies_task"))
+    private Task task;
+
+    // Tarea que debe terminar antes (depends_on_task_id)
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "depends_on_task_id", nullable = false,
+        foreignKey = @ForeignKey(name = "fk_task_dependencies_depends_on"))
+    private Task dependsOn;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    public TaskDependency() {}
+
+    public TaskDependency(Task task, Task dependsOn) {
+        this.task = task;
+        this.dependsOn = dependsOn;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = Instant.now();
+    }
+
+    // Getters y setters
+    public Long getId() { return id; }
+    public Task getTask() { return task; }
+    public void setTask(Task task) { this.task = task; }
+    public Task getDependsOn() { return dependsOn; }
+    public void setDependsOn(Task dependsOn) { this.dependsOn = dependsOn; }
+    public Instant getCreatedAt() { return createdAt; }
+}
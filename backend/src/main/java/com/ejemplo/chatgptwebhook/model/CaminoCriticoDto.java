@@ -0,0 +1,18 @@
+package com.ejemplo.chatgptwebhook.model;
+
+import java.util.List;
+
+/**
+ * Cadena de dependencias más larga de un proyecto y su duración total en horas
+ * (las tareas sin estimación cuentan como 1 hora).
+ */
+public class CaminoCriticoDto {
+    private List<TaskDto> tareas;
+    private long horasTotales;
+
+    public List<TaskDto> getTareas() { return tareas; }
+    public void setTareas(List<TaskDto> tareas) { this.tareas = tareas; }
+
+    public long getHorasTotales() { return horasTotales; }
+    public void setHorasTotales(long horasTotales) { this.horasTotales = horasTotales; }
+}
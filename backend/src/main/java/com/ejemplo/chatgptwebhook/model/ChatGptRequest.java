@@ -1,5 +1,6 @@
 package com.ejemplo.chatgptwebhook.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.List;
 import java.util.Map;
@@ -23,19 +24,41 @@ public class ChatGptRequest {
     @JsonProperty("temperature")
     private final Double temperature;
 
+    // Solo se envía cuando se pide la respuesta en fragmentos (stream: true)
+    @JsonProperty("stream")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final Boolean stream;
+
+    // En streaming pide a OpenAI un último fragmento con el consumo de tokens (usage)
+    @JsonProperty("stream_options")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final Map<String, Object> streamOptions;
+
+    public ChatGptRequest(String model,
+                          List<Map<String, String>> messages,
+                          Integer maxTokens,
+                          Double temperature) {
+        this(model, messages, maxTokens, temperature, null);
+    }
+
     @JsonCreator
     public ChatGptRequest(@JsonProperty("model") String model,
                           @JsonProperty("messages") List<Map<String, String>> messages,
                           @JsonProperty("max_tokens") Integer maxTokens,
-                          @JsonProperty("temperature") Double temperature) {
+                          @JsonProperty("temperature") Double temperature,
+                          @JsonProperty("stream") Boolean stream) {
         this.model = model;
         this.messages = messages == null ? Collections.emptyList() : Collections.unmodifiableList(messages);
         this.maxTokens = maxTokens;
         this.temperature = temperature;
+        this.stream = stream;
+        this.streamOptions = Boolean.TRUE.equals(stream) ? Map.of("include_usage", true) : null;
     }
 
     public String getModel() { return model; }
     public List<Map<String, String>> getMessages() { return messages; }
     public Integer getMaxTokens() { return maxTokens; }
     public Double getTemperature() { return temperature; }
+    public Boolean getStream() { return stream; }
+    public Map<String, Object> getStreamOptions() { return streamOptions; }
 }
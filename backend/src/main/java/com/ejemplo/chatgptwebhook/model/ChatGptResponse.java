@@ -86,6 +86,10 @@ public class ChatGptResponse {
         @JsonProperty("message")
         private Message message;
         
+        // Fragmento incremental en respuestas con stream: true
+        @JsonProperty("delta")
+        private Message delta;
+        
         @JsonProperty("finish_reason")
         private String finishReason;
 
@@ -107,6 +111,14 @@ public class ChatGptResponse {
             this.message = message;
         }
 
+        public Message getDelta() {
+            return delta;
+        }
+
+        public void setDelta(Message delta) {
+            this.delta = delta;
+        }
+
         public String getFinishReason() {
             return finishReason;
         }
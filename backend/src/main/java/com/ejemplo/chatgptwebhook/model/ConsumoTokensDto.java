@@ -0,0 +1,35 @@
+package com.ejemplo.chatgptwebhook.model;
+
+/**
+ * Consumo de tokens del día en curso para un usuario, sesión y modelo.
+ */
+public class ConsumoTokensDto {
+    private String usuario;
+    private String sesion;
+    private String modelo;
+    private long llamadas;
+    private long promptTokens;
+    private long completionTokens;
+    private long totalTokens;
+
+    public String getUsuario() { return usuario; }
+    public void setUsuario(String usuario) { this.usuario = usuario; }
+
+    public String getSesion() { return sesion; }
+    public void setSesion(String sesion) { this.sesion = sesion; }
+
+    public String getModelo() { return modelo; }
+    public void setModelo(String modelo) { this.modelo = modelo; }
+
+    public long getLlamadas() { return llamadas; }
+    public void setLlamadas(long llamadas) { this.llamadas = llamadas; }
+
+    public long getPromptTokens() { return promptTokens; }
+    public void setPromptTokens(long promptTokens) { this.promptTokens = promptTokens; }
+
+    public long getCompletionTokens() { return completionTokens; }
+    public void setCompletionTokens(long completionTokens) { this.completionTokens = completionTokens; }
+
+    public long getTotalTokens() { return totalTokens; }
+    public void setTotalTokens(long totalTokens) { this.totalTokens = totalTokens; }
+}
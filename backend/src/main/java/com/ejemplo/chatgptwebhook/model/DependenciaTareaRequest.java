@@ -0,0 +1,15 @@
+package com.ejemplo.chatgptwebhook.model;
+
+/**
+ * taskId depende de dependsOnTaskId (no puede empezar hasta que esta termine).
+ */
+public class DependenciaTareaRequest {
+    private Long taskId;
+    private Long dependsOnTaskId;
+
+    public Long getTaskId() { return taskId; }
+    public void setTaskId(Long taskId) { this.taskId = taskId; }
+
+    public Long getDependsOnTaskId() { return dependsOnTaskId; }
+    public void setDependsOnTaskId(Long dependsOnTaskId) { this.dependsOnTaskId = dependsOnTaskId; }
+}
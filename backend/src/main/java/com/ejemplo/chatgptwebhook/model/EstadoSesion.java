@@ -0,0 +1,107 @@
+package com.ejemplo.chatgptwebhook.model;
+
+import com.ejemplo.chatgptwebhook.datastructures.Cola;
+import com.ejemplo.chatgptwebhook.datastructures.ListaEnlazada;
+import com.ejemplo.chatgptwebhook.datastructures.Trie;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Estado del menú de una sesión: bucle do-while, proyecto en curso, tareas y sus índices.
+ * Lo guarda {@link com.ejemplo.chatgptwebhook.service.AlmacenSesiones}, que lo expulsa por
+ * inactividad o por tamaño. Las estructuras no concurrentes (lista, trie, cola) se modifican
+ * sincronizando sobre la propia sesión.
+ */
+public class EstadoSesion {
+
+    // Los ids de usuario de la BD empiezan en 1: 0 marca una sesión sin admin
+    public static final long SIN_ADMIN = 0L;
+
+    private final String sessionId;
+
+    private volatile boolean activa = true;
+    private final AtomicInteger interacciones = new AtomicInteger();
+    private volatile long adminUserId = SIN_ADMIN;
+
+    // Proyecto en curso
+    private volatile String contextoProyecto;
+    private volatile String nombreProyecto;
+    private volatile String tareas;
+    private final Set<Integer> tareasCompletadas = ConcurrentHashMap.newKeySet();
+    private ListaEnlazada<String> listaTareas;
+    private Trie trieTareas;
+    private Cola<String> colaTareasPendientes;
+
+    // Marcas de tiempo (ms) para la expulsión
+    private volatile long ultimoAcceso;
+    private volatile long finalizadaEn;
+
+    public EstadoSesion(String sessionId, long ahora) {
+        this.sessionId = sessionId;
+        this.ultimoAcceso = ahora;
+    }
+
+    public void tocar(long ahora) {
+        this.ultimoAcceso = ahora;
+    }
+
+    public void finalizar(long ahora) {
+        this.activa = false;
+        this.finalizadaEn = ahora;
+    }
+
+    /**
+     * Vuelve a activar la sesión y olvida el proyecto en curso; solo conserva el admin
+     */
+    public synchronized void reiniciar() {
+        this.activa = true;
+        this.finalizadaEn = 0;
+        this.interacciones.set(0);
+        this.contextoProyecto = null;
+        this.nombreProyecto = null;
+        this.tareas = null;
+        this.tareasCompletadas.clear();
+        this.listaTareas = null;
+        this.trieTareas = null;
+        this.colaTareasPendientes = null;
+    }
+
+    public String getSessionId() { return sessionId; }
+
+    public boolean isActiva() { return activa; }
+
+    public int getInteracciones() { return interacciones.get(); }
+
+    public int registrarInteraccion() { return interacciones.incrementAndGet(); }
+
+    public long getAdminUserId() { return adminUserId; }
+    public void setAdminUserId(long adminUserId) { this.adminUserId = adminUserId; }
+
+    public String getContextoProyecto() { return contextoProyecto; }
+    public void setContextoProyecto(String contextoProyecto) { this.contextoProyecto = contextoProyecto; }
+
+    public String getNombreProyecto() { return nombreProyecto; }
+    public void setNombreProyecto(String nombreProyecto) { this.nombreProyecto = nombreProyecto; }
+
+    public String getTareas() { return tareas; }
+    public void setTareas(String tareas) { this.tareas = tareas; }
+
+    public Set<Integer> getTareasCompletadas() { return tareasCompletadas; }
+
+    public synchronized ListaEnlazada<String> getListaTareas() { return listaTareas; }
+    public synchronized void setListaTareas(ListaEnlazada<String> listaTareas) { this.listaTareas = listaTareas; }
+
+    public synchronized Trie getTrieTareas() { return trieTareas; }
+    public synchronized void setTrieTareas(Trie trieTareas) { this.trieTareas = trieTareas; }
+
+    public synchronized Cola<String> getColaTareasPendientes() {
+        if (colaTareasPendientes == null) colaTareasPendientes = new Cola<>();
+        return colaTareasPendientes;
+    }
+
+    public long getUltimoAcceso() { return ultimoAcceso; }
+
+    public long getFinalizadaEn() { return finalizadaEn; }
+}
@@ -0,0 +1,49 @@
+package com.ejemplo.chatgptwebhook.model;
+
+/**
+ * Evento emitido durante la generación en streaming de un proyecto.
+ * Tipos: "fragmento" (texto parcial de ChatGPT), "tarea" (tarea numerada ya completa)
+ * y "fin" (respuesta final formateada, tras guardar el proyecto).
+ */
+public class EventoGeneracion {
+
+    public static final String FRAGMENTO = "fragmento";
+    public static final String TAREA = "tarea";
+    public static final String FIN = "fin";
+
+    private final String tipo;
+    private final String datos;
+
+    public EventoGeneracion(String tipo, String datos) {
+        this.tipo = tipo;
+        this.datos = datos;
+    }
+
+    public static EventoGeneracion fragmento(String texto) {
+        return new EventoGeneracion(FRAGMENTO, texto);
+    }
+
+    public static EventoGeneracion tarea(String tarea) {
+        return new EventoGeneracion(TAREA, tarea);
+    }
+
+    public static EventoGeneracion fin(String respuesta) {
+        return new EventoGeneracion(FIN, respuesta);
+    }
+
+    public String getTipo() {
+        return tipo;
+    }
+
+    public String getDatos() {
+        return datos;
+    }
+
+    @Override
+    public String toString() {
+        return "EventoGeneracion{" +
+                "tipo='" + tipo + '\'' +
+                ", datos='" + datos + '\'' +
+                '}';
+    }
+}
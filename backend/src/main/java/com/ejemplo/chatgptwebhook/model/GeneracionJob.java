@@ -0,0 +1,84 @@
+package com.ejemplo.chatgptwebhook.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Trabajo asíncrono de generación de proyecto con ChatGPT (opción 1 del menú)
+ */
+public class GeneracionJob {
+
+    public enum Estado { PENDIENTE, EN_PROCESO, COMPLETADO, ERROR }
+
+    private final String id;
+    private final String sessionId;
+    private final String idea;
+    private final String callbackUrl;
+    private final Instant creadoEn;
+
+    private volatile Estado estado = Estado.PENDIENTE;
+    private volatile String resultado;
+    private volatile String error;
+    private volatile Instant finalizadoEn;
+
+    // Se completa cuando el trabajo termina (con éxito o error); lo usan long-poll y SSE
+    @JsonIgnore
+    private final CompletableFuture<GeneracionJob> finalizacion = new CompletableFuture<>();
+
+    public GeneracionJob(String id, String sessionId, String idea, String callbackUrl) {
+        this.id = id;
+        this.sessionId = sessionId;
+        this.idea = idea;
+        this.callbackUrl = callbackUrl;
+        this.creadoEn = Instant.now();
+    }
+
+    public void marcarEnProceso() {
+        this.estado = Estado.EN_PROCESO;
+    }
+
+    public void completar(String resultado) {
+        this.resultado = resultado;
+        this.finalizadoEn = Instant.now();
+        this.estado = Estado.COMPLETADO;
+        finalizacion.complete(this);
+    }
+
+    public void fallar(String error) {
+        this.error = error;
+        this.finalizadoEn = Instant.now();
+        this.estado = Estado.ERROR;
+        finalizacion.complete(this);
+    }
+
+    @JsonIgnore
+    public boolean isTerminado() {
+        return estado == Estado.COMPLETADO || estado == Estado.ERROR;
+    }
+
+    @JsonIgnore
+    public CompletableFuture<GeneracionJob> getFinalizacion() {
+        return finalizacion;
+    }
+
+    public String getId() { return id; }
+    public String getSessionId() { return sessionId; }
+    public String getIdea() { return idea; }
+    public String getCallbackUrl() { return callbackUrl; }
+    public Instant getCreadoEn() { return creadoEn; }
+    public Estado getEstado() { return estado; }
+    public String getResultado() { return resultado; }
+    public String getError() { return error; }
+    public Instant getFinalizadoEn() { return finalizadoEn; }
+
+    @Override
+    public String toString() {
+        return "GeneracionJob{" +
+                "id='" + id + '\'' +
+                ", sessionId='" + sessionId + '\'' +
+                ", estado=" + estado +
+                '}';
+    }
+}
@@ -0,0 +1,28 @@
+package com.ejemplo.chatgptwebhook.model;
+
+/**
+ * Presupuesto diario de tokens de un usuario y lo que lleva consumido hoy.
+ * presupuestoDiario = 0 significa sin límite.
+ */
+public class PresupuestoTokensDto {
+    private String usuario;
+    private long presupuestoDiario;
+    private long consumidoHoy;
+    private long restante;
+    private boolean excedido;
+
+    public String getUsuario() { return usuario; }
+    public void setUsuario(String usuario) { this.usuario = usuario; }
+
+    public long getPresupuestoDiario() { return presupuestoDiario; }
+    public void setPresupuestoDiario(long presupuestoDiario) { this.presupuestoDiario = presupuestoDiario; }
+
+    public long getConsumidoHoy() { return consumidoHoy; }
+    public void setConsumidoHoy(long consumidoHoy) { this.consumidoHoy = consumidoHoy; }
+
+    public long getRestante() { return restante; }
+    public void setRestante(long restante) { this.restante = restante; }
+
+    public boolean isExcedido() { return excedido; }
+    public void setExcedido(boolean excedido) { this.excedido = excedido; }
+}
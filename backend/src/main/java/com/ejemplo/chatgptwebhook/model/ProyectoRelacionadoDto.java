@@ -0,0 +1,24 @@
+package com.ejemplo.chatgptwebhook.model;
+
+/**
+ * Proyecto relacionado con otro en el grafo de proyectos: puntuación de la relación
+ * y popularidad (PageRank) del proyecto en el último análisis.
+ */
+public class ProyectoRelacionadoDto {
+    private Long projectId;
+    private String name;
+    private double puntuacion;
+    private double popularidad;
+
+    public Long getProjectId() { return projectId; }
+    public void setProjectId(Long projectId) { this.projectId = projectId; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public double getPuntuacion() { return puntuacion; }
+    public void setPuntuacion(double puntuacion) { this.puntuacion = puntuacion; }
+
+    public double getPopularidad() { return popularidad; }
+    public void setPopularidad(double popularidad) { this.popularidad = popularidad; }
+}
@@ -8,6 +8,7 @@ public class TaskUpdateRequest {
     private String status;   // esperado: "pendiente", "en_progreso", "completada"
     private String priority; // "HIGH", "MEDIUM", "LOW"
     private LocalDate dueDate;
+    private Integer estimatedHours; // horas estimadas, para el camino crítico
 
     public String getTitle() { return title; }
     public void setTitle(String title) { this.title = title; }
@@ -23,4 +24,7 @@ public class TaskUpdateRequest {
 
     public LocalDate getDueDate() { return dueDate; }
     public void setDueDate(LocalDate dueDate) { this.dueDate = dueDate; }
+
+    public Integer getEstimatedHours() { return estimatedHours; }
+    public void setEstimatedHours(Integer estimatedHours) { this.estimatedHours = estimatedHours; }
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.ejemplo.chatgptwebhook.repository;
+
+import com.ejemplo.chatgptwebhook.entities.ConsumoTokens;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface ConsumoTokensRepository extends JpaRepository<ConsumoTokens, Long> {
+
+    // [usuario, suma de total_tokens] del día indicado
+    @Query("select c.usuario, sum(c.totalTokens) from ConsumoTokens c where c.dia = :dia group by c.usuario")
+    List<Object[]> sumarTokensPorUsuario(@Param("dia") LocalDate dia);
+}
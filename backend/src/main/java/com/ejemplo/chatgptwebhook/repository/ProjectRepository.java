@@ -2,9 +2,21 @@ package com.ejemplo.chatgptwebhook.repository;
 
 import com.ejemplo.chatgptwebhook.entities.Project;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 
 public interface ProjectRepository extends JpaRepository<Project, Long> {
     List<Project> findByCreatedById(Long userId);
-}
\ No newline at end of file
+
+    // Lo mínimo de cada proyecto para el grafo de relaciones, sin cargar entidades
+    interface NodoProyecto {
+        Long getId();
+        Long getAdminId();
+        String getName();
+    }
+
+    @Query("select p.id as id, p.createdBy.id as adminId, p.name as name " +
+           "from Project p order by p.createdBy.id, p.createdAt, p.id")
+    List<NodoProyecto> findNodosGrafo();
+}
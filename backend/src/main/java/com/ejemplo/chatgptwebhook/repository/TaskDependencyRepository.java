@@ -0,0 +1,28 @@
+package com.ejemplo.chatgptwebhook.repository;
+
+import com.ejemplo.chatgptwebhook.entities.TaskDependency;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public interface TaskDependencyRepository extends JpaRepository<TaskDependency, Long> {
+
+    // Solo los ids de cada arista, para montar el grafo sin cargar entidades
+    interface Arista {
+        Long getTaskId();
+        Long getDependsOnId();
+    }
+
+    @Query("select d.task.id as taskId, d.dependsOn.id as dependsOnId " +
+           "from TaskDependency d where d.task.project.id = :projectId")
+    List<Arista> findAristasByProjectId(@Param("projectId") Long projectId);
+
+    @Modifying
+    @Transactional
+    @Query("delete from TaskDependency d where d.task.id = :taskId and d.dependsOn.id = :dependsOnId")
+    int deleteDependencia(@Param("taskId") Long taskId, @Param("dependsOnId") Long dependsOnId);
+}
@@ -1,10 +1,30 @@
 package com.ejemplo.chatgptwebhook.repository;
 
 import com.ejemplo.chatgptwebhook.entities.Task;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface TaskRepository extends JpaRepository<Task, Long> {
     List<Task> findByProjectId(Long projectId);
-}
\ No newline at end of file
+
+    // Campos que necesita el índice de búsqueda de tareas, sin cargar entidades ni relaciones
+    interface TareaIndexable {
+        Long getId();
+        String getTitle();
+        String getDescription();
+        Long getAdminUserId();
+    }
+
+    @Query("select t.id as id, t.title as title, t.description as description, p.createdBy.id as adminUserId " +
+           "from Task t join t.project p order by t.id")
+    Slice<TareaIndexable> findParaIndice(Pageable pageable);
+
+    @Query("select p.createdBy.id from Task t join t.project p where t.id = :taskId")
+    Optional<Long> findAdminUserIdByTaskId(@Param("taskId") Long taskId);
+}
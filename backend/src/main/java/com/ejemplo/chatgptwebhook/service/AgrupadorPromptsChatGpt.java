@@ -0,0 +1,326 @@
+package com.ejemplo.chatgptwebhook.service;
+
+import com.ejemplo.chatgptwebhook.model.ChatGptResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.ContextView;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Micro-lotes opcionales delante de {@link ChatGptService} (openai.lotes.habilitado).
+ * Junta los prompts que llegan en una ventana corta (ventana-ms o max-prompts) y los envía
+ * como un único prompt con secciones "### SOLICITUD n"; la respuesta se reparte por sección
+ * y cada llamador recibe su propio Mono. Menos peticiones contra la cuota y menos sobrecoste
+ * de HTTP por proyecto. Las secciones que falten, o la última si la respuesta se cortó por
+ * max_tokens (finish_reason "length"), se piden de nuevo de forma individual.
+ *
+ * Solo se combinan prompts cuyos max_tokens caben juntos en max-tokens: el que no cabe va suelto,
+ * para no recortarle la respuesta. Los prompts con respuesta en {@link ChatGptCache} no se encolan,
+ * y cada sección recibida se cachea como la respuesta de su prompt.
+ *
+ * Cada prompt sigue cargándose a su usuario: el presupuesto diario se aplica por prompt antes de
+ * combinar (los que lo agotaron no entran), la cuota se reserva por prompt con su usuario y el
+ * consumo real del lote se reparte entre ellos. Si la llamada combinada falla, fallan todos con
+ * el mismo mensaje, sin reenvíos individuales que multiplicarían las llamadas durante una caída.
+ */
+@Component
+public class AgrupadorPromptsChatGpt {
+
+    private static final Logger logger = LoggerFactory.getLogger(AgrupadorPromptsChatGpt.class);
+
+    private static final Pattern PATRON_SECCION = Pattern.compile("(?im)^\\s*#{2,3}\\s*SOLICITUD\\s+(\\d+)\\s*:?\\s*$");
+
+    private final ChatGptService chatGptService;
+    private final boolean habilitado;
+    private final long ventanaMs;
+    private final int maxPrompts;
+    private final int maxTokensLote;
+
+    // Lote en formación (protegido por el monitor de this)
+    private List<Pendiente> loteActual = new ArrayList<>();
+
+    private final Counter lotesEnviados;
+    private final Counter promptsAgrupados;
+    private final Counter reenviosIndividuales;
+
+    public AgrupadorPromptsChatGpt(ChatGptService chatGptService,
+                                   @Value("${openai.lotes.habilitado:false}") boolean habilitado,
+                                   @Value("${openai.lotes.ventana-ms:50}") long ventanaMs,
+                                   @Value("${openai.lotes.max-prompts:4}") int maxPrompts,
+                                   @Value("${openai.lotes.max-tokens:4000}") int maxTokensLote,
+                                   MeterRegistry meterRegistry) {
+        this.chatGptService = chatGptService;
+        this.habilitado = habilitado;
+        this.ventanaMs = ventanaMs;
+        this.maxPrompts = Math.max(1, maxPrompts);
+        this.maxTokensLote = maxTokensLote;
+
+        this.lotesEnviados = Counter.builder("chatgpt.lotes.enviados").register(meterRegistry);
+        this.promptsAgrupados = Counter.builder("chatgpt.lotes.prompts").register(meterRegistry);
+        this.reenviosIndividuales = Counter.builder("chatgpt.lotes.reenvios_individuales").register(meterRegistry);
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    /**
+     * Igual que {@link ChatGptService#enviarMensajeConTokens(String, int)}, pero agrupando con
+     * otras peticiones concurrentes si los lotes están habilitados.
+     */
+    public Mono<String> enviar(String mensaje, int maxTokens) {
+        if (!habilitado) {
+            return chatGptService.enviarMensajeConTokens(mensaje, maxTokens);
+        }
+        return Mono.deferContextual(ctx -> {
+            String cacheado = chatGptService.buscarEnCache(mensaje, maxTokens);
+            if (cacheado != null) {
+                return Mono.just(cacheado);
+            }
+            Pendiente pendiente = new Pendiente(mensaje, maxTokens, ctx);
+            encolar(pendiente);
+            return pendiente.resultado.asMono();
+        });
+    }
+
+    private void encolar(Pendiente pendiente) {
+        List<Pendiente> lleno = null;
+        List<Pendiente> nuevo = null;
+        synchronized (this) {
+            loteActual.add(pendiente);
+            if (loteActual.size() >= maxPrompts) {
+                lleno = loteActual;
+                loteActual = new ArrayList<>();
+            } else if (loteActual.size() == 1) {
+                nuevo = loteActual;
+            }
+        }
+        if (lleno != null) {
+            enviarLote(lleno);
+        } else if (nuevo != null) {
+            List<Pendiente> lote = nuevo;
+            Schedulers.parallel().schedule(() -> cerrarVentana(lote), ventanaMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Fin de la ventana: se envía el lote solo si sigue siendo el que estaba formándose
+    private void cerrarVentana(List<Pendiente> lote) {
+        synchronized (this) {
+            if (loteActual != lote || lote.isEmpty()) return;
+            loteActual = new ArrayList<>();
+        }
+        enviarLote(lote);
+    }
+
+    private void enviarLote(List<Pendiente> lote) {
+        if (lote.size() == 1) {
+            enviarIndividual(lote.get(0));
+            return;
+        }
+        // El presupuesto diario de cada usuario se aplica a su prompt antes de combinar
+        List<Pendiente> admitidos = new ArrayList<>(lote.size());
+        for (Pendiente p : lote) {
+            try {
+                p.maxTokens = chatGptService.ajustarMaxTokens(p.usuario, p.maxTokens);
+                admitidos.add(p);
+            } catch (ConsumoTokensService.PresupuestoExcedidoException e) {
+                p.resultado.tryEmitValue(ChatGptService.MENSAJE_PRESUPUESTO_AGOTADO);
+            }
+        }
+
+        // Un prompt que no cabe con los demás en max-tokens va suelto en vez de recortar la respuesta del lote
+        List<Pendiente> combinados = new ArrayList<>(admitidos.size());
+        int maxTokens = 0;
+        for (Pendiente p : admitidos) {
+            if (maxTokens + p.maxTokens <= maxTokensLote) {
+                combinados.add(p);
+                maxTokens += p.maxTokens;
+            } else {
+                enviarIndividual(p);
+            }
+        }
+        if (combinados.size() <= 1) {
+            combinados.forEach(this::enviarIndividual);
+            return;
+        }
+
+        lotesEnviados.increment();
+        promptsAgrupados.increment(combinados.size());
+        logger.info("📦 Enviando lote de {} prompts a ChatGPT ({} tokens máximo)", combinados.size(), maxTokens);
+
+        List<ChatGptService.ParteLote> partes = combinados.stream()
+                .map(p -> new ChatGptService.ParteLote(p.usuario, p.sesion, p.mensaje, p.maxTokens))
+                .toList();
+        chatGptService.completarLote(construirPromptLote(combinados), maxTokens, partes)
+                .subscribe(respuesta -> repartir(combinados, respuesta),
+                        error -> fallarLote(combinados, chatGptService.mensajeDeError(error)));
+    }
+
+    private void enviarIndividual(Pendiente pendiente) {
+        chatGptService.enviarMensajeConTokens(pendiente.mensaje, pendiente.maxTokens)
+                .contextWrite(pendiente.contexto)
+                .subscribe(pendiente.resultado::tryEmitValue, pendiente.resultado::tryEmitError);
+    }
+
+    private void fallarLote(List<Pendiente> lote, String mensaje) {
+        lote.forEach(p -> p.resultado.tryEmitValue(mensaje));
+    }
+
+    private void repartir(List<Pendiente> lote, ChatGptResponse respuesta) {
+        String contenido = null;
+        boolean cortada = false;
+        if (respuesta.getChoices() != null && !respuesta.getChoices().isEmpty()) {
+            ChatGptResponse.Choice opcion = respuesta.getChoices().get(0);
+            cortada = "length".equals(opcion.getFinishReason());
+            if (opcion.getMessage() != null) {
+                contenido = opcion.getMessage().getContent();
+            }
+        }
+        Map<Integer, String> secciones = separarSecciones(contenido);
+        // Si se acabaron los max_tokens, la última sección recibida puede estar a medias
+        int seccionCortada = 0;
+        if (cortada) {
+            for (Integer n : secciones.keySet()) {
+                if (n <= lote.size()) seccionCortada = Math.max(seccionCortada, n);
+            }
+        }
+
+        // El consumo real se carga a cada usuario en proporción a su prompt y a su sección de respuesta
+        long[] pesosPrompt = new long[lote.size()];
+        long[] pesosRespuesta = new long[lote.size()];
+        for (int i = 0; i < lote.size(); i++) {
+            pesosPrompt[i] = lote.get(i).mensaje.length();
+            String seccion = secciones.get(i + 1);
+            pesosRespuesta[i] = seccion != null ? seccion.length() : 0;
+        }
+        ChatGptResponse.Usage[] usos = repartirUso(respuesta.getUsage(), pesosPrompt, pesosRespuesta);
+        for (int i = 0; i < lote.size(); i++) {
+            Pendiente p = lote.get(i);
+            chatGptService.registrarConsumo(p.usuario, p.sesion, usos[i]);
+        }
+
+        if (contenido == null) {
+            fallarLote(lote, ChatGptService.MENSAJE_SIN_RESPUESTA);
+            return;
+        }
+        for (int i = 0; i < lote.size(); i++) {
+            String seccion = secciones.get(i + 1);
+            Pendiente p = lote.get(i);
+            if (seccion != null && !seccion.isBlank() && i + 1 != seccionCortada) {
+                chatGptService.guardarEnCache(p.mensaje, p.maxTokens, seccion);
+                p.resultado.tryEmitValue(seccion);
+            } else {
+                // Sección ausente, vacía o cortada (formato ignorado o respuesta truncada)
+                reenviosIndividuales.increment();
+                enviarIndividual(lote.get(i));
+            }
+        }
+    }
+
+    /**
+     * Reparte el consumo de la llamada combinada: los tokens de prompt según el peso del prompt de
+     * cada parte y los de respuesta según el de su sección (sin sección, sin tokens de respuesta).
+     * Los restos del redondeo van a la última parte con peso, así la suma coincide con el total.
+     */
+    static ChatGptResponse.Usage[] repartirUso(ChatGptResponse.Usage total, long[] pesosPrompt, long[] pesosRespuesta) {
+        int n = pesosPrompt.length;
+        ChatGptResponse.Usage[] usos = new ChatGptResponse.Usage[n];
+        if (total == null) return usos;
+        long[] prompt = repartir(total.getPromptTokens() != null ? total.getPromptTokens() : 0, pesosPrompt);
+        long[] respuesta = repartir(total.getCompletionTokens() != null ? total.getCompletionTokens() : 0, pesosRespuesta);
+        for (int i = 0; i < n; i++) {
+            ChatGptResponse.Usage uso = new ChatGptResponse.Usage();
+            uso.setPromptTokens((int) prompt[i]);
+            uso.setCompletionTokens((int) respuesta[i]);
+            uso.setTotalTokens((int) (prompt[i] + respuesta[i]));
+            usos[i] = uso;
+        }
+        return usos;
+    }
+
+    private static long[] repartir(long cantidad, long[] pesos) {
+        long[] partes = new long[pesos.length];
+        long suma = 0;
+        int ultimo = -1;
+        for (int i = 0; i < pesos.length; i++) {
+            suma += pesos[i];
+            if (pesos[i] > 0) ultimo = i;
+        }
+        if (ultimo < 0) {
+            // Sin pesos (p. ej. ninguna sección): a partes iguales
+            for (int i = 0; i < pesos.length; i++) partes[i] = cantidad / pesos.length;
+            if (pesos.length > 0) partes[pesos.length - 1] += cantidad % pesos.length;
+            return partes;
+        }
+        long asignado = 0;
+        for (int i = 0; i < pesos.length; i++) {
+            partes[i] = cantidad * pesos[i] / suma;
+            asignado += partes[i];
+        }
+        partes[ultimo] += cantidad - asignado;
+        return partes;
+    }
+
+    static String construirPromptLote(List<Pendiente> lote) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Vas a responder ").append(lote.size()).append(" solicitudes independientes. ")
+          .append("Responde a cada una por separado y por orden. Empieza la respuesta de cada solicitud con una línea ")
+          .append("que contenga exactamente \"### SOLICITUD n\" (n es su número) y no añadas texto fuera de esas secciones.\n\n");
+        for (int i = 0; i < lote.size(); i++) {
+            sb.append("### SOLICITUD ").append(i + 1).append("\n")
+              .append(lote.get(i).mensaje.trim()).append("\n\n");
+        }
+        return sb.toString();
+    }
+
+    static Map<Integer, String> separarSecciones(String respuesta) {
+        Map<Integer, String> secciones = new HashMap<>();
+        if (respuesta == null) return secciones;
+        Matcher m = PATRON_SECCION.matcher(respuesta);
+        Integer numeroActual = null;
+        int inicioActual = 0;
+        while (m.find()) {
+            if (numeroActual != null) {
+                secciones.put(numeroActual, respuesta.substring(inicioActual, m.start()).trim());
+            }
+            numeroActual = Integer.parseInt(m.group(1));
+            inicioActual = m.end();
+        }
+        if (numeroActual != null) {
+            secciones.put(numeroActual, respuesta.substring(inicioActual).trim());
+        }
+        return secciones;
+    }
+
+    static final class Pendiente {
+        final String mensaje;
+        // Puede rebajarse al aplicar el presupuesto del usuario antes de combinar
+        int maxTokens;
+        final ContextView contexto;
+        final String usuario;
+        final String sesion;
+        final Sinks.One<String> resultado = Sinks.one();
+
+        Pendiente(String mensaje, int maxTokens, ContextView contexto) {
+            this.mensaje = mensaje;
+            this.maxTokens = maxTokens;
+            this.contexto = contexto;
+            this.usuario = contexto.getOrDefault(LimitadorCuotaOpenAi.CLAVE_USUARIO, LimitadorCuotaOpenAi.USUARIO_ANONIMO);
+            this.sesion = contexto.getOrDefault(ConsumoTokensService.CLAVE_SESION, ConsumoTokensService.SIN_SESION);
+        }
+    }
+}
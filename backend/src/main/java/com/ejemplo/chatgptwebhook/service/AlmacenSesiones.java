@@ -0,0 +1,171 @@
+package com.ejemplo.chatgptwebhook.service;
+
+import com.ejemplo.chatgptwebhook.model.EstadoSesion;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Almacén único del estado de las sesiones del menú ({@link EstadoSesion} por sessionId).
+ * Un único hilo de barrido expulsa:
+ * - las sesiones finalizadas ("Salir") pasado el periodo de gracia,
+ * - las sesiones sin actividad durante más de ttl-minutos,
+ * - las más antiguas por último acceso si se supera max-sesiones.
+ */
+@Component
+public class AlmacenSesiones {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlmacenSesiones.class);
+
+    private final Map<String, EstadoSesion> sesiones = new ConcurrentHashMap<>();
+
+    private final long ttlMs;
+    private final int maxSesiones;
+    private final long graciaMs;
+    private final long barridoSegundos;
+    private final Clock clock;
+
+    private final Counter expulsadasInactividad;
+    private final Counter expulsadasTamano;
+    private final Counter finalizadasLimpiadas;
+
+    private ScheduledExecutorService barrido;
+
+    @Autowired
+    public AlmacenSesiones(@Value("${menu.sesiones.ttl-minutos:30}") long ttlMinutos,
+                           @Value("${menu.sesiones.max-sesiones:10000}") int maxSesiones,
+                           @Value("${menu.sesiones.gracia-segundos:30}") long graciaSegundos,
+                           @Value("${menu.sesiones.barrido-segundos:30}") long barridoSegundos,
+                           MeterRegistry meterRegistry) {
+        this(ttlMinutos, maxSesiones, graciaSegundos, barridoSegundos, meterRegistry, Clock.systemUTC());
+    }
+
+    AlmacenSesiones(long ttlMinutos, int maxSesiones, long graciaSegundos, long barridoSegundos,
+                    MeterRegistry meterRegistry, Clock clock) {
+        this.ttlMs = TimeUnit.MINUTES.toMillis(ttlMinutos);
+        this.maxSesiones = Math.max(1, maxSesiones);
+        this.graciaMs = TimeUnit.SECONDS.toMillis(graciaSegundos);
+        this.barridoSegundos = Math.max(1, barridoSegundos);
+        this.clock = clock;
+
+        Gauge.builder("menu.sesiones.activas", sesiones, Map::size).register(meterRegistry);
+        this.expulsadasInactividad = Counter.builder("menu.sesiones.expulsadas").tag("motivo", "inactividad").register(meterRegistry);
+        this.expulsadasTamano = Counter.builder("menu.sesiones.expulsadas").tag("motivo", "tamano").register(meterRegistry);
+        this.finalizadasLimpiadas = Counter.builder("menu.sesiones.expulsadas").tag("motivo", "finalizada").register(meterRegistry);
+    }
+
+    @PostConstruct
+    void iniciar() {
+        barrido = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "menu-sesiones-barrido");
+            t.setDaemon(true);
+            return t;
+        });
+        barrido.scheduleWithFixedDelay(this::barrer, barridoSegundos, barridoSegundos, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void detener() {
+        if (barrido != null) barrido.shutdownNow();
+    }
+
+    /**
+     * Devuelve el estado de la sesión, creándolo si no existe, y actualiza su último acceso
+     */
+    public EstadoSesion obtener(String sessionId) {
+        long ahora = clock.millis();
+        EstadoSesion estado = sesiones.computeIfAbsent(sessionId, id -> new EstadoSesion(id, ahora));
+        estado.tocar(ahora);
+        if (sesiones.size() > maxSesiones) {
+            expulsarExceso();
+        }
+        return estado;
+    }
+
+    /**
+     * Devuelve el estado de la sesión sin crearlo (null si no existe o ya se expulsó)
+     */
+    public EstadoSesion buscar(String sessionId) {
+        if (sessionId == null) return null;
+        EstadoSesion estado = sesiones.get(sessionId);
+        if (estado != null) {
+            estado.tocar(clock.millis());
+        }
+        return estado;
+    }
+
+    /**
+     * Marca la sesión como finalizada; el barrido la elimina pasado el periodo de gracia
+     */
+    public void finalizar(String sessionId) {
+        obtener(sessionId).finalizar(clock.millis());
+    }
+
+    public int tamano() {
+        return sesiones.size();
+    }
+
+    /**
+     * Una pasada del barrido (la ejecuta el hilo programado; visible para pruebas)
+     */
+    void barrer() {
+        try {
+            long ahora = clock.millis();
+            int finalizadas = 0;
+            int inactivas = 0;
+            for (EstadoSesion estado : sesiones.values()) {
+                if (!estado.isActiva() && estado.getFinalizadaEn() > 0 && ahora - estado.getFinalizadaEn() >= graciaMs) {
+                    if (sesiones.remove(estado.getSessionId(), estado)) finalizadas++;
+                } else if (ahora - estado.getUltimoAcceso() >= ttlMs) {
+                    if (sesiones.remove(estado.getSessionId(), estado)) inactivas++;
+                }
+            }
+            finalizadasLimpiadas.increment(finalizadas);
+            expulsadasInactividad.increment(inactivas);
+            if (sesiones.size() > maxSesiones) {
+                expulsarExceso();
+            }
+            if (finalizadas + inactivas > 0) {
+                logger.info("🧹 Sesiones del menú limpiadas: {} finalizadas, {} inactivas ({} restantes)",
+                        finalizadas, inactivas, sesiones.size());
+            }
+        } catch (Exception e) {
+            logger.error("❌ Error en el barrido de sesiones del menú", e);
+        }
+    }
+
+    // Expulsa las sesiones con el último acceso más antiguo hasta dejar un 10% de margen bajo el máximo,
+    // para no ordenar el almacén en cada sesión nueva mientras se está en el límite
+    private synchronized void expulsarExceso() {
+        if (sesiones.size() <= maxSesiones) return;
+        int exceso = sesiones.size() - (maxSesiones - maxSesiones / 10);
+        List<EstadoSesion> antiguas = sesiones.values().stream()
+                .sorted(Comparator.comparingLong(EstadoSesion::getUltimoAcceso))
+                .limit(exceso)
+                .collect(Collectors.toList());
+        int expulsadas = 0;
+        for (EstadoSesion estado : antiguas) {
+            if (sesiones.remove(estado.getSessionId(), estado)) expulsadas++;
+        }
+        expulsadasTamano.increment(expulsadas);
+        logger.warn("⚠️ Límite de {} sesiones del menú alcanzado: {} sesiones expulsadas por antigüedad",
+                maxSesiones, expulsadas);
+    }
+}
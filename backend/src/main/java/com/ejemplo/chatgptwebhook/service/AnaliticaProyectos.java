@@ -0,0 +1,217 @@
+package com.ejemplo.chatgptwebhook.service;
+
+import com.ejemplo.chatgptwebhook.datastructures.AnaliticaGrafo;
+import com.ejemplo.chatgptwebhook.datastructures.GrafoCsr;
+import com.ejemplo.chatgptwebhook.datastructures.NormalizadorTexto;
+import com.ejemplo.chatgptwebhook.model.ProyectoRelacionadoDto;
+import com.ejemplo.chatgptwebhook.repository.ProjectRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Analítica del grafo global de proyectos. Dos proyectos del mismo admin se relacionan si se
+ * crearon seguidos o si comparten una palabra de su nombre. Cada cierto tiempo se monta el grafo desde BD en formato CSR, se calculan
+ * en paralelo popularidad (PageRank), componentes y los proyectos relacionados de cada uno, y se
+ * publica una instantánea inmutable: las lecturas solo leen la última, sin esperar al cálculo.
+ *
+ * Todas las aristas unen proyectos del mismo admin, así que los relacionados nunca mezclan admins.
+ */
+@Component
+public class AnaliticaProyectos {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnaliticaProyectos.class);
+
+    private static final double AMORTIGUACION = 0.85;
+    private static final int MAX_ITERACIONES = 50;
+    private static final double TOLERANCIA = 1e-9;
+    // Palabras más cortas ("de", "app", "web") relacionarían casi todo
+    private static final int MIN_LONGITUD_PALABRA = 4;
+    // Palabras largas pero comunes en cualquier nombre de proyecto, ya plegadas: no dicen de qué va
+    private static final Set<String> PALABRAS_VACIAS = Set.of(
+            "para", "sobre", "entre", "desde", "hasta", "hacia", "como", "cada", "todo", "todos", "toda",
+            "todas", "este", "esta", "estos", "estas", "otro", "otra", "otros", "otras", "nuestro", "nuestra",
+            "mismo", "misma", "donde", "cuando", "porque", "segun", "tras", "nuevo", "nueva",
+            "proyecto", "proyectos", "sistema", "gestion", "aplicacion", "pagina", "sitio", "plataforma",
+            "online", "version", "prueba", "pruebas", "demo");
+
+    /**
+     * Resultado de un análisis completo; no cambia una vez publicado
+     */
+    record Instantanea(GrafoCsr grafo, String[] nombres, double[] popularidad, int[] componente,
+                       AnaliticaGrafo.Relacionados relacionados, Instant calculadaEn) {}
+
+    private final ProjectRepository projectRepository;
+    private final AnaliticaGrafo analitica;
+    private final ForkJoinPool pool;
+    private final int relacionadosPorProyecto;
+    private final long intervaloMinutos;
+    private final Timer duracion;
+    private final Clock reloj;
+
+    private volatile Instantanea instantanea;
+    private ScheduledExecutorService programador;
+
+    public AnaliticaProyectos(ProjectRepository projectRepository,
+                              @Value("${proyectos.analitica.paralelismo:0}") int paralelismo,
+                              @Value("${proyectos.analitica.relacionados-por-proyecto:10}") int relacionadosPorProyecto,
+                              @Value("${proyectos.analitica.intervalo-minutos:15}") long intervaloMinutos,
+                              MeterRegistry meterRegistry) {
+        this(projectRepository, new ForkJoinPool(paralelismo > 0 ? paralelismo : Runtime.getRuntime().availableProcessors()),
+                relacionadosPorProyecto, intervaloMinutos, meterRegistry, Clock.systemUTC());
+    }
+
+    AnaliticaProyectos(ProjectRepository projectRepository, ForkJoinPool pool, int relacionadosPorProyecto,
+                       long intervaloMinutos, MeterRegistry meterRegistry, Clock reloj) {
+        if (relacionadosPorProyecto < 1 || intervaloMinutos < 1) {
+            throw new IllegalArgumentException("relacionados-por-proyecto e intervalo-minutos deben ser >= 1");
+        }
+        this.projectRepository = projectRepository;
+        this.pool = pool;
+        this.analitica = new AnaliticaGrafo(pool);
+        this.relacionadosPorProyecto = relacionadosPorProyecto;
+        this.intervaloMinutos = intervaloMinutos;
+        this.reloj = reloj;
+
+        this.duracion = Timer.builder("proyectos.analitica.calculo").register(meterRegistry);
+        Gauge.builder("proyectos.analitica.proyectos", this,
+                a -> a.instantanea != null ? a.instantanea.grafo().numeroNodos() : 0).register(meterRegistry);
+        Gauge.builder("proyectos.analitica.relaciones", this,
+                a -> a.instantanea != null ? a.instantanea.grafo().numeroAristas() : 0).register(meterRegistry);
+    }
+
+    @PostConstruct
+    void iniciar() {
+        programador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "proyectos-analitica");
+            t.setDaemon(true);
+            return t;
+        });
+        // El primer análisis en segundo plano, para no retrasar el arranque
+        programador.scheduleWithFixedDelay(this::recalcularSinFallar, 0, intervaloMinutos, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    void detener() {
+        if (programador != null) programador.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    /**
+     * Proyectos relacionados según el último análisis; vacío si el proyecto es posterior a él
+     */
+    public List<ProyectoRelacionadoDto> relacionados(Long projectId, int limite) {
+        if (projectId == null) throw new IllegalArgumentException("projectId es requerido");
+        if (limite < 1) throw new IllegalArgumentException("limit debe ser >= 1");
+        Instantanea actual = instantanea;
+        List<ProyectoRelacionadoDto> resultado = new ArrayList<>();
+        if (actual == null) return resultado;
+        int v = actual.grafo().indiceDe(projectId);
+        if (v < 0) return resultado;
+
+        AnaliticaGrafo.Relacionados rel = actual.relacionados();
+        int n = Math.min(limite, rel.cuenta()[v]);
+        for (int i = 0; i < n; i++) {
+            int w = rel.nodos()[v * rel.k() + i];
+            ProyectoRelacionadoDto dto = new ProyectoRelacionadoDto();
+            dto.setProjectId(actual.grafo().idDe(w));
+            dto.setName(actual.nombres()[w]);
+            dto.setPuntuacion(rel.puntuaciones()[v * rel.k() + i]);
+            dto.setPopularidad(actual.popularidad()[w]);
+            resultado.add(dto);
+        }
+        return resultado;
+    }
+
+    Instantanea getInstantanea() {
+        return instantanea;
+    }
+
+    private void recalcularSinFallar() {
+        try {
+            recalcular();
+        } catch (Exception e) {
+            // Se sigue sirviendo la instantánea anterior
+            logger.warn("No se pudo recalcular la analítica de proyectos: {}", e.getMessage());
+        }
+    }
+
+    void recalcular() {
+        long inicio = System.nanoTime();
+        List<ProjectRepository.NodoProyecto> filas = projectRepository.findNodosGrafo();
+        GrafoCsr grafo = montarGrafo(filas);
+        String[] nombres = new String[grafo.numeroNodos()];
+        for (ProjectRepository.NodoProyecto fila : filas) {
+            nombres[grafo.indiceDe(fila.getId())] = fila.getName();
+        }
+
+        double[] popularidad = analitica.pageRank(grafo, AMORTIGUACION, MAX_ITERACIONES, TOLERANCIA);
+        int[] componente = analitica.componentes(grafo);
+        AnaliticaGrafo.Relacionados relacionados = analitica.relacionados(grafo, popularidad, relacionadosPorProyecto);
+        instantanea = new Instantanea(grafo, nombres, popularidad, componente, relacionados, Instant.now(reloj));
+
+        long nanos = System.nanoTime() - inicio;
+        duracion.record(nanos, TimeUnit.NANOSECONDS);
+        logger.info("🕸️ Analítica de proyectos: {} proyectos, {} relaciones, {} componentes en {} ms ({} hilos)",
+                grafo.numeroNodos(), grafo.numeroAristas(), contarComponentes(componente), nanos / 1_000_000,
+                pool.getParallelism());
+    }
+
+    // Las filas vienen ordenadas por admin y fecha de creación
+    static GrafoCsr montarGrafo(List<ProjectRepository.NodoProyecto> filas) {
+        long[] ids = new long[filas.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = filas.get(i).getId();
+        GrafoCsr.Constructor constructor = new GrafoCsr.Constructor(ids);
+
+        Long adminAnterior = null;
+        long proyectoAnterior = 0;
+        // Último proyecto del admin actual con cada palabra en el nombre: se encadenan en orden de creación
+        Map<String, Long> ultimoPorPalabra = new HashMap<>();
+        for (ProjectRepository.NodoProyecto fila : filas) {
+            long id = fila.getId();
+            boolean mismoAdmin = adminAnterior != null && adminAnterior.equals(fila.getAdminId());
+            if (mismoAdmin) {
+                constructor.agregarArista(proyectoAnterior, id);
+            } else {
+                ultimoPorPalabra.clear();
+            }
+            if (fila.getName() != null) {
+                for (String palabra : fila.getName().trim().split("\\s+")) {
+                    String plegada = NormalizadorTexto.plegar(palabra);
+                    if (plegada.length() < MIN_LONGITUD_PALABRA || PALABRAS_VACIAS.contains(plegada)) continue;
+                    Long otro = ultimoPorPalabra.put(plegada, id);
+                    if (otro != null) constructor.agregarArista(otro, id);
+                }
+            }
+            adminAnterior = fila.getAdminId();
+            proyectoAnterior = id;
+        }
+        return constructor.construir();
+    }
+
+    private static int contarComponentes(int[] componente) {
+        int total = 0;
+        for (int v = 0; v < componente.length; v++) {
+            if (componente[v] == v) total++;
+        }
+        return total;
+    }
+}
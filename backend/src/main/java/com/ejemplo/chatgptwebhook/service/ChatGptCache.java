@@ -0,0 +1,161 @@
+package com.ejemplo.chatgptwebhook.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Caché de respuestas de ChatGPT para prompts idénticos.
+ * Clave: modelo + prompt normalizado + max_tokens + temperatura.
+ * Acotada por número de entradas y por bytes (expulsión LRU) y con TTL por entrada.
+ * Los fallos concurrentes de la misma clave se unen: solo hay una llamada a OpenAI en vuelo por clave.
+ */
+@Component
+public class ChatGptCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatGptCache.class);
+
+    // Sobrecoste aproximado por entrada (nodo del mapa, clave, objetos auxiliares)
+    private static final long BYTES_POR_ENTRADA = 96;
+
+    public record Clave(String modelo, String prompt, int maxTokens, double temperatura) {
+
+        public static Clave de(String modelo, String prompt, int maxTokens, double temperatura) {
+            return new Clave(modelo, normalizar(prompt), maxTokens, temperatura);
+        }
+
+        private static String normalizar(String prompt) {
+            return prompt == null ? "" : prompt.trim().replaceAll("\\s+", " ").toLowerCase();
+        }
+    }
+
+    private static final class Entrada {
+        final String valor;
+        final long bytes;
+        final long expiraEnNanos;
+
+        Entrada(String valor, long bytes, long expiraEnNanos) {
+            this.valor = valor;
+            this.bytes = bytes;
+            this.expiraEnNanos = expiraEnNanos;
+        }
+    }
+
+    private final boolean habilitada;
+    private final int maxEntradas;
+    private final long maxBytes;
+    private final long ttlNanos;
+
+    // LinkedHashMap en orden de acceso = LRU; protegido por el monitor de la propia caché
+    private final LinkedHashMap<Clave, Entrada> entradas = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytesActuales;
+
+    // Llamadas en vuelo por clave para unir fallos concurrentes
+    private final Map<Clave, Mono<String>> enVuelo = new ConcurrentHashMap<>();
+
+    private final Counter aciertos;
+    private final Counter fallos;
+    private final Counter expulsiones;
+
+    public ChatGptCache(@Value("${openai.cache.habilitada:true}") boolean habilitada,
+                        @Value("${openai.cache.max-entradas:500}") int maxEntradas,
+                        @Value("${openai.cache.max-bytes:20971520}") long maxBytes,
+                        @Value("${openai.cache.ttl-minutos:60}") long ttlMinutos,
+                        MeterRegistry meterRegistry) {
+        this.habilitada = habilitada;
+        this.maxEntradas = maxEntradas;
+        this.maxBytes = maxBytes;
+        this.ttlNanos = Duration.ofMinutes(ttlMinutos).toNanos();
+
+        this.aciertos = Counter.builder("chatgpt.cache.aciertos").register(meterRegistry);
+        this.fallos = Counter.builder("chatgpt.cache.fallos").register(meterRegistry);
+        this.expulsiones = Counter.builder("chatgpt.cache.expulsiones").register(meterRegistry);
+        Gauge.builder("chatgpt.cache.entradas", this, ChatGptCache::tamaño).register(meterRegistry);
+        Gauge.builder("chatgpt.cache.bytes", this, ChatGptCache::bytes).register(meterRegistry);
+        Gauge.builder("chatgpt.cache.en_vuelo", enVuelo, Map::size).register(meterRegistry);
+    }
+
+    public boolean isHabilitada() {
+        return habilitada;
+    }
+
+    /**
+     * Devuelve la respuesta cacheada para la clave o, si no existe, la obtiene con el cargador.
+     * Si ya hay una carga en vuelo para la misma clave, todos los suscriptores reciben su resultado.
+     * Solo se cachean valores emitidos; los errores y los Mono vacíos no se guardan.
+     */
+    public Mono<String> obtener(Clave clave, Supplier<Mono<String>> cargador) {
+        if (!habilitada) {
+            return cargador.get();
+        }
+        return Mono.defer(() -> {
+            String cacheado = leer(clave);
+            if (cacheado != null) {
+                aciertos.increment();
+                logger.info("Respuesta de ChatGPT servida desde caché ({} caracteres)", cacheado.length());
+                return Mono.just(cacheado);
+            }
+            fallos.increment();
+            return enVuelo.computeIfAbsent(clave, k -> cargador.get()
+                    .doOnNext(valor -> guardar(k, valor))
+                    .doFinally(s -> enVuelo.remove(k))
+                    .cache());
+        });
+    }
+
+    public synchronized int tamaño() {
+        return entradas.size();
+    }
+
+    public synchronized long bytes() {
+        return bytesActuales;
+    }
+
+    public synchronized void limpiar() {
+        entradas.clear();
+        bytesActuales = 0;
+    }
+
+    synchronized String leer(Clave clave) {
+        Entrada e = entradas.get(clave);
+        if (e == null) return null;
+        if (System.nanoTime() - e.expiraEnNanos >= 0) {
+            entradas.remove(clave);
+            bytesActuales -= e.bytes;
+            expulsiones.increment();
+            return null;
+        }
+        return e.valor;
+    }
+
+    synchronized void guardar(Clave clave, String valor) {
+        if (valor == null) return;
+        long tamañoBytes = BYTES_POR_ENTRADA + 2L * (clave.prompt().length() + valor.length());
+        if (tamañoBytes > maxBytes) return;
+
+        Entrada anterior = entradas.put(clave, new Entrada(valor, tamañoBytes, System.nanoTime() + ttlNanos));
+        if (anterior != null) bytesActuales -= anterior.bytes;
+        bytesActuales += tamañoBytes;
+
+        // Expulsar las menos usadas recientemente hasta respetar ambos límites
+        Iterator<Map.Entry<Clave, Entrada>> it = entradas.entrySet().iterator();
+        while ((entradas.size() > maxEntradas || bytesActuales > maxBytes) && it.hasNext()) {
+            Map.Entry<Clave, Entrada> masAntigua = it.next();
+            bytesActuales -= masAntigua.getValue().bytes;
+            it.remove();
+            expulsiones.increment();
+        }
+    }
+}
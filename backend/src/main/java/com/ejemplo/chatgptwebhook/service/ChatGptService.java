@@ -5,88 +5,261 @@ import com.ejemplo.chatgptwebhook.model.ChatGptResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
 /**
- * Servicio para comunicarse con la API de ChatGPT
+ * Servicio para comunicarse con la API de ChatGPT.
+ * La llamada en sí la hace el {@link ProveedorLlm} configurado (OpenAI o el stub local).
  */
 @Service
 public class ChatGptService {
 
     private static final Logger logger = LoggerFactory.getLogger(ChatGptService.class);
 
-    private final WebClient webClient;
-    @SuppressWarnings("unused")
-    private final String apiKey;
+    private static final double TEMPERATURA = 0.7;
+
+    // Respuesta inmediata cuando el circuit breaker o el limitador rechazan la llamada
+    static final String MENSAJE_NO_DISPONIBLE =
+            "El servicio de ChatGPT no está disponible en este momento. Por favor, inténtalo más tarde.";
+    // Respuesta cuando el usuario agotó su presupuesto diario de tokens (modo "rechazar")
+    static final String MENSAJE_PRESUPUESTO_AGOTADO =
+            "Has alcanzado tu presupuesto diario de uso de ChatGPT. Por favor, inténtalo mañana.";
+    static final String MENSAJE_SIN_RESPUESTA = "No pude generar una respuesta. Inténtalo de nuevo.";
+
+    /**
+     * Fallo de una llamada en streaming; el mensaje es el texto para el usuario (el de {@link #mensajeDeError})
+     */
+    public static class ErrorChatGptException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public ErrorChatGptException(String mensaje, Throwable causa) {
+            super(mensaje, causa);
+        }
+    }
+
+    /**
+     * Un prompt dentro de una llamada combinada, con el usuario y la sesión a los que se carga
+     */
+    record ParteLote(String usuario, String sesion, String mensaje, int maxTokens) {}
+
+    private final ProveedorLlm proveedor;
     private final String model;
+    private final ChatGptCache cache;
+    private final ResilienciaOpenAi resiliencia;
+    private final LimitadorCuotaOpenAi cuota;
+    private final ConsumoTokensService consumo;
 
-    public ChatGptService(@Value("${openai.api.key}") String apiKey,
-                          @Value("${openai.api.url:https://api.openai.com/v1/chat/completions}") String apiUrl,
-                          @Value("${openai.model:gpt-3.5-turbo}") String model) {
-        this.apiKey = apiKey;
+    public ChatGptService(ProveedorLlm proveedor,
+                          @Value("${openai.model:gpt-3.5-turbo}") String model,
+                          ChatGptCache cache,
+                          ResilienciaOpenAi resiliencia,
+                          LimitadorCuotaOpenAi cuota,
+                          ConsumoTokensService consumo) {
+        this.proveedor = proveedor;
         this.model = model;
+        this.cache = cache;
+        this.resiliencia = resiliencia;
+        this.cuota = cuota;
+        this.consumo = consumo;
+        logger.info("Proveedor de LLM: {} (modelo {})", proveedor.getNombre(), model);
+    }
+
+    public Mono<String> enviarMensajeConTokens(String mensaje, int maxTokens) {
+        return enviarMensajeConTokens(mensaje, maxTokens, true);
+    }
 
-        if (apiKey == null || apiKey.isBlank()) {
-            logger.error("API key de OpenAI no configurada (openai.api.key).");
+    /**
+     * Envía un mensaje a ChatGPT.
+     *
+     * @param usarCache false para forzar una llamada nueva a OpenAI aunque haya respuesta cacheada
+     */
+    public Mono<String> enviarMensajeConTokens(String mensaje, int maxTokens, boolean usarCache) {
+        return Mono.deferContextual(ctx -> {
+            String usuario = ctx.getOrDefault(LimitadorCuotaOpenAi.CLAVE_USUARIO, LimitadorCuotaOpenAi.USUARIO_ANONIMO);
+            String sesion = ctx.getOrDefault(ConsumoTokensService.CLAVE_SESION, ConsumoTokensService.SIN_SESION);
+            int tokens = consumo.ajustarMaxTokens(usuario, maxTokens);
+
+            logger.info("Enviando mensaje a ChatGPT con {} tokens máximo: {}", tokens, mensaje);
+            double temperatura = TEMPERATURA;
+            List<Map<String, String>> messages = List.of(
+                Map.of("role", "user", "content", mensaje)
+            );
+            ChatGptRequest request = new ChatGptRequest(
+                model,
+                messages,
+                tokens,
+                temperatura
+            );
+
+            // Cada intento espera su turno en la cuota local; los 429 se reintentan según Retry-After
+            Duration timeoutLlamada = proveedor.timeoutRespuesta(tokens);
+            Mono<String> llamada = cuota.adquirir(LimitadorCuotaOpenAi.estimarTokens(mensaje, tokens), timeoutLlamada)
+                    .then(resiliencia.proteger(llamarApi(request, usuario, sesion), tokens))
+                    .retryWhen(cuota.politicaReintentos(timeoutLlamada));
+
+            // Los aciertos de caché no consumen cuota, ni presupuesto, ni pasan por el circuit breaker
+            return usarCache
+                    ? cache.obtener(ChatGptCache.Clave.de(model, mensaje, tokens, temperatura), () -> llamada)
+                    : llamada;
+        })
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    logger.warn("No se recibieron opciones en la respuesta de ChatGPT");
+                    return MENSAJE_SIN_RESPUESTA;
+                }))
+                .onErrorResume(Exception.class, ex -> Mono.just(mensajeDeError(ex)));
+    }
+
+    /**
+     * Texto para el usuario equivalente a un error de la llamada a OpenAI (y lo registra en el log)
+     */
+    String mensajeDeError(Throwable ex) {
+        if (ex instanceof ResilienciaOpenAi.OpenAiNoDisponibleException) {
+            logger.warn("Llamada a ChatGPT rechazada sin esperar: {}", ex.getMessage());
+            return MENSAJE_NO_DISPONIBLE;
         }
+        if (ex instanceof ConsumoTokensService.PresupuestoExcedidoException) {
+            return MENSAJE_PRESUPUESTO_AGOTADO;
+        }
+        if (ex instanceof WebClientResponseException wex) {
+            logger.error("Error al comunicarse con ChatGPT: {} - {}", wex.getStatusCode(), wex.getResponseBodyAsString());
+            if (wex.getStatusCode().value() == 401) {
+                return "Error de autenticación con la API de OpenAI. Por favor, verifica la API key configurada.";
+            }
+            return "Error al procesar tu mensaje. Por favor, inténtalo más tarde.";
+        }
+        logger.error("Error inesperado al comunicarse con ChatGPT", ex);
+        return "Ocurrió un error inesperado. Por favor, inténtalo más tarde.";
+    }
 
-        this.webClient = WebClient.builder()
-                .baseUrl(apiUrl)
-                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-                .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
-                .build();
+    /**
+     * Presupuesto diario del usuario aplicado a una parte de un lote antes de combinarla
+     *
+     * @throws ConsumoTokensService.PresupuestoExcedidoException si lo agotó y el modo es "rechazar"
+     */
+    int ajustarMaxTokens(String usuario, int maxTokens) {
+        return consumo.ajustarMaxTokens(usuario, maxTokens);
     }
 
-    public Mono<String> enviarMensajeConTokens(String mensaje, int maxTokens) {
-        logger.info("Enviando mensaje a ChatGPT con {} tokens máximo: {}", maxTokens, mensaje);
+    /**
+     * Respuesta cacheada de un prompt suelto (misma clave que {@link #enviarMensajeConTokens}), o null
+     */
+    String buscarEnCache(String mensaje, int maxTokens) {
+        return cache.isHabilitada() ? cache.leer(ChatGptCache.Clave.de(model, mensaje, maxTokens, TEMPERATURA)) : null;
+    }
+
+    // Guarda la sección de un lote como si fuera la respuesta de su prompt suelto
+    void guardarEnCache(String mensaje, int maxTokens, String respuesta) {
+        if (cache.isHabilitada()) {
+            cache.guardar(ChatGptCache.Clave.de(model, mensaje, maxTokens, TEMPERATURA), respuesta);
+        }
+    }
+
+    /**
+     * Llamada combinada de un lote ({@link AgrupadorPromptsChatGpt}). La cuota se reserva por parte con su
+     * propio usuario, así cada uno espera su turno igual que con llamadas sueltas; el consumo no se registra
+     * aquí sino por parte con {@link #registrarConsumo}. Sin caché, y los errores se propagan sin convertirlos
+     * en texto para que el lote falle entero.
+     */
+    Mono<ChatGptResponse> completarLote(String prompt, int maxTokens, List<ParteLote> partes) {
         List<Map<String, String>> messages = List.of(
-            Map.of("role", "user", "content", mensaje)
-        );
-        ChatGptRequest request = new ChatGptRequest(
-            model,
-            messages,
-            maxTokens,
-            0.7
+            Map.of("role", "user", "content", prompt)
         );
+        ChatGptRequest request = new ChatGptRequest(model, messages, maxTokens, TEMPERATURA);
+        Duration timeoutLlamada = proveedor.timeoutRespuesta(maxTokens);
+        Mono<Void> reservas = Mono.defer(() -> Mono.when(partes.stream()
+                .map(p -> cuota.adquirir(LimitadorCuotaOpenAi.estimarTokens(p.mensaje(), p.maxTokens()), timeoutLlamada)
+                        .contextWrite(Context.of(LimitadorCuotaOpenAi.CLAVE_USUARIO, p.usuario())))
+                .toList()));
+        logger.info("Enviando lote de {} prompts a ChatGPT con {} tokens máximo", partes.size(), maxTokens);
+        return reservas
+                .then(resiliencia.proteger(proveedor.completar(request), maxTokens))
+                .retryWhen(cuota.politicaReintentos(timeoutLlamada));
+    }
 
-        return webClient.post()
-                .bodyValue(request)
-                .retrieve()
-                .bodyToMono(ChatGptResponse.class)
-                .map(response -> {
-                    if (response.getChoices() != null && !response.getChoices().isEmpty()) {
-                        ChatGptResponse.Message message = response.getChoices().get(0).getMessage();
-                        String content = message != null ? message.getContent() : "Sin respuesta";
-                        logger.info("Respuesta recibida de ChatGPT ({} tokens solicitados): {} caracteres", maxTokens, content.length());
-                        return content;
-                    } else {
-                        logger.warn("No se recibieron opciones en la respuesta de ChatGPT");
-                        return "No pude generar una respuesta. Inténtalo de nuevo.";
-                    }
-                })
-                .onErrorResume(WebClientResponseException.class, ex -> {
-                    logger.error("Error al comunicarse con ChatGPT: {} - {}", ex.getStatusCode(), ex.getResponseBodyAsString());
-                    if (ex.getStatusCode().value() == 401) {
-                        return Mono.just("Error de autenticación con la API de OpenAI. Por favor, verifica la API key configurada.");
+    void registrarConsumo(String usuario, String sesion, ChatGptResponse.Usage usage) {
+        consumo.registrar(usuario, sesion, model, usage);
+    }
+
+    // Llamada al proveedor: emite el contenido, vacío si no hubo opciones, o error (no se cachean)
+    private Mono<String> llamarApi(ChatGptRequest request, String usuario, String sesion) {
+        return proveedor.completar(request)
+                .doOnNext(response -> consumo.registrar(usuario, sesion, model, response.getUsage()))
+                .flatMap(response -> {
+                    if (response.getChoices() == null || response.getChoices().isEmpty()) {
+                        return Mono.empty();
                     }
-                    return Mono.just("Error al procesar tu mensaje. Por favor, inténtalo más tarde.");
-                })
-                .onErrorResume(Exception.class, ex -> {
-                    logger.error("Error inesperado al comunicarse con ChatGPT", ex);
-                    return Mono.just("Ocurrió un error inesperado. Por favor, inténtalo más tarde.");
+                    ChatGptResponse.Message message = response.getChoices().get(0).getMessage();
+                    String content = message != null && message.getContent() != null ? message.getContent() : "Sin respuesta";
+                    logger.info("Respuesta recibida de ChatGPT ({} tokens solicitados): {} caracteres", request.getMaxTokens(), content.length());
+                    return Mono.just(content);
                 });
     }
 
+    /**
+     * Versión en streaming: pide a OpenAI la respuesta con stream: true y emite
+     * cada fragmento de texto en cuanto llega, sin esperar al final de la generación.
+     * Los errores se propagan como {@link ErrorChatGptException} con el mismo mensaje que la versión no
+     * streaming, para que quien consume el flujo distinga un fallo de una respuesta.
+     */
+    public Flux<String> transmitirMensajeConTokens(String mensaje, int maxTokens) {
+        return Flux.deferContextual(ctx -> {
+            String usuario = ctx.getOrDefault(LimitadorCuotaOpenAi.CLAVE_USUARIO, LimitadorCuotaOpenAi.USUARIO_ANONIMO);
+            String sesion = ctx.getOrDefault(ConsumoTokensService.CLAVE_SESION, ConsumoTokensService.SIN_SESION);
+            int tokens = consumo.ajustarMaxTokens(usuario, maxTokens);
+
+            logger.info("Enviando mensaje en streaming a ChatGPT con {} tokens máximo: {}", tokens, mensaje);
+            List<Map<String, String>> messages = List.of(
+                Map.of("role", "user", "content", mensaje)
+            );
+            ChatGptRequest request = new ChatGptRequest(
+                model,
+                messages,
+                tokens,
+                TEMPERATURA,
+                true
+            );
+
+            Flux<String> fragmentos = proveedor.transmitir(request)
+                    .concatMap(chunk -> extraerFragmento(chunk, usuario, sesion));
+
+            // Los 429 llegan antes del primer fragmento, así que reintentar el flujo completo es seguro
+            Duration timeoutLlamada = proveedor.timeoutRespuesta(tokens);
+            return cuota.adquirir(LimitadorCuotaOpenAi.estimarTokens(mensaje, tokens), timeoutLlamada)
+                    .thenMany(resiliencia.proteger(fragmentos))
+                    .retryWhen(cuota.politicaReintentos(timeoutLlamada));
+        })
+                .onErrorMap(ex -> !(ex instanceof ErrorChatGptException),
+                        ex -> new ErrorChatGptException(mensajeDeError(ex), ex));
+    }
+
+    private Mono<String> extraerFragmento(ChatGptResponse chunk, String usuario, String sesion) {
+        // Con stream_options.include_usage el último fragmento trae el consumo y choices vacío
+        if (chunk.getUsage() != null) {
+            consumo.registrar(usuario, sesion, model, chunk.getUsage());
+        }
+        if (chunk.getChoices() == null || chunk.getChoices().isEmpty()) {
+            return Mono.empty();
+        }
+        ChatGptResponse.Message delta = chunk.getChoices().get(0).getDelta();
+        String contenido = delta != null ? delta.getContent() : null;
+        return (contenido == null || contenido.isEmpty()) ? Mono.empty() : Mono.just(contenido);
+    }
+
     // Método repuesto: wrapper con tokens por defecto
     public Mono<String> enviarMensaje(String mensaje) {
         return enviarMensajeConTokens(mensaje, 512);
     }
+
+    // Wrapper en streaming con tokens por defecto
+    public Flux<String> transmitirMensaje(String mensaje) {
+        return transmitirMensajeConTokens(mensaje, 512);
+    }
 }
@@ -0,0 +1,304 @@
+package com.ejemplo.chatgptwebhook.service;
+
+import com.ejemplo.chatgptwebhook.datastructures.MapaStringLong;
+import com.ejemplo.chatgptwebhook.entities.ConsumoTokens;
+import com.ejemplo.chatgptwebhook.model.ChatGptResponse;
+import com.ejemplo.chatgptwebhook.model.ConsumoTokensDto;
+import com.ejemplo.chatgptwebhook.model.PresupuestoTokensDto;
+import com.ejemplo.chatgptwebhook.repository.ConsumoTokensRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Libro de consumo de tokens de OpenAI a partir de {@link ChatGptResponse.Usage}.
+ * Acumula en memoria por usuario, sesión y modelo, vuelca por lotes a la tabla token_usage
+ * y aplica un presupuesto diario por usuario: al superarlo, las peticiones se rechazan
+ * o se degradan a menos max_tokens según openai.consumo.modo-exceso.
+ */
+@Service
+public class ConsumoTokensService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConsumoTokensService.class);
+
+    public static final String CLAVE_SESION = "openai.sesion";
+    static final String SIN_SESION = "-";
+
+    /**
+     * El usuario ha agotado su presupuesto diario y el modo es "rechazar".
+     */
+    public static class PresupuestoExcedidoException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public PresupuestoExcedidoException(String mensaje) {
+            super(mensaje);
+        }
+    }
+
+    private record Clave(String usuario, String sesion, String modelo) {}
+
+    // Inmutable: se combina con merge() y se retira con remove() sin perder incrementos
+    private record Acumulado(long llamadas, long promptTokens, long completionTokens, long totalTokens) {
+        Acumulado sumar(Acumulado otro) {
+            return new Acumulado(llamadas + otro.llamadas, promptTokens + otro.promptTokens,
+                    completionTokens + otro.completionTokens, totalTokens + otro.totalTokens);
+        }
+    }
+
+    private final ConsumoTokensRepository repository;
+    private final long presupuestoDiarioPorDefecto;
+    private final boolean degradar;
+    private final int tokensDegradados;
+    private final long volcadoSegundos;
+    private final Clock reloj;
+
+    // Presupuestos por usuario, solo desde configuración; 0 = sin límite.
+    // Se lee en cada llamada y no cambia tras el arranque: lecturas sin cerrojo ni cajas Long
+    private final MapaStringLong presupuestos;
+    // Consumo del día por usuario, sesión y modelo (para el endpoint)
+    private final Map<Clave, Acumulado> consumoHoy = new ConcurrentHashMap<>();
+    // Total del día por usuario (para el presupuesto)
+    private final Map<String, AtomicLong> totalHoyPorUsuario = new ConcurrentHashMap<>();
+    // Pendiente de volcar a base de datos
+    private final Map<Clave, Acumulado> pendientes = new ConcurrentHashMap<>();
+    private volatile LocalDate dia;
+
+    private final MeterRegistry meterRegistry;
+    private final Counter rechazadas;
+    private final Counter degradadas;
+
+    private ScheduledExecutorService volcado;
+
+    public ConsumoTokensService(ConsumoTokensRepository repository,
+                                @Value("${openai.consumo.presupuesto-diario:0}") long presupuestoDiarioPorDefecto,
+                                @Value("${openai.consumo.presupuestos:}") String presupuestosPorUsuario,
+                                @Value("${openai.consumo.modo-exceso:degradar}") String modoExceso,
+                                @Value("${openai.consumo.tokens-degradados:512}") int tokensDegradados,
+                                @Value("${openai.consumo.volcado-segundos:30}") long volcadoSegundos,
+                                MeterRegistry meterRegistry) {
+        this(repository, presupuestoDiarioPorDefecto, presupuestosPorUsuario, modoExceso, tokensDegradados,
+                volcadoSegundos, meterRegistry, Clock.systemDefaultZone());
+    }
+
+    ConsumoTokensService(ConsumoTokensRepository repository, long presupuestoDiarioPorDefecto,
+                         String presupuestosPorUsuario, String modoExceso, int tokensDegradados,
+                         long volcadoSegundos, MeterRegistry meterRegistry, Clock reloj) {
+        this.repository = repository;
+        this.presupuestoDiarioPorDefecto = presupuestoDiarioPorDefecto;
+        this.degradar = !"rechazar".equalsIgnoreCase(modoExceso);
+        this.tokensDegradados = tokensDegradados;
+        this.volcadoSegundos = volcadoSegundos;
+        this.reloj = reloj;
+        this.dia = LocalDate.now(reloj);
+        this.meterRegistry = meterRegistry;
+        this.presupuestos = cargarPresupuestos(presupuestosPorUsuario);
+
+        this.rechazadas = Counter.builder("chatgpt.presupuesto.rechazadas").register(meterRegistry);
+        this.degradadas = Counter.builder("chatgpt.presupuesto.degradadas").register(meterRegistry);
+        Gauge.builder("chatgpt.consumo.pendientes", pendientes, Map::size).register(meterRegistry);
+    }
+
+    // Formato: "admin:1=500000,webhook:ana=20000"
+    private static MapaStringLong cargarPresupuestos(String config) {
+        MapaStringLong cargados = new MapaStringLong();
+        if (config == null || config.isBlank()) return cargados;
+        for (String par : config.split(",")) {
+            int igual = par.lastIndexOf('=');
+            if (igual <= 0) continue;
+            try {
+                cargados.put(par.substring(0, igual).trim(), Long.parseLong(par.substring(igual + 1).trim()));
+            } catch (NumberFormatException e) {
+                logger.warn("Presupuesto de tokens no válido: {}", par);
+            }
+        }
+        return cargados;
+    }
+
+    @PostConstruct
+    void iniciar() {
+        // Tras un reinicio, el presupuesto del día parte de lo ya volcado
+        try {
+            for (Object[] fila : repository.sumarTokensPorUsuario(dia)) {
+                totalHoyPorUsuario.put((String) fila[0], new AtomicLong(((Number) fila[1]).longValue()));
+            }
+            logger.info("📊 Consumo de tokens del día cargado para {} usuarios", totalHoyPorUsuario.size());
+        } catch (Exception e) {
+            logger.warn("No se pudo cargar el consumo de tokens del día: {}", e.getMessage());
+        }
+        volcado = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "consumo-tokens-volcado");
+            t.setDaemon(true);
+            return t;
+        });
+        volcado.scheduleWithFixedDelay(this::volcar, volcadoSegundos, volcadoSegundos, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void detener() {
+        if (volcado != null) volcado.shutdownNow();
+        volcar();
+    }
+
+    /**
+     * Aplica el presupuesto diario antes de llamar a OpenAI.
+     *
+     * @return los max_tokens a usar (los pedidos, o tokens-degradados si el usuario superó su presupuesto)
+     * @throws PresupuestoExcedidoException si se superó el presupuesto y el modo es "rechazar"
+     */
+    public int ajustarMaxTokens(String usuario, int maxTokens) {
+        long presupuesto = getPresupuestoDiario(usuario);
+        if (presupuesto <= 0 || consumidoHoy(usuario) < presupuesto) {
+            return maxTokens;
+        }
+        if (!degradar) {
+            rechazadas.increment();
+            logger.warn("💸 Presupuesto diario de {} tokens agotado para {}: petición rechazada", presupuesto, usuario);
+            throw new PresupuestoExcedidoException("Presupuesto diario de tokens agotado para " + usuario);
+        }
+        if (maxTokens > tokensDegradados) {
+            degradadas.increment();
+            logger.info("💸 Presupuesto diario agotado para {}: max_tokens {} -> {}", usuario, maxTokens, tokensDegradados);
+            return tokensDegradados;
+        }
+        return maxTokens;
+    }
+
+    /**
+     * Registra el consumo real de una respuesta de OpenAI.
+     */
+    public void registrar(String usuario, String sesion, String modelo, ChatGptResponse.Usage usage) {
+        if (usage == null) return;
+        long prompt = usage.getPromptTokens() != null ? usage.getPromptTokens() : 0;
+        long completion = usage.getCompletionTokens() != null ? usage.getCompletionTokens() : 0;
+        long total = usage.getTotalTokens() != null ? usage.getTotalTokens() : prompt + completion;
+
+        comprobarCambioDeDia();
+        Clave clave = new Clave(usuario, sesion != null ? sesion : SIN_SESION, modelo);
+        Acumulado delta = new Acumulado(1, prompt, completion, total);
+        consumoHoy.merge(clave, delta, Acumulado::sumar);
+        pendientes.merge(clave, delta, Acumulado::sumar);
+        totalHoyPorUsuario.computeIfAbsent(usuario, u -> new AtomicLong()).addAndGet(total);
+
+        meterRegistry.counter("chatgpt.tokens", "tipo", "prompt", "modelo", modelo).increment(prompt);
+        meterRegistry.counter("chatgpt.tokens", "tipo", "completion", "modelo", modelo).increment(completion);
+    }
+
+    public long consumidoHoy(String usuario) {
+        comprobarCambioDeDia();
+        AtomicLong total = totalHoyPorUsuario.get(usuario);
+        return total != null ? total.get() : 0;
+    }
+
+    // La clave "anonimo" la comparten todas las sesiones sin administrador: el presupuesto por defecto
+    // (pensado para un solo usuario) las degradaría a todas a la vez, así que solo se limita si se
+    // configura expresamente en openai.consumo.presupuestos
+    public long getPresupuestoDiario(String usuario) {
+        long porDefecto = LimitadorCuotaOpenAi.USUARIO_ANONIMO.equals(usuario) ? 0 : presupuestoDiarioPorDefecto;
+        return presupuestos.getOrDefault(usuario, porDefecto);
+    }
+
+    public PresupuestoTokensDto obtenerPresupuesto(String usuario) {
+        long presupuesto = getPresupuestoDiario(usuario);
+        long consumido = consumidoHoy(usuario);
+        PresupuestoTokensDto dto = new PresupuestoTokensDto();
+        dto.setUsuario(usuario);
+        dto.setPresupuestoDiario(presupuesto);
+        dto.setConsumidoHoy(consumido);
+        dto.setRestante(presupuesto > 0 ? Math.max(0, presupuesto - consumido) : 0);
+        dto.setExcedido(presupuesto > 0 && consumido >= presupuesto);
+        return dto;
+    }
+
+    /**
+     * Consumo del día agrupado por usuario, sesión y modelo, de mayor a menor.
+     *
+     * @param usuario filtra por usuario si no es null
+     */
+    public List<ConsumoTokensDto> obtenerConsumoHoy(String usuario) {
+        comprobarCambioDeDia();
+        List<ConsumoTokensDto> lista = new ArrayList<>();
+        consumoHoy.forEach((clave, acumulado) -> {
+            if (usuario != null && !usuario.equals(clave.usuario())) return;
+            ConsumoTokensDto dto = new ConsumoTokensDto();
+            dto.setUsuario(clave.usuario());
+            dto.setSesion(clave.sesion());
+            dto.setModelo(clave.modelo());
+            dto.setLlamadas(acumulado.llamadas());
+            dto.setPromptTokens(acumulado.promptTokens());
+            dto.setCompletionTokens(acumulado.completionTokens());
+            dto.setTotalTokens(acumulado.totalTokens());
+            lista.add(dto);
+        });
+        lista.sort(Comparator.comparingLong(ConsumoTokensDto::getTotalTokens).reversed());
+        return lista;
+    }
+
+    /**
+     * Vuelca a base de datos lo acumulado desde el último volcado, en un único saveAll.
+     * Si falla, lo pendiente se conserva para el siguiente intento.
+     */
+    synchronized void volcar() {
+        if (pendientes.isEmpty()) return;
+        LocalDate diaVolcado = dia;
+        Map<Clave, Acumulado> lote = new HashMap<>();
+        for (Clave clave : new ArrayList<>(pendientes.keySet())) {
+            Acumulado acumulado = pendientes.remove(clave);
+            if (acumulado != null) lote.put(clave, acumulado);
+        }
+
+        List<ConsumoTokens> filas = new ArrayList<>(lote.size());
+        lote.forEach((clave, acumulado) -> {
+            ConsumoTokens fila = new ConsumoTokens();
+            fila.setUsuario(clave.usuario());
+            fila.setSesion(clave.sesion());
+            fila.setModelo(clave.modelo());
+            fila.setDia(diaVolcado);
+            fila.setLlamadas(acumulado.llamadas());
+            fila.setPromptTokens(acumulado.promptTokens());
+            fila.setCompletionTokens(acumulado.completionTokens());
+            fila.setTotalTokens(acumulado.totalTokens());
+            filas.add(fila);
+        });
+
+        try {
+            repository.saveAll(filas);
+            logger.debug("📊 Volcadas {} líneas de consumo de tokens", filas.size());
+        } catch (Exception e) {
+            logger.warn("No se pudo volcar el consumo de tokens ({} líneas), se reintentará: {}", filas.size(), e.getMessage());
+            lote.forEach((clave, acumulado) -> pendientes.merge(clave, acumulado, Acumulado::sumar));
+        }
+    }
+
+    private void comprobarCambioDeDia() {
+        LocalDate hoy = LocalDate.now(reloj);
+        if (hoy.equals(dia)) return;
+        synchronized (this) {
+            if (hoy.equals(dia)) return;
+            // Lo pendiente pertenece al día anterior: se vuelca antes de reiniciar los contadores
+            volcar();
+            consumoHoy.clear();
+            totalHoyPorUsuario.clear();
+            dia = hoy;
+            logger.info("📊 Nuevo día de consumo de tokens: {}", hoy);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.ejemplo.chatgptwebhook.service;
+
+import com.ejemplo.chatgptwebhook.datastructures.GrafoAciclico;
+import com.ejemplo.chatgptwebhook.entities.Task;
+import com.ejemplo.chatgptwebhook.entities.TaskDependency;
+import com.ejemplo.chatgptwebhook.model.CaminoCriticoDto;
+import com.ejemplo.chatgptwebhook.model.TaskDto;
+import com.ejemplo.chatgptwebhook.repository.TaskDependencyRepository;
+import com.ejemplo.chatgptwebhook.repository.TaskRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dependencias entre las tareas de un proyecto (tabla task_dependencies) sobre un {@link GrafoAciclico}
+ * por proyecto: rechaza al insertar las dependencias que cerrarían un ciclo y responde en tiempo lineal
+ * el orden topológico, el camino crítico (por horas estimadas) y las tareas listas para empezar.
+ * Los grafos se montan desde BD la primera vez y se guardan en una caché LRU de proyectos.
+ *
+ * Montar un grafo, comprobar una arista y guardarla se hacen bajo el cerrojo del proyecto, que no
+ * vive en la caché: si el grafo se expulsa mientras otro hilo añade una dependencia, el que lo vuelve
+ * a montar espera a que esa fila esté en BD y no puede aceptar la arista contraria (un ciclo).
+ */
+@Service
+public class DependenciasTareasService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DependenciasTareasService.class);
+
+    static final String COMPLETADA = "completada";
+    // Duración de las tareas sin estimación en el camino crítico
+    private static final int HORAS_POR_DEFECTO = 1;
+    // Cerrojos por proyecto repartidos en franjas: memoria fija y nunca se expulsan
+    private static final int FRANJAS_CERROJO = 64;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private TaskDependencyRepository taskDependencyRepository;
+
+    @Value("${tareas.dependencias.max-proyectos-cache:200}")
+    private int maxProyectosCache = 200;
+
+    // Grafo por proyecto en orden de acceso, para expulsar el menos usado.
+    // El mapa se protege con su monitor y cada grafo con el suyo
+    private final LinkedHashMap<Long, GrafoAciclico<Long>> grafos = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, GrafoAciclico<Long>> mayor) {
+            return size() > maxProyectosCache;
+        }
+    };
+
+    private final Object[] cerrojos = new Object[FRANJAS_CERROJO];
+
+    {
+        for (int i = 0; i < cerrojos.length; i++) cerrojos[i] = new Object();
+    }
+
+    /**
+     * Registra que taskId depende de dependsOnTaskId; false si ya existía.
+     *
+     * @throws IllegalArgumentException si alguna tarea no existe o no es del proyecto, o si se crearía un ciclo
+     */
+    public boolean agregarDependencia(Long projectId, Long taskId, Long dependsOnTaskId) {
+        if (projectId == null) throw new IllegalArgumentException("projectId es requerido");
+        if (taskId == null || dependsOnTaskId == null) {
+            throw new IllegalArgumentException("taskId y dependsOnTaskId son requeridos");
+        }
+        Task task = tareaDelProyecto(projectId, taskId);
+        Task dependsOn = tareaDelProyecto(projectId, dependsOnTaskId);
+
+        synchronized (cerrojo(projectId)) {
+            GrafoAciclico<Long> grafo = grafo(projectId, null);
+            synchronized (grafo) {
+                // Lanza CicloException (IllegalArgumentException) sin tocar el grafo si cerraría un ciclo
+                if (!grafo.agregarArista(dependsOnTaskId, taskId)) {
+                    return false;
+                }
+                try {
+                    taskDependencyRepository.save(new TaskDependency(task, dependsOn));
+                } catch (RuntimeException e) {
+                    grafo.eliminarArista(dependsOnTaskId, taskId);
+                    throw e;
+                }
+            }
+        }
+        logger.info("🔗 Tarea {} depende ahora de {} (proyecto {})", taskId, dependsOnTaskId, projectId);
+        return true;
+    }
+
+    public boolean eliminarDependencia(Long projectId, Long taskId, Long dependsOnTaskId) {
+        if (projectId == null) throw new IllegalArgumentException("projectId es requerido");
+        if (taskId == null || dependsOnTaskId == null) {
+            throw new IllegalArgumentException("taskId y dependsOnTaskId son requeridos");
+        }
+        synchronized (cerrojo(projectId)) {
+            int borradas = taskDependencyRepository.deleteDependencia(taskId, dependsOnTaskId);
+            GrafoAciclico<Long> grafo;
+            synchronized (grafos) {
+                grafo = grafos.get(projectId);
+            }
+            if (grafo != null) {
+                synchronized (grafo) {
+                    grafo.eliminarArista(dependsOnTaskId, taskId);
+                }
+            }
+            return borradas > 0;
+        }
+    }
+
+    /**
+     * Tareas del proyecto en un orden que respeta todas las dependencias
+     */
+    public List<TaskDto> ordenTopologico(Long projectId) {
+        Map<Long, Task> tareas = tareasDelProyecto(projectId);
+        GrafoAciclico<Long> grafo = grafo(projectId, tareas);
+        List<Long> ids = new ArrayList<>();
+        synchronized (grafo) {
+            grafo.ordenTopologico().forEach(ids::add);
+        }
+        return aDtos(ids, tareas);
+    }
+
+    /**
+     * Cadena de dependencias con más horas estimadas: su duración es el mínimo para terminar el proyecto
+     */
+    public CaminoCriticoDto caminoCritico(Long projectId) {
+        Map<Long, Task> tareas = tareasDelProyecto(projectId);
+        GrafoAciclico<Long> grafo = grafo(projectId, tareas);
+        GrafoAciclico.CaminoCritico<Long> camino;
+        synchronized (grafo) {
+            camino = grafo.caminoCritico(id -> {
+                Task t = tareas.get(id);
+                return t != null && t.getEstimatedHours() != null ? t.getEstimatedHours() : HORAS_POR_DEFECTO;
+            });
+        }
+        List<Long> ids = new ArrayList<>();
+        camino.vertices().forEach(ids::add);
+
+        CaminoCriticoDto dto = new CaminoCriticoDto();
+        dto.setTareas(aDtos(ids, tareas));
+        dto.setHorasTotales(camino.duracion());
+        return dto;
+    }
+
+    /**
+     * Tareas sin completar cuyas dependencias están todas completadas
+     */
+    public List<TaskDto> tareasListas(Long projectId) {
+        Map<Long, Task> tareas = tareasDelProyecto(projectId);
+        GrafoAciclico<Long> grafo = grafo(projectId, tareas);
+        List<Long> ids = new ArrayList<>();
+        synchronized (grafo) {
+            grafo.listos(id -> {
+                Task t = tareas.get(id);
+                // Una dependencia a una tarea ya borrada no bloquea
+                return t == null || COMPLETADA.equalsIgnoreCase(t.getStatus());
+            }).forEach(ids::add);
+        }
+        return aDtos(ids, tareas);
+    }
+
+    private Task tareaDelProyecto(Long projectId, Long taskId) {
+        Task task = taskRepository.findById(taskId)
+                .orElseThrow(() -> new IllegalArgumentException("Tarea no encontrada: " + taskId));
+        if (task.getProject() == null || !projectId.equals(task.getProject().getId())) {
+            throw new IllegalArgumentException("La tarea " + taskId + " no pertenece al proyecto " + projectId);
+        }
+        return task;
+    }
+
+    private Map<Long, Task> tareasDelProyecto(Long projectId) {
+        if (projectId == null) throw new IllegalArgumentException("projectId es requerido");
+        Map<Long, Task> porId = new HashMap<>();
+        for (Task t : taskRepository.findByProjectId(projectId)) {
+            porId.put(t.getId(), t);
+        }
+        return porId;
+    }
+
+    // Grafo del proyecto desde la caché o desde BD; da de alta las tareas creadas desde que se montó
+    private GrafoAciclico<Long> grafo(Long projectId, Map<Long, Task> tareas) {
+        GrafoAciclico<Long> grafo;
+        synchronized (grafos) {
+            grafo = grafos.get(projectId);
+        }
+        if (grafo == null) {
+            // Bajo el cerrojo del proyecto ninguna dependencia está a medio guardar mientras se lee la BD
+            synchronized (cerrojo(projectId)) {
+                synchronized (grafos) {
+                    grafo = grafos.get(projectId);
+                }
+                if (grafo == null) {
+                    grafo = cargar(projectId, tareas != null ? tareas : tareasDelProyecto(projectId));
+                    synchronized (grafos) {
+                        grafos.put(projectId, grafo);
+                    }
+                }
+            }
+        }
+        if (tareas != null) {
+            synchronized (grafo) {
+                for (Long id : tareas.keySet()) {
+                    grafo.agregarVertice(id);
+                }
+            }
+        }
+        return grafo;
+    }
+
+    private Object cerrojo(Long projectId) {
+        return cerrojos[Math.floorMod(Long.hashCode(projectId), FRANJAS_CERROJO)];
+    }
+
+    private GrafoAciclico<Long> cargar(Long projectId, Map<Long, Task> tareas) {
+        long inicio = System.nanoTime();
+        GrafoAciclico<Long> grafo = new GrafoAciclico<>();
+        tareas.keySet().stream().sorted().forEach(grafo::agregarVertice);
+        List<TaskDependencyRepository.Arista> aristas = taskDependencyRepository.findAristasByProjectId(projectId);
+        for (TaskDependencyRepository.Arista a : aristas) {
+            try {
+                grafo.agregarArista(a.getDependsOnId(), a.getTaskId());
+            } catch (GrafoAciclico.CicloException e) {
+                // Solo posible si se insertaron filas a mano en BD: se ignora la arista que cierra el ciclo
+                logger.warn("Dependencia {} -> {} ignorada en el proyecto {}: {}",
+                        a.getDependsOnId(), a.getTaskId(), projectId, e.getMessage());
+            }
+        }
+        logger.info("🧭 Grafo de dependencias del proyecto {} cargado: {} tareas, {} dependencias en {} ms",
+                projectId, grafo.numeroVertices(), grafo.numeroAristas(), (System.nanoTime() - inicio) / 1_000_000);
+        return grafo;
+    }
+
+    private static List<TaskDto> aDtos(List<Long> ids, Map<Long, Task> tareas) {
+        List<TaskDto> dtos = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Task task = tareas.get(id);
+            if (task == null) continue; // Borrada en BD desde que se montó el grafo
+            dtos.add(ProjectService.toTaskDto(task));
+        }
+        return dtos;
+    }
+}
@@ -0,0 +1,297 @@
+package com.ejemplo.chatgptwebhook.service;
+
+import com.ejemplo.chatgptwebhook.datastructures.ColaMpsc;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Envío en segundo plano de los correos de verificación de registro.
+ * El registro solo encola (en {@link ColaMpsc}, sin esperar al correo); un hilo de despacho vacía
+ * la cola cada correo.despacho.intervalo-ms en lotes de como mucho tamano-lote, y cada envío ocupa
+ * uno de max-concurrentes permisos, así que un pico de altas no inunda el {@link TransporteCorreo}:
+ * lo que no cabe espera en la cola (o en su fichero de desborde).
+ * Los fallos se reintentan con backoff exponencial y jitter hasta max-intentos; los permanentes
+ * (dirección no válida, rechazo 5xx) se abandonan al primer intento.
+ * Al apagar, lo pendiente se guarda en el fichero de desborde y se envía en el siguiente arranque.
+ */
+@Component
+public class DespachadorCorreosVerificacion {
+
+    private static final Logger logger = LoggerFactory.getLogger(DespachadorCorreosVerificacion.class);
+
+    static final String ASUNTO = "Verifica tu cuenta de HomeworkClick";
+
+    // Un correo por enviar; encoladoMs viaja con él (también a disco) para medir la latencia de extremo a extremo
+    private record Pendiente(String email, long encoladoMs, int intentos, long listoMs) {}
+
+    private final TransporteCorreo transporte;
+    private final ColaMpsc<Pendiente> cola;
+    // Reintentos programados, por instante en que vuelven a estar listos (protegido por su monitor)
+    private final PriorityQueue<Pendiente> reintentos = new PriorityQueue<>(Comparator.comparingLong(Pendiente::listoMs));
+    private final Semaphore permisos;
+    private final Executor envio;
+    private final Clock reloj;
+
+    private final int tamañoLote;
+    private final int maxConcurrentes;
+    private final int maxIntentos;
+    private final long backoffBaseMs;
+    private final long backoffMaxMs;
+    private final long intervaloMs;
+
+    private final Counter enviados;
+    private final Counter fallos;
+    private final Counter abandonados;
+    private final Timer latencia;
+    private final Timer duracionEnvio;
+    private final AtomicInteger enVuelo = new AtomicInteger();
+
+    private ScheduledExecutorService despacho;
+
+    public DespachadorCorreosVerificacion(TransporteCorreo transporte,
+                                          @Value("${correo.cola.capacidad:4096}") int capacidadCola,
+                                          @Value("${correo.cola.fichero-desborde:data/correos-verificacion.desborde}") String ficheroDesborde,
+                                          @Value("${correo.despacho.tamano-lote:50}") int tamañoLote,
+                                          @Value("${correo.despacho.max-concurrentes:4}") int maxConcurrentes,
+                                          @Value("${correo.despacho.max-intentos:5}") int maxIntentos,
+                                          @Value("${correo.despacho.backoff-base-ms:2000}") long backoffBaseMs,
+                                          @Value("${correo.despacho.backoff-max-ms:300000}") long backoffMaxMs,
+                                          @Value("${correo.despacho.intervalo-ms:500}") long intervaloMs,
+                                          MeterRegistry meterRegistry) {
+        this(transporte, capacidadCola, Paths.get(ficheroDesborde), tamañoLote, maxConcurrentes, maxIntentos,
+                backoffBaseMs, backoffMaxMs, intervaloMs, crearEjecutorEnvio(maxConcurrentes),
+                meterRegistry, Clock.systemUTC());
+    }
+
+    DespachadorCorreosVerificacion(TransporteCorreo transporte, int capacidadCola, Path ficheroDesborde,
+                                   int tamañoLote, int maxConcurrentes, int maxIntentos,
+                                   long backoffBaseMs, long backoffMaxMs, long intervaloMs,
+                                   Executor envio, MeterRegistry meterRegistry, Clock reloj) {
+        if (tamañoLote < 1 || maxConcurrentes < 1 || maxIntentos < 1) {
+            throw new IllegalArgumentException("tamano-lote, max-concurrentes y max-intentos deben ser >= 1");
+        }
+        this.transporte = transporte;
+        this.cola = new ColaMpsc<>(capacidadCola, ficheroDesborde,
+                p -> p.encoladoMs() + " " + p.intentos() + " " + p.email(),
+                DespachadorCorreosVerificacion::leerPendiente);
+        this.tamañoLote = tamañoLote;
+        this.maxConcurrentes = maxConcurrentes;
+        this.maxIntentos = maxIntentos;
+        this.backoffBaseMs = backoffBaseMs;
+        this.backoffMaxMs = backoffMaxMs;
+        this.intervaloMs = intervaloMs;
+        this.permisos = new Semaphore(maxConcurrentes);
+        this.envio = envio;
+        this.reloj = reloj;
+
+        this.enviados = Counter.builder("correos.verificacion.enviados").register(meterRegistry);
+        this.fallos = Counter.builder("correos.verificacion.fallos").register(meterRegistry);
+        this.abandonados = Counter.builder("correos.verificacion.abandonados").register(meterRegistry);
+        this.latencia = Timer.builder("correos.verificacion.latencia")
+                .description("Desde el registro hasta la entrega al transporte").register(meterRegistry);
+        this.duracionEnvio = Timer.builder("correos.verificacion.envio").register(meterRegistry);
+        Gauge.builder("correos.verificacion.cola", cola, ColaMpsc::tamaño).register(meterRegistry);
+        Gauge.builder("correos.verificacion.reintentos", this, DespachadorCorreosVerificacion::getReintentosPendientes)
+                .register(meterRegistry);
+        Gauge.builder("correos.verificacion.en_vuelo", enVuelo, AtomicInteger::get).register(meterRegistry);
+    }
+
+    private static ExecutorService crearEjecutorEnvio(int hilos) {
+        AtomicInteger contador = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, hilos), r -> {
+            Thread t = new Thread(r, "correos-envio-" + contador.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private static Pendiente leerPendiente(String linea) {
+        String[] partes = linea.split(" ", 3);
+        return new Pendiente(partes[2], Long.parseLong(partes[0]), Integer.parseInt(partes[1]), 0);
+    }
+
+    @PostConstruct
+    void iniciar() {
+        int recuperados = cola.tamaño();
+        if (recuperados > 0) {
+            logger.info("📬 {} correos de verificación pendientes recuperados del disco", recuperados);
+        }
+        despacho = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "correos-despacho");
+            t.setDaemon(true);
+            return t;
+        });
+        despacho.scheduleWithFixedDelay(this::despacharSinFallar, intervaloMs, intervaloMs, TimeUnit.MILLISECONDS);
+        logger.info("📮 Despachador de correos de verificación iniciado (transporte: {}, lote {}, {} envíos simultáneos)",
+                transporte.getNombre(), tamañoLote, maxConcurrentes);
+    }
+
+    @PreDestroy
+    void detener() throws InterruptedException {
+        boolean despachoParado = despacho == null || parar(despacho, 5);
+        if (envio instanceof ExecutorService ejecutor && !parar(ejecutor, 10)) {
+            logger.warn("⚠️ Quedan envíos de verificación en curso al apagar; sus reintentos no se guardarán");
+        }
+        // Lo que no llegó a enviarse se guarda para el próximo arranque
+        int guardados;
+        synchronized (reintentos) {
+            guardados = reintentos.size();
+            Pendiente p;
+            while ((p = reintentos.poll()) != null) {
+                cola.desbordar(p);
+            }
+        }
+        if (despachoParado) {
+            guardados += cola.volcarADisco();
+        } else {
+            // La cola tiene un único consumidor: sin la certeza de que el despacho paró no se toca el anillo
+            logger.error("❌ El despacho de correos no se detuvo; lo que queda en memoria en la cola se pierde");
+        }
+        if (guardados > 0) {
+            logger.info("💾 {} correos de verificación pendientes guardados en disco", guardados);
+        }
+    }
+
+    // shutdown y, si no basta, shutdownNow; true si el ejecutor terminó
+    private static boolean parar(ExecutorService ejecutor, long segundos) throws InterruptedException {
+        ejecutor.shutdown();
+        if (ejecutor.awaitTermination(segundos, TimeUnit.SECONDS)) return true;
+        ejecutor.shutdownNow();
+        return ejecutor.awaitTermination(segundos, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Encola el correo de verificación de un usuario recién registrado. No espera al envío.
+     */
+    public void encolar(String email) {
+        cola.encolar(new Pendiente(email, reloj.millis(), 0, 0));
+    }
+
+    private void despacharSinFallar() {
+        try {
+            despachar();
+        } catch (Exception e) {
+            logger.error("Error en el despacho de correos de verificación: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Un ciclo de despacho: primero los reintentos ya vencidos y luego la cola, sin pasar del lote
+     * ni de los permisos de envío libres. Solo desde un hilo a la vez (la cola tiene un único consumidor).
+     */
+    void despachar() {
+        long ahora = reloj.millis();
+        int libres = Math.min(tamañoLote, permisos.availablePermits());
+        while (libres > 0) {
+            Pendiente p;
+            synchronized (reintentos) {
+                p = reintentos.peek();
+                if (p == null || p.listoMs() > ahora) break;
+                reintentos.poll();
+            }
+            lanzar(p);
+            libres--;
+        }
+        if (libres > 0) {
+            cola.drenar(this::lanzar, libres);
+        }
+    }
+
+    private void lanzar(Pendiente p) {
+        // Solo este hilo adquiere permisos y ya contó los libres: no llega a bloquearse
+        permisos.acquireUninterruptibly();
+        enVuelo.incrementAndGet();
+        try {
+            envio.execute(() -> enviar(p));
+        } catch (RejectedExecutionException e) {
+            // Apagando: se devuelve a reintentos para guardarlo en disco
+            enVuelo.decrementAndGet();
+            permisos.release();
+            synchronized (reintentos) {
+                reintentos.add(p);
+            }
+        }
+    }
+
+    private void enviar(Pendiente p) {
+        long inicio = System.nanoTime();
+        try {
+            transporte.enviar(p.email(), ASUNTO, cuerpo(p.email()));
+            duracionEnvio.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+            latencia.record(Math.max(0, reloj.millis() - p.encoladoMs()), TimeUnit.MILLISECONDS);
+            enviados.increment();
+        } catch (Exception e) {
+            fallos.increment();
+            int intentos = p.intentos() + 1;
+            if (e instanceof IllegalArgumentException || e instanceof TransporteCorreo.RechazoPermanenteException) {
+                abandonados.increment();
+                logger.error("📭 Correo de verificación a {} rechazado de forma permanente, no se reintenta: {}",
+                        p.email(), e.getMessage());
+            } else if (intentos >= maxIntentos) {
+                abandonados.increment();
+                logger.error("📭 Correo de verificación a {} abandonado tras {} intentos: {}", p.email(), intentos, e.getMessage());
+            } else {
+                long espera = backoff(intentos);
+                logger.warn("✉️ Fallo enviando verificación a {} (intento {}), reintento en {} ms: {}",
+                        p.email(), intentos, espera, e.getMessage());
+                synchronized (reintentos) {
+                    reintentos.add(new Pendiente(p.email(), p.encoladoMs(), intentos, reloj.millis() + espera));
+                }
+            }
+        } finally {
+            enVuelo.decrementAndGet();
+            permisos.release();
+        }
+    }
+
+    // Exponencial desde backoff-base-ms con tope en backoff-max-ms; jitter en la mitad superior
+    long backoff(int intentos) {
+        long espera = backoffBaseMs << Math.min(20, intentos - 1);
+        if (espera <= 0 || espera > backoffMaxMs) espera = backoffMaxMs;
+        return espera / 2 + ThreadLocalRandom.current().nextLong(espera / 2 + 1);
+    }
+
+    private static String cuerpo(String email) {
+        return "Hola,\n\n"
+                + "Gracias por registrarte en HomeworkClick con la dirección " + email + ".\n"
+                + "Confirma tu correo para activar tu cuenta.\n\n"
+                + "Si no has sido tú, puedes ignorar este mensaje.";
+    }
+
+    public int getTamañoCola() {
+        return cola.tamaño();
+    }
+
+    public int getReintentosPendientes() {
+        synchronized (reintentos) {
+            return reintentos.size();
+        }
+    }
+
+    public int getEnVuelo() {
+        return enVuelo.get();
+    }
+}
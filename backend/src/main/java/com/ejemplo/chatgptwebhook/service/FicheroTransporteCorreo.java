@@ -0,0 +1,44 @@
+package com.ejemplo.chatgptwebhook.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+/**
+ * Transporte local (correo.transporte=fichero, por defecto): anexa cada mensaje a un fichero
+ * en lugar de enviarlo, para desarrollo y CI sin servidor de correo.
+ */
+@Component
+@ConditionalOnProperty(name = "correo.transporte", havingValue = "fichero", matchIfMissing = true)
+public class FicheroTransporteCorreo implements TransporteCorreo {
+
+    private final Path fichero;
+
+    public FicheroTransporteCorreo(@Value("${correo.fichero.ruta:data/correos-enviados.log}") String ruta) {
+        this.fichero = Paths.get(ruta);
+    }
+
+    @Override
+    public String getNombre() {
+        return "fichero";
+    }
+
+    @Override
+    public synchronized void enviar(String destinatario, String asunto, String cuerpo) throws IOException {
+        String mensaje = "--- " + Instant.now() + "\n"
+                + "Para: " + destinatario + "\n"
+                + "Asunto: " + asunto + "\n\n"
+                + cuerpo + "\n";
+        if (fichero.getParent() != null) Files.createDirectories(fichero.getParent());
+        Files.writeString(fichero, mensaje, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,277 @@
+package com.ejemplo.chatgptwebhook.service;
+
+import com.ejemplo.chatgptwebhook.model.GeneracionJob;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Servicio de trabajos asíncronos para la generación de proyectos con ChatGPT.
+ * Devuelve un id de trabajo al instante, ejecuta la generación en un pool acotado
+ * y deduplica por sesión + idea para que los reintentos se unan al trabajo en curso.
+ */
+@Service
+public class GeneracionJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeneracionJobService.class);
+
+    @Autowired
+    private MenuService menuService;
+
+    @Value("${menu.jobs.hilos:8}")
+    private int hilos;
+
+    @Value("${menu.jobs.max-cola:200}")
+    private int maxCola;
+
+    @Value("${menu.jobs.timeout-segundos:180}")
+    private long timeoutSegundos;
+
+    @Value("${menu.jobs.retencion-minutos:30}")
+    private long retencionMinutos;
+
+    // Hosts admitidos para callbackUrl (también sus subdominios); vacío = cualquier host con IP pública
+    @Value("${menu.jobs.callback.hosts-permitidos:}")
+    private String hostsPermitidosConfig = "";
+
+    /**
+     * Resolución DNS de los hosts de callback (sustituible en pruebas)
+     */
+    @FunctionalInterface
+    interface ResolutorDns {
+        InetAddress[] resolver(String host) throws UnknownHostException;
+    }
+
+    private ResolutorDns resolutor = InetAddress::getAllByName;
+    private Set<String> hostsPermitidos = Set.of();
+
+    // Todos los trabajos por id (en curso y terminados hasta que expira la retención)
+    private final Map<String, GeneracionJob> jobs = new ConcurrentHashMap<>();
+    // Trabajos en curso por clave de deduplicación (sessionId + idea normalizada)
+    private final Map<String, GeneracionJob> jobsEnCursoPorClave = new ConcurrentHashMap<>();
+
+    private final WebClient callbackClient = WebClient.create();
+
+    private ThreadPoolExecutor workers;
+    private ScheduledExecutorService limpieza;
+
+    @PostConstruct
+    void iniciar() {
+        Set<String> permitidos = new HashSet<>();
+        if (hostsPermitidosConfig != null) {
+            for (String host : hostsPermitidosConfig.split(",")) {
+                if (!host.isBlank()) permitidos.add(host.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        hostsPermitidos = permitidos;
+        AtomicInteger contador = new AtomicInteger();
+        workers = new ThreadPoolExecutor(
+                hilos, hilos, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(maxCola),
+                r -> {
+                    Thread t = new Thread(r, "generacion-job-" + contador.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        limpieza = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "generacion-job-limpieza");
+            t.setDaemon(true);
+            return t;
+        });
+        limpieza.scheduleAtFixedRate(this::eliminarJobsExpirados, 1, 1, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    void detener() {
+        if (workers != null) workers.shutdownNow();
+        if (limpieza != null) limpieza.shutdownNow();
+    }
+
+    /**
+     * Envía una idea de proyecto para generarse en segundo plano.
+     * Si ya hay un trabajo en curso para la misma sesión e idea, devuelve ese trabajo.
+     *
+     * @throws IllegalArgumentException si la idea está vacía o callbackUrl no es un destino admitido
+     * @throws IllegalStateException si la cola de trabajos está llena
+     */
+    public GeneracionJob enviar(String sessionId, String idea, String callbackUrl) {
+        if (idea == null || idea.isBlank()) {
+            throw new IllegalArgumentException("La idea del proyecto es requerida");
+        }
+        if (callbackUrl != null && !callbackUrl.isBlank()) {
+            validarCallbackUrl(callbackUrl);
+        }
+        String sid = (sessionId == null || sessionId.isBlank()) ? "default_session" : sessionId;
+        String ideaLimpia = idea.trim();
+        String clave = claveDeduplicacion(sid, ideaLimpia);
+
+        GeneracionJob[] creado = new GeneracionJob[1];
+        GeneracionJob job = jobsEnCursoPorClave.computeIfAbsent(clave, k -> {
+            creado[0] = new GeneracionJob(UUID.randomUUID().toString(), sid, ideaLimpia, callbackUrl);
+            // Visible por id antes que por clave: un reintento simultáneo nunca recibe un id que dé 404
+            jobs.put(creado[0].getId(), creado[0]);
+            return creado[0];
+        });
+
+        if (creado[0] == null) {
+            logger.info("🔁 Reintento unido al trabajo en curso {} (sesión {})", job.getId(), sid);
+            return job;
+        }
+
+        try {
+            workers.execute(() -> ejecutar(job, clave));
+        } catch (RejectedExecutionException ex) {
+            jobsEnCursoPorClave.remove(clave, job);
+            jobs.remove(job.getId(), job);
+            job.fallar("Cola de generación llena");
+            logger.warn("⚠️ Trabajo {} rechazado: cola de generación llena ({} en espera)", job.getId(), workers.getQueue().size());
+            throw new IllegalStateException("Hay demasiadas generaciones en curso. Inténtalo más tarde.");
+        }
+
+        logger.info("🗂️ Trabajo de generación {} encolado para sesión {}", job.getId(), sid);
+        return job;
+    }
+
+    public GeneracionJob obtener(String jobId) {
+        return jobId == null ? null : jobs.get(jobId);
+    }
+
+    private void ejecutar(GeneracionJob job, String clave) {
+        job.marcarEnProceso();
+        try {
+            String resultado = menuService
+                    .procesarOpcionWebConDatosYSesion(1, job.getIdea(), job.getSessionId())
+                    .block(Duration.ofSeconds(timeoutSegundos));
+            job.completar(resultado);
+            logger.info("✅ Trabajo de generación {} completado", job.getId());
+        } catch (Exception ex) {
+            logger.error("❌ Trabajo de generación {} falló: {}", job.getId(), ex.getMessage(), ex);
+            job.fallar(ex.getMessage() != null ? ex.getMessage() : ex.getClass().getSimpleName());
+        } finally {
+            jobsEnCursoPorClave.remove(clave, job);
+            notificarCallback(job);
+        }
+    }
+
+    private void notificarCallback(GeneracionJob job) {
+        String url = job.getCallbackUrl();
+        if (url == null || url.isBlank()) return;
+        try {
+            // Se vuelve a comprobar al enviar: el DNS del host puede haber cambiado desde que se aceptó
+            validarCallbackUrl(url);
+        } catch (IllegalArgumentException e) {
+            logger.warn("⚠️ Callback del trabajo {} descartado: {}", job.getId(), e.getMessage());
+            return;
+        }
+
+        callbackClient.post()
+                .uri(url)
+                .bodyValue(job)
+                .retrieve()
+                .toBodilessEntity()
+                .timeout(Duration.ofSeconds(10))
+                .subscribe(
+                        r -> logger.info("📣 Callback de trabajo {} enviado a {} ({})", job.getId(), url, r.getStatusCode()),
+                        ex -> logger.warn("⚠️ No se pudo notificar el trabajo {} a {}: {}", job.getId(), url, ex.getMessage()));
+    }
+
+    /**
+     * Solo http(s) hacia hosts permitidos cuyas direcciones sean todas públicas: evita que un cliente
+     * use el callback para que el servidor haga peticiones a servicios internos (SSRF)
+     *
+     * @throws IllegalArgumentException si la URL no es un destino admitido
+     */
+    void validarCallbackUrl(String url) {
+        URI uri;
+        try {
+            uri = new URI(url.trim());
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("callbackUrl no es una URL válida");
+        }
+        String esquema = uri.getScheme() == null ? "" : uri.getScheme().toLowerCase(Locale.ROOT);
+        if (!esquema.equals("http") && !esquema.equals("https")) {
+            throw new IllegalArgumentException("callbackUrl debe usar http o https");
+        }
+        if (uri.getRawUserInfo() != null) {
+            throw new IllegalArgumentException("callbackUrl no puede llevar credenciales");
+        }
+        String host = uri.getHost();
+        if (host == null || host.isBlank()) {
+            throw new IllegalArgumentException("callbackUrl debe indicar un host");
+        }
+        host = host.toLowerCase(Locale.ROOT);
+        if (host.startsWith("[") && host.endsWith("]")) host = host.substring(1, host.length() - 1);
+        if (!hostsPermitidos.isEmpty() && !hostPermitido(host)) {
+            throw new IllegalArgumentException("callbackUrl apunta a un host no permitido: " + host);
+        }
+
+        InetAddress[] direcciones;
+        try {
+            direcciones = resolutor.resolver(host);
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("No se pudo resolver el host de callbackUrl: " + host);
+        }
+        for (InetAddress direccion : direcciones) {
+            if (esDireccionInterna(direccion)) {
+                throw new IllegalArgumentException("callbackUrl apunta a una dirección interna: " + host);
+            }
+        }
+    }
+
+    private boolean hostPermitido(String host) {
+        for (String permitido : hostsPermitidos) {
+            if (host.equals(permitido) || host.endsWith("." + permitido)) return true;
+        }
+        return false;
+    }
+
+    static boolean esDireccionInterna(InetAddress direccion) {
+        if (direccion.isAnyLocalAddress() || direccion.isLoopbackAddress() || direccion.isLinkLocalAddress()
+                || direccion.isSiteLocalAddress() || direccion.isMulticastAddress()) {
+            return true;
+        }
+        byte[] b = direccion.getAddress();
+        if (direccion instanceof Inet6Address) {
+            // fc00::/7 (direcciones locales únicas)
+            return (b[0] & 0xfe) == 0xfc;
+        }
+        // 100.64.0.0/10 (CGNAT) y 0.0.0.0/8
+        return ((b[0] & 0xff) == 100 && (b[1] & 0xc0) == 64) || b[0] == 0;
+    }
+
+    private void eliminarJobsExpirados() {
+        Instant limite = Instant.now().minus(Duration.ofMinutes(retencionMinutos));
+        jobs.values().removeIf(j -> j.isTerminado() && j.getFinalizadoEn() != null && j.getFinalizadoEn().isBefore(limite));
+    }
+
+    private String claveDeduplicacion(String sessionId, String idea) {
+        return sessionId + "|" + idea.toLowerCase().replaceAll("\\s+", " ");
+    }
+}
@@ -0,0 +1,92 @@
+package com.ejemplo.chatgptwebhook.service;
+
+import com.ejemplo.chatgptwebhook.datastructures.IndiceInvertido;
+import com.ejemplo.chatgptwebhook.datastructures.MapaLong;
+import com.ejemplo.chatgptwebhook.entities.Task;
+import com.ejemplo.chatgptwebhook.repository.TaskRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Búsqueda de texto completo sobre títulos y descripciones de las tareas guardadas, con un
+ * {@link IndiceInvertido} (BM25) por admin: cada admin solo busca en las tareas de sus proyectos.
+ * Se construye desde TaskRepository al arrancar y ProjectService lo actualiza al crear o editar tareas.
+ */
+@Component
+public class IndiceTareas implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndiceTareas.class);
+    private static final int TAMANO_LOTE = 1000;
+
+    private final TaskRepository taskRepository;
+
+    // Índice por admin; protegido por su propio monitor (cada índice se sincroniza aparte)
+    private final MapaLong<IndiceInvertido> indices = new MapaLong<>();
+
+    public IndiceTareas(TaskRepository taskRepository) {
+        this.taskRepository = taskRepository;
+    }
+
+    @Override
+    public void run(String... args) {
+        long inicio = System.nanoTime();
+        int tareas = 0;
+        Pageable pagina = PageRequest.of(0, TAMANO_LOTE);
+        Slice<TaskRepository.TareaIndexable> lote;
+        do {
+            lote = taskRepository.findParaIndice(pagina);
+            for (TaskRepository.TareaIndexable t : lote) {
+                if (t.getAdminUserId() == null) continue;
+                indexar(t.getAdminUserId(), t.getId(), t.getTitle(), t.getDescription());
+                tareas++;
+            }
+            pagina = lote.nextPageable();
+        } while (lote.hasNext());
+        logger.info("🔎 Índice de búsqueda de tareas construido: {} tareas en {} ms",
+                tareas, (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    /**
+     * Indexa o reindexa una tarea en el índice de su admin
+     */
+    public void indexar(long adminUserId, Task task) {
+        if (task == null || task.getId() == null) return;
+        indexar(adminUserId, task.getId(), task.getTitle(), task.getDescription());
+    }
+
+    private void indexar(long adminUserId, long taskId, String titulo, String descripcion) {
+        // El título cuenta dos veces: pesa más que la descripción en BM25
+        String texto = (titulo != null ? titulo + " " + titulo : "") + " " + (descripcion != null ? descripcion : "");
+        indice(adminUserId).indexar(taskId, texto);
+    }
+
+    /**
+     * Ids de las tareas del admin que mejor encajan con la consulta, de mayor a menor puntuación
+     */
+    public List<Long> buscar(long adminUserId, String consulta, int limite) {
+        IndiceInvertido indice;
+        synchronized (indices) {
+            indice = indices.get(adminUserId);
+        }
+        List<Long> ids = new ArrayList<>();
+        if (indice == null) return ids;
+        for (IndiceInvertido.Resultado r : indice.buscar(consulta, limite)) {
+            ids.add(r.id());
+        }
+        return ids;
+    }
+
+    private IndiceInvertido indice(long adminUserId) {
+        synchronized (indices) {
+            return indices.computeIfAbsent(adminUserId, id -> new IndiceInvertido());
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.ejemplo.chatgptwebhook.service;
+
+import com.ejemplo.chatgptwebhook.datastructures.IndiceTrieDisco;
+import com.ejemplo.chatgptwebhook.datastructures.ListaEnlazada;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Índice persistente por admin de las palabras de nombres de proyecto y títulos de tareas,
+ * para las sugerencias por prefijo. Cada admin tiene su {@link IndiceTrieDisco} en
+ * menu.indice.directorio: sobrevive a los reinicios y se consulta sobre el fichero mapeado.
+ * Las compactaciones corren en un único hilo de fondo, fuera del camino de las peticiones.
+ * Solo se mantienen abiertos los menu.indice.max-abiertos índices usados más recientemente;
+ * el resto se cierran y se reabren desde disco cuando vuelven a hacer falta.
+ * Es auxiliar: un fallo de disco se registra y no interrumpe el flujo del menú.
+ */
+@Component
+public class IndiceTitulos {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndiceTitulos.class);
+    // Cerrojos por admin repartidos en franjas: memoria fija y nunca se expulsan
+    private static final int FRANJAS_CERROJO = 64;
+
+    private final Path directorio;
+    private final int umbralCompactacion;
+    private final int maxAbiertos;
+    private final ExecutorService compactador = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "indice-titulos-compactacion");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Índices abiertos por admin en orden de acceso, para cerrar el menos usado; protegido por su propio monitor.
+    // Bajo ese monitor solo se toca el mapa: abrir (leer el diario) y cerrar (esperar a la compactación)
+    // se hacen fuera, bajo el cerrojo del admin
+    private final LinkedHashMap<Long, IndiceTrieDisco> indices = new LinkedHashMap<>(16, 0.75f, true);
+    // Expulsados aún sin cerrar, protegido por el monitor de indices. Quien reabre un admin cierra
+    // antes el pendiente, así nunca hay dos instancias sobre los mismos ficheros
+    private final Map<Long, IndiceTrieDisco> pendientesDeCerrar = new HashMap<>();
+    private final Object[] cerrojos = new Object[FRANJAS_CERROJO];
+
+    public IndiceTitulos(@Value("${menu.indice.directorio:data/indice-titulos}") String directorio,
+                         @Value("${menu.indice.umbral-compactacion:2000}") int umbralCompactacion,
+                         @Value("${menu.indice.max-abiertos:200}") int maxAbiertos) {
+        if (maxAbiertos < 1) {
+            throw new IllegalArgumentException("menu.indice.max-abiertos debe ser >= 1");
+        }
+        this.directorio = Paths.get(directorio);
+        this.umbralCompactacion = umbralCompactacion;
+        this.maxAbiertos = maxAbiertos;
+        for (int i = 0; i < cerrojos.length; i++) cerrojos[i] = new Object();
+    }
+
+    /**
+     * Indexa las palabras de un texto (nombre de proyecto o título de tarea) para el admin
+     */
+    public void indexar(long adminId, String texto) {
+        if (texto == null || texto.isBlank()) return;
+        indexar(adminId, Arrays.asList(texto.trim().split("\\s+")));
+    }
+
+    public void indexar(long adminId, List<String> palabras) {
+        try {
+            usar(adminId, indice -> {
+                indice.insertar(palabras);
+                return null;
+            });
+        } catch (UncheckedIOException e) {
+            logger.error("❌ No se pudo actualizar el índice de títulos del admin {}", adminId, e);
+        }
+    }
+
+    /**
+     * Las k palabras más frecuentes del admin que empiezan por el prefijo
+     */
+    public ListaEnlazada<String> sugerir(long adminId, String prefijo, int k) {
+        try {
+            return usar(adminId, indice -> indice.buscarPorPrefijo(prefijo, k));
+        } catch (UncheckedIOException e) {
+            logger.error("❌ No se pudo consultar el índice de títulos del admin {}", adminId, e);
+            return new ListaEnlazada<>();
+        }
+    }
+
+    @PreDestroy
+    void detener() throws InterruptedException {
+        // Las compactaciones a medias se retoman al reabrir el índice
+        compactador.shutdown();
+        compactador.awaitTermination(10, TimeUnit.SECONDS);
+        synchronized (indices) {
+            indices.values().forEach(IndiceTrieDisco::close);
+            indices.clear();
+            pendientesDeCerrar.values().forEach(IndiceTrieDisco::close);
+            pendientesDeCerrar.clear();
+        }
+    }
+
+    int abiertos() {
+        synchronized (indices) {
+            return indices.size();
+        }
+    }
+
+    // Si el índice se cerró por expulsión entre obtenerlo y usarlo, se reabre
+    private <T> T usar(long adminId, Function<IndiceTrieDisco, T> operacion) {
+        while (true) {
+            IndiceTrieDisco indice = indice(adminId);
+            try {
+                return operacion.apply(indice);
+            } catch (IllegalStateException e) {
+                if (!indice.estaCerrado()) throw e;
+            }
+        }
+    }
+
+    private IndiceTrieDisco indice(long adminId) {
+        synchronized (indices) {
+            IndiceTrieDisco abierto = indices.get(adminId);
+            if (abierto != null) return abierto;
+        }
+        Map.Entry<Long, IndiceTrieDisco> expulsado;
+        IndiceTrieDisco nuevo;
+        synchronized (cerrojo(adminId)) {
+            // Otro hilo pudo abrirlo mientras se esperaba el cerrojo
+            synchronized (indices) {
+                IndiceTrieDisco abierto = indices.get(adminId);
+                if (abierto != null) return abierto;
+            }
+            cerrarPendiente(adminId);
+            nuevo = new IndiceTrieDisco(directorio, "admin-" + adminId, umbralCompactacion, this::compactarEnFondo);
+            synchronized (indices) {
+                indices.put(adminId, nuevo);
+                expulsado = expulsarMenosUsado();
+            }
+        }
+        // Fuera del cerrojo de este admin: nunca se tienen dos cerrojos a la vez
+        if (expulsado != null) {
+            synchronized (cerrojo(expulsado.getKey())) {
+                cerrarPendiente(expulsado.getKey());
+            }
+        }
+        return nuevo;
+    }
+
+    // Bajo el monitor de indices
+    private Map.Entry<Long, IndiceTrieDisco> expulsarMenosUsado() {
+        if (indices.size() <= maxAbiertos) return null;
+        Iterator<Map.Entry<Long, IndiceTrieDisco>> it = indices.entrySet().iterator();
+        Map.Entry<Long, IndiceTrieDisco> primero = it.next();
+        Map.Entry<Long, IndiceTrieDisco> mayor = Map.entry(primero.getKey(), primero.getValue());
+        it.remove();
+        pendientesDeCerrar.put(mayor.getKey(), mayor.getValue());
+        return mayor;
+    }
+
+    // Bajo el cerrojo del admin: lo cierra quien lo saque primero de pendientes
+    private void cerrarPendiente(long adminId) {
+        IndiceTrieDisco pendiente;
+        synchronized (indices) {
+            pendiente = pendientesDeCerrar.remove(adminId);
+        }
+        if (pendiente != null) pendiente.close();
+    }
+
+    private Object cerrojo(long adminId) {
+        return cerrojos[Math.floorMod(Long.hashCode(adminId), FRANJAS_CERROJO)];
+    }
+
+    private void compactarEnFondo(Runnable compactacion) {
+        compactador.execute(() -> {
+            try {
+                compactacion.run();
+            } catch (UncheckedIOException e) {
+                logger.error("❌ No se pudo compactar el índice de títulos; se reintentará", e);
+            }
+        });
+    }
+}
@@ -0,0 +1,336 @@
+package com.ejemplo.chatgptwebhook.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gobernador local de la cuota de OpenAI: dos token buckets (peticiones por minuto y
+ * tokens por minuto) que se recargan de forma continua.
+ * Cuando no hay saldo, las peticiones esperan en una cola por usuario y se atienden
+ * por turnos (round-robin), de modo que un usuario con muchas generaciones no deja
+ * sin turno a los demás. Un 429 de OpenAI pausa el bucket durante el Retry-After.
+ * El usuario se toma del contexto de Reactor ({@link #CLAVE_USUARIO}).
+ *
+ * Esperas y reintentos de cada llamada comparten un presupuesto de tiempo: el timeout de las
+ * peticiones asíncronas ({@code spring.mvc.async.request-timeout}) menos el timeout de respuesta
+ * de esa llamada, que crece con sus max_tokens. Así el cliente recibe el error de cuota antes de
+ * que su petición caduque.
+ */
+@Component
+public class LimitadorCuotaOpenAi {
+
+    private static final Logger logger = LoggerFactory.getLogger(LimitadorCuotaOpenAi.class);
+
+    public static final String CLAVE_USUARIO = "openai.usuario";
+    static final String USUARIO_ANONIMO = "anonimo";
+
+    private static final long NANOS_POR_MINUTO = TimeUnit.MINUTES.toNanos(1);
+
+    private final boolean habilitado;
+    private final double peticionesPorMinuto;
+    private final double tokensPorMinuto;
+    private final int maxEnEspera;
+    private final Duration esperaMaxima;
+    private final int maxReintentos;
+    private final long backoffBaseMs;
+    private final long backoffMaxMs;
+    private final Duration timeoutPeticion;
+
+    // Estado (protegido por el monitor de this)
+    private double peticionesDisponibles;
+    private double tokensDisponibles;
+    private long ultimaRecarga = System.nanoTime();
+    private long pausadoHasta = ultimaRecarga;
+    private final LinkedHashMap<String, ArrayDeque<Espera>> colas = new LinkedHashMap<>();
+    private int enEspera;
+    private long drenadoProgramadoPara;
+    private boolean drenadoProgramado;
+
+    private final Counter rechazos;
+    private final Counter reintentos;
+
+    public LimitadorCuotaOpenAi(@Value("${openai.cuota.habilitada:true}") boolean habilitado,
+                                @Value("${openai.cuota.peticiones-por-minuto:500}") int peticionesPorMinuto,
+                                @Value("${openai.cuota.tokens-por-minuto:90000}") int tokensPorMinuto,
+                                @Value("${openai.cuota.max-en-espera:1000}") int maxEnEspera,
+                                @Value("${openai.cuota.espera-maxima-ms:60000}") long esperaMaximaMs,
+                                @Value("${openai.cuota.max-reintentos:3}") int maxReintentos,
+                                @Value("${openai.cuota.backoff-base-ms:1000}") long backoffBaseMs,
+                                @Value("${openai.cuota.backoff-max-ms:30000}") long backoffMaxMs,
+                                @Value("${spring.mvc.async.request-timeout:120s}") Duration timeoutPeticion,
+                                MeterRegistry meterRegistry) {
+        this.habilitado = habilitado;
+        this.peticionesPorMinuto = peticionesPorMinuto;
+        this.tokensPorMinuto = tokensPorMinuto;
+        this.maxEnEspera = maxEnEspera;
+        this.esperaMaxima = Duration.ofMillis(esperaMaximaMs);
+        this.maxReintentos = maxReintentos;
+        this.backoffBaseMs = backoffBaseMs;
+        this.backoffMaxMs = backoffMaxMs;
+        this.timeoutPeticion = timeoutPeticion;
+        this.peticionesDisponibles = peticionesPorMinuto;
+        this.tokensDisponibles = tokensPorMinuto;
+
+        this.rechazos = Counter.builder("chatgpt.cuota.rechazos").register(meterRegistry);
+        this.reintentos = Counter.builder("chatgpt.cuota.reintentos").register(meterRegistry);
+        Gauge.builder("chatgpt.cuota.en_espera", this, LimitadorCuotaOpenAi::getEnEspera).register(meterRegistry);
+        Gauge.builder("chatgpt.cuota.tokens_disponibles", this, LimitadorCuotaOpenAi::getTokensDisponibles).register(meterRegistry);
+    }
+
+    /**
+     * Estimación de tokens de una llamada: ~4 caracteres por token del prompt más los tokens de respuesta pedidos.
+     */
+    public static int estimarTokens(String prompt, int maxTokens) {
+        int tokensPrompt = prompt == null ? 0 : (prompt.length() + 3) / 4;
+        return tokensPrompt + Math.max(maxTokens, 0);
+    }
+
+    /**
+     * Reserva una petición y {@code tokens} tokens. Completa en cuanto hay saldo y es el turno del usuario;
+     * falla con {@link ResilienciaOpenAi.OpenAiNoDisponibleException} si la cola está llena o se supera la espera
+     * permitida, que es la máxima configurada o menos si la llamada ({@code timeoutLlamada}) no cabría después.
+     */
+    public Mono<Void> adquirir(int tokens, Duration timeoutLlamada) {
+        if (!habilitado) {
+            return Mono.empty();
+        }
+        Duration espera = esperaPermitida(timeoutLlamada);
+        return Mono.deferContextual(ctx -> adquirir(ctx.getOrDefault(CLAVE_USUARIO, USUARIO_ANONIMO), tokens, espera));
+    }
+
+    Mono<Void> adquirir(String usuario, int tokens) {
+        return adquirir(usuario, tokens, esperaMaxima);
+    }
+
+    private Mono<Void> adquirir(String usuario, int tokens, Duration espera) {
+        // Una petición más grande que el bucket nunca pasaría: se limita a la capacidad total
+        double coste = Math.min(tokens, tokensPorMinuto);
+        return Mono.<Void>create(sink -> encolar(new Espera(usuario, coste, sink)))
+                .timeout(espera, Mono.defer(() -> {
+                    rechazos.increment();
+                    logger.warn("⏳ Espera máxima de cuota de OpenAI superada para {}", usuario);
+                    return Mono.error(new ResilienciaOpenAi.OpenAiNoDisponibleException(
+                            "Cuota de OpenAI agotada: espera máxima superada"));
+                }));
+    }
+
+    /**
+     * Política de reintentos para 429 (y 503): espera lo que indique Retry-After o, si no viene,
+     * un backoff exponencial; en ambos casos con jitter para no reintentar todos a la vez.
+     * Mientras tanto el bucket queda en pausa para el resto de peticiones.
+     * Solo se reintenta si, tras el backoff, aún caben la espera de cuota y la llamada ({@code timeoutLlamada})
+     * dentro del timeout de la petición; si no, se devuelve el error ya.
+     */
+    public Retry politicaReintentos(Duration timeoutLlamada) {
+        long presupuesto = timeoutPeticion.minus(timeoutLlamada).toNanos();
+        long esperaCuota = esperaPermitida(timeoutLlamada).toNanos();
+        // La función se evalúa en cada suscripción: el presupuesto cuenta desde el primer intento de la llamada
+        return Retry.from(señales -> {
+            long inicio = System.nanoTime();
+            return señales.concatMap(señal -> reintentarSiCabe(señal.failure(), señal.totalRetries(),
+                    System.nanoTime() - inicio + esperaCuota, presupuesto));
+        });
+    }
+
+    // Lo que una llamada puede esperar por cuota sin que, sumada a su timeout de respuesta, pase del de la petición
+    Duration esperaPermitida(Duration timeoutLlamada) {
+        Duration presupuesto = timeoutPeticion.minus(timeoutLlamada);
+        if (presupuesto.isNegative()) return Duration.ZERO;
+        return presupuesto.compareTo(esperaMaxima) < 0 ? presupuesto : esperaMaxima;
+    }
+
+    private Mono<Long> reintentarSiCabe(Throwable error, long intento, long ocupadoNanos, long presupuestoNanos) {
+        if (!esReintentable(error) || intento >= maxReintentos) {
+            return Mono.error(error);
+        }
+        Duration espera = calcularEspera((WebClientResponseException) error, intento);
+        if (ocupadoNanos + espera.toNanos() > presupuestoNanos) {
+            logger.warn("⌛ OpenAI respondió {}; sin tiempo para reintentar antes del timeout de la petición",
+                    ((WebClientResponseException) error).getStatusCode().value());
+            return Mono.error(error);
+        }
+        pausar(espera);
+        reintentos.increment();
+        logger.warn("🔁 OpenAI respondió {}; reintento {}/{} en {} ms",
+                ((WebClientResponseException) error).getStatusCode().value(),
+                intento + 1, maxReintentos, espera.toMillis());
+        return Mono.delay(espera);
+    }
+
+    public synchronized int getEnEspera() {
+        return enEspera;
+    }
+
+    public synchronized double getTokensDisponibles() {
+        recargar(System.nanoTime());
+        return tokensDisponibles;
+    }
+
+    private boolean esReintentable(Throwable error) {
+        if (error instanceof WebClientResponseException wcre) {
+            int status = wcre.getStatusCode().value();
+            return status == 429 || status == 503;
+        }
+        return false;
+    }
+
+    Duration calcularEspera(WebClientResponseException error, long intento) {
+        long base = Math.min(backoffMaxMs, backoffBaseMs << Math.min(intento, 20));
+        long indicada = leerRetryAfterMs(error.getHeaders());
+        long ms = Math.min(backoffMaxMs, Math.max(base, indicada));
+        // Jitter de hasta un 50% por encima para repartir los reintentos
+        long jitter = ms > 0 ? ThreadLocalRandom.current().nextLong(ms / 2 + 1) : 0;
+        return Duration.ofMillis(ms + jitter);
+    }
+
+    // OpenAI envía retry-after-ms en algunos casos; Retry-After estándar viene en segundos
+    private long leerRetryAfterMs(HttpHeaders headers) {
+        try {
+            String ms = headers.getFirst("retry-after-ms");
+            if (ms != null) {
+                return (long) Double.parseDouble(ms.trim());
+            }
+            String segundos = headers.getFirst(HttpHeaders.RETRY_AFTER);
+            if (segundos != null) {
+                return (long) (Double.parseDouble(segundos.trim()) * 1000);
+            }
+        } catch (NumberFormatException e) {
+            logger.debug("Retry-After no numérico: {}", headers.getFirst(HttpHeaders.RETRY_AFTER));
+        }
+        return 0;
+    }
+
+    private void pausar(Duration espera) {
+        synchronized (this) {
+            long hasta = System.nanoTime() + espera.toNanos();
+            if (hasta - pausadoHasta > 0) {
+                pausadoHasta = hasta;
+            }
+        }
+        drenar();
+    }
+
+    private void encolar(Espera espera) {
+        boolean llena;
+        synchronized (this) {
+            llena = enEspera >= maxEnEspera;
+            if (!llena) {
+                colas.computeIfAbsent(espera.usuario, u -> new ArrayDeque<>()).addLast(espera);
+                enEspera++;
+            }
+        }
+        if (llena) {
+            rechazos.increment();
+            espera.sink.error(new ResilienciaOpenAi.OpenAiNoDisponibleException(
+                    "Cola de espera de la cuota de OpenAI llena (" + maxEnEspera + ")"));
+            return;
+        }
+        espera.sink.onCancel(() -> cancelar(espera));
+        drenar();
+    }
+
+    private synchronized void cancelar(Espera espera) {
+        ArrayDeque<Espera> cola = colas.get(espera.usuario);
+        if (cola != null && cola.remove(espera)) {
+            enEspera--;
+            if (cola.isEmpty()) {
+                colas.remove(espera.usuario);
+            }
+        }
+    }
+
+    /**
+     * Atiende a los usuarios por turnos mientras haya saldo. Si queda alguien esperando,
+     * programa el siguiente drenado para cuando el bucket tenga saldo para él.
+     */
+    private void drenar() {
+        List<Espera> concedidas = new ArrayList<>();
+        synchronized (this) {
+            long ahora = System.nanoTime();
+            recargar(ahora);
+            drenadoProgramado = false;
+
+            while (!colas.isEmpty() && ahora - pausadoHasta >= 0) {
+                Iterator<Map.Entry<String, ArrayDeque<Espera>>> turno = colas.entrySet().iterator();
+                Map.Entry<String, ArrayDeque<Espera>> siguiente = turno.next();
+                Espera espera = siguiente.getValue().peekFirst();
+                if (peticionesDisponibles < 1 || tokensDisponibles < espera.coste) {
+                    break;
+                }
+                peticionesDisponibles -= 1;
+                tokensDisponibles -= espera.coste;
+                siguiente.getValue().pollFirst();
+                enEspera--;
+                concedidas.add(espera);
+
+                // El usuario atendido pasa al final de la ronda
+                turno.remove();
+                if (!siguiente.getValue().isEmpty()) {
+                    colas.put(siguiente.getKey(), siguiente.getValue());
+                }
+            }
+
+            if (!colas.isEmpty()) {
+                programarDrenado(ahora);
+            }
+        }
+        concedidas.forEach(espera -> espera.sink.success());
+    }
+
+    private void programarDrenado(long ahora) {
+        Espera cabeza = colas.values().iterator().next().peekFirst();
+        double faltanPeticiones = Math.max(0, 1 - peticionesDisponibles);
+        double faltanTokens = Math.max(0, cabeza.coste - tokensDisponibles);
+        long nanos = (long) Math.max(faltanPeticiones / peticionesPorMinuto * NANOS_POR_MINUTO,
+                faltanTokens / tokensPorMinuto * NANOS_POR_MINUTO);
+        long cuando = Math.max(ahora + nanos, pausadoHasta);
+        if (drenadoProgramado && drenadoProgramadoPara - cuando <= 0) {
+            return;
+        }
+        drenadoProgramado = true;
+        drenadoProgramadoPara = cuando;
+        Schedulers.parallel().schedule(this::drenar, Math.max(1, cuando - ahora), TimeUnit.NANOSECONDS);
+    }
+
+    private void recargar(long ahora) {
+        long transcurrido = ahora - ultimaRecarga;
+        if (transcurrido <= 0) return;
+        double fraccion = (double) transcurrido / NANOS_POR_MINUTO;
+        peticionesDisponibles = Math.min(peticionesPorMinuto, peticionesDisponibles + fraccion * peticionesPorMinuto);
+        tokensDisponibles = Math.min(tokensPorMinuto, tokensDisponibles + fraccion * tokensPorMinuto);
+        ultimaRecarga = ahora;
+    }
+
+    private static final class Espera {
+        final String usuario;
+        final double coste;
+        final MonoSink<Void> sink;
+
+        Espera(String usuario, double coste, MonoSink<Void> sink) {
+            this.usuario = usuario;
+            this.coste = coste;
+            this.sink = sink;
+        }
+    }
+}
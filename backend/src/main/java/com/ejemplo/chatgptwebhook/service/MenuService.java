@@ -1,23 +1,28 @@
 package com.ejemplo.chatgptwebhook.service;
 
+import com.ejemplo.chatgptwebhook.model.EstadoSesion;
+import com.ejemplo.chatgptwebhook.model.EventoGeneracion;
 import com.ejemplo.chatgptwebhook.model.MenuOption;
 import com.ejemplo.chatgptwebhook.model.MenuResponse;
-import com.ejemplo.chatgptwebhook.datastructures.TablaHash;
-import com.ejemplo.chatgptwebhook.datastructures.Grafo;
 import com.ejemplo.chatgptwebhook.datastructures.ListaEnlazada;
 import com.ejemplo.chatgptwebhook.datastructures.Cola;
 import com.ejemplo.chatgptwebhook.datastructures.Trie;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.HashSet;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Servicio para gestionar las opciones del menú principal (versión web únicamente)
@@ -49,6 +54,8 @@ public class MenuService {
             || lower.contains("error de autenticación")
             || lower.contains("no pude conectar con chatgpt")
             || lower.contains("ocurrió un error inesperado")
+            || lower.contains("servicio de chatgpt no está disponible")
+            || lower.contains("presupuesto diario de uso de chatgpt")
             || lower.contains("unauthorized")
             || lower.contains("401");
     }
@@ -120,49 +127,66 @@ public class MenuService {
     }
     
     private static final Logger logger = LoggerFactory.getLogger(MenuService.class);
+
+    // Línea de tarea numerada: "1. Definir requisitos"
+    private static final java.util.regex.Pattern PATRON_LINEA_TAREA =
+            java.util.regex.Pattern.compile("^\\d+\\.\\s+(.+)$");
+
+    // Sugerencias por prefijo que se muestran (las más frecuentes en las tareas de la sesión)
+    private static final int MAX_SUGERENCIAS = Trie.K_MEJORES;
     
-    // Mapa para almacenar el estado de las sesiones del menú (do-while)
-    private final Map<String, Boolean> sesionesActivas = new ConcurrentHashMap<>();
-    private final Map<String, Integer> contadorInteracciones = new ConcurrentHashMap<>();
-    
-    // Mapa para almacenar el contexto del proyecto por sesión
-    private final Map<String, String> contextoyProyectoSesion = new ConcurrentHashMap<>();
-    
-    // Usando estructuras de datos personalizadas
-    private final TablaHash<String, String> nombreProyectoSesion = new TablaHash<>();
-    private final TablaHash<String, String> tareasProyectoSesion = new TablaHash<>();
-    private final TablaHash<String, Set<Integer>> tareasCompletadasSesion = new TablaHash<>();
-    private final TablaHash<String, Trie> trieTareasPorSesion = new TablaHash<>();
-    
-    // Grafo para relaciones entre proyectos
-    private final Grafo<String> relacionesProyectos = new Grafo<>();
+    // Estado de cada sesión del menú (do-while, proyecto, tareas e índices), con expulsión por TTL y tamaño
+    @Autowired
+    private AlmacenSesiones almacenSesiones;
     
     // Inyección del servicio de ChatGPT
     @Autowired
     private ChatGptService chatGptService;
+
+    // Micro-lotes opcionales de prompts delante de ChatGptService
+    @Autowired
+    private AgrupadorPromptsChatGpt agrupadorPrompts;
     
     // NUEVO: servicio para persistir proyectos/tareas
     @Autowired
     private ProjectService projectService;
+
+    // Scheduler acotado para las llamadas bloqueantes (JPA) del flujo reactivo
+    @Value("${menu.persistencia.max-hilos:16}")
+    private int maxHilosPersistencia;
+
+    @Value("${menu.persistencia.max-cola:1000}")
+    private int maxColaPersistencia;
+
+    private Scheduler persistenciaScheduler;
+
+    @PostConstruct
+    void iniciarSchedulerPersistencia() {
+        persistenciaScheduler = Schedulers.newBoundedElastic(
+                maxHilosPersistencia, maxColaPersistencia, "menu-persistencia");
+    }
+
+    @PreDestroy
+    void detenerSchedulerPersistencia() {
+        if (persistenciaScheduler != null) {
+            persistenciaScheduler.dispose();
+        }
+    }
     
-    // Lista enlazada: tareas ordenadas por sesión
-    private final TablaHash<String, ListaEnlazada<String>> listaTareasPorSesion = new TablaHash<>();
-    // Trie: indexa nombres de proyectos por admin
-    private final TablaHash<Long, Trie> trieProyectosPorAdmin = new TablaHash<>();
-    // Cola: encola nuevas tareas por sesión (se drena para sincronizar)
-    private final TablaHash<String, Cola<String>> colaTareasPendientesPorSesion = new TablaHash<>();
-    
-    // Últimos proyectos para crear relaciones en el grafo
-    private final TablaHash<String, String> ultimoProyectoPorSesion = new TablaHash<>();
-    private final TablaHash<Long, String> ultimoProyectoPorAdmin = new TablaHash<>();
-    
-    // Mapa: sessionId -> admin userId
-    private final Map<String, Long> adminUserIdPorSesion = new ConcurrentHashMap<>();
+    // Índice persistente por admin de palabras de proyectos y tareas (sugerencias tras un reinicio)
+    @Autowired
+    private IndiceTitulos indiceTitulos;
     
     // NUEVO: registrar el userId del admin para una sesión
     public void setAdminUserForSession(String sessionId, Long userId) {
         if (sessionId == null || sessionId.isBlank()) sessionId = "default_session";
-        adminUserIdPorSesion.put(sessionId, userId);
+        almacenSesiones.obtener(sessionId).setAdminUserId(userId != null ? userId : EstadoSesion.SIN_ADMIN);
+    }
+
+    // Admin autenticado de la sesión (SIN_ADMIN si no hay sesión o no se registró)
+    private long adminDeSesion(String sessionId) {
+        EstadoSesion estado = almacenSesiones.buscar(sessionId);
+        return estado != null ? estado.getAdminUserId() : EstadoSesion.SIN_ADMIN;
     }
     
     /**
@@ -182,10 +206,8 @@ public class MenuService {
             new MenuOption(4, "Salir", "salir")
         );
         
-        // Si es la primera vez, inicializar como activa
-        if (!sesionesActivas.containsKey(sessionId)) {
-            sesionesActivas.put(sessionId, true);
-        }
+        // Si es la primera vez, se crea la sesión (activa)
+        almacenSesiones.obtener(sessionId);
         
         String estado ="activo";
         String titulo = "Menú Principal - Gestión de Proyectos";
@@ -273,12 +295,14 @@ public class MenuService {
     
     /**
      * Versión web de procesarOpcion con datos específicos
+     * Las opciones que llaman a ChatGPT no bloquean el hilo del servidor; el resto
+     * se ejecuta en el scheduler acotado de persistencia.
      * 
      * @param opcion La opción seleccionada por el usuario
      * @param datos Los datos específicos para la opción (puede ser null)
-     * @return String con la respuesta de la acción ejecutada
+     * @return Mono con la respuesta de la acción ejecutada
      */
-    public String procesarOpcionWebConDatos(int opcion, String datos) {
+    public Mono<String> procesarOpcionWebConDatos(int opcion, String datos) {
         logger.info("Procesando opción {} con datos: {}", opcion, datos);
         
         switch (opcion) {
@@ -289,14 +313,14 @@ public class MenuService {
                 return crearTareasProyectoWebConDatos(datos);
                 
             case 3:
-                return consultarTareasProyectoWebConDatos(datos);
+                return Mono.fromCallable(() -> consultarTareasProyectoWebConDatos(datos));
                 
             case 4:
-                return salirWeb();
+                return Mono.fromCallable(this::salirWeb);
                 
             default:
                 logger.warn("Opción inválida seleccionada desde web: {}", opcion);
-                return "❌ Opción inválida. Por favor, seleccione una opción del 1 al 4.";
+                return Mono.just("❌ Opción inválida. Por favor, seleccione una opción del 1 al 4.");
         }
     }
     
@@ -306,26 +330,28 @@ public class MenuService {
      * @param opcion La opción seleccionada por el usuario
      * @param datos Los datos específicos para la opción (puede ser null)
      * @param sessionId ID de sesión para mantener contexto
-     * @return String con la respuesta de la acción ejecutada
+     * @return Mono con la respuesta de la acción ejecutada
      */
-    public String procesarOpcionWebConDatosYSesion(int opcion, String datos, String sessionId) {
+    public Mono<String> procesarOpcionWebConDatosYSesion(int opcion, String datos, String sessionId) {
         
         switch (opcion) {
             case 1:
                 return crearProyectoWebConDatosYSesion(datos, sessionId);
                 
             case 2:
-                return crearTareasProyectoWebConDatosYSesion(datos, sessionId);
+                return Mono.fromCallable(() -> crearTareasProyectoWebConDatosYSesion(datos, sessionId));
                 
             case 3:
-                return consultarTareasProyectoWebConDatosYSesion(datos, sessionId);
+                // Puede consultar la BD como respaldo: se ejecuta en el scheduler acotado
+                return Mono.fromCallable(() -> consultarTareasProyectoWebConDatosYSesion(datos, sessionId))
+                        .subscribeOn(persistenciaScheduler);
                 
             case 4:
-                return salirWebConSesion(sessionId);
+                return Mono.fromCallable(() -> salirWebConSesion(sessionId));
                 
             default:
                 logger.warn("Opción inválida seleccionada desde web: {}", opcion);
-                return "❌ Opción inválida. Por favor, seleccione una opción del 1 al 4.";
+                return Mono.just("❌ Opción inválida. Por favor, seleccione una opción del 1 al 4.");
         }
     }
     
@@ -347,12 +373,12 @@ public class MenuService {
     /**
      * Versión web de crear proyecto con datos específicos (idea del usuario)
      */
-    private String crearProyectoWebConDatos(String datos) {
+    private Mono<String> crearProyectoWebConDatos(String datos) {
         logger.info("Procesando idea del proyecto: {}", datos);
         
         if (datos == null || datos.trim().isEmpty()) {
-            return "❌ **Error:** No se proporcionó una idea de proyecto.\n\n" +
-                   "Por favor, describe tu idea de proyecto para poder ayudarte a desarrollarla.";
+            return Mono.just("❌ **Error:** No se proporcionó una idea de proyecto.\n\n" +
+                   "Por favor, describe tu idea de proyecto para poder ayudarte a desarrollarla.");
         }
         
         String ideaProyecto = datos.trim();
@@ -365,11 +391,11 @@ public class MenuService {
     /**
      * Versión web de crear proyecto con datos específicos y sesión (idea del usuario)
      */
-    private String crearProyectoWebConDatosYSesion(String datos, String sessionId) {
+    private Mono<String> crearProyectoWebConDatosYSesion(String datos, String sessionId) {
         
         if (datos == null || datos.trim().isEmpty()) {
-            return "❌ **Error:** No se proporcionó una idea de proyecto.\n\n" +
-                   "Por favor, describe tu idea de proyecto para poder ayudarte a desarrollarla.";
+            return Mono.just("❌ **Error:** No se proporcionó una idea de proyecto.\n\n" +
+                   "Por favor, describe tu idea de proyecto para poder ayudarte a desarrollarla.");
         }
         
         String ideaProyecto = datos.trim();
@@ -380,33 +406,148 @@ public class MenuService {
     }
     
     /**
-     * Procesa la idea del proyecto con ChatGPT y guarda el contexto
+     * Procesa la idea del proyecto con ChatGPT y guarda el contexto.
+     * La llamada a ChatGPT no bloquea ningún hilo; el registro en sesión y la
+     * persistencia se ejecutan después en el scheduler acotado de persistencia.
+     */
+    private Mono<String> procesarIdeaProyectoConChatGPT(String ideaProyecto, String sessionId) {
+        String mensajeParaChatGPT = construirMensajeIdeaProyecto(ideaProyecto);
+
+        logger.info("🤖 Enviando idea del proyecto a ChatGPT para sesión: {}", sessionId);
+
+        return generarConChatGPT(mensajeParaChatGPT, 3000)
+                .contextWrite(Context.of(LimitadorCuotaOpenAi.CLAVE_USUARIO, usuarioCuota(sessionId),
+                        ConsumoTokensService.CLAVE_SESION, sessionId != null ? sessionId : ConsumoTokensService.SIN_SESION))
+                .publishOn(persistenciaScheduler)
+                .map(respuestaChatGPT -> registrarProyectoDesdeRespuesta(ideaProyecto, sessionId, respuestaChatGPT))
+                .onErrorResume(e -> {
+                    logger.error("❌ Error al comunicarse con ChatGPT para procesar idea de proyecto", e);
+                    return Mono.just(respuestaSinConexionIdea(ideaProyecto));
+                });
+    }
+
+    // Generación no streaming: pasa por los micro-lotes si están habilitados
+    private Mono<String> generarConChatGPT(String mensaje, int maxTokens) {
+        return agrupadorPrompts.isHabilitado()
+                ? agrupadorPrompts.enviar(mensaje, maxTokens)
+                : chatGptService.enviarMensajeConTokens(mensaje, maxTokens);
+    }
+
+    // Usuario para la cuota y el presupuesto de OpenAI: el administrador si la sesión está autenticada.
+    // Las sesiones anónimas comparten una sola clave: con una por sesión bastaría abrir otra para saltarse el presupuesto.
+    // Por eso esa clave no tiene presupuesto diario salvo que se configure (ver ConsumoTokensService)
+    private String usuarioCuota(String sessionId) {
+        long adminUserId = adminDeSesion(sessionId);
+        return adminUserId != EstadoSesion.SIN_ADMIN ? "admin:" + adminUserId : LimitadorCuotaOpenAi.USUARIO_ANONIMO;
+    }
+
+    /**
+     * Versión en streaming de la opción 1: emite los fragmentos de ChatGPT según llegan,
+     * cada tarea numerada en cuanto su línea está completa y, al final, la respuesta
+     * formateada tras guardar el proyecto (igual que la versión no streaming).
+     */
+    public Flux<EventoGeneracion> transmitirIdeaProyectoConChatGPT(String datos, String sessionId) {
+        if (datos == null || datos.trim().isEmpty()) {
+            return Flux.just(EventoGeneracion.fin("❌ **Error:** No se proporcionó una idea de proyecto.\n\n" +
+                   "Por favor, describe tu idea de proyecto para poder ayudarte a desarrollarla."));
+        }
+        String ideaProyecto = datos.trim();
+        String sid = (sessionId == null || sessionId.isBlank()) ? "default_session" : sessionId;
+        logger.info("🤖 Enviando idea del proyecto a ChatGPT (streaming) para sesión: {}", sid);
+
+        return Flux.defer(() -> {
+            StringBuilder respuestaCompleta = new StringBuilder();
+            StringBuilder lineaActual = new StringBuilder();
+
+            Flux<EventoGeneracion> fragmentos = chatGptService
+                    .transmitirMensajeConTokens(construirMensajeIdeaProyecto(ideaProyecto), 3000)
+                    .contextWrite(Context.of(LimitadorCuotaOpenAi.CLAVE_USUARIO, usuarioCuota(sid),
+                            ConsumoTokensService.CLAVE_SESION, sid))
+                    .concatMapIterable(fragmento -> {
+                        respuestaCompleta.append(fragmento);
+                        List<EventoGeneracion> eventos = new java.util.ArrayList<>();
+                        eventos.add(EventoGeneracion.fragmento(fragmento));
+                        for (int i = 0; i < fragmento.length(); i++) {
+                            char c = fragmento.charAt(i);
+                            if (c == '\n') {
+                                String tarea = extraerTareaDeLinea(lineaActual.toString());
+                                if (tarea != null) eventos.add(EventoGeneracion.tarea(tarea));
+                                lineaActual.setLength(0);
+                            } else {
+                                lineaActual.append(c);
+                            }
+                        }
+                        return eventos;
+                    });
+
+            // La última línea puede no terminar en salto de línea
+            Flux<EventoGeneracion> ultimaTarea = Flux.defer(() -> {
+                String tarea = extraerTareaDeLinea(lineaActual.toString());
+                return tarea != null ? Flux.just(EventoGeneracion.tarea(tarea)) : Flux.empty();
+            });
+
+            Mono<EventoGeneracion> fin = Mono.fromCallable(() ->
+                            registrarProyectoDesdeRespuesta(ideaProyecto, sid, respuestaCompleta.toString()))
+                    .subscribeOn(persistenciaScheduler)
+                    .map(EventoGeneracion::fin);
+
+            return fragmentos.concatWith(ultimaTarea).concatWith(fin)
+                    .onErrorResume(ChatGptService.ErrorChatGptException.class, e -> {
+                        // Igual que sin streaming: el texto de error también deja el nombre en sesión y el proyecto mínimo
+                        logger.warn("⚠️ ChatGPT falló en streaming para sesión {}: {}", sid, e.getMessage());
+                        return Mono.<String>fromCallable(() -> registrarProyectoDesdeRespuesta(ideaProyecto, sid, e.getMessage()))
+                                .subscribeOn(persistenciaScheduler)
+                                .map(EventoGeneracion::fin);
+                    });
+        }).onErrorResume(e -> {
+            logger.error("❌ Error en la generación en streaming para sesión {}", sid, e);
+            return Flux.just(EventoGeneracion.fin(respuestaSinConexionIdea(ideaProyecto)));
+        });
+    }
+
+    // Devuelve el texto de la tarea si la línea es una tarea numerada ("3. ..."), o null
+    private String extraerTareaDeLinea(String linea) {
+        if (linea == null) return null;
+        java.util.regex.Matcher m = PATRON_LINEA_TAREA.matcher(linea.trim());
+        return m.matches() ? m.group(1).trim() : null;
+    }
+
+    private String construirMensajeIdeaProyecto(String ideaProyecto) {
+        return String.format(
+            "El usuario tiene la siguiente idea de proyecto: \"%s\"\n\n" +
+            "Eres un experto en arquitectura de software de proyectos. Por favor, ayúdalo a desarrollar y definir completamente este proyecto. " +
+            "Proporciona 10 tareas principales que se deben realizar para desarrollar este proyecto:\n" +
+            "Las tareas deben ser específicas y detalladas, y deben ser realizadas en orden cronológico.\n" +
+            "Al final, indica claramente cuál sería el nombre específico del proyecto para usarlo como referencia.",
+            ideaProyecto
+        );
+    }
+
+    private String respuestaSinConexionIdea(String ideaProyecto) {
+        return "🚀 **DESARROLLO DE PROYECTO**\n\n" +
+               "❌ No pude conectar con ChatGPT en este momento.\n\n" +
+               "💡 **Tu idea de proyecto:** " + ideaProyecto + "\n\n" +
+               "MOSTRAR_MENU_PRINCIPAL";
+    }
+
+    /**
+     * Guarda en sesión (nombre, tareas, índices) y persiste en BD el proyecto a partir
+     * de la respuesta ya recibida de ChatGPT. Contiene llamadas bloqueantes (JPA).
      */
-    private String procesarIdeaProyectoConChatGPT(String ideaProyecto, String sessionId) {
-        String respuestaChatGPT = null;
+    private String registrarProyectoDesdeRespuesta(String ideaProyecto, String sessionId, String respuestaChatGPT) {
         boolean esError = false;
         String nombreProyecto = null;
         String tareasExtraidas = null;
         String avisoPersistencia = "";
 
         try {
-            String mensajeParaChatGPT = String.format(
-                "El usuario tiene la siguiente idea de proyecto: \"%s\"\n\n" +
-                "Eres un experto en arquitectura de software de proyectos. Por favor, ayúdalo a desarrollar y definir completamente este proyecto. " +
-                "Proporciona 10 tareas principales que se deben realizar para desarrollar este proyecto:\n" +
-                "Las tareas deben ser específicas y detalladas, y deben ser realizadas en orden cronológico.\n" +
-                "Al final, indica claramente cuál sería el nombre específico del proyecto para usarlo como referencia.",
-                ideaProyecto
-            );
-
-            logger.info("🤖 Enviando idea del proyecto a ChatGPT para sesión: {}", sessionId);
-
-            respuestaChatGPT = chatGptService.enviarMensajeConTokens(mensajeParaChatGPT, 3000).block();
             esError = esMensajeErrorChatGpt(respuestaChatGPT);
 
-            contextoyProyectoSesion.put(sessionId, respuestaChatGPT);
+            EstadoSesion sesion = almacenSesiones.obtener(sessionId);
+            sesion.setContextoProyecto(respuestaChatGPT);
 
-            nombreProyecto = extraerNombreProyecto(respuestaChatGPT);
+            // Un mensaje de error no trae nombre: la heurística de la última línea lo tomaría por uno
+            nombreProyecto = esError ? null : extraerNombreProyecto(respuestaChatGPT);
             if (nombreProyecto == null || nombreProyecto.isBlank()) {
                 // Fallback: si no hubo nombre desde ChatGPT, derivarlo desde la idea del usuario
             String derivado = formatearNombreDesdeIdea(ideaProyecto);
@@ -414,13 +555,13 @@ public class MenuService {
                 nombreProyecto = derivado;
             }
             }
-            nombreProyectoSesion.put(sessionId, nombreProyecto);
+            sesion.setNombreProyecto(nombreProyecto);
             logger.info("📝 Proyecto guardado en sesión {}: {}", sessionId, nombreProyecto);
 
             // Extraer y guardar las tareas del proyecto (solo si no hubo error)
             tareasExtraidas = esError ? null : extraerTareasProyecto(respuestaChatGPT);
             if (tareasExtraidas != null && !tareasExtraidas.isEmpty()) {
-                tareasProyectoSesion.put(sessionId, tareasExtraidas);
+                sesion.setTareas(tareasExtraidas);
                 logger.info("📋 Tareas guardadas en sesión {}: {} tareas encontradas", sessionId, contarTareas(tareasExtraidas));
 
                 // NUEVO: preparar líneas de tareas según haya error o no
@@ -438,45 +579,35 @@ public class MenuService {
                         String texto = l.replaceFirst("^\\d+\\.\\s*", "");
                         lista.agregar(texto);
                         for (String token : texto.split("\\s+")) {
-                            trie.insertar(token.replaceAll("[^a-zA-Z]", "").toLowerCase());
+                            trie.insertar(token);
                         }
                     }
                 }
 
-                listaTareasPorSesion.put(sessionId, lista);
-                trieTareasPorSesion.put(sessionId, trie);
+                sesion.setListaTareas(lista);
+                sesion.setTrieTareas(trie);
             }
 
             logger.info("✅ Respuesta recibida de ChatGPT para idea de proyecto y contexto guardado");
 
-            // Usar Grafo para relacionar proyectos consecutivos
-            if (nombreProyecto != null && !nombreProyecto.isEmpty()) {
-                relacionesProyectos.agregarVertice(nombreProyecto);
-
-                String anteriorSesion = ultimoProyectoPorSesion.get(sessionId);
-                if (anteriorSesion != null && !anteriorSesion.equals(nombreProyecto)) {
-                    relacionesProyectos.agregarArista(anteriorSesion, nombreProyecto);
+            // Indexar nombre de proyecto y tareas en el índice persistente del admin
+            long adminIndice = sesion.getAdminUserId();
+            if (adminIndice != EstadoSesion.SIN_ADMIN) {
+                java.util.List<String> palabras = new java.util.ArrayList<>();
+                if (nombreProyecto != null) {
+                    palabras.addAll(java.util.Arrays.asList(nombreProyecto.split("\\s+")));
                 }
-                ultimoProyectoPorSesion.put(sessionId, nombreProyecto);
-
-                Long adminUserIdLocal = adminUserIdPorSesion.get(sessionId);
-                if (adminUserIdLocal != null) {
-                    String anteriorAdmin = ultimoProyectoPorAdmin.get(adminUserIdLocal);
-                    if (anteriorAdmin != null && !anteriorAdmin.equals(nombreProyecto)) {
-                        relacionesProyectos.agregarArista(anteriorAdmin, nombreProyecto);
-                    }
-                    ultimoProyectoPorAdmin.put(adminUserIdLocal, nombreProyecto);
-
-                    // Indexar nombre de proyecto en Trie por admin
-                    Trie trieProyectos = trieProyectosPorAdmin.computeIfAbsent(adminUserIdLocal, id -> new Trie());
-                    for (String token : nombreProyecto.split("\\s+")) {
-                        trieProyectos.insertar(token.replaceAll("[^a-zA-Z]", "").toLowerCase());
+                ListaEnlazada<String> listaIndice = sesion.getListaTareas();
+                if (tareasExtraidas != null && !tareasExtraidas.isEmpty() && listaIndice != null) {
+                    for (String tarea : listaIndice) {
+                        palabras.addAll(java.util.Arrays.asList(tarea.split("\\s+")));
                     }
                 }
+                indiceTitulos.indexar(adminIndice, palabras);
             }
 
             // Persistir en BD si existe adminUserId para esta sesión
-            Long adminUserId = adminUserIdPorSesion.get(sessionId);
+            long adminUserId = sesion.getAdminUserId();
             avisoPersistencia = "";
 
             // NUEVO: preparar líneas de tareas (vacías si hubo error)
@@ -485,7 +616,7 @@ public class MenuService {
                 : java.util.Collections.emptyList();
             if (esError) {
                 avisoPersistencia = persistirProyectoMinimoSiPosible(adminUserId, nombreProyecto, ideaProyecto, sessionId);
-            } else if (adminUserId != null && nombreProyecto != null && !nombreProyecto.isBlank()) {
+            } else if (adminUserId != EstadoSesion.SIN_ADMIN && nombreProyecto != null && !nombreProyecto.isBlank()) {
                 taskLines = (tareasExtraidas != null && !tareasExtraidas.isBlank())
                 ? java.util.Arrays.asList(tareasExtraidas.split("\\r?\\n"))
                 : java.util.Collections.emptyList();
@@ -523,11 +654,8 @@ public class MenuService {
                    "MOSTRAR_MENU_PRINCIPAL";
 
         } catch (Exception e) {
-            logger.error("❌ Error al comunicarse con ChatGPT para procesar idea de proyecto", e);
-            return "🚀 **DESARROLLO DE PROYECTO**\n\n" +
-                   "❌ No pude conectar con ChatGPT en este momento.\n\n" +
-                   "💡 **Tu idea de proyecto:** " + ideaProyecto + "\n\n" +
-                   "MOSTRAR_MENU_PRINCIPAL";
+            logger.error("❌ Error al registrar el proyecto generado por ChatGPT", e);
+            return respuestaSinConexionIdea(ideaProyecto);
         }
     }
     
@@ -537,15 +665,16 @@ public class MenuService {
     private String crearTareasProyectoWebConSesion(String sessionId) {
         
         // Verificar si hay tareas y proyecto en la sesión
-        String tareasExistentes = tareasProyectoSesion.get(sessionId);
-        String nombreProyecto = nombreProyectoSesion.get(sessionId);
+        EstadoSesion sesion = almacenSesiones.obtener(sessionId);
+        String tareasExistentes = sesion.getTareas();
+        String nombreProyecto = sesion.getNombreProyecto();
         
         if (tareasExistentes != null && !tareasExistentes.isEmpty()) {
             String tituloProyecto = nombreProyecto != null ? nombreProyecto : "Proyecto definido anteriormente";
             int numeroTareas = contarTareas(tareasExistentes);
     
             // NUEVO: preferir ListaEnlazada si existe
-            ListaEnlazada<String> lista = listaTareasPorSesion.get(sessionId);
+            ListaEnlazada<String> lista = sesion.getListaTareas();
             String tareasParaMostrar = tareasExistentes;
             if (lista != null && !lista.estaVacia()) {
                 StringBuilder sb = new StringBuilder();
@@ -572,7 +701,7 @@ public class MenuService {
             );
         } else {
             // No hay tareas, verificar si hay contexto del proyecto
-            String contextoProyecto = contextoyProyectoSesion.get(sessionId);
+            String contextoProyecto = sesion.getContextoProyecto();
             
             if (contextoProyecto != null && !contextoProyecto.isEmpty()) {
                 // Hay contexto pero no tareas (caso raro), solicitar primera tarea
@@ -600,15 +729,33 @@ public class MenuService {
     }
     
     /**
-     * Sugiere tareas basadas en un prefijo usando el índice Trie
+     * Sugiere tareas basadas en un prefijo usando el índice Trie de la sesión y, si no hay
+     * coincidencias en ella (p. ej. tras un reinicio), el índice persistente del admin
      */
     private String sugerirTareasPorPrefijo(String prefijo, String sessionId) {
-        Trie trie = trieTareasPorSesion.get(sessionId);
-        if (trie == null || prefijo == null || prefijo.isBlank()) {
+        EstadoSesion sesion = almacenSesiones.buscar(sessionId);
+        boolean hayTrie = false;
+        long adminUserId = EstadoSesion.SIN_ADMIN;
+        ListaEnlazada<String> resultados = new ListaEnlazada<>();
+        if (sesion != null) {
+            // El trie lo modifica agregarNuevaTareaASesion bajo el mismo monitor
+            synchronized (sesion) {
+                Trie trie = sesion.getTrieTareas();
+                adminUserId = sesion.getAdminUserId();
+                hayTrie = trie != null;
+                if (hayTrie && prefijo != null && !prefijo.isBlank()) {
+                    resultados = trie.buscarPorPrefijo(prefijo, MAX_SUGERENCIAS);
+                }
+            }
+        }
+        if ((!hayTrie && adminUserId == EstadoSesion.SIN_ADMIN) || prefijo == null || prefijo.isBlank()) {
             return "🔎 **Sugerencias**\n\nNo hay índice de tareas para esta sesión o el prefijo está vacío.\n\nMOSTRAR_MENU_PRINCIPAL";
         }
 
-        ListaEnlazada<String> resultados = trie.buscarPorPrefijo(prefijo);
+        // El índice en disco se consulta fuera del monitor de la sesión
+        if (resultados.estaVacia() && adminUserId != EstadoSesion.SIN_ADMIN) {
+            resultados = indiceTitulos.sugerir(adminUserId, prefijo, MAX_SUGERENCIAS);
+        }
         if (resultados.estaVacia()) {
             return "🔎 **Sugerencias**\n\nNo se encontraron tareas que coincidan con el prefijo '" + prefijo + "'.\n\nMOSTRAR_MENU_PRINCIPAL";
         }
@@ -653,54 +800,53 @@ public class MenuService {
     /**
      * Versión web de crear tareas con datos específicos - envía a ChatGPT
      */
-    private String crearTareasProyectoWebConDatos(String datos) {
+    private Mono<String> crearTareasProyectoWebConDatos(String datos) {
         logger.info("📋 Creando tareas para proyecto con datos: {}", datos);
         
         String nombreProyecto = datos != null && !datos.trim().isEmpty() ? datos : "Proyecto sin nombre";
         
-        try {
-            // Construir mensaje específico para ChatGPT
-            String mensajeParaChatGPT = String.format(
-                "Tengo un proyecto llamado '%s'. " +
-                "Por favor, proporciona las 10 tareas principales que debo realizar para desarrollar este proyecto. " +
-                "Enumera cada tarea de forma clara y específica, del 1 al 10.",
-                nombreProyecto
-            );
-            
-            // Usar más tokens para respuestas largas de ChatGPT
-            String respuestaChatGPT = chatGptService.enviarMensajeConTokens(mensajeParaChatGPT, 3000).block();
-            
-            
-            return String.format(
-                "📋 **TAREAS DEL PROYECTO: %s**\n\n" +
-                "🤖 **Tareas generadas por el sistema:**\n\n%s\n\n" +
-                "✅ **Tareas creadas exitosamente**\n" +
-                "💡 **Siguiente paso:** Puedes usar las opciones del menú para gestionar estas tareas\n\n" +
-                "MOSTRAR_MENU_PRINCIPAL",
-                nombreProyecto, respuestaChatGPT
-            );
-            
-        } catch (Exception e) {
-            logger.error("❌ Error al comunicarse con ChatGPT para generar tareas", e);
-            
-            return String.format(
-                "📋 **TAREAS DEL PROYECTO: %s**\n\n" +
-                "❌ No pude conectar con ChatGPT en este momento.\n\n" +
-                "💡 **Tareas básicas sugeridas:**\n" +
-                "1. Definir requisitos del proyecto\n" +
-                "2. Crear plan de trabajo\n" +
-                "3. Asignar responsabilidades\n" +
-                "4. Establecer cronograma\n" +
-                "5. Configurar entorno de desarrollo\n" +
-                "6. Diseñar arquitectura del sistema\n" +
-                "7. Implementar funcionalidades core\n" +
-                "8. Realizar pruebas\n" +
-                "9. Documentar el proyecto\n" +
-                "10. Desplegar y entregar\n\n" +
-                "MOSTRAR_MENU_PRINCIPAL",
-                nombreProyecto
-            );
-        }
+        // Construir mensaje específico para ChatGPT
+        String mensajeParaChatGPT = String.format(
+            "Tengo un proyecto llamado '%s'. " +
+            "Por favor, proporciona las 10 tareas principales que debo realizar para desarrollar este proyecto. " +
+            "Enumera cada tarea de forma clara y específica, del 1 al 10.",
+            nombreProyecto
+        );
+        
+        // Usar más tokens para respuestas largas de ChatGPT
+        return generarConChatGPT(mensajeParaChatGPT, 3000)
+                .map(respuestaChatGPT -> String.format(
+                    "📋 **TAREAS DEL PROYECTO: %s**\n\n" +
+                    "🤖 **Tareas generadas por el sistema:**\n\n%s\n\n" +
+                    "✅ **Tareas creadas exitosamente**\n" +
+                    "💡 **Siguiente paso:** Puedes usar las opciones del menú para gestionar estas tareas\n\n" +
+                    "MOSTRAR_MENU_PRINCIPAL",
+                    nombreProyecto, respuestaChatGPT
+                ))
+                .onErrorResume(e -> {
+                    logger.error("❌ Error al comunicarse con ChatGPT para generar tareas", e);
+                    return Mono.just(tareasBasicasSugeridas(nombreProyecto));
+                });
+    }
+
+    private String tareasBasicasSugeridas(String nombreProyecto) {
+        return String.format(
+            "📋 **TAREAS DEL PROYECTO: %s**\n\n" +
+            "❌ No pude conectar con ChatGPT en este momento.\n\n" +
+            "💡 **Tareas básicas sugeridas:**\n" +
+            "1. Definir requisitos del proyecto\n" +
+            "2. Crear plan de trabajo\n" +
+            "3. Asignar responsabilidades\n" +
+            "4. Establecer cronograma\n" +
+            "5. Configurar entorno de desarrollo\n" +
+            "6. Diseñar arquitectura del sistema\n" +
+            "7. Implementar funcionalidades core\n" +
+            "8. Realizar pruebas\n" +
+            "9. Documentar el proyecto\n" +
+            "10. Desplegar y entregar\n\n" +
+            "MOSTRAR_MENU_PRINCIPAL",
+            nombreProyecto
+        );
     }
     
     
@@ -710,15 +856,16 @@ public class MenuService {
     private String consultarTareasProyectoWebConSesion(String sessionId) {
         
         // Verificar si hay tareas guardadas en la sesión
-        String tareasGuardadas = tareasProyectoSesion.get(sessionId);
-        String nombreProyecto = nombreProyectoSesion.get(sessionId);
+        EstadoSesion sesion = almacenSesiones.obtener(sessionId);
+        String tareasGuardadas = sesion.getTareas();
+        String nombreProyecto = sesion.getNombreProyecto();
         
         if (tareasGuardadas != null && !tareasGuardadas.isEmpty()) {
             String tituloProyecto = nombreProyecto != null ? nombreProyecto : "Proyecto definido anteriormente";
             int numeroTareas = contarTareas(tareasGuardadas);
             
             // Obtener tareas completadas para esta sesión
-            Set<Integer> tareasCompletadas = tareasCompletadasSesion.getOrDefault(sessionId, new HashSet<>());
+            Set<Integer> tareasCompletadas = sesion.getTareasCompletadas();
             
             // Formatear lista de tareas con estado
             String tareasConEstado = formatearTareasConEstado(tareasGuardadas, tareasCompletadas);
@@ -748,8 +895,8 @@ public class MenuService {
             );
         } else {
             // Fallback: consultar tareas persistidas en BD para el usuario de esta sesión
-            Long adminUserId = adminUserIdPorSesion.get(sessionId);
-            if (adminUserId != null) {
+            long adminUserId = sesion.getAdminUserId();
+            if (adminUserId != EstadoSesion.SIN_ADMIN) {
                 java.util.List<com.ejemplo.chatgptwebhook.entities.Project> proyectos =
                         projectService.getProjectsByAdmin(adminUserId);
                 if (proyectos != null && !proyectos.isEmpty()) {
@@ -872,37 +1019,24 @@ public class MenuService {
      */
     public void finalizarSesion(String sessionId) {
         logger.info("Finalizando sesión del menú: {}", sessionId);
-        sesionesActivas.put(sessionId, false);
-        
-        // Limpiar datos de la sesión después de un tiempo
-        new Thread(() -> {
-            try {
-                Thread.sleep(30000); // Esperar 30 segundos
-                sesionesActivas.remove(sessionId);
-                contadorInteracciones.remove(sessionId);
-                contextoyProyectoSesion.remove(sessionId);
-                nombreProyectoSesion.remove(sessionId);
-                tareasProyectoSesion.remove(sessionId);
-                tareasCompletadasSesion.remove(sessionId);
-                logger.info("Datos de sesión {} limpiados (incluyendo contexto del proyecto, tareas y estado)", sessionId);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-        }).start();
+        // Los datos de la sesión los elimina el barrido del almacén pasado el periodo de gracia
+        almacenSesiones.finalizar(sessionId);
     }
     
     /**
      * Verifica si una sesión está activa (para el bucle do-while)
      */
     public boolean esSesionActiva(String sessionId) {
-        return sesionesActivas.getOrDefault(sessionId, true);
+        EstadoSesion sesion = almacenSesiones.buscar(sessionId);
+        return sesion == null || sesion.isActiva();
     }
     
     /**
      * Obtiene el número de interacciones de una sesión
      */
     public int getInteraccionesSesion(String sessionId) {
-        return contadorInteracciones.getOrDefault(sessionId, 0);
+        EstadoSesion sesion = almacenSesiones.buscar(sessionId);
+        return sesion != null ? sesion.getInteracciones() : 0;
     }
     
     /**
@@ -910,13 +1044,8 @@ public class MenuService {
      */
     public void reiniciarSesion(String sessionId) {
         logger.info("Reiniciando sesión del menú: {}", sessionId);
-        sesionesActivas.put(sessionId, true);
-        contadorInteracciones.put(sessionId, 0);
         // Limpiar también el contexto del proyecto, tareas y estado
-        contextoyProyectoSesion.remove(sessionId);
-        nombreProyectoSesion.remove(sessionId);
-        tareasProyectoSesion.remove(sessionId);
-        tareasCompletadasSesion.remove(sessionId);
+        almacenSesiones.obtener(sessionId).reiniciar();
     }
     
     /**
@@ -1051,8 +1180,8 @@ public class MenuService {
         return tareasFormateadas.toString().trim();
     }
     
-    private String persistirProyectoMinimoSiPosible(Long adminUserId, String nombreProyecto, String ideaProyecto, String sessionId) {
-        if (adminUserId != null && nombreProyecto != null && !nombreProyecto.isBlank()) {
+    private String persistirProyectoMinimoSiPosible(long adminUserId, String nombreProyecto, String ideaProyecto, String sessionId) {
+        if (adminUserId != EstadoSesion.SIN_ADMIN && nombreProyecto != null && !nombreProyecto.isBlank()) {
             try {
                 projectService.createProjectForAdmin(
                         adminUserId,
@@ -1076,34 +1205,46 @@ public class MenuService {
         logger.info("➕ Agregando nueva tarea a sesión {}: {}", sessionId, nuevaTarea);
         
         // Verificar que hay un proyecto en la sesión
-        String nombreProyecto = nombreProyectoSesion.get(sessionId);
+        EstadoSesion sesion = almacenSesiones.obtener(sessionId);
+        String nombreProyecto = sesion.getNombreProyecto();
         if (nombreProyecto == null || nombreProyecto.isEmpty()) {
             return "❌ **Error:** No hay proyecto definido en esta sesión.\n\n" +
                    "💡 Primero debes crear un proyecto usando la **opción 1**.\n\n" +
                    "MOSTRAR_MENU_PRINCIPAL";
         }
 
-        // Encolar tarea y drenar en orden
-        Cola<String> cola = colaTareasPendientesPorSesion.computeIfAbsent(sessionId, s -> new Cola<>());
-        cola.encolar(nuevaTarea);
+        synchronized (sesion) {
+            // Encolar tarea y drenar en orden
+            Cola<String> cola = sesion.getColaTareasPendientes();
+            cola.encolar(nuevaTarea);
 
-        ListaEnlazada<String> lista = listaTareasPorSesion.get(sessionId);
-        if (lista == null) {
-            lista = new ListaEnlazada<>();
-            listaTareasPorSesion.put(sessionId, lista);
-        }
+            ListaEnlazada<String> lista = sesion.getListaTareas();
+            if (lista == null) {
+                lista = new ListaEnlazada<>();
+                sesion.setListaTareas(lista);
+            }
 
-        Trie trie = trieTareasPorSesion.computeIfAbsent(sessionId, s -> new Trie());
+            Trie trie = sesion.getTrieTareas();
+            if (trie == null) {
+                trie = new Trie();
+                sesion.setTrieTareas(trie);
+            }
 
-        while (!cola.estaVacia()) {
-            String tarea = cola.desencolar();
-            lista.agregar(tarea);
-            for (String token : tarea.split("\\s+")) {
-                trie.insertar(token.replaceAll("[^a-zA-Z]", "").toLowerCase());
+            while (!cola.estaVacia()) {
+                String tarea = cola.desencolar();
+                lista.agregar(tarea);
+                for (String token : tarea.split("\\s+")) {
+                    trie.insertar(token);
+                }
+                String prev = sesion.getTareas();
+                String nuevas = (prev == null || prev.trim().isEmpty()) ? ("1. " + tarea) : prev + "\n" + (contarTareas(prev) + 1) + ". " + tarea;
+                sesion.setTareas(nuevas);
             }
-            String prev = tareasProyectoSesion.get(sessionId);
-            String nuevas = (prev == null || prev.trim().isEmpty()) ? ("1. " + tarea) : prev + "\n" + (contarTareas(prev) + 1) + ". " + tarea;
-            tareasProyectoSesion.put(sessionId, nuevas);
+        }
+
+        long adminUserId = sesion.getAdminUserId();
+        if (adminUserId != EstadoSesion.SIN_ADMIN) {
+            indiceTitulos.indexar(adminUserId, nuevaTarea);
         }
 
         return "✅ **Tarea agregada**: " + nuevaTarea + "\n\nMOSTRAR_MENU_PRINCIPAL";
@@ -1117,7 +1258,8 @@ public class MenuService {
         logger.info("🎯 Marcando tarea #{} como completada en sesión: {}", numeroTarea, sessionId);
         
         // Verificar que hay un proyecto en la sesión
-        String nombreProyecto = nombreProyectoSesion.get(sessionId);
+        EstadoSesion sesion = almacenSesiones.obtener(sessionId);
+        String nombreProyecto = sesion.getNombreProyecto();
         if (nombreProyecto == null || nombreProyecto.isEmpty()) {
             return "❌ **Error:** No hay proyecto definido en esta sesión.\n\n" +
                    "💡 Primero debes crear un proyecto usando la **opción 1**.\n\n" +
@@ -1125,7 +1267,7 @@ public class MenuService {
         }
         
         // Verificar que hay tareas en la sesión
-        String tareasGuardadas = tareasProyectoSesion.get(sessionId);
+        String tareasGuardadas = sesion.getTareas();
         if (tareasGuardadas == null || tareasGuardadas.isEmpty()) {
             return "❌ **Error:** No hay tareas definidas en esta sesión.\n\n" +
                    "💡 Primero debes crear tareas usando la **opción 1** o **opción 2**.\n\n" +
@@ -1146,7 +1288,7 @@ public class MenuService {
         }
         
         // Obtener tareas completadas para esta sesión
-        Set<Integer> tareasCompletadas = tareasCompletadasSesion.computeIfAbsent(sessionId, k -> new HashSet<>());
+        Set<Integer> tareasCompletadas = sesion.getTareasCompletadas();
         
         // Verificar si la tarea ya está completada
         if (tareasCompletadas.contains(numeroTarea)) {
@@ -0,0 +1,110 @@
+package com.ejemplo.chatgptwebhook.service;
+
+import com.ejemplo.chatgptwebhook.model.ChatGptRequest;
+import com.ejemplo.chatgptwebhook.model.ChatGptResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.HttpClientRequest;
+
+import java.time.Duration;
+
+/**
+ * Proveedor real: API de chat completions de OpenAI (o cualquier servidor compatible
+ * en openai.api.url) sobre el cliente HTTP compartido.
+ */
+@Component
+@ConditionalOnProperty(name = "llm.proveedor", havingValue = "openai", matchIfMissing = true)
+public class OpenAiProveedorLlm implements ProveedorLlm {
+
+    private static final Logger logger = LoggerFactory.getLogger(OpenAiProveedorLlm.class);
+
+    private final WebClient webClient;
+    private final long timeoutBaseMs;
+    private final long timeoutPorTokenMs;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public OpenAiProveedorLlm(@Value("${openai.api.key}") String apiKey,
+                              @Value("${openai.api.url:https://api.openai.com/v1/chat/completions}") String apiUrl,
+                              @Value("${openai.http.timeout-base-ms:10000}") long timeoutBaseMs,
+                              @Value("${openai.http.timeout-por-token-ms:30}") long timeoutPorTokenMs,
+                              HttpClient openAiHttpClient) {
+        this.timeoutBaseMs = timeoutBaseMs;
+        this.timeoutPorTokenMs = timeoutPorTokenMs;
+
+        if (apiKey == null || apiKey.isBlank()) {
+            logger.error("API key de OpenAI no configurada (openai.api.key).");
+        }
+
+        this.webClient = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(openAiHttpClient))
+                .baseUrl(apiUrl)
+                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
+                .build();
+    }
+
+    @Override
+    public String getNombre() {
+        return "openai";
+    }
+
+    @Override
+    public Mono<ChatGptResponse> completar(ChatGptRequest request) {
+        return webClient.post()
+                .httpRequest(req -> aplicarTimeoutRespuesta(req, request.getMaxTokens()))
+                .bodyValue(request)
+                .retrieve()
+                .bodyToMono(ChatGptResponse.class);
+    }
+
+    @Override
+    public Flux<ChatGptResponse> transmitir(ChatGptRequest request) {
+        return webClient.post()
+                .httpRequest(req -> aplicarTimeoutRespuesta(req, request.getMaxTokens()))
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .bodyValue(request)
+                .retrieve()
+                .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<String>>() {})
+                .map(ServerSentEvent::data)
+                .takeWhile(data -> !"[DONE]".equals(data.trim()))
+                .concatMap(this::leerFragmento);
+    }
+
+    /**
+     * Timeout de respuesta proporcional a los tokens pedidos: una respuesta de 3000 tokens
+     * puede tardar bastante más que una de 512 sin estar colgada.
+     */
+    @Override
+    public Duration timeoutRespuesta(Integer maxTokens) {
+        int tokens = maxTokens != null ? maxTokens : 512;
+        return Duration.ofMillis(timeoutBaseMs + timeoutPorTokenMs * tokens);
+    }
+
+    private void aplicarTimeoutRespuesta(ClientHttpRequest req, Integer maxTokens) {
+        HttpClientRequest nativo = req.getNativeRequest();
+        nativo.responseTimeout(timeoutRespuesta(maxTokens));
+    }
+
+    private Mono<ChatGptResponse> leerFragmento(String data) {
+        try {
+            return Mono.just(objectMapper.readValue(data, ChatGptResponse.class));
+        } catch (Exception ex) {
+            logger.warn("Fragmento de streaming no reconocido: {}", data);
+            return Mono.empty();
+        }
+    }
+}
@@ -17,7 +17,7 @@ import com.ejemplo.chatgptwebhook.model.TaskCreateRequest;
 import com.ejemplo.chatgptwebhook.model.TaskDto;
 // Estructuras de datos personalizadas ya presentes en tu proyecto
 import com.ejemplo.chatgptwebhook.datastructures.TablaHash;
-import com.ejemplo.chatgptwebhook.datastructures.ListaEnlazada;
+import com.ejemplo.chatgptwebhook.datastructures.ListaArreglo;
 import com.ejemplo.chatgptwebhook.datastructures.Trie;
 
 @Service
@@ -28,6 +28,8 @@ public class ProjectService {
     private TaskRepository taskRepository;
     @Autowired
     private UsuarioRepository usuarioRepository;
+    @Autowired
+    private IndiceTareas indiceTareas;
 
     public Project createProjectForAdmin(Long adminUserId, String name, String description, List<String> tasksLines) {
         if (adminUserId == null) {
@@ -52,7 +54,7 @@ public class ProjectService {
                 t.setTitle(extractTitle(line));
                 t.setDescription(line.trim());
                 t.setStatus("pendiente");
-                taskRepository.save(t);
+                indiceTareas.indexar(adminUserId, taskRepository.save(t));
             }
         }
 
@@ -100,10 +102,11 @@ public class ProjectService {
         project.setCreatedBy(admin);
 
         project = projectRepository.save(project);
+        Long adminId = admin.getId();
 
         // Usar estructuras de datos para normalizar/deduplicar tareas y tokenizarlas
-        ListaEnlazada<String> lista = new ListaEnlazada<>();
-        TablaHash<String, Boolean> seen = new TablaHash<>();
+        ListaArreglo<String> lista = new ListaArreglo<>(req.getTasks() != null ? req.getTasks().size() : 0);
+        TablaHash<String, Boolean> seen = new TablaHash<>(TablaHash.Motor.DIRECCIONAMIENTO_ABIERTO);
         Trie trie = new Trie();
 
         if (req.getTasks() != null) {
@@ -114,14 +117,14 @@ public class ProjectService {
                     lista.agregar(clean);
                     seen.put(clean, Boolean.TRUE);
                     for (String token : clean.split("\\s+")) {
-                        trie.insertar(token.replaceAll("[^a-zA-Z0-9]", "").toLowerCase());
+                        trie.insertar(token);
                     }
                 }
             }
         }
 
-        // Persistir tareas deduplicadas y ordenadas
-        java.util.List<TaskDto> taskDtos = new java.util.ArrayList<>();
+        // Persistir tareas deduplicadas y ordenadas (ListaArreglo: obtener(i) es O(1))
+        java.util.List<TaskDto> taskDtos = new java.util.ArrayList<>(lista.tamaño());
         for (int i = 0; i < lista.tamaño(); i++) {
             String title = lista.obtener(i);
             Task task = new Task();
@@ -130,23 +133,11 @@ public class ProjectService {
             task.setPriority(2); // 1 alta, 2 media, 3 baja
             task.setProject(project);
             task = taskRepository.save(task);
+            if (adminId != null) {
+                indiceTareas.indexar(adminId, task);
+            }
 
-            TaskDto td = new TaskDto();
-            td.setId(task.getId());
-            td.setTitle(task.getTitle());
-            td.setStatus(task.getStatus());
-            String priorityStr = task.getPriority() == null
-                    ? "MEDIUM"
-                    : (task.getPriority() == 1 ? "HIGH" : (task.getPriority() == 3 ? "LOW" : "MEDIUM"));
-            td.setPriority(priorityStr);
-            td.setDueDate(task.getDueDate() != null ? task.getDueDate().atStartOfDay() : null);
-            td.setCreatedAt(task.getCreatedAt() != null
-                    ? java.time.LocalDateTime.ofInstant(task.getCreatedAt(), java.time.ZoneId.systemDefault())
-                    : null);
-            td.setUpdatedAt(task.getUpdatedAt() != null
-                    ? java.time.LocalDateTime.ofInstant(task.getUpdatedAt(), java.time.ZoneId.systemDefault())
-                    : null);
-            taskDtos.add(td);
+            taskDtos.add(toTaskDto(task));
         }
 
         // Construir DTO del proyecto
@@ -175,10 +166,11 @@ public class ProjectService {
 
         Project project = projectRepository.findById(req.getProjectId())
                 .orElseThrow(() -> new IllegalArgumentException("Proyecto no encontrado"));
+        Long adminId = project.getCreatedBy() != null ? project.getCreatedBy().getId() : null;
 
         // Usar estructuras de datos para normalizar/deduplicar tareas y tokenizarlas
-        ListaEnlazada<String> lista = new ListaEnlazada<>();
-        TablaHash<String, Boolean> seen = new TablaHash<>();
+        ListaArreglo<String> lista = new ListaArreglo<>(req.getTasks().size());
+        TablaHash<String, Boolean> seen = new TablaHash<>(TablaHash.Motor.DIRECCIONAMIENTO_ABIERTO);
         Trie trie = new Trie();
 
         for (String t : req.getTasks()) {
@@ -188,13 +180,13 @@ public class ProjectService {
                 lista.agregar(clean);
                 seen.put(clean, Boolean.TRUE);
                 for (String token : clean.split("\\s+")) {
-                    trie.insertar(token.replaceAll("[^a-zA-Z0-9]", "").toLowerCase());
+                    trie.insertar(token);
                 }
             }
         }
 
-        // Persistir tareas deduplicadas y ordenadas
-        java.util.List<TaskDto> taskDtos = new java.util.ArrayList<>();
+        // Persistir tareas deduplicadas y ordenadas (ListaArreglo: obtener(i) es O(1))
+        java.util.List<TaskDto> taskDtos = new java.util.ArrayList<>(lista.tamaño());
         for (int i = 0; i < lista.tamaño(); i++) {
             String title = lista.obtener(i);
             Task task = new Task();
@@ -203,28 +195,40 @@ public class ProjectService {
             task.setPriority(2); // 1 alta, 2 media, 3 baja
             task.setProject(project);
             task = taskRepository.save(task);
+            if (adminId != null) {
+                indiceTareas.indexar(adminId, task);
+            }
 
-            TaskDto td = new TaskDto();
-            td.setId(task.getId());
-            td.setTitle(task.getTitle());
-            td.setStatus(task.getStatus());
-            String priorityStr = task.getPriority() == null
-                    ? "MEDIUM"
-                    : (task.getPriority() == 1 ? "HIGH" : (task.getPriority() == 3 ? "LOW" : "MEDIUM"));
-            td.setPriority(priorityStr);
-            td.setDueDate(task.getDueDate() != null ? task.getDueDate().atStartOfDay() : null);
-            td.setCreatedAt(task.getCreatedAt() != null
-                    ? java.time.LocalDateTime.ofInstant(task.getCreatedAt(), java.time.ZoneId.systemDefault())
-                    : null);
-            td.setUpdatedAt(task.getUpdatedAt() != null
-                    ? java.time.LocalDateTime.ofInstant(task.getUpdatedAt(), java.time.ZoneId.systemDefault())
-                    : null);
-            taskDtos.add(td);
+            taskDtos.add(toTaskDto(task));
         }
 
         return taskDtos;
     }
 
+    /**
+     * Busca en los títulos y descripciones de las tareas de los proyectos del admin (BM25),
+     * devolviendo las tareas de mayor a menor relevancia
+     */
+    public java.util.List<TaskDto> buscarTareas(Long adminUserId, String consulta, int limite) {
+        if (adminUserId == null) throw new IllegalArgumentException("adminUserId es requerido");
+        if (consulta == null || consulta.isBlank()) throw new IllegalArgumentException("q es requerido");
+        if (limite <= 0) throw new IllegalArgumentException("limit debe ser positivo");
+
+        java.util.List<Long> ids = indiceTareas.buscar(adminUserId, consulta, Math.min(limite, 100));
+        java.util.Map<Long, Task> porId = new java.util.HashMap<>();
+        for (Task task : taskRepository.findAllById(ids)) {
+            porId.put(task.getId(), task);
+        }
+
+        java.util.List<TaskDto> dtos = new java.util.ArrayList<>();
+        for (Long id : ids) {
+            Task task = porId.get(id);
+            if (task == null) continue; // Borrada en BD desde que se indexó
+            dtos.add(toTaskDto(task));
+        }
+        return dtos;
+    }
+
     public java.util.List<ProjectDto> getProjectsForUser(Long userId, String role) {
         if (userId == null) throw new IllegalArgumentException("userId es requerido");
         if (role == null || role.isBlank()) throw new IllegalArgumentException("role es requerido");
@@ -268,22 +272,7 @@ public class ProjectService {
         java.util.List<com.ejemplo.chatgptwebhook.entities.Task> tasks = getTasksByProjectId(projectId);
         java.util.List<TaskDto> dtos = new java.util.ArrayList<>();
         for (com.ejemplo.chatgptwebhook.entities.Task task : tasks) {
-            TaskDto td = new TaskDto();
-            td.setId(task.getId());
-            td.setTitle(task.getTitle());
-            td.setStatus(task.getStatus());
-            String priorityStr = task.getPriority() == null
-                    ? "MEDIUM"
-                    : (task.getPriority() == 1 ? "HIGH" : (task.getPriority() == 3 ? "LOW" : "MEDIUM"));
-            td.setPriority(priorityStr);
-            td.setDueDate(task.getDueDate() != null ? task.getDueDate().atStartOfDay() : null);
-            td.setCreatedAt(task.getCreatedAt() != null
-                    ? java.time.LocalDateTime.ofInstant(task.getCreatedAt(), java.time.ZoneId.systemDefault())
-                    : null);
-            td.setUpdatedAt(task.getUpdatedAt() != null
-                    ? java.time.LocalDateTime.ofInstant(task.getUpdatedAt(), java.time.ZoneId.systemDefault())
-                    : null);
-            dtos.add(td);
+            dtos.add(toTaskDto(task));
         }
         return dtos;
     }
@@ -344,13 +333,26 @@ public class ProjectService {
         if (req.getDueDate() != null) {
             task.setDueDate(req.getDueDate());
         }
+        if (req.getEstimatedHours() != null) {
+            if (req.getEstimatedHours() < 0) throw new IllegalArgumentException("estimatedHours no puede ser negativo");
+            task.setEstimatedHours(req.getEstimatedHours());
+        }
 
         task = taskRepository.save(task);
+        Task guardada = task;
+        taskRepository.findAdminUserIdByTaskId(taskId)
+                .ifPresent(adminId -> indiceTareas.indexar(adminId, guardada));
+
+        return toTaskDto(task);
+    }
 
+    // Única conversión Task -> TaskDto; también la usa DependenciasTareasService
+    static TaskDto toTaskDto(Task task) {
         TaskDto td = new TaskDto();
         td.setId(task.getId());
         td.setTitle(task.getTitle());
         td.setStatus(task.getStatus());
+        td.setEstimatedHours(task.getEstimatedHours());
         String priorityStr = task.getPriority() == null
                 ? "MEDIUM"
                 : (task.getPriority() == 1 ? "HIGH" : (task.getPriority() == 3 ? "LOW" : "MEDIUM"));
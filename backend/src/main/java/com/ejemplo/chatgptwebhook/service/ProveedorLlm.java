@@ -0,0 +1,37 @@
+package com.ejemplo.chatgptwebhook.service;
+
+import com.ejemplo.chatgptwebhook.model.ChatGptRequest;
+import com.ejemplo.chatgptwebhook.model.ChatGptResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Backend de generación compatible con chat completions.
+ * {@link ChatGptService} pone delante la caché, la cuota, la resiliencia y el libro de consumo;
+ * el proveedor solo hace la llamada. Se elige con llm.proveedor (openai | stub).
+ * Los errores HTTP se emiten como WebClientResponseException para que la cuota (429)
+ * y el circuit breaker (5xx) los clasifiquen igual con cualquier proveedor.
+ */
+public interface ProveedorLlm {
+
+    String getNombre();
+
+    /**
+     * Respuesta completa: choices[0].message y usage.
+     */
+    Mono<ChatGptResponse> completar(ChatGptRequest request);
+
+    /**
+     * Respuesta en streaming: un elemento por fragmento (choices[0].delta);
+     * el último puede traer solo usage.
+     */
+    Flux<ChatGptResponse> transmitir(ChatGptRequest request);
+
+    /**
+     * Lo más que puede tardar una llamada con esos max_tokens (null = por defecto).
+     * La cuota lo descuenta del timeout de la petición para no esperar más de lo que cabe.
+     */
+    Duration timeoutRespuesta(Integer maxTokens);
+}
@@ -0,0 +1,305 @@
+package com.ejemplo.chatgptwebhook.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Capa de resiliencia para las llamadas a OpenAI:
+ * - Circuit breaker por tasa de errores o de llamadas lentas sobre una ventana de las últimas N llamadas.
+ * - Bulkhead: tope duro de llamadas concurrentes.
+ * - Limitador adaptativo AIMD: sube el límite de concurrencia de uno en uno mientras la latencia
+ *   está por debajo del objetivo y lo reduce multiplicativamente ante errores o lentitud.
+ * En las llamadas de respuesta completa la latencia incluye generar todos los tokens, así que
+ * tanto el objetivo como el umbral de llamada lenta crecen con los max_tokens pedidos
+ * (latencia-por-token-ms); en streaming se mide hasta el primer fragmento y no se ajustan.
+ * Si no hay permiso la llamada falla al instante con {@link OpenAiNoDisponibleException}.
+ */
+@Component
+public class ResilienciaOpenAi {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResilienciaOpenAi.class);
+
+    public enum EstadoCircuito { CERRADO, ABIERTO, SEMIABIERTO }
+
+    /**
+     * Rechazo inmediato: circuito abierto o sin capacidad de concurrencia.
+     */
+    public static class OpenAiNoDisponibleException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public OpenAiNoDisponibleException(String mensaje) {
+            super(mensaje);
+        }
+    }
+
+    // Configuración del circuit breaker
+    private final int tamañoVentana;
+    private final int minLlamadas;
+    private final double umbralFallos;
+    private final double umbralLentas;
+    private final long llamadaLentaNanos;
+    private final long abiertoNanos;
+    private final int llamadasSemiabierto;
+
+    // Configuración de bulkhead y limitador
+    private final int maxConcurrentes;
+    private final int minLimite;
+    private final long latenciaObjetivoNanos;
+    private final long latenciaPorTokenNanos;
+
+    // Estado (protegido por el monitor de this)
+    private EstadoCircuito estado = EstadoCircuito.CERRADO;
+    private long abiertoHasta;
+    private final boolean[] ventanaFallos;
+    private final boolean[] ventanaLentas;
+    private int posicionVentana;
+    private int llamadasEnVentana;
+    private int pruebasEnCurso;
+    private int exitosSemiabierto;
+    private int enCurso;
+    private double limite;
+
+    private final Counter rechazos;
+
+    public ResilienciaOpenAi(@Value("${openai.resiliencia.ventana:20}") int tamañoVentana,
+                             @Value("${openai.resiliencia.min-llamadas:10}") int minLlamadas,
+                             @Value("${openai.resiliencia.umbral-fallos:0.5}") double umbralFallos,
+                             @Value("${openai.resiliencia.umbral-lentas:0.8}") double umbralLentas,
+                             @Value("${openai.resiliencia.llamada-lenta-ms:60000}") long llamadaLentaMs,
+                             @Value("${openai.resiliencia.abierto-segundos:30}") long abiertoSegundos,
+                             @Value("${openai.resiliencia.llamadas-semiabierto:3}") int llamadasSemiabierto,
+                             @Value("${openai.resiliencia.max-concurrentes:40}") int maxConcurrentes,
+                             @Value("${openai.resiliencia.min-limite:4}") int minLimite,
+                             @Value("${openai.resiliencia.limite-inicial:20}") int limiteInicial,
+                             @Value("${openai.resiliencia.latencia-objetivo-ms:30000}") long latenciaObjetivoMs,
+                             @Value("${openai.resiliencia.latencia-por-token-ms:20}") long latenciaPorTokenMs,
+                             MeterRegistry meterRegistry) {
+        this.tamañoVentana = tamañoVentana;
+        this.minLlamadas = Math.min(minLlamadas, tamañoVentana);
+        this.umbralFallos = umbralFallos;
+        this.umbralLentas = umbralLentas;
+        this.llamadaLentaNanos = llamadaLentaMs * 1_000_000L;
+        this.abiertoNanos = abiertoSegundos * 1_000_000_000L;
+        this.llamadasSemiabierto = llamadasSemiabierto;
+        this.maxConcurrentes = maxConcurrentes;
+        this.minLimite = Math.min(minLimite, maxConcurrentes);
+        this.latenciaObjetivoNanos = latenciaObjetivoMs * 1_000_000L;
+        this.latenciaPorTokenNanos = latenciaPorTokenMs * 1_000_000L;
+        this.ventanaFallos = new boolean[tamañoVentana];
+        this.ventanaLentas = new boolean[tamañoVentana];
+        this.limite = Math.max(this.minLimite, Math.min(limiteInicial, maxConcurrentes));
+
+        this.rechazos = Counter.builder("chatgpt.resiliencia.rechazos").register(meterRegistry);
+        Gauge.builder("chatgpt.resiliencia.circuito", this, r -> r.getEstado().ordinal()).register(meterRegistry);
+        Gauge.builder("chatgpt.resiliencia.limite", this, ResilienciaOpenAi::getLimite).register(meterRegistry);
+        Gauge.builder("chatgpt.resiliencia.en_curso", this, ResilienciaOpenAi::getEnCurso).register(meterRegistry);
+    }
+
+    /**
+     * Protege una llamada de una sola respuesta sin tokens que generar (o de tamaño desconocido).
+     */
+    public <T> Mono<T> proteger(Mono<T> llamada) {
+        return proteger(llamada, 0);
+    }
+
+    /**
+     * Protege una llamada de una sola respuesta. La latencia se mide hasta el resultado, descontando
+     * el tiempo esperable para generar {@code maxTokens}.
+     */
+    public <T> Mono<T> proteger(Mono<T> llamada, int maxTokens) {
+        return Mono.defer(() -> {
+            Permiso permiso = adquirir(Math.max(0, maxTokens) * latenciaPorTokenNanos);
+            if (permiso == null) {
+                return Mono.error(new OpenAiNoDisponibleException(motivoRechazo()));
+            }
+            return llamada
+                    .doOnNext(v -> permiso.marcarPrimerElemento())
+                    .doOnError(permiso::marcarError)
+                    .doFinally(s -> liberar(permiso, s));
+        });
+    }
+
+    /**
+     * Protege una llamada en streaming. La latencia se mide hasta el primer fragmento.
+     */
+    public <T> Flux<T> proteger(Flux<T> llamada) {
+        return Flux.defer(() -> {
+            Permiso permiso = adquirir(0);
+            if (permiso == null) {
+                return Flux.error(new OpenAiNoDisponibleException(motivoRechazo()));
+            }
+            return llamada
+                    .doOnNext(v -> permiso.marcarPrimerElemento())
+                    .doOnError(permiso::marcarError)
+                    .doFinally(s -> liberar(permiso, s));
+        });
+    }
+
+    public synchronized EstadoCircuito getEstado() {
+        actualizarEstadoPorTiempo();
+        return estado;
+    }
+
+    public synchronized double getLimite() {
+        return limite;
+    }
+
+    public synchronized int getEnCurso() {
+        return enCurso;
+    }
+
+    private synchronized Permiso adquirir(long holguraNanos) {
+        actualizarEstadoPorTiempo();
+        if (estado == EstadoCircuito.ABIERTO) {
+            rechazos.increment();
+            return null;
+        }
+        if (estado == EstadoCircuito.SEMIABIERTO && pruebasEnCurso >= llamadasSemiabierto) {
+            rechazos.increment();
+            return null;
+        }
+        if (enCurso >= maxConcurrentes || enCurso >= (int) Math.floor(limite)) {
+            rechazos.increment();
+            return null;
+        }
+        enCurso++;
+        boolean prueba = estado == EstadoCircuito.SEMIABIERTO;
+        if (prueba) pruebasEnCurso++;
+        return new Permiso(prueba, holguraNanos);
+    }
+
+    private synchronized void liberar(Permiso permiso, SignalType señal) {
+        enCurso--;
+        if (permiso.prueba) pruebasEnCurso--;
+
+        // Una cancelación (p. ej. el cliente cerró la conexión) no dice nada de la salud de OpenAI
+        if (señal == SignalType.CANCEL && permiso.error == null) {
+            return;
+        }
+
+        boolean fallo = permiso.error != null && cuentaComoFallo(permiso.error);
+        long latencia = permiso.latenciaNanos() - permiso.holguraNanos;
+        boolean lenta = latencia > llamadaLentaNanos;
+
+        ajustarLimite(fallo || latencia > latenciaObjetivoNanos);
+
+        if (permiso.prueba && estado == EstadoCircuito.SEMIABIERTO) {
+            if (fallo || lenta) {
+                abrir();
+            } else if (++exitosSemiabierto >= llamadasSemiabierto) {
+                logger.info("Circuito de OpenAI CERRADO tras {} llamadas de prueba correctas", exitosSemiabierto);
+                estado = EstadoCircuito.CERRADO;
+                reiniciarVentana();
+            }
+            return;
+        }
+
+        if (estado == EstadoCircuito.CERRADO) {
+            registrarEnVentana(fallo, lenta);
+        }
+    }
+
+    // AIMD: +1/limite por éxito rápido (≈ +1 por ventana de llamadas), x0.9 por fallo o lentitud
+    private void ajustarLimite(boolean congestion) {
+        if (congestion) {
+            limite = Math.max(minLimite, limite * 0.9);
+        } else {
+            limite = Math.min(maxConcurrentes, limite + 1.0 / limite);
+        }
+    }
+
+    private void registrarEnVentana(boolean fallo, boolean lenta) {
+        ventanaFallos[posicionVentana] = fallo;
+        ventanaLentas[posicionVentana] = lenta;
+        posicionVentana = (posicionVentana + 1) % tamañoVentana;
+        if (llamadasEnVentana < tamañoVentana) llamadasEnVentana++;
+
+        if (llamadasEnVentana < minLlamadas) return;
+
+        int fallos = 0;
+        int lentas = 0;
+        for (int i = 0; i < llamadasEnVentana; i++) {
+            if (ventanaFallos[i]) fallos++;
+            if (ventanaLentas[i]) lentas++;
+        }
+        double tasaFallos = (double) fallos / llamadasEnVentana;
+        double tasaLentas = (double) lentas / llamadasEnVentana;
+        if (tasaFallos >= umbralFallos || tasaLentas >= umbralLentas) {
+            logger.warn("Tasa de fallos {} / lentas {} sobre {} llamadas", tasaFallos, tasaLentas, llamadasEnVentana);
+            abrir();
+        }
+    }
+
+    private void abrir() {
+        logger.warn("Circuito de OpenAI ABIERTO durante {} s", abiertoNanos / 1_000_000_000L);
+        estado = EstadoCircuito.ABIERTO;
+        abiertoHasta = System.nanoTime() + abiertoNanos;
+        reiniciarVentana();
+    }
+
+    private void actualizarEstadoPorTiempo() {
+        if (estado == EstadoCircuito.ABIERTO && System.nanoTime() - abiertoHasta >= 0) {
+            logger.info("Circuito de OpenAI SEMIABIERTO: se permiten {} llamadas de prueba", llamadasSemiabierto);
+            estado = EstadoCircuito.SEMIABIERTO;
+            exitosSemiabierto = 0;
+        }
+    }
+
+    private void reiniciarVentana() {
+        posicionVentana = 0;
+        llamadasEnVentana = 0;
+        exitosSemiabierto = 0;
+    }
+
+    private synchronized String motivoRechazo() {
+        return estado == EstadoCircuito.CERRADO
+                ? "Límite de llamadas concurrentes a OpenAI alcanzado (" + (int) Math.floor(limite) + ")"
+                : "Circuito de OpenAI " + estado;
+    }
+
+    // Errores del cliente (400, 401, 404...) no indican que OpenAI esté degradado; 429 y 5xx sí
+    private boolean cuentaComoFallo(Throwable error) {
+        if (error instanceof WebClientResponseException wcre) {
+            int status = wcre.getStatusCode().value();
+            return status == 429 || status >= 500;
+        }
+        // Timeouts, errores de conexión y cualquier otro fallo inesperado
+        return true;
+    }
+
+    private static final class Permiso {
+        final boolean prueba;
+        // Tiempo de generación esperable que no cuenta como lentitud
+        final long holguraNanos;
+        final long inicio = System.nanoTime();
+        volatile long primerElemento;
+        volatile Throwable error;
+
+        Permiso(boolean prueba, long holguraNanos) {
+            this.prueba = prueba;
+            this.holguraNanos = holguraNanos;
+        }
+
+        void marcarPrimerElemento() {
+            if (primerElemento == 0) primerElemento = System.nanoTime();
+        }
+
+        void marcarError(Throwable t) {
+            this.error = t;
+        }
+
+        long latenciaNanos() {
+            long fin = primerElemento != 0 ? primerElemento : System.nanoTime();
+            return fin - inicio;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.ejemplo.chatgptwebhook.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Transporte SMTP mínimo (correo.transporte=smtp) para un relé local sin TLS ni autenticación
+ * (MailHog, Mailpit, un postfix interno...). Abre una conexión por mensaje:
+ * HELO, MAIL FROM, RCPT TO, DATA y QUIT, comprobando el código de cada respuesta.
+ */
+@Component
+@ConditionalOnProperty(name = "correo.transporte", havingValue = "smtp")
+public class SmtpTransporteCorreo implements TransporteCorreo {
+
+    private final String host;
+    private final int puerto;
+    private final String remitente;
+    private final int timeoutMs;
+
+    public SmtpTransporteCorreo(@Value("${correo.smtp.host:localhost}") String host,
+                                @Value("${correo.smtp.puerto:1025}") int puerto,
+                                @Value("${correo.smtp.remitente:no-responder@homeworkclick.local}") String remitente,
+                                @Value("${correo.smtp.timeout-ms:5000}") int timeoutMs) {
+        this.host = host;
+        this.puerto = puerto;
+        this.remitente = remitente;
+        this.timeoutMs = timeoutMs;
+    }
+
+    @Override
+    public String getNombre() {
+        return "smtp";
+    }
+
+    @Override
+    public void enviar(String destinatario, String asunto, String cuerpo) throws IOException {
+        if (destinatario.indexOf('\r') >= 0 || destinatario.indexOf('\n') >= 0) {
+            throw new IllegalArgumentException("Destinatario no válido: " + destinatario);
+        }
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(host, puerto), timeoutMs);
+            socket.setSoTimeout(timeoutMs);
+            BufferedReader entrada = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            Writer salida = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+
+            esperar(entrada, 220);
+            comando(salida, entrada, "HELO homeworkclick", 250);
+            comando(salida, entrada, "MAIL FROM:<" + remitente + ">", 250);
+            comando(salida, entrada, "RCPT TO:<" + destinatario + ">", 250);
+            comando(salida, entrada, "DATA", 354);
+
+            StringBuilder datos = new StringBuilder()
+                    .append("From: ").append(remitente).append("\r\n")
+                    .append("To: ").append(destinatario).append("\r\n")
+                    .append("Subject: ").append(asunto.replaceAll("[\r\n]", " ")).append("\r\n")
+                    .append("Content-Type: text/plain; charset=UTF-8\r\n\r\n");
+            for (String linea : cuerpo.split("\r?\n", -1)) {
+                // Transparencia SMTP: una línea que empieza por "." se duplica
+                datos.append(linea.startsWith(".") ? "." : "").append(linea).append("\r\n");
+            }
+            datos.append(".");
+            comando(salida, entrada, datos.toString(), 250);
+            comando(salida, entrada, "QUIT", 221);
+        }
+    }
+
+    private static void comando(Writer salida, BufferedReader entrada, String linea, int esperado) throws IOException {
+        salida.write(linea);
+        salida.write("\r\n");
+        salida.flush();
+        esperar(entrada, esperado);
+    }
+
+    // Lee una respuesta (posiblemente multilínea: "250-...", "250 ...") y comprueba el código
+    private static void esperar(BufferedReader entrada, int esperado) throws IOException {
+        String linea;
+        do {
+            linea = entrada.readLine();
+            if (linea == null) throw new IOException("El servidor SMTP cerró la conexión");
+        } while (linea.length() > 3 && linea.charAt(3) == '-');
+        if (!linea.startsWith(String.valueOf(esperado))) {
+            if (linea.startsWith("5")) {
+                throw new RechazoPermanenteException("Rechazo SMTP permanente (se esperaba " + esperado + "): " + linea);
+            }
+            throw new IOException("Respuesta SMTP inesperada (se esperaba " + esperado + "): " + linea);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.ejemplo.chatgptwebhook.service;
+
+import com.ejemplo.chatgptwebhook.model.ChatGptRequest;
+import com.ejemplo.chatgptwebhook.model.ChatGptResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Proveedor local para pruebas de carga y CI (llm.proveedor=stub): no llama a OpenAI ni gasta créditos.
+ * Devuelve 10 tareas numeradas y un "Nombre del proyecto:" a partir de la idea del prompt
+ * (una sección por solicitud si el prompt viene de un micro-lote), con:
+ * - latencia hasta el primer token log-normal (mediana y sigma configurables),
+ * - generación a N tokens por segundo (en streaming, un fragmento por línea),
+ * - inyección de errores 429 (con Retry-After) y 500 con la probabilidad indicada.
+ * Todo sin bloquear hilos: las esperas son delays de Reactor.
+ */
+@Component
+@ConditionalOnProperty(name = "llm.proveedor", havingValue = "stub")
+public class StubProveedorLlm implements ProveedorLlm {
+
+    private static final Logger logger = LoggerFactory.getLogger(StubProveedorLlm.class);
+
+    private static final Pattern PATRON_IDEA = Pattern.compile("[\"'“]([^\"'”]{2,200})[\"'”]");
+
+    private static final String[] PLANTILLAS_TAREAS = {
+        "Definir el alcance y los requisitos funcionales de %s",
+        "Diseñar el modelo de datos y las entidades principales de %s",
+        "Preparar el repositorio, la integración continua y los entornos de %s",
+        "Implementar la autenticación y la gestión de usuarios de %s",
+        "Desarrollar la API REST con los casos de uso principales de %s",
+        "Construir la interfaz de usuario y la navegación de %s",
+        "Integrar los servicios externos y las notificaciones de %s",
+        "Escribir pruebas unitarias y de integración para %s",
+        "Realizar pruebas de carga y optimizar el rendimiento de %s",
+        "Desplegar %s en producción y configurar la monitorización"
+    };
+
+    private final long latenciaMedianaMs;
+    private final double latenciaSigma;
+    private final double tokensPorSegundo;
+    private final double tasaErrores429;
+    private final double tasaErrores500;
+    private final Random semilla;
+
+    public StubProveedorLlm(@Value("${llm.stub.latencia-mediana-ms:800}") long latenciaMedianaMs,
+                            @Value("${llm.stub.latencia-sigma:0.5}") double latenciaSigma,
+                            @Value("${llm.stub.tokens-por-segundo:60}") double tokensPorSegundo,
+                            @Value("${llm.stub.tasa-errores-429:0.0}") double tasaErrores429,
+                            @Value("${llm.stub.tasa-errores-500:0.0}") double tasaErrores500,
+                            @Value("${llm.stub.semilla:}") Long semilla) {
+        this.latenciaMedianaMs = latenciaMedianaMs;
+        this.latenciaSigma = latenciaSigma;
+        this.tokensPorSegundo = tokensPorSegundo;
+        this.tasaErrores429 = tasaErrores429;
+        this.tasaErrores500 = tasaErrores500;
+        // Con semilla los resultados son reproducibles (útil en CI); sin ella, un aleatorio por hilo
+        this.semilla = semilla != null ? new Random(semilla) : null;
+        logger.warn("⚠️ Usando el proveedor de LLM STUB: las respuestas son sintéticas (mediana {} ms, {} tokens/s)",
+                latenciaMedianaMs, tokensPorSegundo);
+    }
+
+    @Override
+    public String getNombre() {
+        return "stub";
+    }
+
+    @Override
+    public Mono<ChatGptResponse> completar(ChatGptRequest request) {
+        return Mono.defer(() -> {
+            Duration primerToken = latenciaPrimerToken();
+            WebClientResponseException error = errorInyectado();
+            if (error != null) {
+                return Mono.delay(primerToken).then(Mono.error(error));
+            }
+            String texto = generarRespuesta(request);
+            int tokens = estimarTokens(texto);
+            ChatGptResponse response = respuesta(request, texto, false);
+            response.setUsage(usage(request, tokens));
+            return Mono.just(response).delayElement(primerToken.plus(duracionGeneracion(tokens)));
+        });
+    }
+
+    @Override
+    public Flux<ChatGptResponse> transmitir(ChatGptRequest request) {
+        return Flux.defer(() -> {
+            Duration primerToken = latenciaPrimerToken();
+            WebClientResponseException error = errorInyectado();
+            if (error != null) {
+                return Mono.delay(primerToken).thenMany(Flux.error(error));
+            }
+            String texto = generarRespuesta(request);
+            List<String> lineas = new ArrayList<>();
+            for (String linea : texto.split("(?<=\n)")) {
+                lineas.add(linea);
+            }
+            Flux<ChatGptResponse> fragmentos = Flux.fromIterable(lineas)
+                    .concatMap(linea -> Mono.just(respuesta(request, linea, true))
+                            .delayElement(duracionGeneracion(estimarTokens(linea))));
+            ChatGptResponse ultimo = new ChatGptResponse();
+            ultimo.setChoices(List.of());
+            ultimo.setUsage(usage(request, estimarTokens(texto)));
+            return Mono.delay(primerToken).thenMany(fragmentos.concatWithValues(ultimo));
+        });
+    }
+
+    /**
+     * Texto de respuesta: 10 tareas numeradas sobre la idea del prompt y el nombre del proyecto,
+     * recortado a max_tokens como haría el modelo.
+     */
+    // Cota amplia: latencia tres sigmas por encima de la mediana más la generación completa
+    @Override
+    public Duration timeoutRespuesta(Integer maxTokens) {
+        long primerToken = Math.round(latenciaMedianaMs * Math.exp(3 * latenciaSigma));
+        return Duration.ofMillis(primerToken).plus(duracionGeneracion(maxTokens != null ? maxTokens : 512));
+    }
+
+    String generarRespuesta(ChatGptRequest request) {
+        String prompt = ultimoMensaje(request);
+        StringBuilder sb = new StringBuilder();
+        // Prompt de micro-lote: una sección de respuesta por cada "### SOLICITUD n"
+        Map<Integer, String> solicitudes = AgrupadorPromptsChatGpt.separarSecciones(prompt);
+        if (solicitudes.size() > 1) {
+            solicitudes.forEach((n, solicitud) ->
+                    sb.append("### SOLICITUD ").append(n).append("\n").append(generarTareas(extraerIdea(solicitud))).append("\n"));
+        } else {
+            sb.append(generarTareas(extraerIdea(prompt)));
+        }
+
+        int maxCaracteres = request.getMaxTokens() != null ? request.getMaxTokens() * 4 : Integer.MAX_VALUE;
+        return sb.length() > maxCaracteres ? sb.substring(0, maxCaracteres) : sb.toString();
+    }
+
+    private String generarTareas(String idea) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Estas son las tareas principales para desarrollar ").append(idea).append(":\n\n");
+        for (int i = 0; i < PLANTILLAS_TAREAS.length; i++) {
+            sb.append(i + 1).append(". ").append(String.format(PLANTILLAS_TAREAS[i], idea)).append("\n");
+        }
+        sb.append("\nNombre del proyecto: ").append(nombreProyecto(idea)).append("\n");
+        return sb.toString();
+    }
+
+    private String ultimoMensaje(ChatGptRequest request) {
+        List<Map<String, String>> mensajes = request.getMessages();
+        if (mensajes == null || mensajes.isEmpty()) return "";
+        String contenido = mensajes.get(mensajes.size() - 1).get("content");
+        return contenido != null ? contenido : "";
+    }
+
+    private String extraerIdea(String prompt) {
+        Matcher m = PATRON_IDEA.matcher(prompt);
+        if (m.find()) {
+            return m.group(1).trim();
+        }
+        String limpio = prompt.trim();
+        return limpio.isEmpty() ? "el proyecto" : limpio.substring(0, Math.min(60, limpio.length()));
+    }
+
+    private String nombreProyecto(String idea) {
+        StringBuilder nombre = new StringBuilder();
+        for (String palabra : idea.split("\\s+")) {
+            if (palabra.isEmpty()) continue;
+            if (nombre.length() > 0) nombre.append(' ');
+            nombre.append(Character.toUpperCase(palabra.charAt(0))).append(palabra.substring(1));
+        }
+        return nombre.toString();
+    }
+
+    private ChatGptResponse respuesta(ChatGptRequest request, String texto, boolean fragmento) {
+        ChatGptResponse.Message message = new ChatGptResponse.Message();
+        message.setRole("assistant");
+        message.setContent(texto);
+        ChatGptResponse.Choice choice = new ChatGptResponse.Choice();
+        choice.setIndex(0);
+        if (fragmento) {
+            choice.setDelta(message);
+        } else {
+            choice.setMessage(message);
+            choice.setFinishReason("stop");
+        }
+        ChatGptResponse response = new ChatGptResponse();
+        response.setObject(fragmento ? "chat.completion.chunk" : "chat.completion");
+        response.setModel(request.getModel());
+        response.setCreated(System.currentTimeMillis() / 1000);
+        response.setChoices(List.of(choice));
+        return response;
+    }
+
+    private ChatGptResponse.Usage usage(ChatGptRequest request, int completionTokens) {
+        ChatGptResponse.Usage usage = new ChatGptResponse.Usage();
+        int promptTokens = estimarTokens(ultimoMensaje(request));
+        usage.setPromptTokens(promptTokens);
+        usage.setCompletionTokens(completionTokens);
+        usage.setTotalTokens(promptTokens + completionTokens);
+        return usage;
+    }
+
+    private static int estimarTokens(String texto) {
+        return (texto.length() + 3) / 4;
+    }
+
+    private Duration latenciaPrimerToken() {
+        double gauss = azar().nextGaussian();
+        return Duration.ofMillis(Math.max(0, Math.round(latenciaMedianaMs * Math.exp(latenciaSigma * gauss))));
+    }
+
+    private Duration duracionGeneracion(int tokens) {
+        if (tokensPorSegundo <= 0) return Duration.ZERO;
+        return Duration.ofMillis(Math.round(tokens * 1000.0 / tokensPorSegundo));
+    }
+
+    private WebClientResponseException errorInyectado() {
+        double r = azar().nextDouble();
+        if (r < tasaErrores429) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.add(HttpHeaders.RETRY_AFTER, "1");
+            return WebClientResponseException.create(HttpStatus.TOO_MANY_REQUESTS.value(), "Too Many Requests",
+                    headers, "{\"error\":{\"type\":\"rate_limit_exceeded\"}}".getBytes(StandardCharsets.UTF_8),
+                    StandardCharsets.UTF_8);
+        }
+        if (r < tasaErrores429 + tasaErrores500) {
+            return WebClientResponseException.create(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Internal Server Error",
+                    new HttpHeaders(), "{\"error\":{\"type\":\"server_error\"}}".getBytes(StandardCharsets.UTF_8),
+                    StandardCharsets.UTF_8);
+        }
+        return null;
+    }
+
+    private Random azar() {
+        return semilla != null ? semilla : ThreadLocalRandom.current();
+    }
+}
@@ -0,0 +1,31 @@
+package com.ejemplo.chatgptwebhook.service;
+
+import java.io.IOException;
+
+/**
+ * Salida de correo usada por {@link DespachadorCorreosVerificacion}.
+ * El despachador pone delante el lote, el límite de concurrencia, los reintentos y las métricas;
+ * el transporte solo entrega un mensaje. Se elige con correo.transporte (fichero | smtp).
+ */
+public interface TransporteCorreo {
+
+    String getNombre();
+
+    /**
+     * Entrega un mensaje de texto plano. Cualquier excepción cuenta como fallo y se reintenta, salvo
+     * IllegalArgumentException (dirección no válida) y {@link RechazoPermanenteException}, que no
+     * cambiarían al reintentar.
+     */
+    void enviar(String destinatario, String asunto, String cuerpo) throws IOException;
+
+    /**
+     * El servidor rechazó el mensaje de forma definitiva (en SMTP, una respuesta 5xx)
+     */
+    class RechazoPermanenteException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public RechazoPermanenteException(String mensaje) {
+            super(mensaje);
+        }
+    }
+}
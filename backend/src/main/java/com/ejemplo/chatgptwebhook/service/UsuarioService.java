@@ -1,7 +1,6 @@
 package com.ejemplo.chatgptwebhook.service;
 
-import com.ejemplo.chatgptwebhook.datastructures.TablaHash;
-import com.ejemplo.chatgptwebhook.datastructures.Cola;
+import com.ejemplo.chatgptwebhook.datastructures.TablaHashConcurrente;
 import com.ejemplo.chatgptwebhook.entities.Usuario;
 import com.ejemplo.chatgptwebhook.entities.Role;
 import com.ejemplo.chatgptwebhook.entities.UserRole;
@@ -12,6 +11,8 @@ import com.ejemplo.chatgptwebhook.repository.UserRoleRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.Optional;
 
@@ -31,11 +32,12 @@ public class UsuarioService {
     @Autowired
     private UserRoleRepository userRoleRepository;
     
-    // Tabla hash para almacenar usuarios por email (para login rápido)
-    private TablaHash<String, Usuario> usuariosPorEmail = new TablaHash<>();
+    // Tabla hash para almacenar usuarios por email (para login rápido); la comparten todos los hilos
+    private TablaHashConcurrente<String, Usuario> usuariosPorEmail = new TablaHashConcurrente<>();
     
-    // Cola para procesamiento asíncrono de correos de verificación
-    private Cola<String> colaCorreosVerificacion = new Cola<>();
+    // Envío asíncrono de correos de verificación (cola, lotes, reintentos): el registro no espera al correo
+    @Autowired
+    private DespachadorCorreosVerificacion despachadorCorreos;
 
     @Transactional
     public Usuario registrarUsuario(UsuarioRequest request) {
@@ -56,12 +58,6 @@ public class UsuarioService {
         // Guardar en base de datos
         Usuario usuarioGuardado = usuarioRepository.save(usuario);
         
-        // Guardar en tabla hash para acceso rápido
-        usuariosPorEmail.put(usuarioGuardado.getEmail(), usuarioGuardado);
-        
-        // Agregar a la cola de verificación de correos
-        colaCorreosVerificacion.encolar(usuarioGuardado.getEmail());
-
         // NUEVO: asignar rol (por defecto EMPLEADO si no se envía)
         String roleName = (request.getRole() == null || request.getRole().isBlank())
                 ? "EMPLEADO"
@@ -73,9 +69,30 @@ public class UsuarioService {
         UserRole userRole = new UserRole(usuarioGuardado, role);
         userRoleRepository.save(userRole);
 
+        // Tabla hash y correo de verificación solo si el registro llega a confirmarse:
+        // con un rollback no debe quedar un usuario fantasma ni un correo para una cuenta inexistente
+        trasCommit(() -> {
+            usuariosPorEmail.put(usuarioGuardado.getEmail(), usuarioGuardado);
+            despachadorCorreos.encolar(usuarioGuardado.getEmail());
+        });
+
         return usuarioGuardado;
     }
 
+    // Ejecuta la acción tras el commit de la transacción en curso, o ya si no hay transacción
+    private void trasCommit(Runnable accion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            accion.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                accion.run();
+            }
+        });
+    }
+
     public Usuario autenticarUsuario(String email, String password) {
         // Buscar usuario en la tabla hash (acceso rápido)
         Usuario usuario = usuariosPorEmail.get(email);
@@ -99,13 +116,4 @@ public class UsuarioService {
         
         return null; // Contraseña incorrecta
     }
-    
-    // Método para procesar la cola de correos de verificación
-    public void procesarColaVerificacion() {
-        while (!colaCorreosVerificacion.estaVacia()) {
-            String email = colaCorreosVerificacion.desencolar();
-            // Lógica para enviar correo de verificación
-            System.out.println("Enviando correo de verificación a: " + email);
-        }
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,109 @@
+package com.ejemplo.chatgptwebhook.datastructures;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+class AnaliticaGrafoTest {
+
+    // Umbral mínimo para que incluso los grafos pequeños se repartan en muchos tramos
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+    private final AnaliticaGrafo analitica = new AnaliticaGrafo(pool, 2);
+
+    @AfterEach
+    void cerrar() {
+        pool.shutdownNow();
+    }
+
+    private static GrafoCsr grafo(int n, long[][] aristas) {
+        long[] ids = new long[n];
+        for (int i = 0; i < n; i++) ids[i] = (i + 1) * 10L;
+        GrafoCsr.Constructor c = new GrafoCsr.Constructor(ids);
+        for (long[] a : aristas) c.agregarArista(a[0], a[1]);
+        return c.construir();
+    }
+
+    @Test
+    void el_constructor_descarta_lazos_y_repetidas() {
+        GrafoCsr g = grafo(3, new long[][]{{10, 20}, {20, 10}, {10, 10}, {20, 30}});
+        Assertions.assertEquals(2, g.numeroAristas());
+        Assertions.assertEquals(2, g.grado(g.indiceDe(20)));
+        Assertions.assertEquals(-1, g.indiceDe(15));
+        Assertions.assertEquals(30, g.idDe(2));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new GrafoCsr.Constructor(new long[]{1}).agregarArista(1, 2));
+    }
+
+    @Test
+    void pagerank_suma_uno_y_el_centro_de_una_estrella_es_el_mas_popular() {
+        // Estrella 10 - {20, 30, 40, 50} y un nodo aislado 60
+        GrafoCsr g = grafo(6, new long[][]{{10, 20}, {10, 30}, {10, 40}, {10, 50}});
+        double[] rango = analitica.pageRank(g, 0.85, 100, 1e-12);
+
+        Assertions.assertEquals(1.0, Arrays.stream(rango).sum(), 1e-9);
+        for (int v = 1; v < 6; v++) {
+            Assertions.assertTrue(rango[0] > rango[v]);
+        }
+        Assertions.assertEquals(rango[1], rango[4], 1e-12);
+    }
+
+    @Test
+    void componentes_en_paralelo_coinciden_con_un_recorrido_secuencial() {
+        Random azar = new Random(3);
+        int n = 2_000;
+        long[][] aristas = new long[1_500][];
+        for (int i = 0; i < aristas.length; i++) {
+            aristas[i] = new long[]{(azar.nextInt(n) + 1) * 10L, (azar.nextInt(n) + 1) * 10L};
+        }
+        GrafoCsr g = grafo(n, aristas);
+        int[] etiqueta = analitica.componentes(g);
+
+        // Referencia secuencial: BFS etiquetando con el índice menor de cada componente
+        int[] esperado = new int[n];
+        Arrays.fill(esperado, -1);
+        int[] cola = new int[n];
+        for (int s = 0; s < n; s++) {
+            if (esperado[s] >= 0) continue;
+            int frente = 0, fin = 0;
+            cola[fin++] = s;
+            esperado[s] = s;
+            while (frente < fin) {
+                int v = cola[frente++];
+                for (int k = g.inicio[v]; k < g.inicio[v + 1]; k++) {
+                    int w = g.vecinos[k];
+                    if (esperado[w] < 0) {
+                        esperado[w] = s;
+                        cola[fin++] = w;
+                    }
+                }
+            }
+        }
+        Assertions.assertArrayEquals(esperado, etiqueta);
+    }
+
+    @Test
+    void relacionados_priorizan_vecinos_directos_y_luego_vecinos_comunes() {
+        // Camino 10 - 20 - 30 - 40 y 50 colgando de 20
+        GrafoCsr g = grafo(5, new long[][]{{10, 20}, {20, 30}, {30, 40}, {20, 50}});
+        double[] rango = analitica.pageRank(g, 0.85, 100, 1e-12);
+        AnaliticaGrafo.Relacionados rel = analitica.relacionados(g, rango, 3);
+
+        int v = g.indiceDe(10);
+        Assertions.assertEquals(3, rel.cuenta()[v]);
+        Assertions.assertEquals(20, g.idDe(rel.nodos()[v * 3]));
+        // 30 y 50 comparten el vecino 20; 40 queda a tres saltos y no aparece
+        long[] siguientes = {g.idDe(rel.nodos()[v * 3 + 1]), g.idDe(rel.nodos()[v * 3 + 2])};
+        Arrays.sort(siguientes);
+        Assertions.assertArrayEquals(new long[]{30, 50}, siguientes);
+        Assertions.assertTrue(rel.puntuaciones()[v * 3] > rel.puntuaciones()[v * 3 + 1]);
+
+        // 30 está unido a 20 y a 40, y además comparte vecino con 10 y con 50
+        int w = g.indiceDe(30);
+        Assertions.assertEquals(3, rel.cuenta()[w]);
+        Assertions.assertEquals(20, g.idDe(rel.nodos()[w * 3]));
+    }
+}
@@ -0,0 +1,107 @@
+package com.ejemplo.chatgptwebhook.datastructures;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Benchmark productores/consumidor: ColaMpsc frente a la Cola enlazada con synchronized
+ * (lo mínimo para usarla desde varios hilos) y a ArrayBlockingQueue.
+ * No es un test (no lo ejecuta surefire). Uso, desde backend/:
+ *   mvn -q test-compile
+ *   java -cp target/classes:target/test-classes com.ejemplo.chatgptwebhook.datastructures.ColaMpscBenchmark
+ * Argumentos opcionales: elementos por productor (2000000).
+ */
+public class ColaMpscBenchmark {
+
+    private interface ColaPrueba {
+        void encolar(String e);
+        // Devuelve cuántos sacó (hasta max)
+        int drenar(int max);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int porProductor = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int[] productores = {1, 2, 4};
+        String elemento = "usuario@ejemplo.com";
+
+        System.out.printf("%-22s %11s %14s %16s%n", "implementación", "productores", "ns/encolado", "bytes/elemento");
+        for (int n : productores) {
+            for (int ronda = 0; ronda < 2; ronda++) {
+                boolean medir = ronda == 1;
+                medir("ColaMpsc", n, porProductor, elemento, medir, () -> {
+                    ColaMpsc<String> c = new ColaMpsc<>(4096, ColaMpsc.PoliticaLlena.BLOQUEAR);
+                    return new ColaPrueba() {
+                        public void encolar(String e) { c.encolar(e); }
+                        public int drenar(int max) { return c.drenar(x -> {}, max); }
+                    };
+                });
+                medir("Cola + synchronized", n, porProductor, elemento, medir, () -> {
+                    Cola<String> c = new Cola<>();
+                    return new ColaPrueba() {
+                        public void encolar(String e) { synchronized (c) { c.encolar(e); } }
+                        public int drenar(int max) {
+                            int k = 0;
+                            synchronized (c) {
+                                while (k < max && !c.estaVacia()) { c.desencolar(); k++; }
+                            }
+                            return k;
+                        }
+                    };
+                });
+                medir("ArrayBlockingQueue", n, porProductor, elemento, medir, () -> {
+                    ArrayBlockingQueue<String> c = new ArrayBlockingQueue<>(4096);
+                    return new ColaPrueba() {
+                        public void encolar(String e) {
+                            try {
+                                c.put(e);
+                            } catch (InterruptedException ex) {
+                                Thread.currentThread().interrupt();
+                            }
+                        }
+                        public int drenar(int max) { return c.drainTo(new java.util.ArrayList<>(max), max); }
+                    };
+                });
+            }
+        }
+    }
+
+    private static void medir(String nombre, int productores, int porProductor, String elemento, boolean imprimir,
+                              java.util.function.Supplier<ColaPrueba> fabrica) throws Exception {
+        ColaPrueba cola = fabrica.get();
+        CountDownLatch salida = new CountDownLatch(1);
+        com.sun.management.ThreadMXBean mx =
+                (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+        LongAdder bytesProductores = new LongAdder();
+        Thread[] hilos = new Thread[productores];
+        for (int p = 0; p < productores; p++) {
+            hilos[p] = new Thread(() -> {
+                try {
+                    salida.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long antes = mx.getCurrentThreadAllocatedBytes();
+                for (int i = 0; i < porProductor; i++) cola.encolar(elemento);
+                bytesProductores.add(mx.getCurrentThreadAllocatedBytes() - antes);
+            });
+            hilos[p].start();
+        }
+        long total = (long) productores * porProductor;
+
+        long inicio = System.nanoTime();
+        salida.countDown();
+        long recibidos = 0;
+        while (recibidos < total) {
+            int k = cola.drenar(256);
+            if (k == 0) Thread.yield();
+            recibidos += k;
+        }
+        for (Thread t : hilos) t.join();
+        long nanos = System.nanoTime() - inicio;
+        if (imprimir) {
+            System.out.printf("%-22s %11d %14.1f %16.1f%n", nombre, productores,
+                    (double) nanos / total, (double) bytesProductores.sum() / total);
+        }
+    }
+}
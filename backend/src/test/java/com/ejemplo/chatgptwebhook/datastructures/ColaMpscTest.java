@@ -0,0 +1,158 @@
+package com.ejemplo.chatgptwebhook.datastructures;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+class ColaMpscTest {
+
+    private static final int PRODUCTORES = 4;
+
+    @Test
+    void productores_concurrentes_no_pierden_ni_duplican_y_respetan_su_orden() throws Exception {
+        ColaMpsc<Long> cola = new ColaMpsc<>(64, ColaMpsc.PoliticaLlena.BLOQUEAR);
+        int porProductor = 50_000;
+
+        List<Thread> hilos = new ArrayList<>();
+        for (int p = 0; p < PRODUCTORES; p++) {
+            long base = (long) p << 32;
+            Thread t = new Thread(() -> {
+                for (int i = 0; i < porProductor; i++) {
+                    cola.encolar(base | i);
+                }
+            });
+            hilos.add(t);
+            t.start();
+        }
+
+        // Cada productor debe llegar en orden y sin huecos
+        int[] siguiente = new int[PRODUCTORES];
+        int recibidos = 0;
+        while (recibidos < PRODUCTORES * porProductor) {
+            int n = cola.drenar(v -> {
+                int p = (int) (v >>> 32);
+                Assertions.assertEquals(siguiente[p], (int) (long) v);
+                siguiente[p]++;
+            }, 128);
+            if (n == 0) Thread.onSpinWait();
+            recibidos += n;
+        }
+        for (Thread t : hilos) t.join();
+
+        Assertions.assertTrue(cola.estaVacia());
+        Assertions.assertNull(cola.sondear());
+        for (int p = 0; p < PRODUCTORES; p++) {
+            Assertions.assertEquals(porProductor, siguiente[p]);
+        }
+    }
+
+    @Test
+    void capacidad_se_redondea_a_potencia_de_dos_y_ofrecer_no_espera() {
+        ColaMpsc<String> cola = new ColaMpsc<>(5, ColaMpsc.PoliticaLlena.BLOQUEAR);
+        Assertions.assertEquals(8, cola.capacidad());
+        for (int i = 0; i < 8; i++) {
+            Assertions.assertTrue(cola.ofrecer("e" + i));
+        }
+        Assertions.assertFalse(cola.ofrecer("sobra"));
+        Assertions.assertEquals("e0", cola.sondear());
+        Assertions.assertTrue(cola.ofrecer("e8"));
+        Assertions.assertEquals(8, cola.tamaño());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> cola.ofrecer(null));
+    }
+
+    @Test
+    void descartar_cuenta_lo_que_no_cabe() {
+        ColaMpsc<Integer> cola = new ColaMpsc<>(4, ColaMpsc.PoliticaLlena.DESCARTAR);
+        for (int i = 0; i < 10; i++) {
+            cola.encolar(i);
+        }
+        List<Integer> drenados = new ArrayList<>();
+        Assertions.assertEquals(4, cola.drenar(drenados::add, 100));
+        Assertions.assertEquals(List.of(0, 1, 2, 3), drenados);
+        Assertions.assertEquals(6, cola.descartados());
+    }
+
+    @Test
+    void bloquear_espera_a_que_el_consumidor_libere_sitio() throws Exception {
+        ColaMpsc<Integer> cola = new ColaMpsc<>(2, ColaMpsc.PoliticaLlena.BLOQUEAR);
+        cola.encolar(1);
+        cola.encolar(2);
+        AtomicBoolean encolado = new AtomicBoolean();
+        Thread productor = new Thread(() -> encolado.set(cola.encolar(3)));
+        productor.start();
+
+        Thread.sleep(50);
+        Assertions.assertFalse(encolado.get());
+        Assertions.assertEquals(1, cola.sondear());
+        productor.join(5_000);
+        Assertions.assertTrue(encolado.get());
+        Assertions.assertEquals(2, cola.sondear());
+        Assertions.assertEquals(3, cola.sondear());
+    }
+
+    @Test
+    void desbordar_a_disco_no_pierde_elementos_y_sobrevive_a_un_reinicio(@TempDir Path dir) {
+        Path fichero = dir.resolve("correos.desborde");
+        ColaMpsc<String> cola = new ColaMpsc<>(4, fichero, Function.identity(), Function.identity());
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertTrue(cola.encolar("usuario" + i + "@ejemplo.com"));
+        }
+        cola.encolar("con\nsalto de línea y ñ");
+        Assertions.assertTrue(Files.exists(fichero));
+        Assertions.assertEquals(11, cola.tamaño());
+
+        // Otra instancia sobre el mismo fichero recupera lo desbordado (el anillo se pierde al reiniciar)
+        ColaMpsc<String> reabierta = new ColaMpsc<>(4, fichero, Function.identity(), Function.identity());
+        Assertions.assertEquals(7, reabierta.tamaño());
+
+        List<String> drenados = new ArrayList<>();
+        while (cola.drenar(drenados::add, 3) > 0) {
+            // lotes de 3
+        }
+        Assertions.assertEquals(11, drenados.size());
+        Assertions.assertEquals("usuario0@ejemplo.com", drenados.get(0));
+        Assertions.assertEquals("con\nsalto de línea y ñ", drenados.get(10));
+        Assertions.assertTrue(cola.estaVacia());
+        Assertions.assertFalse(Files.exists(fichero));
+    }
+
+    @Test
+    void tras_una_caida_leyendo_el_desborde_solo_se_repite_el_ultimo_entregado(@TempDir Path dir) {
+        Path fichero = dir.resolve("correos.desborde");
+        ColaMpsc<String> cola = new ColaMpsc<>(2, fichero, Function.identity(), Function.identity());
+        for (int i = 0; i < 600; i++) {
+            cola.desbordar("e" + i);
+        }
+        Assertions.assertEquals("e0", cola.sondear());
+        Assertions.assertEquals("e1", cola.sondear());
+        Assertions.assertEquals("e2", cola.sondear());
+        Assertions.assertFalse(Files.exists(fichero));
+        Assertions.assertTrue(Files.exists(dir.resolve("correos.desborde.leyendo")));
+
+        // Caída sin volcar: e0 y e1 ya se procesaron; e2 se entregó pero no consta como procesado
+        ColaMpsc<String> reabierta = new ColaMpsc<>(2, fichero, Function.identity(), Function.identity());
+        Assertions.assertEquals(598, reabierta.tamaño());
+        List<String> drenados = new ArrayList<>();
+        while (reabierta.drenar(drenados::add, 100) > 0) {
+            // lotes de 100
+        }
+        Assertions.assertEquals(598, drenados.size());
+        Assertions.assertEquals("e2", drenados.get(0));
+        Assertions.assertEquals("e599", drenados.get(597));
+        Assertions.assertFalse(Files.exists(dir.resolve("correos.desborde.leyendo")));
+        Assertions.assertFalse(Files.exists(dir.resolve("correos.desborde.leyendo.pos")));
+    }
+
+    @Test
+    void desbordar_a_disco_exige_fichero() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new ColaMpsc<String>(8, ColaMpsc.PoliticaLlena.DESBORDAR_A_DISCO));
+    }
+}
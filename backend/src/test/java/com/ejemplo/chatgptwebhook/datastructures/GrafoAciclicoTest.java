@@ -0,0 +1,100 @@
+package com.ejemplo.chatgptwebhook.datastructures;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+class GrafoAciclicoTest {
+
+    private static <T> List<T> lista(Iterable<T> elementos) {
+        List<T> resultado = new ArrayList<>();
+        elementos.forEach(resultado::add);
+        return resultado;
+    }
+
+    private static <T> void assertRespetaDependencias(GrafoAciclico<T> g, List<T> orden, List<T[]> aristas) {
+        Assertions.assertEquals(g.numeroVertices(), orden.size());
+        for (T[] a : aristas) {
+            Assertions.assertTrue(orden.indexOf(a[0]) < orden.indexOf(a[1]), a[0] + " debe ir antes que " + a[1]);
+        }
+    }
+
+    @Test
+    void rechaza_la_arista_que_cierra_un_ciclo_sin_modificar_el_grafo() {
+        GrafoAciclico<String> g = new GrafoAciclico<>();
+        Assertions.assertTrue(g.agregarArista("a", "b"));
+        Assertions.assertTrue(g.agregarArista("b", "c"));
+        Assertions.assertFalse(g.agregarArista("a", "b"));
+
+        GrafoAciclico.CicloException e = Assertions.assertThrows(GrafoAciclico.CicloException.class,
+                () -> g.agregarArista("c", "a"));
+        Assertions.assertEquals(List.of("c", "a", "b", "c"), lista(e.getCiclo()));
+        Assertions.assertEquals("La dependencia crea un ciclo: c -> a -> b -> c", e.getMessage());
+        Assertions.assertFalse(g.existeArista("c", "a"));
+        Assertions.assertEquals(2, g.numeroAristas());
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> g.agregarArista("a", "a"));
+
+        // Tras quitar una arista el ciclo deja de existir
+        g.eliminarArista("b", "c");
+        Assertions.assertTrue(g.agregarArista("c", "a"));
+    }
+
+    @Test
+    void el_orden_se_mantiene_valido_con_inserciones_al_azar() {
+        Random azar = new Random(7);
+        GrafoAciclico<Integer> g = new GrafoAciclico<>();
+        List<Integer[]> aceptadas = new ArrayList<>();
+        int rechazadas = 0;
+        for (int i = 0; i < 2_000; i++) {
+            Integer a = azar.nextInt(60);
+            Integer b = azar.nextInt(60);
+            try {
+                if (g.agregarArista(a, b)) aceptadas.add(new Integer[]{a, b});
+            } catch (GrafoAciclico.CicloException e) {
+                rechazadas++;
+                List<?> ciclo = lista(e.getCiclo());
+                Assertions.assertEquals(ciclo.get(0), ciclo.get(ciclo.size() - 1));
+            }
+        }
+        Assertions.assertTrue(rechazadas > 0);
+        assertRespetaDependencias(g, lista(g.ordenTopologico()), aceptadas);
+    }
+
+    @Test
+    void camino_critico_suma_la_duracion_de_la_cadena_mas_larga() {
+        GrafoAciclico<String> g = new GrafoAciclico<>();
+        g.agregarArista("diseño", "backend");
+        g.agregarArista("diseño", "frontend");
+        g.agregarArista("backend", "pruebas");
+        g.agregarArista("frontend", "pruebas");
+        g.agregarVertice("documentación");
+        Map<String, Integer> horas = Map.of("diseño", 4, "backend", 10, "frontend", 6, "pruebas", 3,
+                "documentación", 15);
+
+        GrafoAciclico.CaminoCritico<String> camino = g.caminoCritico(horas::get);
+        Assertions.assertEquals(List.of("diseño", "backend", "pruebas"), lista(camino.vertices()));
+        Assertions.assertEquals(17, camino.duracion());
+
+        Assertions.assertEquals(0, new GrafoAciclico<String>().caminoCritico(v -> 1).duracion());
+    }
+
+    @Test
+    void listos_son_los_pendientes_con_todas_sus_dependencias_completadas() {
+        GrafoAciclico<String> g = new GrafoAciclico<>();
+        g.agregarArista("a", "c");
+        g.agregarArista("b", "c");
+        g.agregarArista("c", "d");
+        g.agregarVertice("e");
+
+        Assertions.assertEquals(Set.of("a", "b", "e"), Set.copyOf(lista(g.listos(v -> false))));
+        Assertions.assertEquals(List.of("b", "e"), lista(g.listos(v -> v.equals("a"))).stream().sorted().toList());
+        Assertions.assertEquals(List.of("c", "e"),
+                lista(g.listos(v -> v.equals("a") || v.equals("b"))).stream().sorted().toList());
+    }
+}
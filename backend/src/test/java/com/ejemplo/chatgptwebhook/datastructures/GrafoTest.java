@@ -0,0 +1,128 @@
+package com.ejemplo.chatgptwebhook.datastructures;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+class GrafoTest {
+
+    private static <T> List<T> lista(Iterable<T> elementos) {
+        List<T> resultado = new ArrayList<>();
+        elementos.forEach(resultado::add);
+        return resultado;
+    }
+
+    @Test
+    void aristas_repetidas_se_ignoran_y_obtenerVertices_enumera_todos() {
+        Grafo<String> g = new Grafo<>();
+        g.agregarArista("a", "b");
+        g.agregarArista("a", "b");
+        g.agregarArista("a", "c");
+        g.agregarVertice("d");
+
+        Assertions.assertEquals(2, g.numeroAristas());
+        Assertions.assertEquals(List.of("b", "c"), lista(g.obtenerAdyacentes("a")));
+        Assertions.assertEquals(List.of("a", "b", "c", "d"), lista(g.obtenerVertices()));
+        Assertions.assertTrue(g.existeArista("a", "b"));
+        Assertions.assertFalse(g.existeArista("b", "a"));
+    }
+
+    @Test
+    void eliminarVertice_quita_tambien_las_aristas_entrantes_y_reutiliza_el_id() {
+        Grafo<String> g = new Grafo<>();
+        g.agregarArista("a", "b");
+        g.agregarArista("c", "b");
+        g.agregarArista("b", "d");
+        g.agregarArista("b", "b");
+
+        g.eliminarVertice("b");
+        Assertions.assertFalse(g.existeVertice("b"));
+        Assertions.assertFalse(g.existeArista("a", "b"));
+        Assertions.assertTrue(g.obtenerAdyacentes("a").estaVacia());
+        Assertions.assertTrue(g.obtenerAdyacentes("c").estaVacia());
+        Assertions.assertEquals(0, g.numeroAristas());
+        Assertions.assertEquals(3, g.numeroVertices());
+
+        // El nuevo vértice ocupa el id libre sin heredar aristas
+        g.agregarVertice("e");
+        Assertions.assertTrue(g.obtenerAdyacentes("e").estaVacia());
+        Assertions.assertFalse(g.existeArista("a", "e"));
+
+        Assertions.assertFalse(g.eliminarArista("e", "e"));
+        g.agregarArista("a", "e");
+        Assertions.assertTrue(g.eliminarArista("a", "e"));
+        Assertions.assertFalse(g.existeArista("a", "e"));
+    }
+
+    @Test
+    void recorridos_en_anchura_y_profundidad() {
+        Grafo<Integer> g = new Grafo<>();
+        g.agregarArista(1, 2);
+        g.agregarArista(1, 3);
+        g.agregarArista(2, 4);
+        g.agregarArista(3, 4);
+        g.agregarArista(4, 1);
+        g.agregarVertice(5);
+
+        Assertions.assertEquals(List.of(1, 2, 3, 4), lista(g.recorrerAnchura(1)));
+        Assertions.assertEquals(List.of(1, 2, 4, 3), lista(g.recorrerProfundidad(1)));
+        Assertions.assertEquals(List.of(5), lista(g.recorrerAnchura(5)));
+        Assertions.assertTrue(g.recorrerAnchura(99).estaVacia());
+    }
+
+    @Test
+    void camino_mas_corto_por_numero_de_aristas() {
+        Grafo<String> g = new Grafo<>();
+        g.agregarArista("a", "b");
+        g.agregarArista("b", "c");
+        g.agregarArista("c", "d");
+        g.agregarArista("a", "x");
+        g.agregarArista("x", "d");
+
+        Assertions.assertEquals(List.of("a", "x", "d"), lista(g.caminoMasCorto("a", "d")));
+        Assertions.assertEquals(List.of("a"), lista(g.caminoMasCorto("a", "a")));
+        Assertions.assertTrue(g.caminoMasCorto("d", "a").estaVacia());
+    }
+
+    @Test
+    void componentes_conexas_ignoran_la_direccion() {
+        Grafo<String> g = new Grafo<>();
+        g.agregarArista("a", "b");
+        g.agregarArista("c", "b");
+        g.agregarArista("x", "y");
+        g.agregarVertice("solo");
+
+        Set<Set<String>> componentes = new HashSet<>();
+        for (ListaArreglo<String> c : g.componentesConexas()) {
+            componentes.add(new HashSet<>(lista(c)));
+        }
+        Assertions.assertEquals(Set.of(Set.of("a", "b", "c"), Set.of("x", "y"), Set.of("solo")), componentes);
+    }
+
+    @Test
+    void con_limite_expulsa_el_vertice_usado_hace_mas_tiempo() {
+        Grafo<String> g = new Grafo<>(3);
+        g.agregarArista("p1", "p2");
+        g.agregarArista("p2", "p3");
+        g.agregarVertice("p1"); // p1 pasa a ser el más reciente; el menos reciente es p2
+
+        g.agregarArista("p3", "p4");
+        Assertions.assertEquals(3, g.numeroVertices());
+        Assertions.assertFalse(g.existeVertice("p2"));
+        Assertions.assertTrue(g.obtenerAdyacentes("p1").estaVacia());
+        Assertions.assertTrue(g.existeArista("p3", "p4"));
+        Assertions.assertEquals(1, g.numeroAristas());
+
+        // Muchas altas no lo hacen crecer
+        for (int i = 0; i < 1_000; i++) {
+            g.agregarArista("q" + i, "q" + (i + 1));
+        }
+        Assertions.assertEquals(3, g.numeroVertices());
+        Assertions.assertTrue(g.numeroAristas() <= 2);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new Grafo<String>(1));
+    }
+}
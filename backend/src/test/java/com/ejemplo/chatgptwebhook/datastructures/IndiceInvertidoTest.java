@@ -0,0 +1,53 @@
+package com.ejemplo.chatgptwebhook.datastructures;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class IndiceInvertidoTest {
+
+    private static List<Long> ids(List<IndiceInvertido.Resultado> resultados) {
+        return resultados.stream().map(IndiceInvertido.Resultado::id).toList();
+    }
+
+    @Test
+    void bm25_prefiere_terminos_raros_y_documentos_cortos_y_pliega_tildes() {
+        IndiceInvertido indice = new IndiceInvertido();
+        indice.indexar(1, "Diseñar la base de datos");
+        indice.indexar(2, "Implementar la API de autenticación");
+        indice.indexar(3, "Configurar la autenticacion con OAuth, tokens y la base de datos de usuarios");
+        indice.indexar(4, "Escribir la documentación");
+
+        // "autenticación" aparece en 2 y 3; el 2 es más corto
+        Assertions.assertEquals(List.of(2L, 3L), ids(indice.buscar("AUTENTICACION", 10)));
+        // "oauth" es raro y solo está en 3: pesa más que "la", que está en todos
+        Assertions.assertEquals(3L, indice.buscar("la oauth", 10).get(0).id());
+        Assertions.assertEquals(List.of(1L), ids(indice.buscar("diseñar", 10)));
+        Assertions.assertTrue(indice.buscar("disenar", 10).isEmpty());
+        Assertions.assertEquals(1, indice.buscar("la", 1).size());
+    }
+
+    @Test
+    void reindexar_y_eliminar_sustituyen_el_documento_tambien_tras_compactar() {
+        IndiceInvertido indice = new IndiceInvertido();
+        for (long id = 0; id < 100; id++) {
+            indice.indexar(id, "tarea " + id + (id % 2 == 0 ? " par" : " impar"));
+        }
+        // 150 reindexaciones: los borrados superan a los vivos y se compacta por el camino
+        for (int ronda = 0; ronda < 3; ronda++) {
+            for (long id = 0; id < 50; id++) {
+                indice.indexar(id, "tarea " + id + " revisada" + ronda);
+            }
+        }
+        indice.eliminar(99);
+
+        Assertions.assertEquals(99, indice.tamaño());
+        Assertions.assertTrue(indice.buscar("revisada0", 10).isEmpty());
+        Assertions.assertEquals(50, indice.buscar("revisada2", 100).size());
+        Assertions.assertEquals(List.of(7L), ids(indice.buscar("7", 10)));
+        // Pares que no se reindexaron: 50..98
+        Assertions.assertEquals(25, indice.buscar("par", 100).size());
+        Assertions.assertTrue(ids(indice.buscar("impar", 100)).stream().allMatch(id -> id >= 50 && id < 99));
+    }
+}
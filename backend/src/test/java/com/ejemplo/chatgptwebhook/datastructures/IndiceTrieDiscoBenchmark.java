@@ -0,0 +1,67 @@
+package com.ejemplo.chatgptwebhook.datastructures;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Apertura y heap retenido del índice persistente frente a reconstruir el Trie en heap,
+ * y tiempo de una sugerencia top-10 sobre el fichero mapeado.
+ * No es un test (no lo ejecuta surefire). Uso, desde backend/:
+ *   mvn -q test-compile
+ *   java -cp target/classes:target/test-classes com.ejemplo.chatgptwebhook.datastructures.IndiceTrieDiscoBenchmark
+ * Argumento opcional: número de palabras distintas (200000).
+ */
+public class IndiceTrieDiscoBenchmark {
+
+    static volatile Object sumideroGlobal;
+
+    public static void main(String[] args) throws Exception {
+        int palabras = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        Random azar = new Random(13);
+        List<String> vocabulario = new ArrayList<>(palabras);
+        for (int i = 0; i < palabras; i++) {
+            vocabulario.add("tarea" + Integer.toString(azar.nextInt(Integer.MAX_VALUE), 36));
+        }
+
+        Path directorio = Files.createTempDirectory("indice-bench");
+        IndiceTrieDisco indice = new IndiceTrieDisco(directorio, "bench", Integer.MAX_VALUE);
+        indice.insertar(vocabulario);
+        indice.compactar();
+        indice = null;
+        System.out.printf("Segmento: %d palabras, %d KB en disco%n", palabras,
+                Files.size(directorio.resolve("bench.trie")) / 1024);
+
+        Runtime rt = Runtime.getRuntime();
+        long antes = usada(rt);
+        long t0 = System.nanoTime();
+        IndiceTrieDisco reabierto = new IndiceTrieDisco(directorio, "bench", Integer.MAX_VALUE);
+        long t1 = System.nanoTime();
+        sumideroGlobal = reabierto;
+        System.out.printf("Abrir índice mapeado: %.2f ms, %.1f KB de heap%n",
+                (t1 - t0) / 1e6, (usada(rt) - antes) / 1024.0);
+
+        antes = usada(rt);
+        t0 = System.nanoTime();
+        Trie trie = new Trie();
+        for (String palabra : vocabulario) trie.insertar(palabra);
+        t1 = System.nanoTime();
+        sumideroGlobal = trie;
+        System.out.printf("Reconstruir Trie en heap: %.2f ms, %.1f KB de heap%n",
+                (t1 - t0) / 1e6, (usada(rt) - antes) / 1024.0);
+
+        for (int ronda = 0; ronda < 3; ronda++) {
+            t0 = System.nanoTime();
+            for (int i = 0; i < 10_000; i++) sumideroGlobal = reabierto.buscarPorPrefijo("tarea" + (char) ('a' + i % 26), 10);
+            t1 = System.nanoTime();
+            System.out.printf("Sugerencia top-10 sobre el mapeado: %.2f us/consulta%n", (t1 - t0) / 10_000 / 1e3);
+        }
+    }
+
+    private static long usada(Runtime rt) {
+        for (int i = 0; i < 3; i++) System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,125 @@
+package com.ejemplo.chatgptwebhook.datastructures;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+class IndiceTrieDiscoTest {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void sobrevive_a_reabrir_y_compacta_en_el_segmento_mapeado() throws Exception {
+        IndiceTrieDisco indice = new IndiceTrieDisco(directorio, "admin-1", 5);
+        indice.insertar(List.of("Diseñar", "base", "de", "datos"));
+        indice.insertar(List.of("Diseñar", "API"));
+        // 6 entradas >= 5: ya se compactó al segmento y el diario quedó vacío
+        Assertions.assertEquals(0, indice.enDiario());
+        indice.insertar(List.of("documentar", "diseñar"));
+
+        IndiceTrieDisco reabierto = new IndiceTrieDisco(directorio, "admin-1", 5);
+        Assertions.assertEquals(3, reabierto.frecuencia("DISEÑAR"));
+        Assertions.assertEquals(2, reabierto.enDiario());
+        // Segmento + diario: "diseñar" (3) delante; el resto empata a 1
+        List<String> sugerencias = lista(reabierto.buscarPorPrefijo("d", 10));
+        Assertions.assertEquals("diseñar", sugerencias.get(0));
+        Assertions.assertEquals(Set.of("datos", "de", "documentar"), Set.copyOf(sugerencias.subList(1, 4)));
+        Assertions.assertTrue(reabierto.existePrefijo("ap"));
+        Assertions.assertFalse(reabierto.existePrefijo("z"));
+
+        reabierto.compactar();
+        TrieMapeado segmento = TrieMapeado.abrir(directorio.resolve("admin-1.trie"));
+        Assertions.assertEquals(2, segmento.generacion());
+        Assertions.assertEquals(6, segmento.tamaño());
+        Assertions.assertEquals(3, segmento.frecuencia("DISEÑAR"));
+        Assertions.assertEquals(List.of("diseñar"), lista(segmento.buscarPorPrefijo("dis", 10)));
+    }
+
+    @Test
+    void descarta_diarios_de_otra_generacion_y_lineas_cortadas() throws Exception {
+        IndiceTrieDisco indice = new IndiceTrieDisco(directorio, "admin-2", 100);
+        indice.insertar(List.of("tienda", "tienda"));
+        indice.compactar();
+        // Restos de una compactación interrumpida y una escritura cortada por una caída
+        Files.writeString(directorio.resolve("admin-2-0.log"), "tienda\n", StandardCharsets.UTF_8);
+        Files.writeString(directorio.resolve("admin-2-1.log"), "tiempo\ntie", StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+
+        IndiceTrieDisco reabierto = new IndiceTrieDisco(directorio, "admin-2", 100);
+        reabierto.insertar(List.of("tienda"));
+
+        Assertions.assertEquals(3, reabierto.frecuencia("tienda"));
+        Assertions.assertEquals(1, reabierto.frecuencia("tiempo"));
+        Assertions.assertFalse(reabierto.existePrefijo("tiet"));
+        Assertions.assertFalse(Files.exists(directorio.resolve("admin-2-0.log")));
+        Assertions.assertEquals("tiempo\ntienda\n",
+                Files.readString(directorio.resolve("admin-2-1.log"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void compacta_en_segundo_plano_sin_bloquear_y_retoma_una_compactacion_interrumpida() throws Exception {
+        List<Runnable> pendientes = new ArrayList<>();
+        IndiceTrieDisco indice = new IndiceTrieDisco(directorio, "admin-3", 3, pendientes::add);
+        indice.insertar(List.of("tienda", "tiempo", "blog"));
+        Assertions.assertEquals(1, pendientes.size());
+        // Mientras la fusión no ha corrido se sigue insertando y consultando, con el congelado incluido
+        indice.insertar(List.of("tienda"));
+        Assertions.assertEquals(2, indice.frecuencia("tienda"));
+        Assertions.assertEquals(List.of("tienda", "tiempo"), lista(indice.buscarPorPrefijo("tie", 10)));
+        Assertions.assertTrue(Files.exists(directorio.resolve("admin-3-0.log")));
+        Assertions.assertTrue(Files.exists(directorio.resolve("admin-3-1.log")));
+
+        // Caída antes de fusionar: al reabrir se vuelve a fusionar el diario congelado sin perder nada
+        IndiceTrieDisco reabierto = new IndiceTrieDisco(directorio, "admin-3", 3);
+        Assertions.assertEquals(1, reabierto.enDiario());
+        Assertions.assertFalse(Files.exists(directorio.resolve("admin-3-0.log")));
+        TrieMapeado segmento = TrieMapeado.abrir(directorio.resolve("admin-3.trie"));
+        Assertions.assertEquals(1, segmento.generacion());
+        Assertions.assertEquals(3, segmento.tamaño());
+        Assertions.assertEquals(2, reabierto.frecuencia("tienda"));
+
+        reabierto.close();
+        Assertions.assertThrows(IllegalStateException.class, () -> reabierto.frecuencia("tienda"));
+    }
+
+    @Test
+    void el_escritor_en_streaming_genera_el_mismo_indice_que_el_trie() throws Exception {
+        // Frecuencias distintas: los empates solo se ordenan igual si se insertó en orden de clave
+        Trie trie = new Trie();
+        trie.insertar("datos", 5);
+        trie.insertar("diseñar", 4);
+        trie.insertar("de", 3);
+        trie.insertar("dato", 2);
+        trie.insertar("diseño", 1);
+        trie.insertar("api", 1);
+        TrieMapeado.escribir(trie, directorio.resolve("t.trie"), 7);
+        TrieMapeado mapeado = TrieMapeado.abrir(directorio.resolve("t.trie"));
+
+        Assertions.assertEquals(trie.tamaño(), mapeado.tamaño());
+        for (String prefijo : List.of("d", "da", "dise", "diseñ", "a", "x")) {
+            Assertions.assertEquals(lista(trie.buscarPorPrefijo(prefijo, 3)), lista(mapeado.buscarPorPrefijo(prefijo, 3)), prefijo);
+            Assertions.assertEquals(trie.frecuencia(prefijo), mapeado.frecuencia(prefijo));
+        }
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            try (TrieMapeado.Escritor escritor = new TrieMapeado.Escritor(directorio.resolve("u.trie"), 1)) {
+                escritor.agregar("zeta", 1);
+                escritor.agregar("alfa", 1);
+            }
+        });
+    }
+
+    private static List<String> lista(ListaEnlazada<String> lista) {
+        List<String> res = new ArrayList<>();
+        for (String s : lista) res.add(s);
+        return res;
+    }
+}
@@ -0,0 +1,44 @@
+package com.ejemplo.chatgptwebhook.datastructures;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+
+class ListaArregloTest {
+
+    @Test
+    void crece_y_mantiene_el_orden_por_indice_e_iterador() {
+        ListaArreglo<Integer> lista = new ListaArreglo<>(0);
+        for (int i = 0; i < 1_000; i++) lista.agregar(i);
+        ListaEnlazada<Integer> enlazada = new ListaEnlazada<>();
+        enlazada.agregar(1_000);
+        enlazada.agregar(1_001);
+        lista.agregarTodos(enlazada);
+        lista.agregarTodos(List.of(1_002));
+
+        Assertions.assertEquals(1_003, lista.tamaño());
+        List<Integer> recorrido = new ArrayList<>();
+        for (int valor : lista) recorrido.add(valor);
+        for (int i = 0; i < lista.tamaño(); i++) {
+            Assertions.assertEquals(i, lista.obtener(i));
+            Assertions.assertEquals(i, recorrido.get(i));
+        }
+        Assertions.assertTrue(lista.contiene(1_001));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> lista.obtener(1_003));
+    }
+
+    @Test
+    void el_iterador_detecta_modificaciones_durante_el_recorrido() {
+        ListaArreglo<String> lista = new ListaArreglo<>();
+        lista.agregar("a");
+        lista.agregar("b");
+        Iterator<String> it = lista.iterator();
+        it.next();
+        lista.agregar("c");
+        Assertions.assertThrows(ConcurrentModificationException.class, it::next);
+    }
+}
@@ -0,0 +1,60 @@
+package com.ejemplo.chatgptwebhook.datastructures;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+class MapaLongTest {
+
+    @Test
+    void operaciones_aleatorias_coinciden_con_HashMap_incluida_la_clave_cero() {
+        MapaLong<String> mapa = new MapaLong<>();
+        Map<Long, String> modelo = new HashMap<>();
+        Random azar = new Random(3);
+
+        for (int n = 0; n < 100_000; n++) {
+            // Ids pequeños y consecutivos, como los de la base de datos, más algún negativo y el 0
+            long clave = azar.nextInt(3_000) - 10;
+            switch (azar.nextInt(3)) {
+                case 0 -> {
+                    mapa.put(clave, "v" + n);
+                    modelo.put(clave, "v" + n);
+                }
+                case 1 -> Assertions.assertEquals(modelo.remove(clave), mapa.remove(clave));
+                default -> Assertions.assertEquals(modelo.get(clave), mapa.get(clave));
+            }
+        }
+
+        Assertions.assertEquals(modelo.size(), mapa.size());
+        Assertions.assertEquals(modelo.size(), mapa.claves().length);
+        for (long clave : mapa.claves()) {
+            Assertions.assertTrue(modelo.containsKey(clave));
+        }
+    }
+
+    @Test
+    void mapa_string_long_incrementa_borra_y_copia() {
+        MapaStringLong mapa = new MapaStringLong();
+        for (int i = 0; i < 1_000; i++) {
+            mapa.put("admin:" + i, i);
+        }
+        Assertions.assertEquals(15, mapa.incrementar("admin:5", 10));
+        Assertions.assertEquals(7, mapa.incrementar("nuevo", 7));
+        Assertions.assertTrue(mapa.remove("admin:0"));
+        Assertions.assertFalse(mapa.remove("admin:0"));
+
+        MapaStringLong copia = new MapaStringLong(mapa);
+        copia.put("admin:1", 99);
+
+        Assertions.assertEquals(1, mapa.getOrDefault("admin:1", -1));
+        Assertions.assertEquals(99, copia.getOrDefault("admin:1", -1));
+        Assertions.assertEquals(-1, mapa.getOrDefault("admin:0", -1));
+        Assertions.assertEquals(1_000, mapa.size());
+        for (int i = 1; i < 1_000; i++) {
+            Assertions.assertEquals(i == 5 ? 15 : i, mapa.getOrDefault("admin:" + i, -1));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.ejemplo.chatgptwebhook.datastructures;
+
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * Benchmark de un hilo de los motores de TablaHash (y HashMap como referencia) con las mezclas
+ * de operaciones de los mapas de sesión: casi todo lecturas, y altas/bajas de sesiones.
+ * No es un test (no lo ejecuta surefire). Uso, desde backend/:
+ *   mvn -q test-compile
+ *   java -cp target/classes:target/test-classes com.ejemplo.chatgptwebhook.datastructures.TablaHashBenchmark
+ * Argumentos opcionales: número de claves (100000) y operaciones por medición (20000000).
+ */
+public class TablaHashBenchmark {
+
+    // Evita que el JIT elimine las lecturas
+    static volatile Object sumideroGlobal;
+
+    private interface Mapa {
+        Object get(String clave);
+        void put(String clave, Object valor);
+        Object remove(String clave);
+    }
+
+    public static void main(String[] args) {
+        int claves = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int operaciones = args.length > 1 ? Integer.parseInt(args[1]) : 20_000_000;
+        String[] universo = new String[claves];
+        for (int i = 0; i < claves; i++) universo[i] = "sesion-" + Integer.toHexString(i * 0x9E3779B1);
+
+        // {lecturas %, escrituras %, borrados %}
+        int[][] mezclas = {{95, 5, 0}, {80, 15, 5}, {50, 30, 20}};
+
+        System.out.printf("%-26s %16s%n", "motor", "bytes/entrada");
+        memoria("ENCADENAMIENTO", () -> tabla(TablaHash.Motor.ENCADENAMIENTO), universo);
+        memoria("DIRECCIONAMIENTO_ABIERTO", () -> tabla(TablaHash.Motor.DIRECCIONAMIENTO_ABIERTO), universo);
+        memoria("java.util.HashMap", TablaHashBenchmark::hashMap, universo);
+        System.out.println();
+
+        System.out.printf("%-26s %-12s %12s%n", "motor", "get/put/rm", "ns/op");
+        for (int[] mezcla : mezclas) {
+            for (int ronda = 0; ronda < 3; ronda++) {
+                boolean medir = ronda == 2; // Dos rondas de calentamiento
+                medir("ENCADENAMIENTO", tabla(TablaHash.Motor.ENCADENAMIENTO), universo, mezcla, operaciones, medir);
+                medir("DIRECCIONAMIENTO_ABIERTO", tabla(TablaHash.Motor.DIRECCIONAMIENTO_ABIERTO), universo, mezcla, operaciones, medir);
+                medir("java.util.HashMap", hashMap(), universo, mezcla, operaciones, medir);
+            }
+        }
+    }
+
+    private static void medir(String nombre, Mapa mapa, String[] universo, int[] mezcla, int operaciones, boolean imprimir) {
+        for (int i = 0; i < universo.length / 2; i++) mapa.put(universo[i], Boolean.TRUE);
+        Random azar = new Random(42);
+        int[] indices = new int[1 << 16];
+        int[] tipos = new int[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = azar.nextInt(universo.length);
+            int r = azar.nextInt(100);
+            tipos[i] = r < mezcla[0] ? 0 : (r < mezcla[0] + mezcla[1] ? 1 : 2);
+        }
+
+        Object sumidero = null;
+        long inicio = System.nanoTime();
+        for (int n = 0; n < operaciones; n++) {
+            int k = n & (indices.length - 1);
+            String clave = universo[indices[k]];
+            switch (tipos[k]) {
+                case 0 -> sumidero = mapa.get(clave);
+                case 1 -> mapa.put(clave, Boolean.TRUE);
+                default -> sumidero = mapa.remove(clave);
+            }
+        }
+        long transcurrido = System.nanoTime() - inicio;
+        sumideroGlobal = sumidero;
+        if (imprimir) {
+            System.out.printf("%-26s %-12s %12.1f%n", nombre, mezcla[0] + "/" + mezcla[1] + "/" + mezcla[2],
+                    (double) transcurrido / operaciones);
+        }
+    }
+
+    // Memoria retenida por la estructura (sin contar las claves, compartidas) tras insertar todo el universo
+    private static void memoria(String nombre, java.util.function.Supplier<Mapa> fabrica, String[] universo) {
+        Runtime rt = Runtime.getRuntime();
+        long antes = usada(rt);
+        Mapa mapa = fabrica.get();
+        for (String clave : universo) mapa.put(clave, Boolean.TRUE);
+        long despues = usada(rt);
+        sumideroGlobal = mapa;
+        System.out.printf("%-26s %16.1f%n", nombre, (double) (despues - antes) / universo.length);
+    }
+
+    private static long usada(Runtime rt) {
+        for (int i = 0; i < 3; i++) System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private static Mapa tabla(TablaHash.Motor motor) {
+        TablaHash<String, Object> tabla = new TablaHash<>(motor);
+        return new Mapa() {
+            public Object get(String clave) { return tabla.get(clave); }
+            public void put(String clave, Object valor) { tabla.put(clave, valor); }
+            public Object remove(String clave) { return tabla.remove(clave); }
+        };
+    }
+
+    private static Mapa hashMap() {
+        HashMap<String, Object> mapa = new HashMap<>();
+        return new Mapa() {
+            public Object get(String clave) { return mapa.get(clave); }
+            public void put(String clave, Object valor) { mapa.put(clave, valor); }
+            public Object remove(String clave) { return mapa.remove(clave); }
+        };
+    }
+}
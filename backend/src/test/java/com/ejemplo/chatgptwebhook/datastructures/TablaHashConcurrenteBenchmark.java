@@ -0,0 +1,115 @@
+package com.ejemplo.chatgptwebhook.datastructures;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Benchmark de contención: TablaHashConcurrente frente a ConcurrentHashMap y a una TablaHash
+ * con synchronized global (lo que haría falta para usar la original de forma segura).
+ * No es un test (no lo ejecuta surefire). Uso, desde backend/:
+ *   mvn -q test-compile
+ *   java -cp target/classes:target/test-classes com.ejemplo.chatgptwebhook.datastructures.TablaHashConcurrenteBenchmark
+ * Argumentos opcionales: segundos por medición (2) y número de claves (100000).
+ */
+public class TablaHashConcurrenteBenchmark {
+
+    // Evita que el JIT elimine las lecturas
+    static volatile Object sumideroGlobal;
+
+    private interface Mapa {
+        Object get(String clave);
+        void put(String clave, Object valor);
+    }
+
+    public static void main(String[] args) throws Exception {
+        long segundos = args.length > 0 ? Long.parseLong(args[0]) : 2;
+        int claves = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        String[] universo = new String[claves];
+        for (int i = 0; i < claves; i++) universo[i] = "sesion-" + i;
+
+        int[] hilos = {1, 4, 8, 16};
+        int[] porcentajesEscritura = {10, 50};
+
+        System.out.printf("%-24s %6s %9s %16s%n", "implementación", "hilos", "% put", "ops/s");
+        for (int escrituras : porcentajesEscritura) {
+            for (int n : hilos) {
+                // Calentamiento + medición por implementación
+                for (int ronda = 0; ronda < 2; ronda++) {
+                    boolean medir = ronda == 1;
+                    ejecutar("TablaHashConcurrente", nuevaConcurrente(), universo, n, escrituras, segundos, medir);
+                    ejecutar("ConcurrentHashMap", nuevoChm(), universo, n, escrituras, segundos, medir);
+                    ejecutar("TablaHash+synchronized", nuevaSincronizada(), universo, n, escrituras, segundos, medir);
+                }
+            }
+        }
+    }
+
+    private static void ejecutar(String nombre, Mapa mapa, String[] universo, int hilos, int escrituras,
+                                 long segundos, boolean imprimir) throws InterruptedException {
+        for (int i = 0; i < universo.length / 2; i++) mapa.put(universo[i], Boolean.TRUE);
+
+        LongAdder operaciones = new LongAdder();
+        CountDownLatch salida = new CountDownLatch(1);
+        long fin = System.nanoTime() + segundos * 1_000_000_000L + 100_000_000L;
+        Thread[] trabajadores = new Thread[hilos];
+        for (int h = 0; h < hilos; h++) {
+            trabajadores[h] = new Thread(() -> {
+                ThreadLocalRandom azar = ThreadLocalRandom.current();
+                long locales = 0;
+                Object sumidero = null;
+                try {
+                    salida.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                while (System.nanoTime() < fin) {
+                    for (int i = 0; i < 256; i++) {
+                        String clave = universo[azar.nextInt(universo.length)];
+                        if (azar.nextInt(100) < escrituras) {
+                            mapa.put(clave, Boolean.TRUE);
+                        } else {
+                            sumidero = mapa.get(clave);
+                        }
+                    }
+                    locales += 256;
+                }
+                operaciones.add(locales);
+                sumideroGlobal = sumidero;
+            });
+            trabajadores[h].start();
+        }
+        long inicio = System.nanoTime();
+        salida.countDown();
+        for (Thread t : trabajadores) t.join();
+        double transcurrido = (System.nanoTime() - inicio) / 1e9;
+        if (imprimir) {
+            System.out.printf("%-24s %6d %8d%% %,16.0f%n", nombre, hilos, escrituras, operaciones.sum() / transcurrido);
+        }
+    }
+
+    private static Mapa nuevaConcurrente() {
+        TablaHashConcurrente<String, Object> tabla = new TablaHashConcurrente<>();
+        return new Mapa() {
+            public Object get(String clave) { return tabla.get(clave); }
+            public void put(String clave, Object valor) { tabla.put(clave, valor); }
+        };
+    }
+
+    private static Mapa nuevoChm() {
+        ConcurrentHashMap<String, Object> mapa = new ConcurrentHashMap<>();
+        return new Mapa() {
+            public Object get(String clave) { return mapa.get(clave); }
+            public void put(String clave, Object valor) { mapa.put(clave, valor); }
+        };
+    }
+
+    private static Mapa nuevaSincronizada() {
+        TablaHash<String, Object> tabla = new TablaHash<>();
+        return new Mapa() {
+            public synchronized Object get(String clave) { return tabla.get(clave); }
+            public synchronized void put(String clave, Object valor) { tabla.put(clave, valor); }
+        };
+    }
+}
@@ -0,0 +1,95 @@
+package com.ejemplo.chatgptwebhook.datastructures;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class TablaHashConcurrenteTest {
+
+    private static final int HILOS = 8;
+
+    @Test
+    void puts_concurrentes_durante_el_redimensionado_no_pierden_entradas() throws Exception {
+        TablaHashConcurrente<String, Integer> tabla = new TablaHashConcurrente<>();
+        int porHilo = 20_000;
+
+        ejecutarEnParalelo(h -> {
+            for (int i = 0; i < porHilo; i++) {
+                tabla.put("k" + h + "-" + i, i);
+            }
+        });
+
+        Assertions.assertEquals(HILOS * porHilo, tabla.size());
+        Assertions.assertEquals(HILOS * porHilo, tabla.keySet().tamaño());
+        for (int h = 0; h < HILOS; h++) {
+            for (int i = 0; i < porHilo; i++) {
+                Assertions.assertEquals(i, tabla.get("k" + h + "-" + i));
+            }
+        }
+    }
+
+    @Test
+    void computeIfAbsent_ejecuta_la_funcion_una_vez_por_clave() throws Exception {
+        TablaHashConcurrente<Integer, Object> tabla = new TablaHashConcurrente<>();
+        AtomicInteger llamadas = new AtomicInteger();
+        int claves = 5_000;
+
+        ejecutarEnParalelo(h -> {
+            for (int i = 0; i < claves; i++) {
+                tabla.computeIfAbsent(i, k -> {
+                    llamadas.incrementAndGet();
+                    return new Object();
+                });
+            }
+        });
+
+        Assertions.assertEquals(claves, llamadas.get());
+        Assertions.assertEquals(claves, tabla.size());
+    }
+
+    @Test
+    void remove_y_valores_nulos() {
+        TablaHashConcurrente<String, String> tabla = new TablaHashConcurrente<>();
+        tabla.put("a", "1");
+        tabla.put("a", "2");
+
+        Assertions.assertEquals(1, tabla.size());
+        Assertions.assertEquals("2", tabla.remove("a"));
+        Assertions.assertNull(tabla.get("a"));
+        Assertions.assertEquals("x", tabla.getOrDefault("a", "x"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> tabla.put("b", null));
+        Assertions.assertNull(tabla.computeIfAbsent("b", k -> null));
+        Assertions.assertEquals(0, tabla.size());
+    }
+
+    private interface Tarea {
+        void ejecutar(int hilo);
+    }
+
+    private static void ejecutarEnParalelo(Tarea tarea) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<?>> futuros = new ArrayList<>();
+        for (int h = 0; h < HILOS; h++) {
+            int hilo = h;
+            futuros.add(pool.submit(() -> {
+                salida.await();
+                tarea.ejecutar(hilo);
+                return null;
+            }));
+        }
+        salida.countDown();
+        for (Future<?> f : futuros) {
+            f.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+    }
+}
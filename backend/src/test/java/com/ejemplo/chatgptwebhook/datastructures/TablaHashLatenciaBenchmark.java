@@ -0,0 +1,65 @@
+package com.ejemplo.chatgptwebhook.datastructures;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Distribución de latencia de put mientras la tabla crece (caso de UsuarioService.usuariosPorEmail):
+ * con el redimensionado de golpe, el put que cruza el factor de carga rehace toda la tabla;
+ * con el incremental, el trabajo se reparte y la cola (p99.9 / máximo) queda plana.
+ * No es un test (no lo ejecuta surefire). Uso, desde backend/:
+ *   mvn -q test-compile
+ *   java -XX:+UseZGC -Xmx3g -cp target/classes:target/test-classes com.ejemplo.chatgptwebhook.datastructures.TablaHashLatenciaBenchmark
+ * (con ZGC las pausas del recolector no se mezclan con el coste del rehash en el máximo)
+ * Argumento opcional: número de claves a insertar (1000000).
+ */
+public class TablaHashLatenciaBenchmark {
+
+    public static void main(String[] args) {
+        int claves = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        String[] universo = new String[claves];
+        for (int i = 0; i < claves; i++) universo[i] = "usuario" + i + "@ejemplo.com";
+
+        System.out.printf("%-28s %8s %8s %8s %10s %12s %10s%n",
+                "tabla", "p50 ns", "p99 ns", "p99.9 ns", "p99.99 ns", "máx ns", "total ms");
+        for (int ronda = 0; ronda < 3; ronda++) {
+            boolean imprimir = ronda == 2; // Dos rondas de calentamiento
+            medir("TablaHash ENCADENAMIENTO", () -> {
+                TablaHash<String, Object> t = new TablaHash<>(TablaHash.Motor.ENCADENAMIENTO);
+                return t::put;
+            }, universo, imprimir);
+            medir("TablaHash INCREMENTAL", () -> {
+                TablaHash<String, Object> t = new TablaHash<>(TablaHash.Motor.ENCADENAMIENTO_INCREMENTAL);
+                return t::put;
+            }, universo, imprimir);
+            medir("TablaHashConcurrente", () -> {
+                TablaHashConcurrente<String, Object> t = new TablaHashConcurrente<>();
+                return t::put;
+            }, universo, imprimir);
+        }
+    }
+
+    private static void medir(String nombre, Supplier<BiConsumer<String, Object>> fabrica, String[] universo,
+                              boolean imprimir) {
+        System.gc();
+        BiConsumer<String, Object> put = fabrica.get();
+        long[] latencias = new long[universo.length];
+        long inicioTotal = System.nanoTime();
+        for (int i = 0; i < universo.length; i++) {
+            long inicio = System.nanoTime();
+            put.accept(universo[i], Boolean.TRUE);
+            latencias[i] = System.nanoTime() - inicio;
+        }
+        long total = System.nanoTime() - inicioTotal;
+        if (!imprimir) return;
+        Arrays.sort(latencias);
+        System.out.printf("%-28s %8d %8d %8d %10d %12d %10.1f%n", nombre,
+                percentil(latencias, 0.50), percentil(latencias, 0.99), percentil(latencias, 0.999),
+                percentil(latencias, 0.9999), latencias[latencias.length - 1], total / 1e6);
+    }
+
+    private static long percentil(long[] ordenadas, double p) {
+        return ordenadas[Math.min(ordenadas.length - 1, (int) Math.ceil(p * ordenadas.length) - 1)];
+    }
+}
@@ -0,0 +1,61 @@
+package com.ejemplo.chatgptwebhook.datastructures;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+class TablaHashTest {
+
+    // Clave con hashCode fijo para forzar colisiones (y Integer.MIN_VALUE, que rompía Math.abs)
+    private record ClaveFija(int id, int hash) {
+        @Override public int hashCode() { return hash; }
+    }
+
+    @ParameterizedTest
+    @EnumSource(TablaHash.Motor.class)
+    void operaciones_aleatorias_coinciden_con_HashMap(TablaHash.Motor motor) {
+        TablaHash<Integer, Integer> tabla = new TablaHash<>(motor);
+        Map<Integer, Integer> modelo = new HashMap<>();
+        Random azar = new Random(7);
+
+        for (int n = 0; n < 200_000; n++) {
+            int clave = azar.nextInt(5_000);
+            switch (azar.nextInt(3)) {
+                case 0 -> {
+                    tabla.put(clave, n);
+                    modelo.put(clave, n);
+                }
+                case 1 -> Assertions.assertEquals(modelo.remove(clave), tabla.remove(clave));
+                default -> Assertions.assertEquals(modelo.get(clave), tabla.get(clave));
+            }
+        }
+
+        Assertions.assertEquals(modelo.size(), tabla.size());
+        Set<Integer> claves = new HashSet<>();
+        tabla.keySet().forEach(claves::add);
+        Assertions.assertEquals(modelo.keySet(), claves);
+    }
+
+    @ParameterizedTest
+    @EnumSource(TablaHash.Motor.class)
+    void colisiones_y_hash_minimo(TablaHash.Motor motor) {
+        TablaHash<ClaveFija, String> tabla = new TablaHash<>(motor);
+        for (int i = 0; i < 100; i++) {
+            tabla.put(new ClaveFija(i, Integer.MIN_VALUE), "v" + i);
+        }
+        // Borrar en medio del grupo de colisiones no debe esconder las claves siguientes
+        for (int i = 0; i < 100; i += 3) {
+            Assertions.assertEquals("v" + i, tabla.remove(new ClaveFija(i, Integer.MIN_VALUE)));
+        }
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertEquals(i % 3 == 0 ? null : "v" + i, tabla.get(new ClaveFija(i, Integer.MIN_VALUE)));
+        }
+        Assertions.assertEquals(66, tabla.size());
+    }
+}
@@ -0,0 +1,60 @@
+package com.ejemplo.chatgptwebhook.datastructures;
+
+import java.util.Random;
+
+/**
+ * Memoria retenida por el Trie por token indexado, con un vocabulario parecido al de los
+ * títulos de tareas (raíces comunes con muchas variantes: configurar, configuración, ...),
+ * y tiempo de una sugerencia con prefijo corto: todo el subárbol frente al top-K guardado.
+ * No es un test (no lo ejecuta surefire). Uso, desde backend/:
+ *   mvn -q test-compile
+ *   java -cp target/classes:target/test-classes com.ejemplo.chatgptwebhook.datastructures.TrieMemoriaBenchmark
+ * Argumento opcional: número de tokens distintos (50000).
+ */
+public class TrieMemoriaBenchmark {
+
+    static volatile Object sumideroGlobal;
+
+    private static final String[] RAICES = {
+        "configur", "implement", "diseñ", "desarroll", "integr", "optimiz", "document", "prob",
+        "despleg", "autentic", "valid", "migr", "monitor", "notific", "gestion", "refactoriz"
+    };
+    private static final String[] SUFIJOS = {
+        "ar", "ación", "aciones", "ado", "ada", "o", "os", "e", "es", "ando", "able", "ador", "adora"
+    };
+
+    public static void main(String[] args) {
+        int tokens = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        Random azar = new Random(11);
+        String[] vocabulario = new String[tokens];
+        for (int i = 0; i < tokens; i++) {
+            // raíz + sufijo + un identificador, como "configuracion2fa" o "api3"
+            vocabulario[i] = RAICES[azar.nextInt(RAICES.length)] + SUFIJOS[azar.nextInt(SUFIJOS.length)]
+                    + Integer.toString(i, 36);
+        }
+
+        Runtime rt = Runtime.getRuntime();
+        long antes = usada(rt);
+        Trie trie = new Trie();
+        for (String token : vocabulario) trie.insertar(token);
+        long despues = usada(rt);
+        sumideroGlobal = trie;
+        // Las cadenas del vocabulario ya existían antes de medir: solo cuenta lo que retiene el Trie
+        System.out.printf("Trie: %d tokens, %.1f bytes/token%n", tokens, (double) (despues - antes) / tokens);
+
+        for (int ronda = 0; ronda < 3; ronda++) {
+            long t0 = System.nanoTime();
+            for (int i = 0; i < 200; i++) sumideroGlobal = trie.buscarPorPrefijo("d");
+            long t1 = System.nanoTime();
+            for (int i = 0; i < 200; i++) sumideroGlobal = trie.buscarPorPrefijo("d", Trie.K_MEJORES);
+            long t2 = System.nanoTime();
+            System.out.printf("prefijo \"d\": todas %.1f us/consulta, top-%d %.1f us/consulta%n",
+                    (t1 - t0) / 200_000.0, Trie.K_MEJORES, (t2 - t1) / 200_000.0);
+        }
+    }
+
+    private static long usada(Runtime rt) {
+        for (int i = 0; i < 3; i++) System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,94 @@
+package com.ejemplo.chatgptwebhook.datastructures;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+class TrieTest {
+
+    @Test
+    void tildes_se_pliegan_al_buscar_y_se_devuelve_la_forma_original() {
+        Trie trie = new Trie();
+        for (String token : "Diseño de la Configuración, API-v2 y pingüino".split("\\s+")) {
+            trie.insertar(token);
+        }
+
+        Assertions.assertTrue(trie.buscar("configuracion"));
+        Assertions.assertTrue(trie.buscar("CONFIGURACIÓN"));
+        Assertions.assertTrue(trie.buscar("apiv2"));
+        Assertions.assertTrue(trie.buscar("pinguino"));
+        Assertions.assertEquals(List.of("configuración"), lista(trie.buscarPorPrefijo("config")));
+        Assertions.assertEquals(List.of("diseño"), lista(trie.buscarPorPrefijo("dise")));
+        // La ñ no se pliega a n
+        Assertions.assertFalse(trie.existePrefijo("disen"));
+        Assertions.assertFalse(trie.buscar("config"));
+    }
+
+    @Test
+    void aristas_partidas_coinciden_con_un_conjunto_ordenado() {
+        Trie trie = new Trie();
+        TreeSet<String> modelo = new TreeSet<>();
+        Random azar = new Random(5);
+        for (int n = 0; n < 3_000; n++) {
+            // Alfabeto pequeño para forzar prefijos comunes y divisiones de aristas
+            StringBuilder sb = new StringBuilder();
+            int largo = 1 + azar.nextInt(8);
+            for (int i = 0; i < largo; i++) sb.append((char) ('a' + azar.nextInt(3)));
+            trie.insertar(sb.toString());
+            modelo.add(sb.toString());
+        }
+
+        Assertions.assertEquals(modelo.size(), trie.tamaño());
+        for (String prefijo : List.of("a", "ab", "cab", "bbbb", "abcabcab")) {
+            List<String> esperado = new ArrayList<>(modelo.subSet(prefijo, prefijo + Character.MAX_VALUE));
+            Assertions.assertEquals(esperado, lista(trie.buscarPorPrefijo(prefijo)));
+            Assertions.assertEquals(!esperado.isEmpty(), trie.existePrefijo(prefijo));
+            Assertions.assertEquals(modelo.contains(prefijo), trie.buscar(prefijo));
+        }
+    }
+
+    @Test
+    void top_k_por_prefijo_devuelve_las_mas_frecuentes_en_orden() {
+        Trie trie = new Trie();
+        Map<String, Integer> frecuencias = new HashMap<>();
+        Random azar = new Random(9);
+        for (int n = 0; n < 20_000; n++) {
+            // Palabras cortas con reparto sesgado: unas pocas se repiten mucho
+            StringBuilder sb = new StringBuilder();
+            int largo = 1 + Math.min(azar.nextInt(6), azar.nextInt(6));
+            for (int i = 0; i < largo; i++) sb.append((char) ('a' + azar.nextInt(4)));
+            trie.insertar(sb.toString());
+            frecuencias.merge(sb.toString(), 1, Integer::sum);
+        }
+
+        for (String prefijo : List.of("a", "b", "cd", "dda", "abcd")) {
+            for (int k : new int[] {1, 3, Trie.K_MEJORES, 50}) {
+                List<Integer> esperado = frecuencias.entrySet().stream()
+                        .filter(e -> e.getKey().startsWith(prefijo))
+                        .map(Map.Entry::getValue)
+                        .sorted((a, b) -> b - a)
+                        .limit(k)
+                        .toList();
+                // A igual frecuencia el orden puede variar: se comparan las frecuencias devueltas
+                List<Integer> obtenido = lista(trie.buscarPorPrefijo(prefijo, k)).stream()
+                        .peek(p -> Assertions.assertTrue(p.startsWith(prefijo)))
+                        .map(trie::frecuencia)
+                        .toList();
+                Assertions.assertEquals(esperado, obtenido, "prefijo " + prefijo + ", k " + k);
+            }
+        }
+        Assertions.assertTrue(trie.buscarPorPrefijo("x", 5).estaVacia());
+    }
+
+    private static List<String> lista(ListaEnlazada<String> lista) {
+        List<String> res = new ArrayList<>();
+        for (String s : lista) res.add(s);
+        return res;
+    }
+}
@@ -0,0 +1,187 @@
+package com.ejemplo.chatgptwebhook.service;
+
+import com.ejemplo.chatgptwebhook.model.ChatGptResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AgrupadorPromptsChatGptTest {
+
+    private final ChatGptService chatGptService = mock(ChatGptService.class);
+
+    @BeforeEach
+    void setUp() {
+        when(chatGptService.ajustarMaxTokens(anyString(), anyInt())).thenAnswer(i -> i.getArgument(1));
+    }
+
+    private static ChatGptResponse respuesta(String contenido, int prompt, int completion) {
+        ChatGptResponse.Message mensaje = new ChatGptResponse.Message();
+        mensaje.setContent(contenido);
+        ChatGptResponse.Choice opcion = new ChatGptResponse.Choice();
+        opcion.setMessage(mensaje);
+        ChatGptResponse.Usage uso = new ChatGptResponse.Usage();
+        uso.setPromptTokens(prompt);
+        uso.setCompletionTokens(completion);
+        uso.setTotalTokens(prompt + completion);
+        ChatGptResponse r = new ChatGptResponse();
+        r.setChoices(List.of(opcion));
+        r.setUsage(uso);
+        return r;
+    }
+
+    private CompletableFuture<String> enviar(AgrupadorPromptsChatGpt agrupador, String mensaje, String usuario) {
+        return agrupador.enviar(mensaje, 3000)
+                .contextWrite(Context.of(LimitadorCuotaOpenAi.CLAVE_USUARIO, usuario))
+                .toFuture();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void prompts_concurrentes_van_en_una_llamada_y_cada_usuario_paga_su_parte() throws Exception {
+        AgrupadorPromptsChatGpt agrupador = new AgrupadorPromptsChatGpt(chatGptService, true, 1000, 2, 8000,
+                new SimpleMeterRegistry());
+        when(chatGptService.completarLote(contains("### SOLICITUD 2"), eq(6000), anyList()))
+                .thenReturn(Mono.just(respuesta("### SOLICITUD 1\n1. Tarea tienda\n\n### SOLICITUD 2\n1. Tarea blog", 101, 50)));
+
+        CompletableFuture<String> a = enviar(agrupador, "idea tienda", "admin:1");
+        CompletableFuture<String> b = enviar(agrupador, "idea blog", "admin:2");
+
+        Assertions.assertEquals("1. Tarea tienda", a.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals("1. Tarea blog", b.get(5, TimeUnit.SECONDS));
+        ArgumentCaptor<List<ChatGptService.ParteLote>> partes = ArgumentCaptor.forClass(List.class);
+        verify(chatGptService, times(1)).completarLote(anyString(), anyInt(), partes.capture());
+        Assertions.assertEquals(List.of("admin:1", "admin:2"),
+                partes.getValue().stream().map(ChatGptService.ParteLote::usuario).toList());
+        verify(chatGptService, never()).enviarMensajeConTokens(anyString(), anyInt());
+
+        // Consumo repartido entre los dos usuarios, sin perder tokens por el redondeo
+        ArgumentCaptor<ChatGptResponse.Usage> uso1 = ArgumentCaptor.forClass(ChatGptResponse.Usage.class);
+        ArgumentCaptor<ChatGptResponse.Usage> uso2 = ArgumentCaptor.forClass(ChatGptResponse.Usage.class);
+        verify(chatGptService).registrarConsumo(eq("admin:1"), anyString(), uso1.capture());
+        verify(chatGptService).registrarConsumo(eq("admin:2"), anyString(), uso2.capture());
+        Assertions.assertEquals(151, uso1.getValue().getTotalTokens() + uso2.getValue().getTotalTokens());
+        Assertions.assertEquals(101, uso1.getValue().getPromptTokens() + uso2.getValue().getPromptTokens());
+    }
+
+    @Test
+    void el_que_agoto_su_presupuesto_no_entra_en_el_lote() throws Exception {
+        AgrupadorPromptsChatGpt agrupador = new AgrupadorPromptsChatGpt(chatGptService, true, 1000, 2, 4000,
+                new SimpleMeterRegistry());
+        when(chatGptService.ajustarMaxTokens(eq("admin:1"), anyInt()))
+                .thenThrow(new ConsumoTokensService.PresupuestoExcedidoException("agotado"));
+        when(chatGptService.enviarMensajeConTokens("idea blog", 3000)).thenReturn(Mono.just("1. Tarea blog"));
+
+        CompletableFuture<String> a = enviar(agrupador, "idea tienda", "admin:1");
+        CompletableFuture<String> b = enviar(agrupador, "idea blog", "admin:2");
+
+        Assertions.assertEquals(ChatGptService.MENSAJE_PRESUPUESTO_AGOTADO, a.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals("1. Tarea blog", b.get(5, TimeUnit.SECONDS));
+        verify(chatGptService, never()).completarLote(anyString(), anyInt(), anyList());
+    }
+
+    @Test
+    void si_la_llamada_combinada_falla_fallan_todos_sin_reenvios() throws Exception {
+        AgrupadorPromptsChatGpt agrupador = new AgrupadorPromptsChatGpt(chatGptService, true, 1000, 2, 8000,
+                new SimpleMeterRegistry());
+        RuntimeException caida = new ResilienciaOpenAi.OpenAiNoDisponibleException("circuito abierto");
+        when(chatGptService.completarLote(anyString(), anyInt(), anyList())).thenReturn(Mono.error(caida));
+        when(chatGptService.mensajeDeError(caida)).thenReturn(ChatGptService.MENSAJE_NO_DISPONIBLE);
+
+        CompletableFuture<String> a = enviar(agrupador, "idea tienda", "admin:1");
+        CompletableFuture<String> b = enviar(agrupador, "idea blog", "admin:2");
+
+        Assertions.assertEquals(ChatGptService.MENSAJE_NO_DISPONIBLE, a.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(ChatGptService.MENSAJE_NO_DISPONIBLE, b.get(5, TimeUnit.SECONDS));
+        verify(chatGptService, never()).enviarMensajeConTokens(anyString(), anyInt());
+    }
+
+    @Test
+    void seccion_ausente_se_reenvia_individualmente() throws Exception {
+        AgrupadorPromptsChatGpt agrupador = new AgrupadorPromptsChatGpt(chatGptService, true, 1000, 2, 8000,
+                new SimpleMeterRegistry());
+        when(chatGptService.completarLote(anyString(), anyInt(), anyList()))
+                .thenReturn(Mono.just(respuesta("### SOLICITUD 1\n1. Tarea tienda", 80, 10)));
+        when(chatGptService.enviarMensajeConTokens("idea blog", 3000)).thenReturn(Mono.just("1. Tarea blog"));
+
+        CompletableFuture<String> a = enviar(agrupador, "idea tienda", "admin:1");
+        CompletableFuture<String> b = enviar(agrupador, "idea blog", "admin:2");
+
+        Assertions.assertEquals("1. Tarea tienda", a.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals("1. Tarea blog", b.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void lo_que_no_cabe_en_max_tokens_del_lote_va_suelto() throws Exception {
+        AgrupadorPromptsChatGpt agrupador = new AgrupadorPromptsChatGpt(chatGptService, true, 1000, 2, 4000,
+                new SimpleMeterRegistry());
+        when(chatGptService.enviarMensajeConTokens(anyString(), eq(3000)))
+                .thenAnswer(i -> Mono.just("respuesta " + i.getArgument(0)));
+
+        CompletableFuture<String> a = enviar(agrupador, "idea tienda", "admin:1");
+        CompletableFuture<String> b = enviar(agrupador, "idea blog", "admin:2");
+
+        Assertions.assertEquals("respuesta idea tienda", a.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals("respuesta idea blog", b.get(5, TimeUnit.SECONDS));
+        verify(chatGptService, never()).completarLote(anyString(), anyInt(), anyList());
+    }
+
+    @Test
+    void si_la_respuesta_se_corto_la_ultima_seccion_se_pide_de_nuevo() throws Exception {
+        AgrupadorPromptsChatGpt agrupador = new AgrupadorPromptsChatGpt(chatGptService, true, 1000, 2, 8000,
+                new SimpleMeterRegistry());
+        ChatGptResponse cortada = respuesta("### SOLICITUD 1\n1. Tarea tienda\n\n### SOLICITUD 2\n1. Tarea bl", 80, 6000);
+        cortada.getChoices().get(0).setFinishReason("length");
+        when(chatGptService.completarLote(anyString(), eq(6000), anyList())).thenReturn(Mono.just(cortada));
+        when(chatGptService.enviarMensajeConTokens("idea blog", 3000)).thenReturn(Mono.just("1. Tarea blog"));
+
+        CompletableFuture<String> a = enviar(agrupador, "idea tienda", "admin:1");
+        CompletableFuture<String> b = enviar(agrupador, "idea blog", "admin:2");
+
+        Assertions.assertEquals("1. Tarea tienda", a.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals("1. Tarea blog", b.get(5, TimeUnit.SECONDS));
+        // Solo la sección completa queda en caché
+        verify(chatGptService).guardarEnCache("idea tienda", 3000, "1. Tarea tienda");
+        verify(chatGptService, never()).guardarEnCache(eq("idea blog"), anyInt(), anyString());
+    }
+
+    @Test
+    void un_prompt_con_respuesta_en_cache_no_entra_en_el_lote() {
+        AgrupadorPromptsChatGpt agrupador = new AgrupadorPromptsChatGpt(chatGptService, true, 1000, 2, 4000,
+                new SimpleMeterRegistry());
+        when(chatGptService.buscarEnCache("idea tienda", 3000)).thenReturn("1. Tarea tienda");
+
+        Assertions.assertEquals("1. Tarea tienda", agrupador.enviar("idea tienda", 3000).block(Duration.ofSeconds(5)));
+        verify(chatGptService, never()).completarLote(anyString(), anyInt(), anyList());
+        verify(chatGptService, never()).enviarMensajeConTokens(anyString(), anyInt());
+    }
+
+    @Test
+    void un_solo_prompt_en_la_ventana_se_envia_tal_cual() {
+        AgrupadorPromptsChatGpt agrupador = new AgrupadorPromptsChatGpt(chatGptService, true, 20, 4, 4000,
+                new SimpleMeterRegistry());
+        when(chatGptService.enviarMensajeConTokens("idea tienda", 3000)).thenReturn(Mono.just("1. Tarea tienda"));
+
+        Assertions.assertEquals("1. Tarea tienda", agrupador.enviar("idea tienda", 3000).block(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    void repartir_uso_respeta_los_totales() {
+        ChatGptResponse.Usage total = respuesta("x", 100, 7).getUsage();
+        ChatGptResponse.Usage[] usos = AgrupadorPromptsChatGpt.repartirUso(total, new long[]{1, 1, 1}, new long[]{0, 3, 0});
+        Assertions.assertEquals(100, usos[0].getPromptTokens() + usos[1].getPromptTokens() + usos[2].getPromptTokens());
+        Assertions.assertEquals(List.of(0, 7, 0),
+                List.of(usos[0].getCompletionTokens(), usos[1].getCompletionTokens(), usos[2].getCompletionTokens()));
+    }
+}
@@ -0,0 +1,84 @@
+package com.ejemplo.chatgptwebhook.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+
+class AlmacenSesionesTest {
+
+    private final AtomicLong ahora = new AtomicLong(1_000_000);
+
+    private final Clock reloj = new Clock() {
+        @Override public ZoneId getZone() { return ZoneOffset.UTC; }
+        @Override public Clock withZone(ZoneId zone) { return this; }
+        @Override public Instant instant() { return Instant.ofEpochMilli(ahora.get()); }
+    };
+
+    @Test
+    void barrido_expulsa_inactivas_y_finalizadas_tras_la_gracia() {
+        AlmacenSesiones almacen = new AlmacenSesiones(30, 100, 30, 30, new SimpleMeterRegistry(), reloj);
+        almacen.obtener("inactiva");
+        almacen.obtener("activa");
+        almacen.obtener("salio");
+        almacen.finalizar("salio");
+        Assertions.assertFalse(almacen.buscar("salio").isActiva());
+
+        // Dentro de la gracia la sesión finalizada sigue ahí
+        ahora.addAndGet(10_000);
+        almacen.barrer();
+        Assertions.assertEquals(3, almacen.tamano());
+
+        ahora.addAndGet(25 * 60_000);
+        almacen.barrer();
+        Assertions.assertNull(almacen.buscar("salio"));
+        Assertions.assertEquals(2, almacen.tamano());
+
+        // "activa" se usa; "inactiva" supera los 30 minutos sin acceso
+        almacen.buscar("activa");
+        ahora.addAndGet(6 * 60_000);
+        almacen.barrer();
+        Assertions.assertNull(almacen.buscar("inactiva"));
+        Assertions.assertNotNull(almacen.buscar("activa"));
+    }
+
+    @Test
+    void al_superar_el_maximo_expulsa_las_de_acceso_mas_antiguo() {
+        AlmacenSesiones almacen = new AlmacenSesiones(30, 3, 30, 30, new SimpleMeterRegistry(), reloj);
+        for (String id : new String[] {"a", "b", "c"}) {
+            almacen.obtener(id);
+            ahora.incrementAndGet();
+        }
+        almacen.buscar("a");
+        ahora.incrementAndGet();
+
+        almacen.obtener("d");
+
+        Assertions.assertEquals(3, almacen.tamano());
+        Assertions.assertNull(almacen.buscar("b"));
+        Assertions.assertNotNull(almacen.buscar("a"));
+        Assertions.assertNotNull(almacen.buscar("d"));
+    }
+
+    @Test
+    void reiniciar_olvida_el_proyecto_pero_conserva_el_admin() {
+        AlmacenSesiones almacen = new AlmacenSesiones(30, 100, 30, 30, new SimpleMeterRegistry(), reloj);
+        var sesion = almacen.obtener("s1");
+        sesion.setAdminUserId(7L);
+        sesion.setNombreProyecto("Tienda");
+        sesion.getTareasCompletadas().add(2);
+        sesion.finalizar(ahora.get());
+
+        sesion.reiniciar();
+
+        Assertions.assertTrue(sesion.isActiva());
+        Assertions.assertNull(sesion.getNombreProyecto());
+        Assertions.assertTrue(sesion.getTareasCompletadas().isEmpty());
+        Assertions.assertEquals(7L, sesion.getAdminUserId());
+    }
+}
@@ -0,0 +1,95 @@
+package com.ejemplo.chatgptwebhook.service;
+
+import com.ejemplo.chatgptwebhook.datastructures.GrafoCsr;
+import com.ejemplo.chatgptwebhook.model.ProyectoRelacionadoDto;
+import com.ejemplo.chatgptwebhook.repository.ProjectRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.mockito.Mockito.*;
+
+class AnaliticaProyectosTest {
+
+    private final ProjectRepository projectRepository = mock(ProjectRepository.class);
+    private final SimpleMeterRegistry registro = new SimpleMeterRegistry();
+    private final AnaliticaProyectos analitica = new AnaliticaProyectos(projectRepository, new ForkJoinPool(2), 5, 15,
+            registro, Clock.systemUTC());
+
+    private record Nodo(Long getId, Long getAdminId, String getName) implements ProjectRepository.NodoProyecto {}
+
+    @AfterEach
+    void cerrar() {
+        analitica.detener();
+    }
+
+    private static List<Long> ids(List<ProyectoRelacionadoDto> dtos) {
+        return dtos.stream().map(ProyectoRelacionadoDto::getProjectId).toList();
+    }
+
+    @Test
+    void relaciona_proyectos_consecutivos_y_con_palabras_comunes_sin_mezclar_admins() {
+        // Ordenados por admin y fecha de creación, como los devuelve el repositorio
+        when(projectRepository.findNodosGrafo()).thenReturn(List.of(
+                new Nodo(1L, 7L, "Tienda online"),
+                new Nodo(2L, 7L, "Blog personal"),
+                new Nodo(3L, 7L, "Portafolio"),
+                new Nodo(4L, 7L, "Tienda de ropa"),
+                new Nodo(5L, 8L, "Tienda de libros")));
+
+        // Sin análisis todavía: vacío, sin esperar
+        Assertions.assertTrue(analitica.relacionados(1L, 10).isEmpty());
+
+        analitica.recalcular();
+        AnaliticaProyectos.Instantanea instantanea = analitica.getInstantanea();
+        Assertions.assertEquals(5, instantanea.grafo().numeroNodos());
+        // 1-2, 2-3, 3-4 por orden de creación y 1-4 por "tienda"; el 5 es de otro admin
+        Assertions.assertEquals(4, instantanea.grafo().numeroAristas());
+
+        List<ProyectoRelacionadoDto> relacionados = analitica.relacionados(1L, 10);
+        Assertions.assertEquals(3, relacionados.size());
+        Assertions.assertTrue(ids(relacionados).subList(0, 2).containsAll(List.of(2L, 4L)));
+        Assertions.assertEquals(3L, relacionados.get(2).getProjectId());
+        Assertions.assertFalse(ids(relacionados).contains(5L));
+        Assertions.assertEquals("Blog personal",
+                relacionados.stream().filter(r -> r.getProjectId() == 2L).findFirst().orElseThrow().getName());
+
+        Assertions.assertEquals(1, analitica.relacionados(1L, 1).size());
+        Assertions.assertTrue(analitica.relacionados(5L, 10).isEmpty());
+        Assertions.assertTrue(analitica.relacionados(99L, 10).isEmpty());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> analitica.relacionados(1L, 0));
+        Assertions.assertEquals(5, registro.get("proyectos.analitica.proyectos").gauge().value());
+    }
+
+    @Test
+    void las_palabras_comunes_no_relacionan_proyectos_sin_nada_que_ver() {
+        GrafoCsr grafo = AnaliticaProyectos.montarGrafo(List.of(
+                new Nodo(1L, 7L, "Sistema de gestión para clínicas"),
+                new Nodo(2L, 7L, "Plataforma online para restaurantes"),
+                new Nodo(3L, 7L, "Nuevo proyecto de gestión de gimnasios"),
+                new Nodo(4L, 7L, "Agenda para clínicas")));
+
+        // 1-2, 2-3, 3-4 por orden de creación y 1-4 por "clinicas"; "para" y "gestion" no añaden 2-4 ni 1-3
+        Assertions.assertEquals(4, grafo.numeroAristas());
+        Assertions.assertEquals(2, grafo.grado(grafo.indiceDe(1L)));
+        Assertions.assertEquals(2, grafo.grado(grafo.indiceDe(2L)));
+    }
+
+    @Test
+    void un_fallo_al_recalcular_no_tira_la_instantanea_publicada() {
+        when(projectRepository.findNodosGrafo())
+                .thenReturn(List.of(new Nodo(1L, 7L, "Uno"), new Nodo(2L, 7L, "Dos")))
+                .thenThrow(new IllegalStateException("BD caída"));
+        analitica.recalcular();
+        AnaliticaProyectos.Instantanea anterior = analitica.getInstantanea();
+
+        Assertions.assertThrows(IllegalStateException.class, analitica::recalcular);
+        Assertions.assertSame(anterior, analitica.getInstantanea());
+        Assertions.assertEquals(List.of(2L), ids(analitica.relacionados(1L, 10)));
+    }
+}
@@ -0,0 +1,68 @@
+package com.ejemplo.chatgptwebhook.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class ChatGptCacheTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void fallos_concurrentes_de_la_misma_clave_hacen_una_sola_llamada() throws Exception {
+        ChatGptCache cache = new ChatGptCache(true, 100, 1_000_000, 60, registry);
+        AtomicInteger llamadas = new AtomicInteger();
+        Sinks.One<String> upstream = Sinks.one();
+
+        ChatGptCache.Clave clave = ChatGptCache.Clave.de("gpt", "Tienda  Online", 3000, 0.7);
+        Mono<String> a = cache.obtener(clave, () -> { llamadas.incrementAndGet(); return upstream.asMono(); });
+        Mono<String> b = cache.obtener(ChatGptCache.Clave.de("gpt", " tienda online ", 3000, 0.7),
+                () -> { llamadas.incrementAndGet(); return upstream.asMono(); });
+
+        // Ambos se suscriben antes de que responda OpenAI
+        CompletableFuture<String> ambos = Mono.zip(a, b, (x, y) -> x + "|" + y).toFuture();
+        upstream.tryEmitValue("respuesta");
+        Assertions.assertEquals("respuesta|respuesta", ambos.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, llamadas.get());
+
+        // Tercera petición: acierto sin llamar al cargador
+        String c = cache.obtener(clave, () -> Mono.error(new AssertionError("no debe llamarse"))).block();
+        Assertions.assertEquals("respuesta", c);
+        Assertions.assertEquals(1.0, registry.counter("chatgpt.cache.aciertos").count());
+    }
+
+    @Test
+    void expulsa_la_entrada_menos_usada_al_superar_el_limite() {
+        ChatGptCache cache = new ChatGptCache(true, 2, 1_000_000, 60, registry);
+        ChatGptCache.Clave k1 = ChatGptCache.Clave.de("gpt", "uno", 10, 0.7);
+        ChatGptCache.Clave k2 = ChatGptCache.Clave.de("gpt", "dos", 10, 0.7);
+        ChatGptCache.Clave k3 = ChatGptCache.Clave.de("gpt", "tres", 10, 0.7);
+
+        cache.guardar(k1, "a");
+        cache.guardar(k2, "b");
+        cache.leer(k1); // k1 pasa a ser la más reciente
+        cache.guardar(k3, "c");
+
+        Assertions.assertEquals(2, cache.tamaño());
+        Assertions.assertEquals("a", cache.leer(k1));
+        Assertions.assertNull(cache.leer(k2));
+        Assertions.assertEquals("c", cache.leer(k3));
+    }
+
+    @Test
+    void los_errores_no_se_cachean() {
+        ChatGptCache cache = new ChatGptCache(true, 10, 1_000_000, 60, registry);
+        ChatGptCache.Clave clave = ChatGptCache.Clave.de("gpt", "x", 10, 0.7);
+
+        Assertions.assertThrows(RuntimeException.class,
+                () -> cache.obtener(clave, () -> Mono.error(new RuntimeException("429"))).block());
+        Assertions.assertEquals(0, cache.tamaño());
+        Assertions.assertEquals("ok", cache.obtener(clave, () -> Mono.just("ok")).block());
+    }
+}
@@ -0,0 +1,142 @@
+package com.ejemplo.chatgptwebhook.service;
+
+import com.ejemplo.chatgptwebhook.config.OpenAiHttpClientConfig;
+import com.ejemplo.chatgptwebhook.repository.ConsumoTokensRepository;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class ChatGptServiceTest {
+
+    private HttpServer servidor;
+    private ConnectionProvider pool;
+    private final AtomicInteger peticiones = new AtomicInteger();
+    private final AtomicInteger respuestas429 = new AtomicInteger();
+    private final AtomicInteger respuestas401 = new AtomicInteger();
+    private final ConsumoTokensService consumo = new ConsumoTokensService(
+            Mockito.mock(ConsumoTokensRepository.class), 0, "", "degradar", 512, 30, new SimpleMeterRegistry());
+
+    @BeforeEach
+    void setUp() throws Exception {
+        servidor = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        servidor.createContext("/v1/chat/completions", exchange -> {
+            peticiones.incrementAndGet();
+            if (respuestas429.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                exchange.getResponseHeaders().add("Retry-After", "0");
+                exchange.sendResponseHeaders(429, -1);
+                exchange.close();
+                return;
+            }
+            if (respuestas401.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                exchange.sendResponseHeaders(401, -1);
+                exchange.close();
+                return;
+            }
+            String cuerpo = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            boolean stream = cuerpo.contains("\"stream\":true");
+            String respuesta;
+            if (stream) {
+                exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+                respuesta = "data: {\"choices\":[{\"delta\":{\"content\":\"1. Hola\"}}]}\n\n" +
+                            "data: {\"choices\":[{\"delta\":{\"content\":\" mundo\\n\"}}]}\n\n" +
+                            "data: [DONE]\n\n";
+            } else {
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                respuesta = "{\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":\"1. Hola mundo\"}}]," +
+                            "\"usage\":{\"prompt_tokens\":5,\"completion_tokens\":4,\"total_tokens\":9}}";
+            }
+            byte[] bytes = respuesta.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(bytes);
+            }
+        });
+        servidor.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        servidor.stop(0);
+        if (pool != null) pool.dispose();
+    }
+
+    private OpenAiProveedorLlm crearProveedor() {
+        OpenAiHttpClientConfig config = new OpenAiHttpClientConfig();
+        pool = config.openAiConnectionProvider(4, 10, 1000, 30, 300);
+        String url = "http://127.0.0.1:" + servidor.getAddress().getPort() + "/v1/chat/completions";
+        return new OpenAiProveedorLlm("sk-test", url, 10000, 30, config.openAiHttpClient(pool, 1000, false));
+    }
+
+    private ChatGptService crearServicio() {
+        return new ChatGptService(crearProveedor(), "gpt-test",
+                new ChatGptCache(true, 10, 1_000_000, 60, new SimpleMeterRegistry()),
+                new ResilienciaOpenAi(20, 10, 0.5, 0.8, 60000, 30, 3, 40, 4, 20, 30000, 20, new SimpleMeterRegistry()),
+                new LimitadorCuotaOpenAi(true, 500, 90000, 100, 5000, 2, 10, 100, Duration.ofSeconds(120),
+                        new SimpleMeterRegistry()),
+                consumo);
+    }
+
+    @Test
+    void enviarMensaje_devuelve_contenido_y_cachea_prompts_identicos() {
+        ChatGptService servicio = crearServicio();
+
+        Assertions.assertEquals("1. Hola mundo", servicio.enviarMensajeConTokens("hola", 100).block(Duration.ofSeconds(5)));
+        Assertions.assertEquals("1. Hola mundo", servicio.enviarMensajeConTokens("  HOLA ", 100).block(Duration.ofSeconds(5)));
+        Assertions.assertEquals(1, peticiones.get());
+        // El acierto de caché no cuenta: solo la llamada real (9 tokens) va al libro de consumo
+        Assertions.assertEquals(9, consumo.consumidoHoy(LimitadorCuotaOpenAi.USUARIO_ANONIMO));
+
+        servicio.enviarMensajeConTokens("hola", 100, false).block(Duration.ofSeconds(5));
+        Assertions.assertEquals(2, peticiones.get());
+    }
+
+    @Test
+    void enviarMensaje_reintenta_tras_429_en_lugar_de_devolver_error() {
+        ChatGptService servicio = crearServicio();
+        respuestas429.set(1);
+
+        Assertions.assertEquals("1. Hola mundo", servicio.enviarMensajeConTokens("hola", 100).block(Duration.ofSeconds(5)));
+        Assertions.assertEquals(2, peticiones.get());
+    }
+
+    @Test
+    void transmitirMensaje_emite_fragmentos_hasta_DONE() {
+        ChatGptService servicio = crearServicio();
+
+        List<String> fragmentos = servicio.transmitirMensajeConTokens("hola", 100)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        Assertions.assertEquals(List.of("1. Hola", " mundo\n"), fragmentos);
+    }
+
+    @Test
+    void transmitirMensaje_propaga_el_error_con_el_mensaje_para_el_usuario() {
+        ChatGptService servicio = crearServicio();
+        respuestas401.set(1);
+
+        ChatGptService.ErrorChatGptException error = Assertions.assertThrows(ChatGptService.ErrorChatGptException.class,
+                () -> servicio.transmitirMensajeConTokens("hola", 100).collectList().block(Duration.ofSeconds(5)));
+        Assertions.assertTrue(error.getMessage().startsWith("Error de autenticación"));
+        Assertions.assertEquals(1, peticiones.get());
+    }
+
+    @Test
+    void timeoutRespuesta_crece_con_maxTokens() {
+        OpenAiProveedorLlm proveedor = crearProveedor();
+        Assertions.assertEquals(Duration.ofMillis(10000 + 30 * 3000), proveedor.timeoutRespuesta(3000));
+        Assertions.assertTrue(proveedor.timeoutRespuesta(512).compareTo(proveedor.timeoutRespuesta(3000)) < 0);
+    }
+}
@@ -0,0 +1,88 @@
+package com.ejemplo.chatgptwebhook.service;
+
+import com.ejemplo.chatgptwebhook.entities.ConsumoTokens;
+import com.ejemplo.chatgptwebhook.model.ChatGptResponse;
+import com.ejemplo.chatgptwebhook.repository.ConsumoTokensRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyList;
+
+class ConsumoTokensServiceTest {
+
+    private final ConsumoTokensRepository repository = Mockito.mock(ConsumoTokensRepository.class);
+
+    private static ChatGptResponse.Usage usage(int prompt, int completion) {
+        ChatGptResponse.Usage usage = new ChatGptResponse.Usage();
+        usage.setPromptTokens(prompt);
+        usage.setCompletionTokens(completion);
+        usage.setTotalTokens(prompt + completion);
+        return usage;
+    }
+
+    @Test
+    void al_superar_el_presupuesto_degrada_o_rechaza_segun_el_modo() {
+        ConsumoTokensService degradar = new ConsumoTokensService(repository, 1000, "admin:1=5000",
+                "degradar", 256, 30, new SimpleMeterRegistry());
+        degradar.registrar("sesion:a", "a", "gpt", usage(400, 700));
+
+        Assertions.assertEquals(256, degradar.ajustarMaxTokens("sesion:a", 3000));
+        // admin:1 tiene un presupuesto propio más alto
+        degradar.registrar("admin:1", "b", "gpt", usage(400, 700));
+        Assertions.assertEquals(3000, degradar.ajustarMaxTokens("admin:1", 3000));
+
+        ConsumoTokensService rechazar = new ConsumoTokensService(repository, 1000, "",
+                "rechazar", 256, 30, new SimpleMeterRegistry());
+        rechazar.registrar("sesion:a", "a", "gpt", usage(400, 700));
+        Assertions.assertThrows(ConsumoTokensService.PresupuestoExcedidoException.class,
+                () -> rechazar.ajustarMaxTokens("sesion:a", 3000));
+    }
+
+    @Test
+    void las_sesiones_anonimas_solo_tienen_presupuesto_si_se_configura() {
+        ConsumoTokensService sinConfigurar = new ConsumoTokensService(repository, 1000, "",
+                "degradar", 256, 30, new SimpleMeterRegistry());
+        sinConfigurar.registrar(LimitadorCuotaOpenAi.USUARIO_ANONIMO, "a", "gpt", usage(400, 700));
+        Assertions.assertEquals(0, sinConfigurar.getPresupuestoDiario(LimitadorCuotaOpenAi.USUARIO_ANONIMO));
+        Assertions.assertEquals(3000, sinConfigurar.ajustarMaxTokens(LimitadorCuotaOpenAi.USUARIO_ANONIMO, 3000));
+
+        ConsumoTokensService configurado = new ConsumoTokensService(repository, 0, "anonimo=1000",
+                "degradar", 256, 30, new SimpleMeterRegistry());
+        configurado.registrar(LimitadorCuotaOpenAi.USUARIO_ANONIMO, "a", "gpt", usage(400, 700));
+        Assertions.assertEquals(256, configurado.ajustarMaxTokens(LimitadorCuotaOpenAi.USUARIO_ANONIMO, 3000));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void vuelca_por_lotes_y_conserva_lo_pendiente_si_falla_la_base_de_datos() {
+        ConsumoTokensService servicio = new ConsumoTokensService(repository, 0, "",
+                "degradar", 256, 30, new SimpleMeterRegistry());
+        servicio.registrar("sesion:a", "a", "gpt", usage(10, 20));
+        servicio.registrar("sesion:a", "a", "gpt", usage(5, 5));
+        servicio.registrar("sesion:b", "b", "gpt", usage(1, 1));
+
+        Mockito.when(repository.saveAll(anyList())).thenThrow(new RuntimeException("sin conexión"));
+        servicio.volcar();
+
+        Mockito.reset(repository);
+        servicio.volcar();
+
+        ArgumentCaptor<List<ConsumoTokens>> lote = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(repository).saveAll(lote.capture());
+        Assertions.assertEquals(2, lote.getValue().size());
+        ConsumoTokens filaA = lote.getValue().stream()
+                .filter(f -> f.getUsuario().equals("sesion:a")).findFirst().orElseThrow();
+        Assertions.assertEquals(2, filaA.getLlamadas());
+        Assertions.assertEquals(40, filaA.getTotalTokens());
+
+        // Ya no queda nada pendiente
+        Mockito.reset(repository);
+        servicio.volcar();
+        Mockito.verifyNoInteractions(repository);
+    }
+}
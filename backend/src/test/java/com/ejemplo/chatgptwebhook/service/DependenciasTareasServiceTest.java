@@ -0,0 +1,133 @@
+package com.ejemplo.chatgptwebhook.service;
+
+import com.ejemplo.chatgptwebhook.entities.Project;
+import com.ejemplo.chatgptwebhook.entities.Task;
+import com.ejemplo.chatgptwebhook.entities.TaskDependency;
+import com.ejemplo.chatgptwebhook.model.CaminoCriticoDto;
+import com.ejemplo.chatgptwebhook.model.TaskDto;
+import com.ejemplo.chatgptwebhook.repository.TaskDependencyRepository;
+import com.ejemplo.chatgptwebhook.repository.TaskRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class DependenciasTareasServiceTest {
+
+    @Mock
+    TaskRepository taskRepository;
+    @Mock
+    TaskDependencyRepository taskDependencyRepository;
+
+    @InjectMocks
+    DependenciasTareasService service;
+
+    private final List<Task> tareas = new ArrayList<>();
+
+    private Task tarea(long id, long projectId, String status, Integer horas) {
+        Project p = new Project();
+        p.setId(projectId);
+        Task t = new Task();
+        t.setId(id);
+        t.setProject(p);
+        t.setTitle("T" + id);
+        t.setStatus(status);
+        t.setEstimatedHours(horas);
+        when(taskRepository.findById(id)).thenReturn(Optional.of(t));
+        if (projectId == 1L) tareas.add(t);
+        return t;
+    }
+
+    private static List<Long> ids(List<TaskDto> dtos) {
+        return dtos.stream().map(TaskDto::getId).toList();
+    }
+
+    @BeforeEach
+    void setUp() {
+        tarea(1, 1, "completada", 2);
+        tarea(2, 1, "pendiente", 5);
+        tarea(3, 1, "pendiente", null);
+        tarea(9, 2, "pendiente", 1);
+        when(taskRepository.findByProjectId(1L)).thenReturn(tareas);
+        when(taskDependencyRepository.findAristasByProjectId(1L)).thenReturn(List.of());
+    }
+
+    @Test
+    void agrega_dependencias_y_responde_orden_camino_critico_y_listas() {
+        Assertions.assertTrue(service.agregarDependencia(1L, 3L, 2L));
+        Assertions.assertTrue(service.agregarDependencia(1L, 2L, 1L));
+        Assertions.assertFalse(service.agregarDependencia(1L, 2L, 1L));
+        verify(taskDependencyRepository, times(2)).save(any(TaskDependency.class));
+
+        Assertions.assertEquals(List.of(1L, 2L, 3L), ids(service.ordenTopologico(1L)));
+
+        CaminoCriticoDto camino = service.caminoCritico(1L);
+        Assertions.assertEquals(List.of(1L, 2L, 3L), ids(camino.getTareas()));
+        Assertions.assertEquals(2 + 5 + 1, camino.getHorasTotales());
+
+        // La 1 está completada: la 2 puede empezar, la 3 espera a la 2
+        Assertions.assertEquals(List.of(2L), ids(service.tareasListas(1L)));
+    }
+
+    @Test
+    void rechaza_ciclos_y_tareas_de_otro_proyecto_sin_guardar_nada() {
+        service.agregarDependencia(1L, 2L, 1L);
+        service.agregarDependencia(1L, 3L, 2L);
+        clearInvocations(taskDependencyRepository);
+
+        IllegalArgumentException ciclo = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> service.agregarDependencia(1L, 1L, 3L));
+        Assertions.assertTrue(ciclo.getMessage().contains("3 -> 1 -> 2 -> 3"), ciclo.getMessage());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> service.agregarDependencia(1L, 2L, 9L));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> service.agregarDependencia(1L, 2L, 99L));
+        verify(taskDependencyRepository, never()).save(any());
+    }
+
+    @Test
+    void si_falla_el_guardado_la_arista_no_queda_en_el_grafo() {
+        when(taskDependencyRepository.save(any())).thenThrow(new IllegalStateException("BD caída"));
+        Assertions.assertThrows(IllegalStateException.class, () -> service.agregarDependencia(1L, 2L, 1L));
+
+        // Sin la arista 1 -> 2, la contraria no cierra ningún ciclo
+        reset(taskDependencyRepository);
+        Assertions.assertTrue(service.agregarDependencia(1L, 1L, 2L));
+    }
+
+    @Test
+    void tras_expulsar_el_grafo_se_recarga_con_lo_guardado_y_sigue_rechazando_ciclos() {
+        ReflectionTestUtils.setField(service, "maxProyectosCache", 1);
+        List<TaskDependencyRepository.Arista> guardadas = new ArrayList<>();
+        when(taskDependencyRepository.save(any(TaskDependency.class))).thenAnswer(i -> {
+            TaskDependency d = i.getArgument(0);
+            guardadas.add(new TaskDependencyRepository.Arista() {
+                public Long getTaskId() { return d.getTask().getId(); }
+                public Long getDependsOnId() { return d.getDependsOn().getId(); }
+            });
+            return d;
+        });
+        when(taskDependencyRepository.findAristasByProjectId(1L)).thenAnswer(i -> List.copyOf(guardadas));
+        Task otroProyecto = taskRepository.findById(9L).orElseThrow();
+        when(taskRepository.findByProjectId(2L)).thenReturn(List.of(otroProyecto));
+
+        service.agregarDependencia(1L, 2L, 1L);
+        service.ordenTopologico(2L); // Expulsa el grafo del proyecto 1
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> service.agregarDependencia(1L, 1L, 2L));
+        verify(taskDependencyRepository, times(2)).findAristasByProjectId(1L);
+    }
+}
@@ -0,0 +1,186 @@
+package com.ejemplo.chatgptwebhook.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+class DespachadorCorreosVerificacionTest {
+
+    @TempDir
+    Path dir;
+
+    private final AtomicLong ahora = new AtomicLong(1_000_000);
+
+    private final Clock reloj = new Clock() {
+        @Override public ZoneId getZone() { return ZoneOffset.UTC; }
+        @Override public Clock withZone(ZoneId zone) { return this; }
+        @Override public Instant instant() { return Instant.ofEpochMilli(ahora.get()); }
+    };
+
+    private final SimpleMeterRegistry registro = new SimpleMeterRegistry();
+
+    // Transporte que recuerda los destinatarios y falla las primeras N veces
+    private static final class TransporteFalso implements TransporteCorreo {
+        final List<String> enviados = new ArrayList<>();
+        final AtomicInteger fallosRestantes = new AtomicInteger();
+
+        @Override
+        public String getNombre() {
+            return "falso";
+        }
+
+        @Override
+        public synchronized void enviar(String destinatario, String asunto, String cuerpo) throws IOException {
+            if (fallosRestantes.getAndDecrement() > 0) throw new IOException("SMTP caído");
+            enviados.add(destinatario);
+        }
+    }
+
+    private DespachadorCorreosVerificacion despachador(TransporteCorreo transporte, int lote, int concurrentes,
+                                                        int intentos, Executor envio) {
+        return new DespachadorCorreosVerificacion(transporte, 64, dir.resolve("correos.desborde"), lote, concurrentes,
+                intentos, 1_000, 10_000, 500, envio, registro, reloj);
+    }
+
+    @Test
+    void despacha_por_lotes_sin_pasar_del_tamano_de_lote() {
+        TransporteFalso transporte = new TransporteFalso();
+        DespachadorCorreosVerificacion d = despachador(transporte, 4, 8, 3, Runnable::run);
+        for (int i = 0; i < 10; i++) d.encolar("u" + i + "@ejemplo.com");
+
+        d.despachar();
+        Assertions.assertEquals(List.of("u0@ejemplo.com", "u1@ejemplo.com", "u2@ejemplo.com", "u3@ejemplo.com"),
+                transporte.enviados);
+        Assertions.assertEquals(6, d.getTamañoCola());
+
+        d.despachar();
+        d.despachar();
+        Assertions.assertEquals(10, transporte.enviados.size());
+        Assertions.assertEquals(10, registro.counter("correos.verificacion.enviados").count());
+        Assertions.assertEquals(10, registro.timer("correos.verificacion.latencia").count());
+    }
+
+    @Test
+    void los_envios_simultaneos_no_pasan_de_max_concurrentes() {
+        // Ejecutor que no ejecuta: los envíos quedan "en vuelo" hasta que el test los suelta
+        List<Runnable> enVuelo = new ArrayList<>();
+        TransporteFalso transporte = new TransporteFalso();
+        DespachadorCorreosVerificacion d = despachador(transporte, 50, 2, 3, enVuelo::add);
+        for (int i = 0; i < 5; i++) d.encolar("u" + i + "@ejemplo.com");
+
+        d.despachar();
+        d.despachar();
+        Assertions.assertEquals(2, enVuelo.size());
+        Assertions.assertEquals(2, d.getEnVuelo());
+        Assertions.assertEquals(3, d.getTamañoCola());
+
+        enVuelo.forEach(Runnable::run);
+        enVuelo.clear();
+        d.despachar();
+        Assertions.assertEquals(2, enVuelo.size());
+        Assertions.assertEquals(2, transporte.enviados.size());
+    }
+
+    @Test
+    void reintenta_con_backoff_y_abandona_al_agotar_los_intentos() {
+        TransporteFalso transporte = new TransporteFalso();
+        transporte.fallosRestantes.set(1);
+        DespachadorCorreosVerificacion d = despachador(transporte, 10, 2, 2, Runnable::run);
+        d.encolar("ana@ejemplo.com");
+
+        d.despachar();
+        Assertions.assertEquals(1, registro.counter("correos.verificacion.fallos").count());
+        Assertions.assertEquals(1, d.getReintentosPendientes());
+
+        // Antes del backoff no se reintenta
+        d.despachar();
+        Assertions.assertTrue(transporte.enviados.isEmpty());
+
+        ahora.addAndGet(10_000);
+        d.despachar();
+        Assertions.assertEquals(List.of("ana@ejemplo.com"), transporte.enviados);
+        Assertions.assertEquals(0, d.getReintentosPendientes());
+
+        // Con max-intentos=2, dos fallos seguidos lo abandonan
+        transporte.fallosRestantes.set(2);
+        d.encolar("luis@ejemplo.com");
+        d.despachar();
+        ahora.addAndGet(10_000);
+        d.despachar();
+        Assertions.assertEquals(1, registro.counter("correos.verificacion.abandonados").count());
+        Assertions.assertEquals(0, d.getReintentosPendientes());
+    }
+
+    @Test
+    void los_fallos_permanentes_no_se_reintentan() {
+        List<String> intentos = new ArrayList<>();
+        TransporteCorreo transporte = new TransporteCorreo() {
+            @Override
+            public String getNombre() {
+                return "rechazos";
+            }
+
+            @Override
+            public void enviar(String destinatario, String asunto, String cuerpo) throws IOException {
+                intentos.add(destinatario);
+                if (destinatario.startsWith("mal")) throw new IllegalArgumentException("Destinatario no válido");
+                throw new TransporteCorreo.RechazoPermanenteException("550 buzón inexistente");
+            }
+        };
+        DespachadorCorreosVerificacion d = despachador(transporte, 10, 2, 5, Runnable::run);
+        d.encolar("mal\r\n@ejemplo.com");
+        d.encolar("nadie@ejemplo.com");
+
+        d.despachar();
+        ahora.addAndGet(60_000);
+        d.despachar();
+        Assertions.assertEquals(2, intentos.size());
+        Assertions.assertEquals(0, d.getReintentosPendientes());
+        Assertions.assertEquals(2, registro.counter("correos.verificacion.abandonados").count());
+    }
+
+    @Test
+    void al_apagar_guarda_lo_pendiente_y_lo_recupera_al_arrancar() throws Exception {
+        TransporteFalso transporte = new TransporteFalso();
+        transporte.fallosRestantes.set(1);
+        DespachadorCorreosVerificacion d = despachador(transporte, 1, 2, 3, Runnable::run);
+        d.encolar("reintento@ejemplo.com");
+        d.despachar(); // falla y queda para reintento
+        d.encolar("cola@ejemplo.com");
+
+        d.detener();
+        Assertions.assertTrue(Files.exists(dir.resolve("correos.desborde")));
+
+        TransporteFalso otro = new TransporteFalso();
+        DespachadorCorreosVerificacion reiniciado = despachador(otro, 10, 2, 3, Runnable::run);
+        Assertions.assertEquals(2, reiniciado.getTamañoCola());
+        reiniciado.despachar();
+        Assertions.assertEquals(2, otro.enviados.size());
+        Assertions.assertTrue(otro.enviados.containsAll(List.of("reintento@ejemplo.com", "cola@ejemplo.com")));
+    }
+
+    @Test
+    void backoff_crece_y_respeta_el_tope() {
+        DespachadorCorreosVerificacion d = despachador(new TransporteFalso(), 1, 1, 3, Runnable::run);
+        long primero = d.backoff(1);
+        Assertions.assertTrue(primero >= 500 && primero <= 1_000);
+        long tercero = d.backoff(3);
+        Assertions.assertTrue(tercero >= 2_000 && tercero <= 4_000);
+        long enorme = d.backoff(60);
+        Assertions.assertTrue(enorme >= 5_000 && enorme <= 10_000);
+    }
+}
@@ -0,0 +1,62 @@
+package com.ejemplo.chatgptwebhook.service;
+
+import com.ejemplo.chatgptwebhook.datastructures.ListaEnlazada;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+class IndiceTitulosTest {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void cierra_los_indices_menos_usados_y_los_reabre_desde_disco() throws Exception {
+        IndiceTitulos indice = new IndiceTitulos(directorio.toString(), 100, 2);
+        indice.indexar(1, "Tienda online");
+        indice.indexar(2, "Blog personal");
+        indice.indexar(3, "Tablero de tareas");
+        Assertions.assertEquals(2, indice.abiertos());
+
+        // El del admin 1 se cerró al abrir el 3; su diario sigue en disco
+        Assertions.assertEquals(List.of("tienda"), lista(indice.sugerir(1, "tie", 5)));
+        Assertions.assertEquals(List.of("tablero", "tareas"), lista(indice.sugerir(3, "ta", 5)));
+        Assertions.assertEquals(2, indice.abiertos());
+        indice.detener();
+    }
+
+    @Test
+    void abrir_y_expulsar_en_paralelo_no_pierde_palabras() throws Exception {
+        IndiceTitulos indice = new IndiceTitulos(directorio.toString(), 5, 2);
+        ExecutorService hilos = Executors.newFixedThreadPool(4);
+        List<Future<?>> tareas = new ArrayList<>();
+        for (int h = 0; h < 4; h++) {
+            tareas.add(hilos.submit(() -> {
+                for (int i = 0; i < 50; i++) {
+                    indice.indexar(i % 6, "tarea");
+                }
+            }));
+        }
+        for (Future<?> tarea : tareas) tarea.get();
+        hilos.shutdown();
+
+        Assertions.assertTrue(indice.abiertos() <= 2);
+        for (long admin = 0; admin < 6; admin++) {
+            Assertions.assertEquals(List.of("tarea"), lista(indice.sugerir(admin, "ta", 5)));
+        }
+        indice.detener();
+    }
+
+    private static List<String> lista(ListaEnlazada<String> lista) {
+        List<String> res = new ArrayList<>();
+        for (String s : lista) res.add(s);
+        return res;
+    }
+}
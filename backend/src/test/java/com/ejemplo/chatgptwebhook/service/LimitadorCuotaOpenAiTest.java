@@ -0,0 +1,89 @@
+package com.ejemplo.chatgptwebhook.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class LimitadorCuotaOpenAiTest {
+
+    @Test
+    void atiende_a_los_usuarios_por_turnos_cuando_no_hay_saldo() {
+        // 1200 tokens/min = 20 tokens/s; cada petición de 2 tokens se recarga en 0,1 s
+        LimitadorCuotaOpenAi limitador = new LimitadorCuotaOpenAi(true, 10_000, 1200, 100, 5000, 0, 10, 100,
+                Duration.ofSeconds(120), new SimpleMeterRegistry());
+        limitador.adquirir("a", 1200).block(Duration.ofSeconds(1)); // agota el bucket
+
+        List<String> orden = new CopyOnWriteArrayList<>();
+        Mono<Void> a1 = limitador.adquirir("a", 2).doOnSuccess(v -> orden.add("a1"));
+        Mono<Void> a2 = limitador.adquirir("a", 2).doOnSuccess(v -> orden.add("a2"));
+        Mono<Void> a3 = limitador.adquirir("a", 2).doOnSuccess(v -> orden.add("a3"));
+        Mono<Void> b1 = limitador.adquirir("b", 2).doOnSuccess(v -> orden.add("b1"));
+
+        Mono.when(a1, a2, a3, b1).block(Duration.ofSeconds(5));
+
+        // b no espera a que se vacíe la cola de a
+        Assertions.assertEquals(List.of("a1", "b1", "a2", "a3"), orden);
+        Assertions.assertEquals(0, limitador.getEnEspera());
+    }
+
+    @Test
+    void rechaza_cuando_la_cola_esta_llena() {
+        LimitadorCuotaOpenAi limitador = new LimitadorCuotaOpenAi(true, 1, 1000, 1, 5000, 0, 10, 100,
+                Duration.ofSeconds(120), new SimpleMeterRegistry());
+        limitador.adquirir("a", 1).block(Duration.ofSeconds(1));
+        limitador.adquirir("a", 1).subscribe(v -> { }, e -> { }); // ocupa la única plaza de espera
+
+        Assertions.assertThrows(ResilienciaOpenAi.OpenAiNoDisponibleException.class,
+                () -> limitador.adquirir("b", 1).block(Duration.ofSeconds(1)));
+    }
+
+    @Test
+    void la_espera_respeta_retry_after_con_jitter() {
+        LimitadorCuotaOpenAi limitador = new LimitadorCuotaOpenAi(true, 500, 90000, 100, 5000, 3, 100, 10_000,
+                Duration.ofSeconds(120), new SimpleMeterRegistry());
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.RETRY_AFTER, "2");
+        WebClientResponseException error = WebClientResponseException.create(
+                HttpStatus.TOO_MANY_REQUESTS.value(), "Too Many Requests", headers, new byte[0], null);
+
+        Duration espera = limitador.calcularEspera(error, 0);
+
+        Assertions.assertTrue(espera.toMillis() >= 2000 && espera.toMillis() <= 3000, espera.toString());
+    }
+
+    @Test
+    void no_reintenta_si_el_reintento_no_cabe_en_el_timeout_de_la_peticion() {
+        WebClientResponseException limite = WebClientResponseException.create(
+                HttpStatus.TOO_MANY_REQUESTS.value(), "Too Many Requests", new HttpHeaders(), new byte[0], null);
+        LimitadorCuotaOpenAi limitador = new LimitadorCuotaOpenAi(true, 500, 90000, 100, 100, 3, 10, 50,
+                Duration.ofSeconds(1), new SimpleMeterRegistry());
+        AtomicInteger intentos = new AtomicInteger();
+        Mono<Void> llamada = Mono.defer(() -> {
+            intentos.incrementAndGet();
+            return Mono.<Void>error(limite);
+        });
+
+        // Llamada corta: caben los tres reintentos con sus esperas de cuota de 100 ms
+        Assertions.assertThrows(WebClientResponseException.class, () -> llamada
+                .retryWhen(limitador.politicaReintentos(Duration.ofMillis(100))).block(Duration.ofSeconds(5)));
+        Assertions.assertEquals(4, intentos.get());
+
+        // Una llamada de 900 ms solo deja sitio a la espera de cuota del primer intento
+        intentos.set(0);
+        Assertions.assertThrows(WebClientResponseException.class, () -> llamada
+                .retryWhen(limitador.politicaReintentos(Duration.ofMillis(900))).block(Duration.ofSeconds(5)));
+        Assertions.assertEquals(1, intentos.get());
+        Assertions.assertEquals(Duration.ofMillis(100), limitador.esperaPermitida(Duration.ofMillis(100)));
+        Assertions.assertEquals(Duration.ofMillis(50), limitador.esperaPermitida(Duration.ofMillis(950)));
+        Assertions.assertEquals(Duration.ZERO, limitador.esperaPermitida(Duration.ofSeconds(2)));
+    }
+}
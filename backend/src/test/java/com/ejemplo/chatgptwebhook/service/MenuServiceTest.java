@@ -0,0 +1,124 @@
+package com.ejemplo.chatgptwebhook.service;
+
+import com.ejemplo.chatgptwebhook.model.EventoGeneracion;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MenuServiceTest {
+
+    @Mock ChatGptService chatGptService;
+    @Mock ProjectService projectService;
+    @Mock AgrupadorPromptsChatGpt agrupadorPrompts;
+    @Mock IndiceTitulos indiceTitulos;
+    @Spy AlmacenSesiones almacenSesiones = new AlmacenSesiones(30, 100, 30, 30, new SimpleMeterRegistry());
+
+    @InjectMocks MenuService menuService;
+
+    private static final String RESPUESTA =
+            "1. Definir requisitos\n2. Diseñar base de datos\n3. Implementar API\n\nNombre del proyecto: Tienda Online";
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(menuService, "maxHilosPersistencia", 2);
+        ReflectionTestUtils.setField(menuService, "maxColaPersistencia", 10);
+        menuService.iniciarSchedulerPersistencia();
+    }
+
+    @AfterEach
+    void tearDown() {
+        menuService.detenerSchedulerPersistencia();
+    }
+
+    @Test
+    void crearProyecto_no_bloquea_hasta_que_ChatGPT_responde_y_luego_persiste() {
+        Sinks.One<String> respuesta = Sinks.one();
+        when(chatGptService.enviarMensajeConTokens(anyString(), eq(3000))).thenReturn(respuesta.asMono());
+        menuService.setAdminUserForSession("s1", 5L);
+
+        Mono<String> resultado = menuService.procesarOpcionWebConDatosYSesion(1, "tienda online", "s1");
+
+        // Construir el Mono no debe tocar la BD ni esperar a ChatGPT
+        verifyNoInteractions(projectService);
+
+        respuesta.tryEmitValue(RESPUESTA);
+        String texto = resultado.block(Duration.ofSeconds(5));
+
+        Assertions.assertNotNull(texto);
+        Assertions.assertTrue(texto.contains("PROYECTO DESARROLLADO"));
+        verify(projectService).createProjectForAdmin(eq(5L), eq("Tienda Online"), eq(RESPUESTA), anyList());
+    }
+
+    @Test
+    void crearProyecto_error_de_ChatGPT_devuelve_mensaje_sin_conexion() {
+        when(chatGptService.enviarMensajeConTokens(anyString(), eq(3000)))
+                .thenReturn(Mono.error(new IllegalStateException("caído")));
+
+        String texto = menuService.procesarOpcionWebConDatosYSesion(1, "app de tareas", "s2")
+                .block(Duration.ofSeconds(5));
+
+        Assertions.assertNotNull(texto);
+        Assertions.assertTrue(texto.contains("No pude conectar con ChatGPT"));
+        verify(projectService, never()).createProjectForAdmin(anyLong(), anyString(), anyString(), anyList());
+    }
+
+    @Test
+    void crearProyecto_streaming_emite_tareas_segun_se_completan_las_lineas() {
+        when(chatGptService.transmitirMensajeConTokens(anyString(), eq(3000)))
+                .thenReturn(Flux.just("1. Definir req", "uisitos\n2. Diseñar", " base de datos\n", "Nombre del proyecto: Tienda"));
+
+        List<EventoGeneracion> eventos = menuService.transmitirIdeaProyectoConChatGPT("tienda online", "s3")
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        Assertions.assertNotNull(eventos);
+        List<String> tareas = eventos.stream()
+                .filter(e -> EventoGeneracion.TAREA.equals(e.getTipo()))
+                .map(EventoGeneracion::getDatos)
+                .toList();
+        Assertions.assertEquals(List.of("Definir requisitos", "Diseñar base de datos"), tareas);
+
+        EventoGeneracion ultimo = eventos.get(eventos.size() - 1);
+        Assertions.assertEquals(EventoGeneracion.FIN, ultimo.getTipo());
+        Assertions.assertTrue(ultimo.getDatos().contains("PROYECTO DESARROLLADO"));
+    }
+
+    @Test
+    void crearProyecto_streaming_con_error_de_ChatGPT_guarda_el_proyecto_minimo_como_sin_streaming() {
+        when(chatGptService.transmitirMensajeConTokens(anyString(), eq(3000))).thenReturn(Flux.error(
+                new ChatGptService.ErrorChatGptException(ChatGptService.MENSAJE_NO_DISPONIBLE, new IllegalStateException())));
+        menuService.setAdminUserForSession("s4", 5L);
+
+        List<EventoGeneracion> eventos = menuService.transmitirIdeaProyectoConChatGPT("tienda online", "s4")
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        Assertions.assertNotNull(eventos);
+        EventoGeneracion ultimo = eventos.get(eventos.size() - 1);
+        Assertions.assertEquals(EventoGeneracion.FIN, ultimo.getTipo());
+        Assertions.assertTrue(ultimo.getDatos().contains("Desarrollo básico"), ultimo.getDatos());
+        // Nombre derivado de la idea, no del texto de error
+        String nombre = almacenSesiones.obtener("s4").getNombreProyecto();
+        Assertions.assertNotNull(nombre);
+        Assertions.assertFalse(nombre.contains("ChatGPT"), nombre);
+        verify(projectService).createProjectForAdmin(eq(5L), eq(nombre), eq("tienda online"), eq(List.of()));
+    }
+}
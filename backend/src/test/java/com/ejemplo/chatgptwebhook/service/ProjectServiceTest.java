@@ -31,6 +31,8 @@ class ProjectServiceTest {
     TaskRepository taskRepository;
     @Mock
     UsuarioRepository usuarioRepository;
+    @Mock
+    IndiceTareas indiceTareas;
 
     @InjectMocks
     ProjectService projectService;
@@ -117,4 +119,30 @@ class ProjectServiceTest {
         Assertions.assertEquals("HIGH", dto.getPriority()); // 1 -> HIGH
         Assertions.assertNotNull(dto.getDueDate());
     }
-}
\ No newline at end of file
+
+    @Test
+    void buscarTareas_devuelve_las_tareas_en_el_orden_del_indice_y_updateTask_reindexa() {
+        Task a = new Task();
+        a.setId(1L);
+        a.setTitle("Diseñar base de datos");
+        Task b = new Task();
+        b.setId(2L);
+        b.setTitle("Documentar la base de datos");
+        when(indiceTareas.buscar(5L, "base", 20)).thenReturn(List.of(2L, 1L));
+        when(taskRepository.findAllById(List.of(2L, 1L))).thenReturn(List.of(a, b));
+
+        List<TaskDto> dtos = projectService.buscarTareas(5L, "base", 20);
+
+        Assertions.assertEquals(List.of(2L, 1L), dtos.stream().map(TaskDto::getId).toList());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> projectService.buscarTareas(5L, " ", 20));
+
+        when(taskRepository.findById(1L)).thenReturn(Optional.of(a));
+        when(taskRepository.save(any(Task.class))).thenAnswer(invocation -> invocation.getArgument(0, Task.class));
+        when(taskRepository.findAdminUserIdByTaskId(1L)).thenReturn(Optional.of(5L));
+        TaskUpdateRequest req = new TaskUpdateRequest();
+        req.setTitle("Diseñar esquema");
+        projectService.updateTask(1L, req);
+
+        verify(indiceTareas).indexar(5L, a);
+    }
+}
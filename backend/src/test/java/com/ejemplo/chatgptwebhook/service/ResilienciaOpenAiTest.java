@@ -0,0 +1,80 @@
+package com.ejemplo.chatgptwebhook.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+class ResilienciaOpenAiTest {
+
+    private ResilienciaOpenAi crear(int maxConcurrentes, long abiertoSegundos) {
+        // ventana 4, mínimo 4 llamadas, abre con 50% de fallos
+        return new ResilienciaOpenAi(4, 4, 0.5, 0.8, 60000, abiertoSegundos, 1,
+                maxConcurrentes, 1, maxConcurrentes, 30000, 20, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void circuito_se_abre_con_fallos_y_rechaza_sin_llamar() {
+        ResilienciaOpenAi resiliencia = crear(10, 60);
+
+        resiliencia.proteger(Mono.just("ok")).block();
+        resiliencia.proteger(Mono.just("ok")).block();
+        for (int i = 0; i < 2; i++) {
+            Assertions.assertThrows(IllegalStateException.class,
+                    () -> resiliencia.proteger(Mono.error(new IllegalStateException("500"))).block());
+        }
+
+        Assertions.assertEquals(ResilienciaOpenAi.EstadoCircuito.ABIERTO, resiliencia.getEstado());
+        Assertions.assertThrows(ResilienciaOpenAi.OpenAiNoDisponibleException.class,
+                () -> resiliencia.proteger(Mono.fromCallable(() -> { throw new AssertionError("no debe llamarse"); })).block());
+    }
+
+    @Test
+    void semiabierto_cierra_tras_llamada_de_prueba_correcta() {
+        ResilienciaOpenAi resiliencia = crear(10, 0);
+        for (int i = 0; i < 4; i++) {
+            Assertions.assertThrows(IllegalStateException.class,
+                    () -> resiliencia.proteger(Mono.error(new IllegalStateException("timeout"))).block());
+        }
+
+        // abierto-segundos = 0: pasa a semiabierto inmediatamente
+        Assertions.assertEquals(ResilienciaOpenAi.EstadoCircuito.SEMIABIERTO, resiliencia.getEstado());
+        Assertions.assertEquals("ok", resiliencia.proteger(Mono.just("ok")).block());
+        Assertions.assertEquals(ResilienciaOpenAi.EstadoCircuito.CERRADO, resiliencia.getEstado());
+    }
+
+    @Test
+    void bulkhead_rechaza_por_encima_del_maximo_de_concurrentes() {
+        ResilienciaOpenAi resiliencia = crear(2, 60);
+        Sinks.One<String> lenta = Sinks.one();
+
+        resiliencia.proteger(lenta.asMono()).subscribe();
+        resiliencia.proteger(lenta.asMono()).subscribe();
+        Assertions.assertEquals(2, resiliencia.getEnCurso());
+
+        Assertions.assertThrows(ResilienciaOpenAi.OpenAiNoDisponibleException.class,
+                () -> resiliencia.proteger(Mono.just("x")).block());
+
+        lenta.tryEmitValue("fin");
+        Assertions.assertEquals(0, resiliencia.getEnCurso());
+    }
+
+    @Test
+    void una_respuesta_larga_no_cuenta_como_lenta_si_cabe_en_su_tiempo_de_generacion() {
+        // Objetivo de 50 ms más 1 ms por token pedido
+        ResilienciaOpenAi resiliencia = new ResilienciaOpenAi(4, 4, 0.5, 0.8, 60000, 60, 1,
+                10, 1, 10, 50, 1, new SimpleMeterRegistry());
+        // Síncrona: el permiso se libera antes de que block() devuelva
+        Mono<String> cienMs = Mono.fromCallable(() -> {
+            Thread.sleep(100);
+            return "ok";
+        });
+
+        resiliencia.proteger(cienMs, 500).block();
+        Assertions.assertEquals(10, resiliencia.getLimite(), 1e-9);
+
+        resiliencia.proteger(cienMs, 0).block();
+        Assertions.assertEquals(9, resiliencia.getLimite(), 1e-9);
+    }
+}
@@ -0,0 +1,56 @@
+package com.ejemplo.chatgptwebhook.service;
+
+import com.ejemplo.chatgptwebhook.model.ChatGptRequest;
+import com.ejemplo.chatgptwebhook.model.ChatGptResponse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+class StubProveedorLlmTest {
+
+    private static ChatGptRequest peticion(boolean stream) {
+        return new ChatGptRequest("gpt-test",
+                List.of(Map.of("role", "user", "content", "El usuario tiene la siguiente idea de proyecto: \"tienda online\"")),
+                3000, 0.7, stream);
+    }
+
+    @Test
+    void completar_devuelve_diez_tareas_numeradas_nombre_y_usage() {
+        StubProveedorLlm stub = new StubProveedorLlm(0, 0, 0, 0, 0, 42L);
+
+        ChatGptResponse respuesta = stub.completar(peticion(false)).block(Duration.ofSeconds(5));
+
+        String texto = respuesta.getChoices().get(0).getMessage().getContent();
+        Assertions.assertTrue(texto.contains("1. Definir el alcance"));
+        Assertions.assertTrue(texto.contains("10. Desplegar tienda online"));
+        Assertions.assertTrue(texto.contains("Nombre del proyecto: Tienda Online"));
+        Assertions.assertTrue(respuesta.getUsage().getCompletionTokens() > 0);
+    }
+
+    @Test
+    void transmitir_emite_una_linea_por_fragmento_y_usage_al_final() {
+        StubProveedorLlm stub = new StubProveedorLlm(0, 0, 0, 0, 0, 42L);
+
+        List<ChatGptResponse> fragmentos = stub.transmitir(peticion(true)).collectList().block(Duration.ofSeconds(5));
+
+        ChatGptResponse ultimo = fragmentos.get(fragmentos.size() - 1);
+        Assertions.assertTrue(ultimo.getChoices().isEmpty());
+        Assertions.assertNotNull(ultimo.getUsage());
+        Assertions.assertTrue(fragmentos.stream().anyMatch(f -> !f.getChoices().isEmpty()
+                && f.getChoices().get(0).getDelta().getContent().startsWith("3. ")));
+    }
+
+    @Test
+    void inyecta_429_con_retry_after() {
+        StubProveedorLlm stub = new StubProveedorLlm(0, 0, 0, 1.0, 0, 42L);
+
+        WebClientResponseException error = Assertions.assertThrows(WebClientResponseException.class,
+                () -> stub.completar(peticion(false)).block(Duration.ofSeconds(5)));
+        Assertions.assertEquals(429, error.getStatusCode().value());
+        Assertions.assertEquals("1", error.getHeaders().getFirst("Retry-After"));
+    }
+}
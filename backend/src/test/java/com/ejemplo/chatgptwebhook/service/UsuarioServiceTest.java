@@ -1,18 +1,25 @@
 package com.ejemplo.chatgptwebhook.service;
 
+import com.ejemplo.chatgptwebhook.entities.Role;
 import com.ejemplo.chatgptwebhook.entities.Usuario;
+import com.ejemplo.chatgptwebhook.model.UsuarioRequest;
 import com.ejemplo.chatgptwebhook.repository.UsuarioRepository;
 import com.ejemplo.chatgptwebhook.repository.RoleRepository;
 import com.ejemplo.chatgptwebhook.repository.UserRoleRepository;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
 
 import java.util.Optional;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -21,9 +28,52 @@ class UsuarioServiceTest {
     @Mock RoleRepository roleRepository;
     @Mock UserRoleRepository userRoleRepository;
     @Mock PasswordService passwordService;
+    @Mock DespachadorCorreosVerificacion despachadorCorreos;
 
     @InjectMocks UsuarioService usuarioService;
 
+    @AfterEach
+    void limpiarTransaccion() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private UsuarioRequest solicitud(String email) {
+        UsuarioRequest request = new UsuarioRequest(email, "12345678", "Ana", "Pérez", null, null, null);
+        when(passwordService.encryptPassword("12345678")).thenReturn("$hash");
+        when(usuarioRepository.save(any(Usuario.class))).thenAnswer(i -> i.getArgument(0));
+        when(roleRepository.findByRoleName("EMPLEADO")).thenReturn(Optional.of(new Role("EMPLEADO")));
+        return request;
+    }
+
+    @Test
+    void registrarUsuario_encola_el_correo_solo_tras_el_commit() {
+        UsuarioRequest request = solicitud("nuevo@ejemplo.com");
+        TransactionSynchronizationManager.initSynchronization();
+
+        usuarioService.registrarUsuario(request);
+        verify(despachadorCorreos, never()).encolar(anyString());
+
+        TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+        verify(despachadorCorreos).encolar("nuevo@ejemplo.com");
+    }
+
+    @Test
+    void registrarUsuario_sin_commit_no_encola_correo_si_falla_el_rol() {
+        UsuarioRequest request = solicitud("fallido@ejemplo.com");
+        when(userRoleRepository.save(any())).thenThrow(new IllegalStateException("BD caída"));
+        TransactionSynchronizationManager.initSynchronization();
+
+        Assertions.assertThrows(IllegalStateException.class, () -> usuarioService.registrarUsuario(request));
+
+        Assertions.assertTrue(TransactionSynchronizationManager.getSynchronizations().isEmpty());
+        verify(despachadorCorreos, never()).encolar(anyString());
+        // Tampoco queda en la tabla hash: el login va a la BD
+        when(usuarioRepository.findByEmail("fallido@ejemplo.com")).thenReturn(Optional.empty());
+        Assertions.assertNull(usuarioService.autenticarUsuario("fallido@ejemplo.com", "12345678"));
+    }
+
     @Test
     void autenticarUsuario_ok_cargaCache_y_no_reconsulta_DB_en_segundo_intento() {
         String email = "yttye@gmail.com";